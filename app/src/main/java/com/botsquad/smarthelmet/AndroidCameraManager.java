@@ -17,13 +17,13 @@ import android.media.Image;
 import android.media.ImageReader;
 import android.os.Handler;
 import android.os.HandlerThread;
+import android.os.SystemClock;
 import android.util.Log;
 import android.util.Size;
 import android.view.Surface;
 import android.view.SurfaceHolder;
 import android.view.SurfaceView;
 
-import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.List;
 
@@ -35,6 +35,11 @@ public class AndroidCameraManager {
     private static final String TAG = "AndroidCameraManager";
     private static final int PREVIEW_WIDTH = 640;
     private static final int PREVIEW_HEIGHT = 480;
+    // Preview can go up to 1080p; analysis gets the smallest size that covers what it asked for
+    private static final int MAX_PREVIEW_WIDTH = 1920;
+    private static final int MAX_PREVIEW_HEIGHT = 1080;
+    private static final float PREFERRED_ASPECT = 4f / 3f;
+    private static final long DEFAULT_MAX_FRAME_AGE_MS = 150;
     
     private Context context;
     private CameraManager cameraManager;
@@ -48,16 +53,44 @@ public class AndroidCameraManager {
     private SurfaceHolder previewSurfaceHolder;
     
     private CameraFrameCallback frameCallback;
+    private volatile FrameAnalyzer frameAnalyzer;
     private boolean isCapturing = false;
     
+    private int analysisWidth = PREVIEW_WIDTH;
+    private int analysisHeight = PREVIEW_HEIGHT;
+    private Size analysisSize;
+    private Size previewSize;
+    // Sensor timestamps are on SystemClock.elapsedRealtimeNanos() (else only comparable to each other)
+    private boolean realtimeTimestamps = false;
+    private SensorFrameGate frameGate = new SensorFrameGate(DEFAULT_MAX_FRAME_AGE_MS * 1_000_000L);
+    
+    // Camera thread only, reused across frames
+    private final YuvConverter yuvConverter = new YuvConverter();
+    private Bitmap frameBitmap;
+    private int[] framePixels;
+    
     /**
      * Callback interface for receiving camera frames
      */
     public interface CameraFrameCallback {
+        /** Called on the camera thread; the bitmap is reused for the next frame, so copy it to keep it */
         void onFrameReceived(Bitmap frame);
         void onError(Exception error);
     }
     
+    /**
+     * Consumer of raw YUV_420_888 frames, as an alternative to Bitmaps via {@link CameraFrameCallback}
+     */
+    public interface FrameAnalyzer {
+        /**
+         * Called on the camera thread with the newest frame that is not stale; the image is
+         * closed when this returns. sensorTimestampNs is its SENSOR_TIMESTAMP (start of exposure).
+         * captureTimeMs is that moment on the wall clock when the sensor clock is known, else
+         * the time the frame arrived.
+         */
+        void analyze(Image image, long sensorTimestampNs, long captureTimeMs);
+    }
+    
     public AndroidCameraManager(Context context) {
         this.context = context;
         this.cameraManager = (CameraManager) context.getSystemService(Context.CAMERA_SERVICE);
@@ -69,7 +102,13 @@ public class AndroidCameraManager {
     public void initialize(SurfaceView previewSurfaceView) {
         this.previewSurfaceView = previewSurfaceView;
         this.previewSurfaceHolder = previewSurfaceView.getHolder();
-        
+        initialize();
+    }
+    
+    /**
+     * Initialize camera for analysis only, without a preview surface
+     */
+    public void initialize() {
         try {
             // Find front-facing camera (for driver monitoring)
             cameraId = getFrontCameraId();
@@ -84,6 +123,7 @@ public class AndroidCameraManager {
             }
             
             Log.d(TAG, "Using camera: " + cameraId);
+            chooseStreamSizes();
             
             // Create background thread for camera operations
             startBackgroundThread();
@@ -108,14 +148,20 @@ public class AndroidCameraManager {
         this.frameCallback = callback;
         
         try {
-            // Create ImageReader for capturing frames (use YUV format for ImageReader)
+            // Create ImageReader for capturing frames (use YUV format for ImageReader), at the analysis size
+            Size readerSize = analysisSize != null ? analysisSize : new Size(PREVIEW_WIDTH, PREVIEW_HEIGHT);
             imageReader = ImageReader.newInstance(
-                PREVIEW_WIDTH, 
-                PREVIEW_HEIGHT, 
+                readerSize.getWidth(), 
+                readerSize.getHeight(), 
                 ImageFormat.YUV_420_888, 
                 2 // Buffer count
             );
+            if (previewSurfaceHolder != null && previewSize != null) {
+                previewSurfaceHolder.setFixedSize(previewSize.getWidth(), previewSize.getHeight());
+            }
             
+            // Latest frame wins: while a frame is being processed on the camera thread, newer ones
+            // replace each other in the reader and the next callback takes only the newest
             imageReader.setOnImageAvailableListener(reader -> {
                 Image image = reader.acquireLatestImage();
                 if (image != null) {
@@ -167,21 +213,27 @@ public class AndroidCameraManager {
                 return;
             }
             
-            if (previewSurfaceHolder == null || previewSurfaceHolder.getSurface() == null) {
-                Log.e(TAG, "Preview surface is not ready yet");
-                return;
-            }
-            
-            Surface previewSurface = previewSurfaceHolder.getSurface();
-            if (!previewSurface.isValid()) {
-                Log.e(TAG, "Preview surface is not valid");
-                return;
+            Surface previewSurface = null;
+            if (previewSurfaceView != null) {
+                if (previewSurfaceHolder == null || previewSurfaceHolder.getSurface() == null) {
+                    Log.e(TAG, "Preview surface is not ready yet");
+                    return;
+                }
+                
+                previewSurface = previewSurfaceHolder.getSurface();
+                if (!previewSurface.isValid()) {
+                    Log.e(TAG, "Preview surface is not valid");
+                    return;
+                }
             }
             
             Surface imageReaderSurface = imageReader.getSurface();
-            Log.d(TAG, "Creating capture session with preview surface and ImageReader");
+            Log.d(TAG, "Creating capture session with " + (previewSurface != null ? "preview surface and " : "") + "ImageReader");
             
-            List<Surface> surfaces = Arrays.asList(previewSurface, imageReaderSurface);
+            List<Surface> surfaces = previewSurface != null
+                ? Arrays.asList(previewSurface, imageReaderSurface)
+                : Arrays.asList(imageReaderSurface);
+            final Surface sessionPreviewSurface = previewSurface;
             
             cameraDevice.createCaptureSession(surfaces, new CameraCaptureSession.StateCallback() {
                 @Override
@@ -196,7 +248,9 @@ public class AndroidCameraManager {
                         // Create capture request for preview
                         CaptureRequest.Builder previewRequestBuilder = 
                             cameraDevice.createCaptureRequest(CameraDevice.TEMPLATE_PREVIEW);
-                        previewRequestBuilder.addTarget(previewSurface);
+                        if (sessionPreviewSurface != null) {
+                            previewRequestBuilder.addTarget(sessionPreviewSurface);
+                        }
                         previewRequestBuilder.addTarget(imageReaderSurface);
                         
                         // Set auto-focus
@@ -209,7 +263,14 @@ public class AndroidCameraManager {
                         
                         // Start repeating requests for continuous capture
                         CaptureRequest previewRequest = previewRequestBuilder.build();
-                        captureSession.setRepeatingRequest(previewRequest, null, backgroundHandler);
+                        captureSession.setRepeatingRequest(previewRequest, new CameraCaptureSession.CaptureCallback() {
+                            @Override
+                            public void onCaptureStarted(CameraCaptureSession session, CaptureRequest request,
+                                                         long timestamp, long frameNumber) {
+                                // timestamp is the frame's SENSOR_TIMESTAMP
+                                frameGate.onExposureStarted(timestamp);
+                            }
+                        }, backgroundHandler);
                         
                         Log.d(TAG, "Camera capture session started");
                         
@@ -243,6 +304,21 @@ public class AndroidCameraManager {
      */
     private void processImage(Image image) {
         try {
+            FrameAnalyzer analyzer = frameAnalyzer;
+            if (analyzer != null) {
+                // Image timestamp == SENSOR_TIMESTAMP of the capture; judge age by it before converting anything
+                long sensorTimestampNs = image.getTimestamp();
+                long nowNs = realtimeTimestamps ? SystemClock.elapsedRealtimeNanos() : SensorFrameGate.NO_CLOCK;
+                if (frameGate.onFrame(sensorTimestampNs, nowNs) != SensorFrameGate.Decision.ADMIT) {
+                    return;
+                }
+                long captureTimeMs = realtimeTimestamps
+                    ? System.currentTimeMillis() - (nowNs - sensorTimestampNs) / 1_000_000L
+                    : System.currentTimeMillis();
+                // Raw planes straight to the analyzer, no Bitmap conversion
+                analyzer.analyze(image, sensorTimestampNs, captureTimeMs);
+                return;
+            }
             if (frameCallback == null) {
                 return;
             }
@@ -262,44 +338,20 @@ public class AndroidCameraManager {
     }
     
     /**
-     * Convert Image (YUV_420_888) to Bitmap
+     * Convert Image (YUV_420_888) to Bitmap straight from the planes, into a bitmap that is
+     * reused for every frame (valid until the next frame)
      */
     private Bitmap imageToBitmap(Image image) {
         try {
-            // Get Y plane (luminance)
-            Image.Plane[] planes = image.getPlanes();
-            ByteBuffer yBuffer = planes[0].getBuffer();
-            ByteBuffer uBuffer = planes[1].getBuffer();
-            ByteBuffer vBuffer = planes[2].getBuffer();
-            
-            int ySize = yBuffer.remaining();
-            int uSize = uBuffer.remaining();
-            int vSize = vBuffer.remaining();
-            
-            byte[] nv21 = new byte[ySize + uSize + vSize];
-            
-            yBuffer.get(nv21, 0, ySize);
-            vBuffer.get(nv21, ySize, vSize);
-            uBuffer.get(nv21, ySize + vSize, uSize);
-            
-            // Convert YUV to RGB Bitmap
-            android.graphics.YuvImage yuvImage = new android.graphics.YuvImage(
-                nv21, 
-                android.graphics.ImageFormat.NV21, 
-                image.getWidth(), 
-                image.getHeight(), 
-                null
-            );
-            
-            java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
-            yuvImage.compressToJpeg(
-                new android.graphics.Rect(0, 0, image.getWidth(), image.getHeight()), 
-                100, 
-                out
-            );
-            
-            byte[] imageBytes = out.toByteArray();
-            return android.graphics.BitmapFactory.decodeByteArray(imageBytes, 0, imageBytes.length);
+            int width = image.getWidth();
+            int height = image.getHeight();
+            if (frameBitmap == null || frameBitmap.getWidth() != width || frameBitmap.getHeight() != height) {
+                frameBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+                framePixels = new int[width * height];
+            }
+            yuvConverter.toArgb(image, framePixels);
+            frameBitmap.setPixels(framePixels, 0, width, 0, 0, width, height);
+            return frameBitmap;
             
         } catch (Exception e) {
             Log.e(TAG, "Error converting image to bitmap: " + e.getMessage(), e);
@@ -307,13 +359,116 @@ public class AndroidCameraManager {
         }
     }
     
+    /**
+     * Send frames to the analyzer as YUV Images instead of converting them to Bitmaps for the
+     * frame callback (null to go back to Bitmaps). Errors still go to the frame callback.
+     */
+    public void setFrameAnalyzer(FrameAnalyzer analyzer) {
+        this.frameAnalyzer = analyzer;
+    }
+    
+    /**
+     * Minimum analysis resolution; the camera's smallest YUV size covering it is used. Call
+     * before {@link #initialize()}.
+     */
+    public void setAnalysisSize(int width, int height) {
+        this.analysisWidth = width;
+        this.analysisHeight = height;
+    }
+    
+    /**
+     * Frames whose exposure started more than this before the newest one (or now) are dropped
+     * unconverted. Call before {@link #startCapture}.
+     */
+    public void setMaxFrameAgeMs(long maxAgeMs) {
+        this.frameGate = new SensorFrameGate(maxAgeMs * 1_000_000L);
+    }
+    
+    public Size getAnalysisSize() {
+        return analysisSize;
+    }
+    
+    public Size getPreviewSize() {
+        return previewSize;
+    }
+    
+    public SensorFrameGate getFrameGate() {
+        return frameGate;
+    }
+    
+    /**
+     * Separate preview and analysis resolutions from what the camera supports, and whether
+     * its sensor timestamps can be compared with elapsedRealtime.
+     */
+    private void chooseStreamSizes() throws CameraAccessException {
+        CameraCharacteristics characteristics = cameraManager.getCameraCharacteristics(cameraId);
+        Integer timestampSource = characteristics.get(CameraCharacteristics.SENSOR_INFO_TIMESTAMP_SOURCE);
+        realtimeTimestamps = timestampSource != null
+            && timestampSource == CameraCharacteristics.SENSOR_INFO_TIMESTAMP_SOURCE_REALTIME;
+        
+        StreamConfigurationMap map = characteristics.get(CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP);
+        if (map == null) {
+            Log.w(TAG, "No stream configuration map, using " + PREVIEW_WIDTH + "x" + PREVIEW_HEIGHT);
+            return;
+        }
+        Size[] yuvSizes = map.getOutputSizes(ImageFormat.YUV_420_888);
+        if (yuvSizes != null && yuvSizes.length > 0) {
+            analysisSize = yuvSizes[CameraStreamSizes.chooseAnalysisSize(dimensions(yuvSizes),
+                analysisWidth, analysisHeight, PREFERRED_ASPECT)];
+        }
+        Size[] previewSizes = map.getOutputSizes(SurfaceHolder.class);
+        if (previewSurfaceView != null && previewSizes != null && previewSizes.length > 0) {
+            previewSize = previewSizes[CameraStreamSizes.choosePreviewSize(dimensions(previewSizes),
+                MAX_PREVIEW_WIDTH, MAX_PREVIEW_HEIGHT, PREFERRED_ASPECT)];
+        }
+        Log.d(TAG, "Analysis " + analysisSize + ", preview " + previewSize + ", realtime timestamps " + realtimeTimestamps);
+    }
+    
+    /**
+     * {width0, height0, width1, height1, ...} for {@link CameraStreamSizes}
+     */
+    private static int[] dimensions(Size[] sizes) {
+        int[] dimensions = new int[sizes.length * 2];
+        for (int i = 0; i < sizes.length; i++) {
+            dimensions[i * 2] = sizes[i].getWidth();
+            dimensions[i * 2 + 1] = sizes[i].getHeight();
+        }
+        return dimensions;
+    }
+    
     /**
      * Stop camera capture
      */
     public void stopCapture() {
+        stopCapture(null);
+    }
+    
+    /**
+     * Stop camera capture without waiting for the camera thread. The session and reader are
+     * closed on the camera thread once the frame it is processing (if any) is done, since
+     * closing the reader closes that frame's Image; onStopped then runs there, after the last
+     * frame, before the thread exits.
+     */
+    public void stopCapture(Runnable onStopped) {
         isCapturing = false;
-        closeCamera();
-        stopBackgroundThread();
+        Handler handler = backgroundHandler;
+        HandlerThread thread = backgroundThread;
+        backgroundHandler = null;
+        backgroundThread = null;
+        if (handler == null) {
+            closeCamera();
+            if (onStopped != null) {
+                onStopped.run();
+            }
+            return;
+        }
+        handler.post(() -> {
+            closeCamera();
+            if (onStopped != null) {
+                onStopped.run();
+            }
+        });
+        thread.quitSafely();
     }
     
     /**
@@ -362,22 +517,6 @@ public class AndroidCameraManager {
         backgroundHandler = new Handler(backgroundThread.getLooper());
     }
     
-    /**
-     * Stop background thread
-     */
-    private void stopBackgroundThread() {
-        if (backgroundThread != null) {
-            backgroundThread.quitSafely();
-            try {
-                backgroundThread.join();
-                backgroundThread = null;
-                backgroundHandler = null;
-            } catch (InterruptedException e) {
-                Log.e(TAG, "Error stopping background thread: " + e.getMessage(), e);
-            }
-        }
-    }
-    
     /**
      * Check if camera is available
      */
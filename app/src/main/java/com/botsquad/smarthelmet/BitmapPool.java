@@ -0,0 +1,230 @@
+package com.botsquad.smarthelmet;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Size-keyed pool of mutable bitmaps for decoding stream frames with {@code inBitmap}.
+ *
+ * Frames are decoded at a power-of-two sample size that still covers the preview surface,
+ * in RGB_565 unless the preview enlarges them. Once a frame has been drawn it goes back to
+ * the pool with {@link #release(Bitmap)}, so steady-state streaming allocates no bitmaps.
+ * {@link #decode} must be called from one thread at a time (the stream thread);
+ * acquire/release are thread-safe.
+ */
+public class BitmapPool {
+    private static final String TAG = "BitmapPool";
+    public static final int DEFAULT_MAX_POOLED = 3;
+
+    private final int maxPooled;
+    private final Map<Long, ArrayDeque<Bitmap>> pool = new HashMap<>();
+    private int pooledCount = 0;
+
+    // Reused across decodes (stream thread only)
+    private final BitmapFactory.Options options = new BitmapFactory.Options();
+    private volatile int sourceWidth = 0;
+    private volatile int sourceHeight = 0;
+
+    private long reusedCount = 0;
+    private long allocatedCount = 0;
+
+    public BitmapPool() {
+        this(DEFAULT_MAX_POOLED);
+    }
+
+    public BitmapPool(int maxPooled) {
+        this.maxPooled = Math.max(1, maxPooled);
+    }
+
+    /**
+     * Decode a JPEG from data[offset, offset + length) for display in a target of the given
+     * size (0 = unknown, decode at full size). Returns null if the data can't be decoded.
+     */
+    public Bitmap decode(byte[] data, int offset, int length, int targetWidth, int targetHeight) {
+        // Header-only pass for the source dimensions
+        options.inJustDecodeBounds = true;
+        options.inBitmap = null;
+        options.inSampleSize = 1;
+        BitmapFactory.decodeByteArray(data, offset, length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        sourceWidth = options.outWidth;
+        sourceHeight = options.outHeight;
+
+        int sampleSize = calculateInSampleSize(options.outWidth, options.outHeight, targetWidth, targetHeight);
+        int width = scaledSize(options.outWidth, sampleSize);
+        int height = scaledSize(options.outHeight, sampleSize);
+        Bitmap.Config config = chooseConfig(width, height, targetWidth, targetHeight);
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inPreferredConfig = config;
+        options.inMutable = true;
+        options.inBitmap = acquire(width, height, config);
+
+        Bitmap result;
+        try {
+            result = BitmapFactory.decodeByteArray(data, offset, length, options);
+        } catch (IllegalArgumentException e) {
+            if (options.inBitmap == null) {
+                throw e;
+            }
+            // The pooled bitmap couldn't be reused for this image - decode into a new one
+            Log.w(TAG, "inBitmap rejected: " + e.getMessage());
+            options.inBitmap.recycle();
+            options.inBitmap = null;
+            result = BitmapFactory.decodeByteArray(data, offset, length, options);
+        }
+
+        synchronized (this) {
+            if (result != null && result == options.inBitmap) {
+                reusedCount++;
+            } else {
+                allocatedCount++;
+                if (options.inBitmap != null) {
+                    // Decode failed after taking the pooled bitmap - give it back
+                    release(options.inBitmap);
+                }
+            }
+        }
+        options.inBitmap = null;
+        return result;
+    }
+
+    /**
+     * A pooled bitmap that can hold width x height pixels in config, or null.
+     * Exact sizes are preferred; any larger allocation also works for inBitmap.
+     */
+    public synchronized Bitmap acquire(int width, int height, Bitmap.Config config) {
+        ArrayDeque<Bitmap> exact = pool.get(key(width, height, config));
+        if (exact != null && !exact.isEmpty()) {
+            pooledCount--;
+            return exact.poll();
+        }
+        long needed = (long) width * height * bytesPerPixel(config);
+        for (ArrayDeque<Bitmap> bitmaps : pool.values()) {
+            Iterator<Bitmap> it = bitmaps.iterator();
+            while (it.hasNext()) {
+                Bitmap bitmap = it.next();
+                if (bitmap.getConfig() == config && bitmap.getAllocationByteCount() >= needed) {
+                    it.remove();
+                    pooledCount--;
+                    return bitmap;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Hand a bitmap back once nothing draws it any more. Bitmaps over the pool limit are recycled.
+     */
+    public synchronized void release(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        if (!bitmap.isMutable() || pooledCount >= maxPooled) {
+            bitmap.recycle();
+            return;
+        }
+        long key = key(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig());
+        ArrayDeque<Bitmap> bitmaps = pool.get(key);
+        if (bitmaps == null) {
+            bitmaps = new ArrayDeque<>();
+            pool.put(key, bitmaps);
+        }
+        bitmaps.push(bitmap);
+        pooledCount++;
+    }
+
+    /**
+     * Recycle everything pooled (e.g. when the stream stops).
+     */
+    public synchronized void clear() {
+        for (ArrayDeque<Bitmap> bitmaps : pool.values()) {
+            for (Bitmap bitmap : bitmaps) {
+                bitmap.recycle();
+            }
+        }
+        pool.clear();
+        pooledCount = 0;
+    }
+
+    /**
+     * Full-size dimensions of the last decoded JPEG, before sampling (0 before the first decode).
+     */
+    public int getSourceWidth() {
+        return sourceWidth;
+    }
+
+    public int getSourceHeight() {
+        return sourceHeight;
+    }
+
+    public synchronized int getPooledCount() {
+        return pooledCount;
+    }
+
+    public synchronized long getReusedCount() {
+        return reusedCount;
+    }
+
+    public synchronized long getAllocatedCount() {
+        return allocatedCount;
+    }
+
+    /**
+     * Largest power-of-two sample size that still fills the target when the frame is
+     * scaled to fit inside it (fit-center, as the preview draws it).
+     */
+    static int calculateInSampleSize(int sourceWidth, int sourceHeight, int targetWidth, int targetHeight) {
+        if (targetWidth <= 0 || targetHeight <= 0 || sourceWidth <= 0 || sourceHeight <= 0) {
+            return 1;
+        }
+        // The fit scale is limited by one side; only that side has to keep enough pixels
+        float maxSample = Math.max((float) sourceWidth / targetWidth, (float) sourceHeight / targetHeight);
+        int sampleSize = 1;
+        while (sampleSize * 2 <= maxSample) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * RGB_565 halves memory and there is no alpha in a camera frame; keep ARGB_8888 only
+     * when the preview enlarges the frame, where 565 banding would be magnified.
+     */
+    static Bitmap.Config chooseConfig(int width, int height, int targetWidth, int targetHeight) {
+        if (targetWidth <= 0 || targetHeight <= 0) {
+            return Bitmap.Config.RGB_565;
+        }
+        float fitScale = Math.min((float) targetWidth / width, (float) targetHeight / height);
+        return fitScale > 1f ? Bitmap.Config.ARGB_8888 : Bitmap.Config.RGB_565;
+    }
+
+    /** JPEG decoders round sampled dimensions up */
+    static int scaledSize(int size, int sampleSize) {
+        return (size + sampleSize - 1) / sampleSize;
+    }
+
+    static int bytesPerPixel(Bitmap.Config config) {
+        if (config == Bitmap.Config.RGB_565 || config == Bitmap.Config.ARGB_4444) {
+            return 2;
+        }
+        if (config == Bitmap.Config.ALPHA_8) {
+            return 1;
+        }
+        return 4;
+    }
+
+    private static long key(int width, int height, Bitmap.Config config) {
+        return ((long) width << 32) | ((long) height << 8) | (config != null ? config.ordinal() : 0xFF);
+    }
+}
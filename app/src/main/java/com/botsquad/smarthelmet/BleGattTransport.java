@@ -0,0 +1,148 @@
+package com.botsquad.smarthelmet;
+
+import android.annotation.SuppressLint;
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCallback;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+import android.bluetooth.BluetoothGattService;
+import android.bluetooth.BluetoothProfile;
+import android.content.Context;
+import android.os.Build;
+import android.util.Log;
+
+import java.util.UUID;
+
+/**
+ * {@link HelmetBleClient.Transport} on the Android BLE stack. Connects with autoConnect so
+ * a dropped link is restored by the stack as soon as the helmet is in range again.
+ * Callers must hold BLUETOOTH_CONNECT before starting the client.
+ */
+@SuppressLint("MissingPermission")
+public class BleGattTransport extends BluetoothGattCallback implements HelmetBleClient.Transport {
+    private static final String TAG = "BleGattTransport";
+
+    private final Context context;
+    private final BluetoothDevice device;
+    private HelmetBleClient client;
+    private BluetoothGatt gatt;
+
+    public BleGattTransport(Context context, BluetoothDevice device) {
+        this.context = context.getApplicationContext();
+        this.device = device;
+    }
+
+    @Override
+    public synchronized void connect(HelmetBleClient client) {
+        this.client = client;
+        if (gatt == null) {
+            gatt = device.connectGatt(context, true, this, BluetoothDevice.TRANSPORT_LE);
+        } else if (!gatt.connect()) {
+            Log.w(TAG, "Re-arming the GATT connection failed");
+        }
+    }
+
+    @Override
+    public synchronized void discoverServices() {
+        if (gatt != null && !gatt.discoverServices()) {
+            client.onServicesDiscovered(false);
+        }
+    }
+
+    @Override
+    public synchronized void subscribe(UUID service, UUID characteristic) {
+        BluetoothGattCharacteristic target = findCharacteristic(service, characteristic);
+        BluetoothGattDescriptor config = target != null
+            ? target.getDescriptor(HelmetBleClient.CLIENT_CONFIG_DESCRIPTOR_UUID) : null;
+        if (config == null || !gatt.setCharacteristicNotification(target, true)) {
+            client.onSubscribed(false);
+            return;
+        }
+        boolean started;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            started = gatt.writeDescriptor(config, BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE) == BluetoothGatt.GATT_SUCCESS;
+        } else {
+            config.setValue(BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE);
+            started = gatt.writeDescriptor(config);
+        }
+        if (!started) {
+            client.onSubscribed(false);
+        }
+    }
+
+    @Override
+    public synchronized void disconnect() {
+        if (gatt != null) {
+            gatt.disconnect();
+            gatt.close();
+            gatt = null;
+        }
+    }
+
+    private BluetoothGattCharacteristic findCharacteristic(UUID service, UUID characteristic) {
+        if (gatt == null) {
+            return null;
+        }
+        BluetoothGattService gattService = gatt.getService(service);
+        return gattService != null ? gattService.getCharacteristic(characteristic) : null;
+    }
+
+    private synchronized HelmetBleClient client() {
+        return client;
+    }
+
+    @Override
+    public void onConnectionStateChange(BluetoothGatt g, int status, int newState) {
+        HelmetBleClient c = client();
+        if (c == null) {
+            return;
+        }
+        if (status == BluetoothGatt.GATT_SUCCESS && newState == BluetoothProfile.STATE_CONNECTED) {
+            c.onConnected();
+        } else if (newState == BluetoothProfile.STATE_DISCONNECTED) {
+            Log.w(TAG, "Helmet disconnected (status " + status + ")");
+            c.onDisconnected();
+        }
+    }
+
+    @Override
+    public void onServicesDiscovered(BluetoothGatt g, int status) {
+        HelmetBleClient c = client();
+        if (c != null) {
+            boolean found;
+            synchronized (this) {
+                found = status == BluetoothGatt.GATT_SUCCESS
+                    && findCharacteristic(HelmetBleClient.SERVICE_UUID, HelmetBleClient.STATE_CHARACTERISTIC_UUID) != null;
+            }
+            c.onServicesDiscovered(found);
+        }
+    }
+
+    @Override
+    public void onDescriptorWrite(BluetoothGatt g, BluetoothGattDescriptor descriptor, int status) {
+        HelmetBleClient c = client();
+        if (c != null && HelmetBleClient.CLIENT_CONFIG_DESCRIPTOR_UUID.equals(descriptor.getUuid())) {
+            c.onSubscribed(status == BluetoothGatt.GATT_SUCCESS);
+        }
+    }
+
+    @Override
+    public void onCharacteristicChanged(BluetoothGatt g, BluetoothGattCharacteristic characteristic, byte[] value) {
+        // API 33+
+        HelmetBleClient c = client();
+        if (c != null) {
+            c.onNotification(characteristic.getUuid(), value);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public void onCharacteristicChanged(BluetoothGatt g, BluetoothGattCharacteristic characteristic) {
+        // Before API 33
+        HelmetBleClient c = client();
+        if (c != null) {
+            c.onNotification(characteristic.getUuid(), characteristic.getValue());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.botsquad.smarthelmet;
+
+/**
+ * Picks camera output sizes from what the device offers (StreamConfigurationMap), so the
+ * preview and the analysis ImageReader can run at different resolutions in one session.
+ * Sizes are passed as plain dimensions, {width0, height0, width1, height1, ...}, and the
+ * index of the chosen size is returned.
+ */
+public final class CameraStreamSizes {
+
+    private CameraStreamSizes() {
+    }
+
+    /**
+     * Smallest size covering minWidth x minHeight (fewest pixels to convert), preferring the
+     * given aspect ratio; the largest size if none covers it. -1 if there are no sizes.
+     */
+    public static int chooseAnalysisSize(int[] dimensions, int minWidth, int minHeight, float aspect) {
+        int best = -1;
+        int largest = -1;
+        for (int i = 0; i < dimensions.length / 2; i++) {
+            if (largest < 0 || area(dimensions, i) > area(dimensions, largest)) {
+                largest = i;
+            }
+            if (width(dimensions, i) < minWidth || height(dimensions, i) < minHeight) {
+                continue;
+            }
+            if (best < 0 || isBetterFit(dimensions, i, best, aspect, false)) {
+                best = i;
+            }
+        }
+        return best >= 0 ? best : largest;
+    }
+
+    /**
+     * Largest size within maxWidth x maxHeight, preferring the given aspect ratio; the
+     * smallest size if none fits. -1 if there are no sizes.
+     */
+    public static int choosePreviewSize(int[] dimensions, int maxWidth, int maxHeight, float aspect) {
+        int best = -1;
+        int smallest = -1;
+        for (int i = 0; i < dimensions.length / 2; i++) {
+            if (smallest < 0 || area(dimensions, i) < area(dimensions, smallest)) {
+                smallest = i;
+            }
+            if (width(dimensions, i) > maxWidth || height(dimensions, i) > maxHeight) {
+                continue;
+            }
+            if (best < 0 || isBetterFit(dimensions, i, best, aspect, true)) {
+                best = i;
+            }
+        }
+        return best >= 0 ? best : smallest;
+    }
+
+    private static boolean isBetterFit(int[] dimensions, int candidate, int current, float aspect, boolean preferLarger) {
+        boolean candidateMatches = matchesAspect(dimensions, candidate, aspect);
+        boolean currentMatches = matchesAspect(dimensions, current, aspect);
+        if (candidateMatches != currentMatches) {
+            return candidateMatches;
+        }
+        long candidateArea = area(dimensions, candidate);
+        long currentArea = area(dimensions, current);
+        return preferLarger ? candidateArea > currentArea : candidateArea < currentArea;
+    }
+
+    private static boolean matchesAspect(int[] dimensions, int index, float aspect) {
+        return Math.abs((float) width(dimensions, index) / height(dimensions, index) - aspect) < 0.01f;
+    }
+
+    private static int width(int[] dimensions, int index) {
+        return dimensions[index * 2];
+    }
+
+    private static int height(int[] dimensions, int index) {
+        return dimensions[index * 2 + 1];
+    }
+
+    private static long area(int[] dimensions, int index) {
+        return (long) width(dimensions, index) * height(dimensions, index);
+    }
+}
@@ -9,15 +9,20 @@ import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Color;
+import android.media.Image;
 import android.media.MediaPlayer;
 import android.media.RingtoneManager;
 import android.net.Uri;
+import android.net.ConnectivityManager;
+import android.net.Network;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
 import android.os.Build;
 import android.os.VibrationEffect;
 import android.os.Vibrator;
@@ -53,21 +58,19 @@ import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 
-import org.json.JSONException;
-import org.json.JSONObject;
-
 import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.UUID;
 import java.net.Socket;
 import java.util.Map;
@@ -88,11 +91,20 @@ public class Dashboard extends AppCompatActivity implements SurfaceHolder.Callba
     private static final UUID SMART_HELMET_UUID = UUID.fromString("00001101-0000-1000-8000-00805F9B34FB"); // Standard SerialPortService ID
     private boolean isConnected = false;
     private Thread bluetoothThread;
-    private static final int CAMERA_FRAME_SIZE = 320 * 240 * 2; // Assuming 320x240 RGB565 format
-    private byte[] frameBuffer = new byte[CAMERA_FRAME_SIZE];
+    // Low-power alternative to the RFCOMM link: drowsiness state only, over BLE notifications
+    private HelmetBleClient helmetBleClient;
+    private static final int CAMERA_FRAME_WIDTH = 320;
+    private static final int CAMERA_FRAME_HEIGHT = 240;
+    private static final int CAMERA_FRAME_SIZE = CAMERA_FRAME_WIDTH * CAMERA_FRAME_HEIGHT * 2; // RGB565
+    // Helmet camera frames rotate through these slots: filled by the Bluetooth thread, then
+    // held by the Pi upload and the renderer until both let go, so a frame is never overwritten while read
+    private static final int HELMET_FRAME_SLOTS = 3;
+    private final FrameSlotRotation helmetFrameSlots = new FrameSlotRotation(HELMET_FRAME_SLOTS);
+    private final ByteBuffer[] helmetFramePixels = new ByteBuffer[HELMET_FRAME_SLOTS];
+    private final Bitmap[] helmetFrameBitmaps = new Bitmap[HELMET_FRAME_SLOTS];
+    private final AtomicBoolean helmetUploadBusy = new AtomicBoolean(false);
     private android.graphics.Canvas canvas;
     private android.graphics.Paint paint;
-    private android.graphics.Bitmap frameBitmap;
 
     private DatabaseReference mDatabase;
     private FirebaseAuth mAuth;
@@ -102,46 +114,89 @@ public class Dashboard extends AppCompatActivity implements SurfaceHolder.Callba
     private boolean isPiConnected = false;  // Track if Pi is connected
     private ExecutorService inferenceExecutor;
     
+    // Phone-camera mode, for riders without a Pi. The analyzer and converter are used on the camera thread only.
+    private DetectionSourceSwitch detectionSources;
+    private volatile AndroidCameraManager phoneCamera;
+    private volatile PhoneCameraAnalyzer phoneAnalyzer;
+    private final YuvConverter phoneFrameConverter = new YuvConverter();
+    private long phoneFrameWindowStartMs = 0;
+    private long phoneFrameWindowCount = 0;
+    
     // Configuration: Force Raspberry Pi only - no local fallback
     private static final boolean FORCE_PI_ONLY = true;  // Must use Raspberry Pi
     private static final String PREF_PI_SERVER_URL = "pi_server_url";
+    private static final String PREF_PI_BACKUP_SERVER_URL = "pi_backup_server_url";
+    private static final String PREF_PREVIEW_HARDWARE_RENDERING = "preview_hardware_rendering";
+    private static final String PREF_PREVIEW_TARGET_FPS = "preview_target_fps";
+    private static final int[] PREVIEW_FPS_CHOICES = {5, 10, 15, 20, 30};
+    private static final String PREF_LOCAL_CROSS_CHECK_POLICY = "local_cross_check_policy";  // Policy name, absent = off
+    private static final String PREF_LOCAL_CROSS_CHECK_EVERY = "local_cross_check_every";
+    private static final int[] CROSS_CHECK_SAMPLE_CHOICES = {1, 2, 5, 10, 20};
+    private static final String PREF_HELMET_LINK_BLE = "helmet_link_ble";  // true = BLE status only, false = classic RFCOMM
+    private static final int REQUEST_HELMET_DEVICE = 1001;
+    private static final String PREF_PHONE_CAMERA_MODE = "phone_camera_mode";  // front camera + on-device model instead of the Pi
+    private static final int REQUEST_CAMERA_PERMISSION = 1002;
+    // The model input is resized anyway; a small analysis stream keeps conversion cheap
+    private static final int PHONE_ANALYSIS_WIDTH = 320;
+    private static final int PHONE_ANALYSIS_HEIGHT = 240;
+    private static final long PHONE_MAX_FRAME_AGE_MS = 150;
     private static final String DEFAULT_PI_SERVER_URL = "http://192.168.43.151:5000";
     private static final int PI_CONNECTION_RETRY_ATTEMPTS = 5;  // Retry 5 times
     private static final int PI_CONNECTION_RETRY_DELAY_MS = 2000;  // 2 seconds between retries
     private boolean usePiDetection = false;  // Will be set when Pi is available
     private String piServerUrl = DEFAULT_PI_SERVER_URL;
+    private String piBackupServerUrl = null;  // Optional redundant Pi for hedged queries
+    private PiServerDiscovery piServerDiscovery;  // mDNS + subnet sweep when the configured URL is wrong
     
     // Pi Camera mode - Pi uses its own camera, Android app queries for results AND receives video stream
     private Handler piQueryHandler;
     private Runnable piQueryRunnable;
     private static final long PI_QUERY_INTERVAL_MS = 200; // Query Pi every 200ms (~5 FPS)
-    private Thread piStreamThread;  // Thread for processing MJPEG stream from Pi
-    private boolean isStreaming = false;  // Track if stream is active
+    private static final long MAX_RESULT_AGE_MS = 3000; // Results captured longer ago than this are useless for alarming
+    private int staleResultCount = 0;
+    private PiStreamWorker piStreamWorker;  // Long-lived MJPEG reader, reconnects with backoff
+    private ConnectivityManager.NetworkCallback streamNetworkCallback;  // Retries the stream at once when a network comes up
+    private volatile Network streamNetwork;  // Default network last reported to streamNetworkCallback
+    private int consecutiveDecodeErrors = 0;  // Stream thread only
     
     // Frame processing variables
     private int frameCount = 0; // Track frames for ML processing optimization
+    // Preview display rate (independent of Pi detection), applied to stream frames before they are decoded
+    private final DisplayRateController displayRate = new DisplayRateController(DisplayRateController.DEFAULT_TARGET_FPS);
+    private final FrameAdmissionPolicy frameAdmission = new FrameAdmissionPolicy(displayRate.getMinIntervalMs(), 1);
+    private PowerManager.OnThermalStatusChangedListener thermalStatusListener;
+    
+    // Optional redundancy path: on-device detection on a subsample of the decoded stream frames
+    private final DetectionCrossChecker crossChecker = new DetectionCrossChecker(
+        DetectionCrossChecker.Policy.EITHER_DROWSY, DetectionCrossChecker.DEFAULT_SAMPLE_EVERY);
+    private volatile boolean crossCheckEnabled = false;
+    private ExecutorService localCheckExecutor;
+    private DrowsinessDetector localCheckDetector;  // Created and used on localCheckExecutor only
+    private final AtomicBoolean localCheckBusy = new AtomicBoolean(false);
+    // Stream frames are decoded into pooled bitmaps sized for the preview surface
+    private final BitmapPool streamBitmapPool = new BitmapPool();
+    // Detection boxes, FPS and connection state drawn over the video, plus the status/error screens
+    private final OverlayCompositor overlayCompositor = new OverlayCompositor();
+    // Last seconds of raw stream JPEGs, saved as a clip when the alarm fires (opened on the stream thread)
+    private volatile IncidentClipRecorder incidentRecorder;
+    private volatile int previewWidth = 0;
+    private volatile int previewHeight = 0;
+    // Draws the preview SurfaceView off the main thread
+    private PreviewRenderer previewRenderer;
     
     // Alert system variables
     private SharedPreferences sharedPreferences;
-    private MediaPlayer alertMediaPlayer;
-    private Handler drowsinessTimerHandler;
-    private Runnable drowsinessTimerRunnable;
-    private boolean isDrowsinessTimerActive = false;
-    private long drowsinessStartTime = 0;
     private static final long DROWSINESS_THRESHOLD_MS = 1500; // 1.5 seconds
-    private long lastAlarmTime = 0;
-    private static final long ALARM_COOLDOWN_MS = 200; // 200ms between alarms for maximum responsiveness
-    private boolean isAlarmSounding = false;
+    // The alarm tone's MediaPlayer is only touched on this thread, so starting it never blocks detection
+    private HandlerThread alarmThread;
+    private Handler alarmHandler;
+    private MediaPlayer alertMediaPlayer;  // alarm thread only
+    private boolean isAlarmSounding = false;  // alarm thread only
     
-    // Debouncing variables to prevent rapid UI blinking
-    private boolean lastDrowsyState = false;
-    private long lastStateChangeTime = 0;
+    // Debouncing to prevent rapid UI blinking
     private static final long DEBOUNCE_DELAY_MS = 300; // Wait 300ms before confirming state change
-    private Handler debounceHandler;
-    private Runnable debounceRunnable;
-    
-    // Track if we've already logged this alarm event (to prevent multiple counts)
-    private boolean hasLoggedCurrentAlarm = false;
+    // Debounce and alarm timing for every detection source, on its own thread
+    private DrowsinessStateMachine drowsinessStateMachine;
 
     // Using Raspberry Pi 5 with Raspberry Pi Camera for drowsiness detection
     private ExecutorService networkExecutor;
@@ -278,9 +333,65 @@ public class Dashboard extends AppCompatActivity implements SurfaceHolder.Callba
                 android.util.Log.w("Dashboard", "No authenticated user found while initializing Dashboard");
             }
             sharedPreferences = getSharedPreferences("SmartHelmetPrefs", Context.MODE_PRIVATE);
-            setPiServerUrl(sharedPreferences.getString(PREF_PI_SERVER_URL, DEFAULT_PI_SERVER_URL), false, false);
-            android.util.Log.d("Dashboard", "Loaded Pi server URL: " + piServerUrl);
-            drowsinessTimerHandler = new Handler(Looper.getMainLooper());
+            detectionSources = new DetectionSourceSwitch(new DetectionSourceSwitch.Sources() {
+                @Override
+                public void startPi() {
+                    startPiQueryLoop();
+                }
+                
+                @Override
+                public void stopPi() {
+                    stopPiQueryLoop();
+                    stopPiStream();
+                }
+                
+                @Override
+                public void startPhoneCamera() {
+                    startPhoneCameraDetection();
+                }
+                
+                @Override
+                public void stopPhoneCamera() {
+                    stopPhoneCameraDetection();
+                }
+            }, sharedPreferences.getBoolean(PREF_PHONE_CAMERA_MODE, false));
+            piServerDiscovery = new PiServerDiscovery(this, sharedPreferences);
+            // Cold start: prefer the last endpoint that actually answered over the hardcoded default
+            String lastGoodUrl = piServerDiscovery.getLastKnownGoodUrl();
+            setPiServerUrl(sharedPreferences.getString(PREF_PI_SERVER_URL,
+                lastGoodUrl != null ? lastGoodUrl : DEFAULT_PI_SERVER_URL), false, false);
+            String storedBackupUrl = sharedPreferences.getString(PREF_PI_BACKUP_SERVER_URL, null);
+            piBackupServerUrl = storedBackupUrl != null ? normalizePiServerUrl(storedBackupUrl) : null;
+            android.util.Log.d("Dashboard", "Loaded Pi server URL: " + piServerUrl + " (backup: " + piBackupServerUrl + ")");
+            loadCrossCheckSettings();
+            alarmThread = new HandlerThread("AlarmTone");
+            alarmThread.start();
+            alarmHandler = new Handler(alarmThread.getLooper());
+            drowsinessStateMachine = new DrowsinessStateMachine(DEBOUNCE_DELAY_MS, DROWSINESS_THRESHOLD_MS,
+                DrowsinessStateMachine.Clock.SYSTEM, new DrowsinessStateMachine.Listener() {
+                    @Override
+                    public void onDriverStateChanged(boolean drowsy, long eventTimeMs) {
+                        android.util.Log.d("Dashboard", "Debounced detection: isDrowsy=" + drowsy);
+                        updateDrowsinessEvent(drowsy, eventTimeMs);
+                        if (drowsy) {
+                            updateUIWithDrowsinessState(true);
+                        } else {
+                            deactivateDrowsinessAlarm();
+                        }
+                    }
+                    
+                    @Override
+                    public void onAlarmStarted(long latencyMicros) {
+                        android.util.Log.d("Dashboard", "Alarm " + latencyMicros + "us after threshold (" + drowsinessStateMachine + ")");
+                        activateDrowsinessAlarm();
+                    }
+                    
+                    @Override
+                    public void onAlarmStopped() {
+                        android.util.Log.d("Dashboard", "Eyes opened - stopping alarm immediately");
+                    }
+                });
+            drowsinessStateMachine.start("DrowsinessState");
             android.util.Log.d("Dashboard", "Basic components initialized");
             
             // Initialize views immediately (must be on main thread)
@@ -317,6 +428,9 @@ public class Dashboard extends AppCompatActivity implements SurfaceHolder.Callba
         inferenceExecutor = Executors.newFixedThreadPool(1);
         
         startPiConnectionTask();
+        if (isPhoneCameraModeEnabled()) {
+            startPhoneCameraDetection();
+        }
         
         // Setup Firebase and prototype detection in background
             networkExecutor.execute(() -> {
@@ -365,6 +479,8 @@ public class Dashboard extends AppCompatActivity implements SurfaceHolder.Callba
 
                 try {
                     candidateDetector = new PiDrowsinessDetector(targetUrl);
+                    candidateDetector.setSecondaryServerUrl(piBackupServerUrl);
+                    candidateDetector.setFaceCropUploadsEnabled(true);
 
                     final boolean[] piAvailable = {false};
                     final Object lock = new Object();
@@ -404,6 +520,9 @@ public class Dashboard extends AppCompatActivity implements SurfaceHolder.Callba
                         piDrowsinessDetector = candidateDetector;
                         usePiDetection = true;
                         isPiConnected = true;
+                        if (piServerDiscovery != null) {
+                            piServerDiscovery.rememberGoodUrl(targetUrl);
+                        }
                         android.util.Log.d("Dashboard", "✅ Pi server connected successfully at " + targetUrl + "!");
                         runOnUiThread(() -> {
                             Toast.makeText(Dashboard.this, "✅ Connected to Raspberry Pi\n" + targetUrl, Toast.LENGTH_SHORT).show();
@@ -419,6 +538,11 @@ public class Dashboard extends AppCompatActivity implements SurfaceHolder.Callba
 
                         android.util.Log.w("Dashboard", "Pi not available on attempt " + attempts + " for URL " + targetUrl);
 
+                        // Wrong IP? Look for the Pi instead of burning the remaining retries
+                        if (attempts == 1) {
+                            discoverPiServer(targetUrl);
+                        }
+
                         if (attempts < PI_CONNECTION_RETRY_ATTEMPTS) {
                             try {
                                 Thread.sleep(PI_CONNECTION_RETRY_DELAY_MS);
@@ -464,6 +588,41 @@ public class Dashboard extends AppCompatActivity implements SurfaceHolder.Callba
         });
     }
 
+    /**
+     * Search the local network for a Pi when the configured URL does not answer.
+     * If a different server responds, switch to it (which restarts the connection task).
+     */
+    private void discoverPiServer(String failedUrl) {
+        if (piServerDiscovery == null) {
+            return;
+        }
+
+        List<String> preferred = new ArrayList<>();
+        preferred.add(failedUrl);
+        preferred.add(DEFAULT_PI_SERVER_URL);
+
+        piServerDiscovery.discoverAsync(preferred, new PiServerDiscovery.DiscoveryCallback() {
+            @Override
+            public void onPiFound(String url, String source) {
+                if (url.equals(piServerUrl) || !failedUrl.equals(piServerUrl)) {
+                    return;
+                }
+                runOnUiThread(() -> {
+                    if (isFinishing() || !failedUrl.equals(piServerUrl)) {
+                        return;
+                    }
+                    Toast.makeText(Dashboard.this, "Found Raspberry Pi (" + source + ")\n" + url, Toast.LENGTH_SHORT).show();
+                    setPiServerUrl(url, true, true);
+                });
+            }
+
+            @Override
+            public void onDiscoveryFailed() {
+                android.util.Log.w("Dashboard", "Pi discovery found no server; continuing retries for " + failedUrl);
+            }
+        });
+    }
+
     private void restartPiConnection() {
         android.util.Log.i("Dashboard", "Restarting Pi connection using URL: " + piServerUrl);
 
@@ -506,6 +665,20 @@ public class Dashboard extends AppCompatActivity implements SurfaceHolder.Callba
         return trimmed;
     }
 
+    /**
+     * Backup Pi for hedged queries; empty clears it. Applied on the next (re)connect.
+     */
+    private void setPiBackupServerUrl(String rawUrl) {
+        piBackupServerUrl = rawUrl == null || rawUrl.trim().isEmpty() ? null : normalizePiServerUrl(rawUrl);
+        if (sharedPreferences != null) {
+            if (piBackupServerUrl != null) {
+                sharedPreferences.edit().putString(PREF_PI_BACKUP_SERVER_URL, piBackupServerUrl).apply();
+            } else {
+                sharedPreferences.edit().remove(PREF_PI_BACKUP_SERVER_URL).apply();
+            }
+        }
+    }
+
     private void setPiServerUrl(String newUrl, boolean persist, boolean restart) {
         String normalizedUrl = normalizePiServerUrl(newUrl);
 
@@ -537,11 +710,15 @@ public class Dashboard extends AppCompatActivity implements SurfaceHolder.Callba
         View dialogView = getLayoutInflater().inflate(R.layout.dialog_pi_server_url, null);
         TextInputLayout urlLayout = dialogView.findViewById(R.id.piServerUrlLayout);
         TextInputEditText urlInput = dialogView.findViewById(R.id.piServerUrlInput);
+        TextInputEditText backupUrlInput = dialogView.findViewById(R.id.piServerBackupUrlInput);
 
         if (urlInput != null && piServerUrl != null) {
             urlInput.setText(piServerUrl);
             urlInput.setSelection(piServerUrl.length());
         }
+        if (backupUrlInput != null && piBackupServerUrl != null) {
+            backupUrlInput.setText(piBackupServerUrl);
+        }
 
         AlertDialog dialog = new AlertDialog.Builder(this)
             .setTitle("Raspberry Pi Server")
@@ -575,6 +752,10 @@ public class Dashboard extends AppCompatActivity implements SurfaceHolder.Callba
                     return;
                 }
 
+                String backupValue = backupUrlInput != null && backupUrlInput.getText() != null
+                    ? backupUrlInput.getText().toString().trim() : "";
+                setPiBackupServerUrl(backupValue);
+
                 setPiServerUrl(inputValue, true, true);
                 Toast.makeText(Dashboard.this, "Saved Pi server URL", Toast.LENGTH_SHORT).show();
                 dialog.dismiss();
@@ -593,12 +774,46 @@ public class Dashboard extends AppCompatActivity implements SurfaceHolder.Callba
             surfaceHolder.addCallback(this);
             android.util.Log.d("Dashboard", "setupCameraPreview: Callback added");
             
+            // Stream frames go back to the admission policy once drawn and to the pool once replaced
+            previewRenderer = new PreviewRenderer(surfaceHolder, new PreviewRenderer.FrameListener() {
+                @Override
+                public void onFrameConsumed(Bitmap frame) {
+                    if (helmetSlotOf(frame) < 0) {
+                        frameAdmission.onFrameRendered();
+                    }
+                }
+
+                @Override
+                public void onFrameReleased(Bitmap frame) {
+                    int slot = helmetSlotOf(frame);
+                    if (slot >= 0) {
+                        helmetFrameSlots.release(slot);
+                    } else {
+                        streamBitmapPool.release(frame);
+                    }
+                }
+            });
+            previewRenderer.setBackend(isHardwarePreviewEnabled()
+                ? PreviewRenderer.Backend.HARDWARE : PreviewRenderer.Backend.SOFTWARE);
+            previewRenderer.setOverlay(overlayCompositor);
+            previewRenderer.start();
+            
+            // Preview frame rate: configured target, lowered by frame cost and thermal state
+            if (sharedPreferences != null) {
+                displayRate.setTargetFps(sharedPreferences.getInt(PREF_PREVIEW_TARGET_FPS, DisplayRateController.DEFAULT_TARGET_FPS));
+                frameAdmission.setMinIntervalMs(displayRate.getMinIntervalMs());
+            }
+            registerThermalStatusListener();
+            
             // Pi Camera mode - Pi uses its own camera
             // Android app will query Pi for detection results periodically
             piQueryHandler = new Handler(Looper.getMainLooper());
             
-            // Initialize frame bitmap and canvas
-            frameBitmap = android.graphics.Bitmap.createBitmap(640, 480, android.graphics.Bitmap.Config.RGB_565);
+            // Initialize helmet frame slots and canvas
+            for (int i = 0; i < HELMET_FRAME_SLOTS; i++) {
+                helmetFramePixels[i] = ByteBuffer.allocate(CAMERA_FRAME_SIZE);
+                helmetFrameBitmaps[i] = Bitmap.createBitmap(CAMERA_FRAME_WIDTH, CAMERA_FRAME_HEIGHT, Bitmap.Config.RGB_565);
+            }
             canvas = new android.graphics.Canvas();
             paint = new android.graphics.Paint();
             
@@ -729,6 +944,10 @@ public class Dashboard extends AppCompatActivity implements SurfaceHolder.Callba
     public void surfaceCreated(@NonNull SurfaceHolder holder) {
         // Surface is created
         android.util.Log.d("Dashboard", "Surface created - holder: " + holder + ", surface: " + holder.getSurface());
+        frameAdmission.setRendererReady(true);
+        if (previewRenderer != null) {
+            previewRenderer.setSurfaceReady(true);
+        }
         
         // Wait a bit for Pi connection to complete, then start query loop
         new Handler(Looper.getMainLooper()).postDelayed(() -> {
@@ -757,6 +976,11 @@ public class Dashboard extends AppCompatActivity implements SurfaceHolder.Callba
     public void surfaceChanged(@NonNull SurfaceHolder holder, int format, int width, int height) {
         // Surface size or format has changed
         android.util.Log.d("Dashboard", "Surface changed: " + width + "x" + height);
+        previewWidth = width;
+        previewHeight = height;
+        if (previewRenderer != null) {
+            previewRenderer.invalidate();
+        }
     }
     
     /**
@@ -768,6 +992,10 @@ public class Dashboard extends AppCompatActivity implements SurfaceHolder.Callba
             android.util.Log.e("Dashboard", "Pi query handler not initialized");
             return;
         }
+        if (isPhoneCameraModeEnabled()) {
+            android.util.Log.d("Dashboard", "Phone camera mode - not starting the Pi query loop");
+            return;
+        }
         
         // Stop existing loop if any
         stopPiQueryLoop();
@@ -781,6 +1009,13 @@ public class Dashboard extends AppCompatActivity implements SurfaceHolder.Callba
                     piDrowsinessDetector.queryDetectionAsync(new PiDrowsinessDetector.DetectionCallback() {
                         @Override
                         public void onDetectionComplete(List<PiDrowsinessDetector.Detection> detections, boolean isDrowsy, float confidence) {
+                            onDetectionComplete(detections, isDrowsy, confidence,
+                                new PiDrowsinessDetector.ResultTiming(System.currentTimeMillis(), System.currentTimeMillis(), false));
+                        }
+                        
+                        @Override
+                        public void onDetectionComplete(List<PiDrowsinessDetector.Detection> detections, boolean isDrowsy, float confidence,
+                                                        PiDrowsinessDetector.ResultTiming timing) {
                             // Convert Pi detections to compatible format
                             List<DrowsinessDetector.Detection> finalDetections = new ArrayList<>();
                             for (PiDrowsinessDetector.Detection piDet : detections) {
@@ -789,10 +1024,25 @@ public class Dashboard extends AppCompatActivity implements SurfaceHolder.Callba
                                 ));
                             }
                             
-                            // Debounce detection results to prevent rapid UI blinking
-                            handleDebouncedDetection(isDrowsy, System.currentTimeMillis());
+                            if (timing.ageMs > MAX_RESULT_AGE_MS) {
+                                // Too old to act on - the driver's state may have changed since
+                                staleResultCount++;
+                                android.util.Log.w("Dashboard", "Dropping stale Pi result (age " + timing.ageMs + "ms, synced=" + timing.clockSynced + ")");
+                            } else {
+                                // With the local cross-check on, the configured policy picks between the two verdicts
+                                boolean verdict = crossCheckEnabled ? crossChecker.resolve(isDrowsy, timing.captureTimeMs) : isDrowsy;
+                                overlayCompositor.setDetections(detections, verdict, confidence);
+                                
+                                // Debounce detection results to prevent rapid UI blinking (timed from capture, not arrival)
+                                handleDebouncedDetection(verdict, timing.captureTimeMs);
+                            }
                             
                             frameCount++;
+                            if (frameCount % 50 == 0) {
+                                android.util.Log.d("Dashboard", "Pi result age (ms): " + piDrowsinessDetector.getResultAgeTracker()
+                                    + ", clock offset " + piDrowsinessDetector.getClockSync().getOffsetMs() + "ms, stale dropped " + staleResultCount
+                                    + (crossCheckEnabled ? ", cross-check " + crossChecker : ""));
+                            }
                             
                             // Schedule next query
                             if (piQueryHandler != null && piQueryRunnable != null) {
@@ -829,352 +1079,564 @@ public class Dashboard extends AppCompatActivity implements SurfaceHolder.Callba
      * Start receiving MJPEG video stream from Pi Camera
      */
     private void startPiStream() {
-        if (piStreamThread != null && piStreamThread.isAlive()) {
-            android.util.Log.d("Dashboard", "Stream thread already running");
+        if (isPhoneCameraModeEnabled()) {
+            android.util.Log.d("Dashboard", "Phone camera mode - not starting the Pi stream");
             return;
         }
-        
         final String targetUrl = piServerUrl;
         if (targetUrl == null || targetUrl.trim().isEmpty()) {
             android.util.Log.w("Dashboard", "Pi server URL is empty. Cannot start stream.");
             return;
         }
-
-        isStreaming = true;
-        piStreamThread = new Thread(() -> {
-            android.util.Log.d("Dashboard", "Starting Pi MJPEG stream thread from " + targetUrl);
-            HttpURLConnection connection = null;
-            InputStream streamInput = null;
-            
-            try {
-                URL streamUrl = new URL(targetUrl + "/stream");
-                connection = (HttpURLConnection) streamUrl.openConnection();
-                connection.setRequestMethod("GET");
-                connection.setConnectTimeout(5000);
-                connection.setReadTimeout(10000);
-                connection.connect();
+        
+        if (piStreamWorker == null) {
+            piStreamWorker = new PiStreamWorker(new PiStreamWorker.Listener() {
+                @Override
+                public void onConnected(String url) {
+                    android.util.Log.d("Dashboard", "Stream connected to " + url + ", starting to receive frames...");
+                    consecutiveDecodeErrors = 0;
+                    overlayCompositor.setConnectionState(OverlayCompositor.ConnectionState.CONNECTED);
+                    openIncidentRecorder();
+                }
                 
-                int responseCode = connection.getResponseCode();
-                android.util.Log.d("Dashboard", "Stream connection response: " + responseCode);
+                @Override
+                public boolean onFrame(byte[] buffer, int offset, int length) {
+                    return handleStreamFrame(buffer, offset, length);
+                }
                 
-                if (responseCode == HttpURLConnection.HTTP_OK) {
-                    streamInput = connection.getInputStream();
-                    android.util.Log.d("Dashboard", "Stream connected, starting to receive frames...");
-                    
-                    // Read MJPEG stream (binary parsing for JPEG frames)
-                    byte[] buffer = new byte[8192];
-                    java.io.ByteArrayOutputStream frameBuffer = new java.io.ByteArrayOutputStream();
-                    boolean inJpeg = false;
-                    int lastByte = -1;
-                    int consecutiveErrors = 0;
-                    long lastFrameTime = 0;
-                    
-                    while (isStreaming && !Thread.currentThread().isInterrupted()) {
-                        try {
-                            int bytesRead = streamInput.read(buffer);
-                            if (bytesRead <= 0) {
-                                android.util.Log.w("Dashboard", "Stream read returned 0 bytes, connection may have closed");
-                                break;
-                            }
-                            
-                            for (int i = 0; i < bytesRead; i++) {
-                                byte b = buffer[i];
-                                
-                                // Look for JPEG start marker (0xFF 0xD8)
-                                if (lastByte == (byte)0xFF && b == (byte)0xD8) {
-                                    // Process previous complete frame if exists
-                                    if (inJpeg && frameBuffer.size() > 100) { // At least 100 bytes to be valid
-                                        try {
-                                            byte[] frameData = frameBuffer.toByteArray();
-                                            
-                                            // Verify it's a complete JPEG (ends with 0xFF 0xD9)
-                                            boolean isComplete = false;
-                                            if (frameData.length >= 2) {
-                                                int len = frameData.length;
-                                                if (frameData[len-2] == (byte)0xFF && frameData[len-1] == (byte)0xD9) {
-                                                    isComplete = true;
-                                                }
-                                            }
-                                            
-                                            if (isComplete) {
-                                                Bitmap frameBitmap = BitmapFactory.decodeByteArray(
-                                                    frameData, 0, frameData.length);
-                                                if (frameBitmap != null) {
-                                                    final Bitmap finalBitmap = frameBitmap;
-                                                    long currentTime = System.currentTimeMillis();
-                                                    
-                                                    // Limit display rate to prevent UI overload (max 2 FPS)
-                                                    if (currentTime - lastFrameTime > 500) {
-                                                        runOnUiThread(() -> {
-                                                            displayFrameOnSurface(finalBitmap);
-                                                        });
-                                                        lastFrameTime = currentTime;
-                                                        frameCount++;
-                                                        consecutiveErrors = 0;
-                                                        
-                                                        if (frameCount % 10 == 0) {
-                                                            android.util.Log.d("Dashboard", "Received frame #" + frameCount);
-                                                        }
-                                                    } else {
-                                                        // Skip this frame if too soon
-                                                        finalBitmap.recycle();
-                                                    }
-                                                } else {
-                                                    consecutiveErrors++;
-                                                    android.util.Log.w("Dashboard", "Failed to decode JPEG frame (error " + consecutiveErrors + ")");
-                                                }
-                                            }
-                                        } catch (Exception e) {
-                                            consecutiveErrors++;
-                                            android.util.Log.w("Dashboard", "Error processing frame: " + e.getMessage());
-                                        }
-                                    }
-                                    
-                                    // Start new frame
-                                    frameBuffer.reset();
-                                    frameBuffer.write((byte)0xFF);
-                                    frameBuffer.write((byte)0xD8);
-                                    inJpeg = true;
-                                    lastByte = b;
-                                    continue;
-                                }
-                                
-                                if (inJpeg) {
-                                    frameBuffer.write(b);
-                                    
-                                    // Look for JPEG end marker (0xFF 0xD9)
-                                    if (lastByte == (byte)0xFF && b == (byte)0xD9) {
-                                        // End of JPEG frame - process immediately
-                                        try {
-                                            byte[] frameData = frameBuffer.toByteArray();
-                                            Bitmap frameBitmap = BitmapFactory.decodeByteArray(
-                                                frameData, 0, frameData.length);
-                                            if (frameBitmap != null) {
-                                                final Bitmap finalBitmap = frameBitmap;
-                                                long currentTime = System.currentTimeMillis();
-                                                
-                                                // Limit display rate
-                                                if (currentTime - lastFrameTime > 500) {
-                                                    runOnUiThread(() -> {
-                                                        displayFrameOnSurface(finalBitmap);
-                                                    });
-                                                    lastFrameTime = currentTime;
-                                                    frameCount++;
-                                                    consecutiveErrors = 0;
-                                                    
-                                                    if (frameCount % 10 == 0) {
-                                                        android.util.Log.d("Dashboard", "Received frame #" + frameCount);
-                                                    }
-                                                } else {
-                                                    finalBitmap.recycle();
-                                                }
-                                            }
-                                        } catch (Exception e) {
-                                            consecutiveErrors++;
-                                            android.util.Log.w("Dashboard", "Error processing end frame: " + e.getMessage());
-                                        }
-                                        
-                                        // Reset for next frame
-                                        frameBuffer.reset();
-                                        inJpeg = false;
-                                    }
-                                }
-                                
-                                lastByte = b;
-                            }
-                            
-                            // Check for too many consecutive errors
-                            if (consecutiveErrors > 50) {
-                                android.util.Log.e("Dashboard", "Too many consecutive errors, stopping stream");
-                                break;
-                            }
-                            
-                        } catch (Exception e) {
-                            consecutiveErrors++;
-                            android.util.Log.e("Dashboard", "Error reading stream: " + e.getMessage());
-                            if (consecutiveErrors > 10) {
-                                break;
-                            }
-                            // Small delay before retrying
-                            try {
-                                Thread.sleep(100);
-                            } catch (InterruptedException ie) {
-                                break;
-                            }
-                        }
-                    }
-                } else {
-                    android.util.Log.e("Dashboard", "Stream connection failed: " + responseCode);
-                    // Show error on UI
-                    runOnUiThread(() -> {
-                        drawPiErrorOnSurface("Stream connection failed: HTTP " + responseCode);
-                    });
+                @Override
+                public void onDisconnected(String reason, long retryDelayMs) {
+                    android.util.Log.w("Dashboard", "Stream lost (" + reason + "), retrying in " + retryDelayMs
+                        + " ms (stalled " + piStreamWorker.getTotalStallMs() + " ms in total)");
+                    overlayCompositor.setConnectionState(OverlayCompositor.ConnectionState.RECONNECTING);
+                    drawPiErrorOnSurface("Stream error: " + reason);
                 }
-            } catch (Exception e) {
-                android.util.Log.e("Dashboard", "Error in Pi stream thread: " + e.getMessage(), e);
-                // Show error on UI
-                runOnUiThread(() -> {
-                    drawPiErrorOnSurface("Stream error: " + e.getMessage());
-                });
-            } finally {
+            });
+        }
+        if (piStreamWorker.isRunning() && targetUrl.equals(piStreamWorker.getUrl())) {
+            android.util.Log.d("Dashboard", "Stream worker already running");
+            return;
+        }
+        overlayCompositor.setConnectionState(OverlayCompositor.ConnectionState.CONNECTING);
+        piStreamWorker.start(targetUrl);
+        registerStreamNetworkCallback();
+        android.util.Log.d("Dashboard", "Pi stream worker started for " + targetUrl);
+    }
+    
+    /**
+     * One demuxed stream frame (stream thread). Returns false to make the worker reconnect.
+     */
+    private boolean handleStreamFrame(byte[] buffer, int offset, int length) {
+        // Every received frame goes into the incident ring as-is, before any frame is skipped or decoded
+        IncidentClipRecorder recorder = incidentRecorder;
+        if (recorder != null) {
+            recorder.append(buffer, offset, length, System.currentTimeMillis());
+        }
+        
+        // Decide before decoding: surplus frames are skipped while still JPEG bytes
+        if (frameAdmission.onFrameReceived(SystemClock.elapsedRealtime())
+                != FrameAdmissionPolicy.Decision.ADMIT) {
+            return true;
+        }
+        
+        // Decoded at preview size into a recycled bitmap, which goes back to the pool once the renderer replaces it
+        long decodeStartNs = System.nanoTime();
+        Bitmap frameBitmap = streamBitmapPool.decode(buffer, offset, length, previewWidth, previewHeight);
+        long decodeMicros = (System.nanoTime() - decodeStartNs) / 1000;
+        frameAdmission.onDecoded(frameBitmap != null);
+        if (frameBitmap == null) {
+            consecutiveDecodeErrors++;
+            android.util.Log.w("Dashboard", "Failed to decode JPEG frame (error " + consecutiveDecodeErrors + ")");
+            if (consecutiveDecodeErrors > 50) {
+                android.util.Log.e("Dashboard", "Too many consecutive decode errors, reconnecting stream");
+                consecutiveDecodeErrors = 0;
+                return false;
+            }
+            return true;
+        }
+        
+        // Sample before handing the frame to the renderer, which recycles it
+        if (crossCheckEnabled && crossChecker.shouldSampleFrame()) {
+            submitLocalCrossCheck(frameBitmap);
+        }
+        
+        // Pi boxes refer to the full-size frame, not the sampled bitmap
+        overlayCompositor.setSourceSize(streamBitmapPool.getSourceWidth(), streamBitmapPool.getSourceHeight());
+        displayFrameOnSurface(frameBitmap);
+        updateDisplayRate(decodeMicros);
+        frameCount++;
+        consecutiveDecodeErrors = 0;
+        
+        if (frameCount % 10 == 0) {
+            android.util.Log.d("Dashboard", "Received frame #" + frameCount
+                + " (buffer " + piStreamWorker.getBufferCapacity() / 1024 + " KB, stalled "
+                + piStreamWorker.getTotalStallMs() + " ms, " + frameAdmission
+                + ", bitmaps reused=" + streamBitmapPool.getReusedCount()
+                + " allocated=" + streamBitmapPool.getAllocatedCount() + ", " + describeRenderTimes()
+                + ", display " + displayRate + ")");
+        }
+        return true;
+    }
+    
+    /**
+     * Map the incident ring file (stream thread, first connection only). Recording is skipped if it can't be created.
+     */
+    private void openIncidentRecorder() {
+        if (incidentRecorder != null) {
+            return;
+        }
+        try {
+            incidentRecorder = new IncidentClipRecorder(new File(getCacheDir(), "incident_ring.bin"),
+                new File(getFilesDir(), "incident_clips"));
+        } catch (IOException e) {
+            android.util.Log.e("Dashboard", "Incident recording unavailable: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Save the frames leading up to an alarm; the copy runs on the recorder's thread.
+     */
+    private void saveIncidentClip() {
+        IncidentClipRecorder recorder = incidentRecorder;
+        if (recorder == null) {
+            return;
+        }
+        recorder.freezeAsync(IncidentClipRecorder.DEFAULT_CLIP_WINDOW_MS, (clip, frames) -> {
+            if (clip != null) {
+                android.util.Log.d("Dashboard", "Incident clip saved: " + clip.getName() + " (" + frames + " frames, " + recorder + ")");
+            } else {
+                android.util.Log.w("Dashboard", "No incident clip saved (" + recorder + ")");
+            }
+        });
+    }
+    
+    /**
+     * Run the on-device detector on a copy of a decoded stream frame. Skipped while the previous one is still running.
+     */
+    private void submitLocalCrossCheck(Bitmap frame) {
+        if (!localCheckBusy.compareAndSet(false, true)) {
+            return;
+        }
+        // The detector needs ARGB_8888, and the pooled frame is reused once drawn
+        final Bitmap copy = frame.copy(Bitmap.Config.ARGB_8888, false);
+        if (copy == null) {
+            localCheckBusy.set(false);
+            return;
+        }
+        final long frameTimeMs = System.currentTimeMillis();
+        if (localCheckExecutor == null) {
+            localCheckExecutor = Executors.newSingleThreadExecutor();
+        }
+        try {
+            localCheckExecutor.execute(() -> {
                 try {
-                    if (streamInput != null) streamInput.close();
-                    if (connection != null) connection.disconnect();
-                } catch (Exception e) {
-                    android.util.Log.e("Dashboard", "Error closing stream: " + e.getMessage());
+                    if (localCheckDetector == null) {
+                        localCheckDetector = new DrowsinessDetector(Dashboard.this);
+                    }
+                    crossChecker.onLocalResult(localCheckDetector.isDrowsy(copy), frameTimeMs);
+                } catch (IOException e) {
+                    android.util.Log.e("Dashboard", "Local model unavailable, disabling cross-check: " + e.getMessage());
+                    crossCheckEnabled = false;
+                    runOnUiThread(() -> Toast.makeText(Dashboard.this,
+                        "Local cross-check disabled: on-device model not available", Toast.LENGTH_LONG).show());
+                } finally {
+                    copy.recycle();
+                    localCheckBusy.set(false);
                 }
-                android.util.Log.d("Dashboard", "Pi stream thread stopped");
-                
-                // Auto-retry stream connection if it failed (after delay)
-                if (isStreaming && isPiConnected) {
-                    android.util.Log.d("Dashboard", "Stream stopped, will retry in 3 seconds...");
-                    new Handler(Looper.getMainLooper()).postDelayed(() -> {
-                        if (isStreaming && isPiConnected && usePiDetection) {
-                            android.util.Log.d("Dashboard", "Retrying stream connection...");
-                            startPiStream();
-                        }
-                    }, 3000);
+            });
+        } catch (java.util.concurrent.RejectedExecutionException e) {
+            copy.recycle();
+            localCheckBusy.set(false);
+        }
+    }
+    
+    private void loadCrossCheckSettings() {
+        String policyName = sharedPreferences.getString(PREF_LOCAL_CROSS_CHECK_POLICY, null);
+        crossChecker.setSampleEvery(sharedPreferences.getInt(PREF_LOCAL_CROSS_CHECK_EVERY,
+            DetectionCrossChecker.DEFAULT_SAMPLE_EVERY));
+        crossCheckEnabled = false;
+        if (policyName != null) {
+            try {
+                crossChecker.setPolicy(DetectionCrossChecker.Policy.valueOf(policyName));
+                crossCheckEnabled = true;
+            } catch (IllegalArgumentException e) {
+                android.util.Log.w("Dashboard", "Unknown cross-check policy " + policyName);
+            }
+        }
+    }
+    
+    private void showCrossCheckDialog() {
+        String[] labels = {
+            "Off",
+            "Trust Pi (record disagreements only)",
+            "Trust phone",
+            "Alarm if either is drowsy",
+            "Alarm only if both are drowsy"
+        };
+        DetectionCrossChecker.Policy[] policies = {
+            null,
+            DetectionCrossChecker.Policy.TRUST_PI,
+            DetectionCrossChecker.Policy.TRUST_LOCAL,
+            DetectionCrossChecker.Policy.EITHER_DROWSY,
+            DetectionCrossChecker.Policy.BOTH_DROWSY
+        };
+        int checked = 0;
+        if (crossCheckEnabled) {
+            for (int i = 1; i < policies.length; i++) {
+                if (policies[i] == crossChecker.getPolicy()) {
+                    checked = i;
                 }
             }
-        });
-        
-        piStreamThread.start();
-        android.util.Log.d("Dashboard", "Pi stream thread started");
+        }
+        new AlertDialog.Builder(this)
+            .setTitle("Local Cross-Check")
+            .setSingleChoiceItems(labels, checked, (dialog, which) -> {
+                DetectionCrossChecker.Policy policy = policies[which];
+                if (policy == null) {
+                    sharedPreferences.edit().remove(PREF_LOCAL_CROSS_CHECK_POLICY).apply();
+                } else {
+                    sharedPreferences.edit().putString(PREF_LOCAL_CROSS_CHECK_POLICY, policy.name()).apply();
+                }
+                loadCrossCheckSettings();
+                Toast.makeText(this, crossCheckEnabled ? "Cross-check: " + crossChecker : "Cross-check off",
+                    Toast.LENGTH_LONG).show();
+                dialog.dismiss();
+            })
+            .setNeutralButton("Sample Rate", (dialog, which) -> showCrossCheckSampleRateDialog())
+            .setNegativeButton("Cancel", null)
+            .show();
+    }
+    
+    private void showCrossCheckSampleRateDialog() {
+        String[] labels = new String[CROSS_CHECK_SAMPLE_CHOICES.length];
+        int checked = -1;
+        for (int i = 0; i < CROSS_CHECK_SAMPLE_CHOICES.length; i++) {
+            labels[i] = CROSS_CHECK_SAMPLE_CHOICES[i] == 1 ? "Every frame" : "Every " + CROSS_CHECK_SAMPLE_CHOICES[i] + " frames";
+            if (CROSS_CHECK_SAMPLE_CHOICES[i] == crossChecker.getSampleEvery()) {
+                checked = i;
+            }
+        }
+        new AlertDialog.Builder(this)
+            .setTitle("Cross-Check Sample Rate")
+            .setSingleChoiceItems(labels, checked, (dialog, which) -> {
+                sharedPreferences.edit().putInt(PREF_LOCAL_CROSS_CHECK_EVERY, CROSS_CHECK_SAMPLE_CHOICES[which]).apply();
+                loadCrossCheckSettings();
+                dialog.dismiss();
+            })
+            .setNegativeButton("Cancel", null)
+            .show();
     }
     
     /**
      * Stop MJPEG stream from Pi
      */
     private void stopPiStream() {
-        isStreaming = false;
-        if (piStreamThread != null && piStreamThread.isAlive()) {
-            piStreamThread.interrupt();
+        unregisterStreamNetworkCallback();
+        if (piStreamWorker != null) {
+            piStreamWorker.stop();
+        }
+        overlayCompositor.clearDetections();
+        android.util.Log.d("Dashboard", "Pi stream stopped");
+    }
+    
+    private void registerStreamNetworkCallback() {
+        if (streamNetworkCallback != null) {
+            return;
+        }
+        ConnectivityManager connectivityManager = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivityManager == null) {
+            return;
+        }
+        streamNetworkCallback = new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(@NonNull Network network) {
+                // Called once for the current network on registration; after that the default network changed
+                Network previous = streamNetwork;
+                streamNetwork = network;
+                if (previous != null && piStreamWorker != null) {
+                    // The open connection may be stuck on the old network: drop it and reconnect now
+                    piStreamWorker.onNetworkChanged();
+                }
+            }
+        };
+        try {
+            connectivityManager.registerDefaultNetworkCallback(streamNetworkCallback);
+        } catch (RuntimeException e) {
+            android.util.Log.w("Dashboard", "Could not register network callback: " + e.getMessage());
+            streamNetworkCallback = null;
+        }
+    }
+    
+    private void unregisterStreamNetworkCallback() {
+        if (streamNetworkCallback == null) {
+            return;
+        }
+        ConnectivityManager connectivityManager = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivityManager != null) {
             try {
-                piStreamThread.join(2000);
-            } catch (InterruptedException e) {
-                android.util.Log.w("Dashboard", "Interrupted waiting for stream thread");
+                connectivityManager.unregisterNetworkCallback(streamNetworkCallback);
+            } catch (RuntimeException e) {
+                android.util.Log.w("Dashboard", "Could not unregister network callback: " + e.getMessage());
             }
         }
-        android.util.Log.d("Dashboard", "Pi stream stopped");
+        streamNetworkCallback = null;
+        streamNetwork = null;
     }
     
     /**
-     * Display video frame on SurfaceView
+     * Display video frame on SurfaceView (drawn on the render thread; any thread may call this)
      */
     private void displayFrameOnSurface(Bitmap frameBitmap) {
-        if (surfaceHolder == null || frameBitmap == null) {
+        if (previewRenderer == null || frameBitmap == null) {
             return;
         }
-        
-        android.graphics.Canvas canvas = surfaceHolder.lockCanvas();
-        if (canvas == null) {
+        previewRenderer.submitFrame(frameBitmap);
+    }
+    
+    /**
+     * Feed the cost of the latest preview frame to the display rate controller and apply its rate
+     */
+    private void updateDisplayRate(long decodeMicros) {
+        long renderMicros = 0;
+        if (previewRenderer != null) {
+            renderMicros = Math.max(0, previewRenderer.getRenderTimeMicros(previewRenderer.getActiveBackend()).mean());
+        }
+        displayRate.onFrameCost(decodeMicros, renderMicros);
+        frameAdmission.setMinIntervalMs(displayRate.getMinIntervalMs());
+    }
+    
+    private void registerThermalStatusListener() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q || thermalStatusListener != null) {
             return;
         }
-        
-        try {
-            // Calculate scaling to fit the preview area
-            float scale = Math.min(
-                (float)canvas.getWidth() / frameBitmap.getWidth(),
-                (float)canvas.getHeight() / frameBitmap.getHeight()
-            );
-            
-            // Calculate centering offsets
-            float dx = (canvas.getWidth() - frameBitmap.getWidth() * scale) / 2;
-            float dy = (canvas.getHeight() - frameBitmap.getHeight() * scale) / 2;
-            
-            // Clear the canvas
-            canvas.drawColor(android.graphics.Color.BLACK);
-            
-            // Draw frame
-            canvas.save();
-            canvas.translate(dx, dy);
-            canvas.scale(scale, scale);
-            canvas.drawBitmap(frameBitmap, 0, 0, null);
-            canvas.restore();
-            
-        } finally {
-            surfaceHolder.unlockCanvasAndPost(canvas);
+        PowerManager powerManager = (PowerManager) getSystemService(Context.POWER_SERVICE);
+        if (powerManager == null) {
+            return;
+        }
+        thermalStatusListener = status -> {
+            displayRate.setThermalStatus(status);
+            frameAdmission.setMinIntervalMs(displayRate.getMinIntervalMs());
+            android.util.Log.d("Dashboard", "Thermal status " + status + ", preview " + displayRate);
+        };
+        powerManager.addThermalStatusListener(thermalStatusListener);
+    }
+    
+    private void unregisterThermalStatusListener() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q || thermalStatusListener == null) {
+            return;
+        }
+        PowerManager powerManager = (PowerManager) getSystemService(Context.POWER_SERVICE);
+        if (powerManager != null) {
+            powerManager.removeThermalStatusListener(thermalStatusListener);
+        }
+        thermalStatusListener = null;
+    }
+    
+    private void showPreviewFrameRateDialog() {
+        String[] labels = new String[PREVIEW_FPS_CHOICES.length];
+        int checked = -1;
+        for (int i = 0; i < PREVIEW_FPS_CHOICES.length; i++) {
+            labels[i] = PREVIEW_FPS_CHOICES[i] + " FPS";
+            if (PREVIEW_FPS_CHOICES[i] == displayRate.getTargetFps()) {
+                checked = i;
+            }
         }
+        new AlertDialog.Builder(this)
+            .setTitle("Preview Frame Rate")
+            .setSingleChoiceItems(labels, checked, (dialog, which) -> {
+                int fps = PREVIEW_FPS_CHOICES[which];
+                sharedPreferences.edit().putInt(PREF_PREVIEW_TARGET_FPS, fps).apply();
+                displayRate.setTargetFps(fps);
+                frameAdmission.setMinIntervalMs(displayRate.getMinIntervalMs());
+                Toast.makeText(this, "Preview target: " + fps + " FPS (lowered automatically under load)",
+                    Toast.LENGTH_SHORT).show();
+                dialog.dismiss();
+            })
+            .setNegativeButton("Cancel", null)
+            .show();
+    }
+    
+    private boolean isPhoneCameraModeEnabled() {
+        return detectionSources != null && detectionSources.isPhoneCameraMode();
     }
     
     /**
-     * Stop querying Pi for detection results
+     * Switch detection between the phone's front camera (on-device model) and the Pi.
      */
-    private void stopPiQueryLoop() {
-        if (piQueryHandler != null && piQueryRunnable != null) {
-            piQueryHandler.removeCallbacks(piQueryRunnable);
-            piQueryRunnable = null;
-            android.util.Log.d("Dashboard", "Pi query loop stopped");
-        }
+    private void setPhoneCameraMode(boolean enabled) {
+        sharedPreferences.edit().putBoolean(PREF_PHONE_CAMERA_MODE, enabled).apply();
+        detectionSources.setPhoneCameraMode(enabled, isPiConnected);
     }
     
     /**
-     * Draw Pi Camera status on SurfaceView (since we don't receive video frames)
+     * Run the on-device model on the front camera. Frames go from the ImageReader straight
+     * into the model's input tensor on the camera thread; frames arriving during inference
+     * are replaced by newer ones, so detection runs at whatever rate the device sustains.
      */
-    private void drawPiStatusOnSurface(boolean isDrowsy, float confidence, int frameCount) {
-        if (surfaceHolder == null) {
+    private void startPhoneCameraDetection() {
+        if (phoneCamera != null) {
             return;
         }
-        
-        android.graphics.Canvas canvas = surfaceHolder.lockCanvas();
-        if (canvas == null) {
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA) != PackageManager.PERMISSION_GRANTED) {
+            ActivityCompat.requestPermissions(this, new String[] {Manifest.permission.CAMERA}, REQUEST_CAMERA_PERMISSION);
             return;
         }
-        
-        try {
-            // Clear with dark background
-            canvas.drawColor(android.graphics.Color.rgb(20, 20, 20));
-            
-            // Create text paint
-            android.graphics.Paint textPaint = new android.graphics.Paint();
-            textPaint.setAntiAlias(true);
-            textPaint.setTextAlign(android.graphics.Paint.Align.CENTER);
+        phoneFrameWindowCount = 0;
+        phoneFrameWindowStartMs = SystemClock.elapsedRealtime();
+        PhoneCameraAnalyzer analyzer = new PhoneCameraAnalyzer(this::loadPhoneCameraModel, new PhoneCameraAnalyzer.Listener() {
+            @Override
+            public void onFrameAnalyzed(boolean drowsy, float confidence, long captureTimeMs, long framesAnalyzed) {
+                onPhoneCameraFrameAnalyzed(drowsy, confidence, captureTimeMs, framesAnalyzed);
+            }
             
-            // Title
-            textPaint.setTextSize(48f);
-            textPaint.setColor(android.graphics.Color.WHITE);
-            float centerX = canvas.getWidth() / 2f;
-            float y = 100f;
-            canvas.drawText("Raspberry Pi Camera", centerX, y, textPaint);
+            @Override
+            public void onModelUnavailable(IOException error) {
+                android.util.Log.e("Dashboard", "Failed to load on-device model: " + error.getMessage(), error);
+                runOnUiThread(() -> {
+                    Toast.makeText(Dashboard.this, "On-device model unavailable", Toast.LENGTH_LONG).show();
+                    setPhoneCameraMode(false);
+                    invalidateOptionsMenu();
+                });
+            }
+        });
+        phoneAnalyzer = analyzer;
+        
+        AndroidCameraManager camera = new AndroidCameraManager(this);
+        camera.setAnalysisSize(PHONE_ANALYSIS_WIDTH, PHONE_ANALYSIS_HEIGHT);
+        camera.setMaxFrameAgeMs(PHONE_MAX_FRAME_AGE_MS);
+        camera.initialize();
+        camera.setFrameAnalyzer((image, sensorTimestampNs, captureTimeMs) -> analyzer.analyze(image, captureTimeMs));
+        camera.startCapture(new AndroidCameraManager.CameraFrameCallback() {
+            @Override
+            public void onFrameReceived(Bitmap frame) {
+                // Frames go to the analyzer instead
+            }
             
-            // Status
-            textPaint.setTextSize(36f);
-            y += 80f;
-            canvas.drawText("Status: Connected ✓", centerX, y, textPaint);
+            @Override
+            public void onError(Exception error) {
+                android.util.Log.e("Dashboard", "Phone camera error: " + error.getMessage(), error);
+                runOnUiThread(() -> drawPiErrorOnSurface("Phone camera: " + error.getMessage()));
+            }
+        });
+        phoneCamera = camera;
+        android.util.Log.d("Dashboard", "Phone camera detection started");
+    }
+    
+    private void stopPhoneCameraDetection() {
+        if (phoneCamera == null) {
+            return;
+        }
+        AndroidCameraManager camera = phoneCamera;
+        phoneCamera = null;
+        PhoneCameraAnalyzer analyzer = phoneAnalyzer;
+        phoneAnalyzer = null;
+        // The model is closed on the camera thread after its last frame, so the UI thread
+        // doesn't wait out a model load or inference
+        camera.stopCapture(() -> {
+            android.util.Log.d("Dashboard", "Phone camera frames: " + camera.getFrameGate());
+            if (analyzer != null) {
+                analyzer.close();
+                android.util.Log.d("Dashboard", "Phone camera detection stopped after " + analyzer.getFramesAnalyzed()
+                    + " frames, detect ms " + analyzer.getDetectTimeMs());
+            }
+        });
+    }
+    
+    /**
+     * Camera thread, on the first frame: load the on-device model (not on the UI thread).
+     */
+    private PhoneCameraAnalyzer.Model loadPhoneCameraModel() throws IOException {
+        final DrowsinessDetector detector = new DrowsinessDetector(this);
+        return new PhoneCameraAnalyzer.Model() {
+            @Override
+            public void detect(Image image, PhoneCameraAnalyzer.Verdict verdict) {
+                List<DrowsinessDetector.Detection> detections = detector.detect(image, phoneFrameConverter);
+                if (!detections.isEmpty()) {
+                    DrowsinessDetector.Detection best = detections.get(0);
+                    verdict.drowsy = best.cls == 1;
+                    verdict.confidence = best.score;
+                }
+            }
             
-            // Detection status
-            textPaint.setTextSize(42f);
-            y += 80f;
-            if (isDrowsy) {
-                textPaint.setColor(android.graphics.Color.RED);
-                canvas.drawText("⚠️ DROWSY DETECTED ⚠️", centerX, y, textPaint);
+            @Override
+            public void close() {
+                detector.close();
+            }
+        };
+    }
+    
+    /**
+     * Camera thread: feed the debounce/alarm logic and the status screen.
+     */
+    private void onPhoneCameraFrameAnalyzed(boolean isDrowsy, float confidence, long captureTimeMs, long framesAnalyzed) {
+        if (phoneAnalyzer == null) {
+            // Stopped while this frame was being analysed
+            return;
+        }
+        // Timed from exposure, not from when inference finished
+        handleDebouncedDetection(isDrowsy, captureTimeMs);
+        drawPhoneCameraStatus(isDrowsy, confidence, (int) framesAnalyzed);
+        
+        long nowMs = SystemClock.elapsedRealtime();
+        phoneFrameWindowCount++;
+        if (nowMs - phoneFrameWindowStartMs >= 5000) {
+            AndroidCameraManager camera = phoneCamera;
+            PhoneCameraAnalyzer analyzer = phoneAnalyzer;
+            android.util.Log.d("Dashboard", "Phone camera detection: " + (phoneFrameWindowCount * 1000 / (nowMs - phoneFrameWindowStartMs))
+                + " fps, detect ms " + (analyzer != null ? analyzer.getDetectTimeMs() : "-")
+                + ", frames " + (camera != null ? camera.getFrameGate() : "-"));
+            phoneFrameWindowStartMs = nowMs;
+            phoneFrameWindowCount = 0;
+        }
+    }
+    
+    private void drawPhoneCameraStatus(boolean isDrowsy, float confidence, int frameCount) {
+        if (previewRenderer == null) {
+            return;
+        }
+        previewRenderer.showScreen((canvas, bounds) ->
+            overlayCompositor.drawStatusScreen(canvas, bounds, "Phone Camera", "Front camera frames are",
+                "processed on this device", isDrowsy, confidence, frameCount));
+    }
+    
+    @Override
+    public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        if (requestCode == REQUEST_CAMERA_PERMISSION) {
+            if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
+                startPhoneCameraDetection();
             } else {
-                textPaint.setColor(android.graphics.Color.GREEN);
-                canvas.drawText("✓ Driver Alert", centerX, y, textPaint);
+                Toast.makeText(this, "Camera permission is needed for phone camera detection", Toast.LENGTH_LONG).show();
+                setPhoneCameraMode(false);
+                invalidateOptionsMenu();
             }
-            
-            // Confidence
-            textPaint.setTextSize(32f);
-            textPaint.setColor(android.graphics.Color.WHITE);
-            y += 70f;
-            canvas.drawText(String.format("Confidence: %.1f%%", confidence * 100), centerX, y, textPaint);
-            
-            // Frame count
-            textPaint.setTextSize(28f);
-            textPaint.setColor(android.graphics.Color.GRAY);
-            y += 60f;
-            canvas.drawText(String.format("Frames Processed: %d", frameCount), centerX, y, textPaint);
-            
-            // Instructions
-            textPaint.setTextSize(24f);
-            textPaint.setColor(android.graphics.Color.DKGRAY);
-            y += 100f;
-            canvas.drawText("Pi Camera is capturing and", centerX, y, textPaint);
-            y += 40f;
-            canvas.drawText("processing frames on Raspberry Pi", centerX, y, textPaint);
-            
-        } finally {
-            surfaceHolder.unlockCanvasAndPost(canvas);
+        }
+    }
+    
+    private boolean isHardwarePreviewEnabled() {
+        return sharedPreferences == null || sharedPreferences.getBoolean(PREF_PREVIEW_HARDWARE_RENDERING, true);
+    }
+    
+    /**
+     * Median render time per backend, e.g. for comparing them on this device
+     */
+    private String describeRenderTimes() {
+        if (previewRenderer == null) {
+            return "renderer not started";
+        }
+        return "render " + previewRenderer.getActiveBackend()
+            + " (software p50=" + previewRenderer.getRenderTimeMicros(PreviewRenderer.Backend.SOFTWARE).percentile(50)
+            + "us, hardware p50=" + previewRenderer.getRenderTimeMicros(PreviewRenderer.Backend.HARDWARE).percentile(50) + "us)";
+    }
+    
+    /**
+     * Stop querying Pi for detection results
+     */
+    private void stopPiQueryLoop() {
+        if (piQueryHandler != null && piQueryRunnable != null) {
+            piQueryHandler.removeCallbacks(piQueryRunnable);
+            piQueryRunnable = null;
+            android.util.Log.d("Dashboard", "Pi query loop stopped");
         }
     }
     
@@ -1182,57 +1644,22 @@ public class Dashboard extends AppCompatActivity implements SurfaceHolder.Callba
      * Draw error status on SurfaceView when Pi connection fails
      */
     private void drawPiErrorOnSurface(String errorMessage) {
-        if (surfaceHolder == null) {
-            return;
-        }
-        
-        android.graphics.Canvas canvas = surfaceHolder.lockCanvas();
-        if (canvas == null) {
+        if (previewRenderer == null) {
             return;
         }
         
-        try {
-            // Clear with dark background
-            canvas.drawColor(android.graphics.Color.rgb(20, 20, 20));
-            
-            // Create text paint
-            android.graphics.Paint textPaint = new android.graphics.Paint();
-            textPaint.setAntiAlias(true);
-            textPaint.setTextAlign(android.graphics.Paint.Align.CENTER);
-            
-            // Title
-            textPaint.setTextSize(48f);
-            textPaint.setColor(android.graphics.Color.RED);
-            float centerX = canvas.getWidth() / 2f;
-            float y = 100f;
-            canvas.drawText("❌ Connection Error", centerX, y, textPaint);
-            
-            // Error message
-            textPaint.setTextSize(28f);
-            textPaint.setColor(android.graphics.Color.WHITE);
-            y += 80f;
-            canvas.drawText(errorMessage != null ? errorMessage : "Failed to connect to Pi", centerX, y, textPaint);
-            
-            // Instructions
-            textPaint.setTextSize(24f);
-            textPaint.setColor(android.graphics.Color.GRAY);
-            y += 100f;
-            canvas.drawText("Check:", centerX, y, textPaint);
-            y += 50f;
-            canvas.drawText("• Pi server is running", centerX, y, textPaint);
-            y += 40f;
-            canvas.drawText("• Same Wi-Fi network", centerX, y, textPaint);
-            y += 40f;
-            canvas.drawText("• Pi IP: 192.168.43.151:5000", centerX, y, textPaint);
-            
-        } finally {
-            surfaceHolder.unlockCanvasAndPost(canvas);
-        }
+        final String serverUrl = piServerUrl;
+        previewRenderer.showScreen((canvas, bounds) ->
+            overlayCompositor.drawErrorScreen(canvas, bounds, errorMessage, serverUrl));
     }
 
     @Override
     public void surfaceDestroyed(@NonNull SurfaceHolder holder) {
-        // Surface is being destroyed
+        // Surface is being destroyed - waits for an in-progress draw before the surface goes away
+        frameAdmission.setRendererReady(false);
+        if (previewRenderer != null) {
+            previewRenderer.setSurfaceReady(false);
+        }
         stopPiQueryLoop();
         stopPiStream();
         
@@ -1258,6 +1685,19 @@ public class Dashboard extends AppCompatActivity implements SurfaceHolder.Callba
         return true;
     }
 
+    @Override
+    public boolean onPrepareOptionsMenu(Menu menu) {
+        MenuItem hardwarePreviewItem = menu.findItem(R.id.menu_hardware_preview);
+        if (hardwarePreviewItem != null) {
+            hardwarePreviewItem.setChecked(isHardwarePreviewEnabled());
+        }
+        MenuItem phoneCameraItem = menu.findItem(R.id.menu_phone_camera);
+        if (phoneCameraItem != null) {
+            phoneCameraItem.setChecked(isPhoneCameraModeEnabled());
+        }
+        return super.onPrepareOptionsMenu(menu);
+    }
+
     @Override
     public boolean onOptionsItemSelected(@NonNull MenuItem item) {
         int id = item.getItemId();
@@ -1293,6 +1733,36 @@ public class Dashboard extends AppCompatActivity implements SurfaceHolder.Callba
         } else if (id == R.id.menu_set_pi_server) {
             showPiServerConfigurationDialog();
             return true;
+        } else if (id == R.id.menu_local_cross_check) {
+            showCrossCheckDialog();
+            return true;
+        } else if (id == R.id.menu_preview_frame_rate) {
+            showPreviewFrameRateDialog();
+            return true;
+        } else if (id == R.id.menu_hardware_preview) {
+            // Switch the preview renderer between hardware and software canvas
+            boolean enabled = !item.isChecked();
+            item.setChecked(enabled);
+            sharedPreferences.edit().putBoolean(PREF_PREVIEW_HARDWARE_RENDERING, enabled).apply();
+            if (previewRenderer != null) {
+                previewRenderer.setBackend(enabled ? PreviewRenderer.Backend.HARDWARE : PreviewRenderer.Backend.SOFTWARE);
+            }
+            Toast.makeText(this, "Preview rendering: " + (enabled ? "hardware" : "software")
+                + "\n" + describeRenderTimes(), Toast.LENGTH_LONG).show();
+            return true;
+        } else if (id == R.id.menu_phone_camera) {
+            boolean enabled = !item.isChecked();
+            item.setChecked(enabled);
+            setPhoneCameraMode(enabled);
+            return true;
+        } else if (id == R.id.menu_helmet_link) {
+            showHelmetLinkDialog();
+            return true;
+        } else if (id == R.id.menu_supervisor_mode) {
+            // Navigate to Supervisor Mode (monitor several helmets)
+            Intent intent = new Intent(Dashboard.this, SupervisorActivity.class);
+            startActivity(intent);
+            return true;
         }
 
         return super.onOptionsItemSelected(item);
@@ -1655,9 +2125,79 @@ public class Dashboard extends AppCompatActivity implements SurfaceHolder.Callba
     @Override
     protected void onActivityResult(int requestCode, int resultCode, Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
-        // Handle other activity results if needed
-        if (resultCode == RESULT_OK && data != null) {
-            // Handle other activity results
+        if (requestCode == REQUEST_HELMET_DEVICE && resultCode == RESULT_OK && data != null) {
+            String address = data.getStringExtra("PROTOTYPE_BT_ADDRESS");
+            if (address != null) {
+                if (sharedPreferences.getBoolean(PREF_HELMET_LINK_BLE, false)) {
+                    connectToHelmetBle(address);
+                } else {
+                    connectToPrototype(address);
+                }
+            }
+        }
+    }
+    
+    private void showHelmetLinkDialog() {
+        String[] labels = {
+            "Classic Bluetooth (video + status)",
+            "BLE (status only, low power)"
+        };
+        int checked = sharedPreferences.getBoolean(PREF_HELMET_LINK_BLE, false) ? 1 : 0;
+        new AlertDialog.Builder(this)
+            .setTitle("Helmet Link")
+            .setSingleChoiceItems(labels, checked, (dialog, which) -> {
+                sharedPreferences.edit().putBoolean(PREF_HELMET_LINK_BLE, which == 1).apply();
+                dialog.dismiss();
+                // Pick the helmet to connect to with the chosen link
+                startActivityForResult(new Intent(this, DevicePairingActivity.class), REQUEST_HELMET_DEVICE);
+            })
+            .setNegativeButton("Cancel", null)
+            .show();
+    }
+    
+    /**
+     * Subscribe to the helmet's drowsiness-state characteristic over BLE. States feed the
+     * same debounce and alarm path as the RFCOMM status messages.
+     */
+    private void connectToHelmetBle(String deviceAddress) {
+        BluetoothAdapter bluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
+        if (bluetoothAdapter == null) {
+            Toast.makeText(this, "Bluetooth is not supported", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S
+                && ActivityCompat.checkSelfPermission(this, Manifest.permission.BLUETOOTH_CONNECT) != PackageManager.PERMISSION_GRANTED) {
+            Toast.makeText(this, "Bluetooth permission required", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        stopHelmetBle();
+        
+        BluetoothDevice device = bluetoothAdapter.getRemoteDevice(deviceAddress);
+        helmetBleClient = new HelmetBleClient(new BleGattTransport(this, device), new HelmetBleClient.Listener() {
+            @Override
+            public void onHelmetState(HelmetStatePacket packet, long receivedTimeMs) {
+                if (packet.state == HelmetStatePacket.STATE_NO_FACE) {
+                    return;  // Nothing to judge - leave the current state to the debounce timers
+                }
+                handleDebouncedDetection(packet.isDrowsy(), receivedTimeMs);
+            }
+            
+            @Override
+            public void onLinkStateChanged(HelmetBleClient.State state) {
+                android.util.Log.d("Dashboard", "Helmet BLE link: " + state);
+                if (state == HelmetBleClient.State.SUBSCRIBED) {
+                    runOnUiThread(() -> Toast.makeText(Dashboard.this, "Connected to helmet (BLE)", Toast.LENGTH_SHORT).show());
+                }
+            }
+        });
+        helmetBleClient.start();
+    }
+    
+    private void stopHelmetBle() {
+        if (helmetBleClient != null) {
+            android.util.Log.d("Dashboard", "Stopping helmet BLE link (" + helmetBleClient + ")");
+            helmetBleClient.stop();
+            helmetBleClient = null;
         }
     }
 
@@ -1724,132 +2264,29 @@ public class Dashboard extends AppCompatActivity implements SurfaceHolder.Callba
 
     private void startBluetoothListener() {
         bluetoothThread = new Thread(() -> {
-            byte[] buffer = new byte[1024];
-            int frameIndex = 0;
-            boolean receivingFrame = false;
+            // Status payloads form one NDJSON stream, so a message may span frames or share one
+            StatusMessageParser statusParser = new StatusMessageParser((isDrowsy, timestamp) ->
+                // Use debounced detection to prevent rapid UI blinking
+                handleDebouncedDetection(isDrowsy, timestamp != StatusMessageParser.NO_TIMESTAMP ? timestamp : System.currentTimeMillis()));
+            
+            // Messages arrive framed (type, length, sequence, CRC), so reads may split or merge them freely
+            HelmetLinkDecoder decoder = new HelmetLinkDecoder((type, sequence, payload, offset, length) -> {
+                if (type == HelmetLinkDecoder.TYPE_STATUS_JSON) {
+                    statusParser.feed(payload, offset, length);
+                } else if (type == HelmetLinkDecoder.TYPE_CAMERA_FRAME) {
+                    handleHelmetCameraFrame(payload, offset, length);
+                } else {
+                    android.util.Log.w("Dashboard", "Unknown helmet message type " + type + " (seq " + sequence + ")");
+                }
+            });
             
             while (isConnected) {
                 try {
-                    int bytes = inputStream.read(buffer);
-                    if (bytes > 0) {
-                        // Check if this is a JSON message or camera frame
-                        if (buffer[0] == '{') {  // JSON message starts with {
-                            String message = new String(buffer, 0, bytes);
-                            try {
-                                // Parse the JSON message from prototype
-                                JSONObject data = new JSONObject(message);
-                                // Support both is_eyes_closed and is_drowsy for compatibility
-                                boolean isDrowsy = false;
-                                if (data.has("is_eyes_closed")) {
-                                    isDrowsy = data.getBoolean("is_eyes_closed");
-                                } else if (data.has("is_drowsy")) {
-                                    isDrowsy = data.getBoolean("is_drowsy");
-                                }
-                                long timestamp = data.optLong("timestamp", System.currentTimeMillis());
-                                
-                                // Use debounced detection to prevent rapid UI blinking
-                                handleDebouncedDetection(isDrowsy, timestamp);
-                            } catch (JSONException e) {
-                                e.printStackTrace();
-                            }
-                        } else {  // This is a camera frame
-                            // Copy the received bytes to the frame buffer
-                            System.arraycopy(buffer, 0, frameBuffer, frameIndex, bytes);
-                            frameIndex += bytes;
-                            
-                            // If we've received a complete frame
-                            if (frameIndex >= CAMERA_FRAME_SIZE) {
-                                // Convert the frame buffer to a bitmap
-                                frameBitmap.copyPixelsFromBuffer(java.nio.ByteBuffer.wrap(frameBuffer));
-                                
-                                // Run drowsiness detection on the frame
-                                if (usePiDetection && piDrowsinessDetector != null) {
-                                    // Use Raspberry Pi for detection
-                                    piDrowsinessDetector.isDrowsyAsync(frameBitmap, new PiDrowsinessDetector.DetectionCallback() {
-                                        @Override
-                                        public void onDetectionComplete(List<PiDrowsinessDetector.Detection> detections, boolean isDrowsy, float confidence) {
-                                            // Convert Pi detections to compatible format
-                                            List<DrowsinessDetector.Detection> finalDetections = new ArrayList<>();
-                                            for (PiDrowsinessDetector.Detection piDet : detections) {
-                                                finalDetections.add(new DrowsinessDetector.Detection(
-                                                    piDet.box, piDet.score, piDet.cls, piDet.label
-                                                ));
-                                            }
-                                            final boolean finalIsDrowsy = isDrowsy;
-                                            final List<DrowsinessDetector.Detection> finalDetectionsList = finalDetections;
-                                            
-                                            // Update UI on main thread
-                                            runOnUiThread(() -> {
-                                                updateDetectionUI(finalDetectionsList, finalIsDrowsy, frameBitmap);
-                                            });
-                                        }
-                                        
-                                        @Override
-                                        public void onError(Exception error) {
-                                            android.util.Log.e("Dashboard", "Pi detection error: " + error.getMessage(), error);
-                                            // Fallback: draw frame without detection
-                                            runOnUiThread(() -> {
-                                                if (surfaceHolder != null) {
-                                                    android.graphics.Canvas canvas = surfaceHolder.lockCanvas();
-                                                    if (canvas != null) {
-                                                        float scale = Math.min(
-                                                            (float)canvas.getWidth() / frameBitmap.getWidth(),
-                                                            (float)canvas.getHeight() / frameBitmap.getHeight()
-                                                        );
-                                                        float dx = (canvas.getWidth() - frameBitmap.getWidth() * scale) / 2;
-                                                        float dy = (canvas.getHeight() - frameBitmap.getHeight() * scale) / 2;
-                                                        canvas.drawColor(android.graphics.Color.BLACK);
-                                                        canvas.save();
-                                                        canvas.translate(dx, dy);
-                                                        canvas.scale(scale, scale);
-                                                        canvas.drawBitmap(frameBitmap, 0, 0, paint);
-                                                        canvas.restore();
-                                                        surfaceHolder.unlockCanvasAndPost(canvas);
-                                                    }
-                                                }
-                                            });
-                                        }
-                                    });
-                                } else {
-                                    // Pi-only mode: no local detection fallback
-                                    android.util.Log.w("Dashboard", "Pi detection not available - skipping frame processing");
-                                    // Draw frame without inference if detector not available
-                                runOnUiThread(() -> {
-                                    if (surfaceHolder != null) {
-                                        android.graphics.Canvas canvas = surfaceHolder.lockCanvas();
-                                        if (canvas != null) {
-                                            // Calculate scaling to fit the preview area
-                                            float scale = Math.min(
-                                                (float)canvas.getWidth() / frameBitmap.getWidth(),
-                                                (float)canvas.getHeight() / frameBitmap.getHeight()
-                                            );
-                                            
-                                            // Calculate centering offsets
-                                            float dx = (canvas.getWidth() - frameBitmap.getWidth() * scale) / 2;
-                                            float dy = (canvas.getHeight() - frameBitmap.getHeight() * scale) / 2;
-                                            
-                                            // Clear the canvas
-                                            canvas.drawColor(android.graphics.Color.BLACK);
-                                            
-                                            // Save canvas state, scale and translate, then draw
-                                            canvas.save();
-                                            canvas.translate(dx, dy);
-                                            canvas.scale(scale, scale);
-                                            canvas.drawBitmap(frameBitmap, 0, 0, paint);
-                                            canvas.restore();
-                                            
-                                            surfaceHolder.unlockCanvasAndPost(canvas);
-                                        }
-                                    }
-                                });
-                                }
-                                
-                                // Reset frame buffer index
-                                frameIndex = 0;
-                            }
-                        }
+                    if (decoder.readFrom(inputStream) < 0) {
+                        throw new IOException("Bluetooth stream closed");
                     }
                 } catch (Exception e) {
+                    android.util.Log.w("Dashboard", "Bluetooth link ended (" + decoder + ", status " + statusParser + ")");
                     if (isConnected) {
                         runOnUiThread(() -> {
                             Toast.makeText(Dashboard.this, "Connection lost: " + e.getMessage(), 
@@ -1863,59 +2300,82 @@ public class Dashboard extends AppCompatActivity implements SurfaceHolder.Callba
         });
         bluetoothThread.start();
     }
-
+    
     /**
-     * Helper method to update UI with detection results
+     * Raw RGB565 camera frame from the helmet (Bluetooth thread)
      */
-    private void updateDetectionUI(List<DrowsinessDetector.Detection> detections, boolean isDrowsy, android.graphics.Bitmap frameBitmap) {
-        if (surfaceHolder != null) {
-            android.graphics.Canvas canvas = surfaceHolder.lockCanvas();
-            if (canvas != null) {
-                // Calculate scaling to fit the preview area
-                float scale = Math.min(
-                    (float)canvas.getWidth() / frameBitmap.getWidth(),
-                    (float)canvas.getHeight() / frameBitmap.getHeight()
-                );
-                
-                // Calculate centering offsets
-                float dx = (canvas.getWidth() - frameBitmap.getWidth() * scale) / 2;
-                float dy = (canvas.getHeight() - frameBitmap.getHeight() * scale) / 2;
-                
-                // Clear the canvas
-                canvas.drawColor(android.graphics.Color.BLACK);
-                
-                // Save canvas state, scale and translate, then draw
-                canvas.save();
-                canvas.translate(dx, dy);
-                canvas.scale(scale, scale);
-                canvas.drawBitmap(frameBitmap, 0, 0, paint);
-                
-                // Draw detection boxes
-                android.graphics.Paint boxPaint = new android.graphics.Paint();
-                boxPaint.setStyle(android.graphics.Paint.Style.STROKE);
-                boxPaint.setStrokeWidth(3f);
-                boxPaint.setColor(android.graphics.Color.GREEN);
-                
-                // Text paint for labels
-                android.graphics.Paint textPaint = new android.graphics.Paint();
-                textPaint.setColor(android.graphics.Color.GREEN);
-                textPaint.setTextSize(24f);
-                textPaint.setAntiAlias(true);
-                
-                for (DrowsinessDetector.Detection detection : detections) {
-                    // Draw bounding box
-                    canvas.drawRect(detection.box, boxPaint);
+    private void handleHelmetCameraFrame(byte[] payload, int offset, int length) {
+        if (length != CAMERA_FRAME_SIZE) {
+            android.util.Log.w("Dashboard", "Unexpected camera frame size " + length + " (expected " + CAMERA_FRAME_SIZE + ")");
+            return;
+        }
+        int slot = helmetFrameSlots.acquireForWrite();
+        if (slot < 0) {
+            // Every slot is still being uploaded or shown - drop this frame rather than overwrite one
+            return;
+        }
+        ByteBuffer pixels = helmetFramePixels[slot];
+        pixels.clear();
+        pixels.put(payload, offset, length);
+        pixels.rewind();
+        final Bitmap bitmap = helmetFrameBitmaps[slot];
+        bitmap.copyPixelsFromBuffer(pixels);
+        
+        // One upload in flight at a time; the renderer always gets the frame
+        boolean upload = usePiDetection && piDrowsinessDetector != null && helmetUploadBusy.compareAndSet(false, true);
+        boolean render = previewRenderer != null;
+        helmetFrameSlots.publish(slot, (upload ? 1 : 0) + (render ? 1 : 0));
+        
+        if (upload) {
+            piDrowsinessDetector.isDrowsyAsync(bitmap, new PiDrowsinessDetector.DetectionCallback() {
+                @Override
+                public void onDetectionComplete(List<PiDrowsinessDetector.Detection> detections, boolean isDrowsy, float confidence) {
+                    releaseHelmetUpload(slot);
+                    overlayCompositor.setSourceSize(CAMERA_FRAME_WIDTH, CAMERA_FRAME_HEIGHT);
+                    overlayCompositor.setDetections(detections, isDrowsy, confidence);
                     
-                    // Draw label with confidence
-                    String label = detection.label + " (" + String.format("%.2f", detection.score) + ")";
-                    canvas.drawText(label, detection.box.left, detection.box.top - 10, textPaint);
+                    // Update UI on main thread
+                    runOnUiThread(() -> updateDetectionUI(isDrowsy));
                 }
                 
-                canvas.restore();
-                surfaceHolder.unlockCanvasAndPost(canvas);
-            }
+                @Override
+                public void onError(Exception error) {
+                    android.util.Log.e("Dashboard", "Pi detection error: " + error.getMessage(), error);
+                    releaseHelmetUpload(slot);
+                }
+            });
+        } else if (!usePiDetection || piDrowsinessDetector == null) {
+            // Pi-only mode: no local detection fallback, the frame is only shown
+            android.util.Log.w("Dashboard", "Pi detection not available - skipping frame processing");
         }
         
+        if (render) {
+            // The renderer releases the slot once the frame is replaced
+            previewRenderer.submitFrame(bitmap);
+        }
+    }
+    
+    private void releaseHelmetUpload(int slot) {
+        helmetFrameSlots.release(slot);
+        helmetUploadBusy.set(false);
+    }
+    
+    /**
+     * Slot index of a helmet frame bitmap, or -1 for other (stream) bitmaps
+     */
+    private int helmetSlotOf(Bitmap frame) {
+        for (int i = 0; i < HELMET_FRAME_SLOTS; i++) {
+            if (helmetFrameBitmaps[i] == frame) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Helper method to update UI with detection results
+     */
+    private void updateDetectionUI(boolean isDrowsy) {
         // Update drowsiness status and UI
         updateDrowsinessEvent(isDrowsy, System.currentTimeMillis());
         
@@ -1985,51 +2445,25 @@ public class Dashboard extends AppCompatActivity implements SurfaceHolder.Callba
         });
     }
     
-    private void handleDebouncedDetection(boolean isDrowsy, long timestamp) {
-        // Initialize debounce handler if needed
-        if (debounceHandler == null) {
-            debounceHandler = new Handler(Looper.getMainLooper());
+    /**
+     * Capture time of a detection on the phone's clock. Timestamps that are in the future
+     * or implausibly old (e.g. a prototype sending millis since boot) fall back to now.
+     */
+    private long effectiveEventTime(long timestamp) {
+        long now = System.currentTimeMillis();
+        if (timestamp <= 0 || timestamp > now || now - timestamp > MAX_RESULT_AGE_MS) {
+            return now;
         }
-        
-        // If state changed, reset the debounce timer
-        if (isDrowsy != lastDrowsyState) {
-            lastStateChangeTime = System.currentTimeMillis();
-            lastDrowsyState = isDrowsy;
-            
-            // Cancel any pending debounce runnable
-            if (debounceRunnable != null && debounceHandler != null) {
-                debounceHandler.removeCallbacks(debounceRunnable);
-            }
-            
-            // IMPORTANT: If eyes open, stop alarm immediately (no debounce delay)
-            if (!isDrowsy) {
-                android.util.Log.d("Dashboard", "Eyes opened - stopping alarm immediately");
-                handleDrowsinessTimer(isDrowsy);  // This will stop the alarm
-                updateDrowsinessEvent(isDrowsy, timestamp);
-                updateUIWithDrowsinessState(isDrowsy);
-            } else {
-                // Eyes closed - use debounce to prevent false positives
-                debounceRunnable = () -> {
-                    // Only update if state is still the same after debounce delay
-                    if (isDrowsy == lastDrowsyState) {
-                        android.util.Log.d("Dashboard", "Debounced detection: isDrowsy=" + isDrowsy);
-                        handleDrowsinessTimer(isDrowsy);
-                        updateDrowsinessEvent(isDrowsy, timestamp);
-                        updateUIWithDrowsinessState(isDrowsy);
-                    }
-                };
-                
-                debounceHandler.postDelayed(debounceRunnable, DEBOUNCE_DELAY_MS);
-            }
-        } else {
-            // State hasn't changed, but check if we've been in this state long enough
-            long timeSinceChange = System.currentTimeMillis() - lastStateChangeTime;
-            if (timeSinceChange >= DEBOUNCE_DELAY_MS) {
-                // State has been stable, update immediately
-                handleDrowsinessTimer(isDrowsy);
-                updateDrowsinessEvent(isDrowsy, timestamp);
-                updateUIWithDrowsinessState(isDrowsy);
-            }
+        return timestamp;
+    }
+
+    /**
+     * Feed a detection from any source and thread into the debounce/alarm state machine.
+     */
+    private void handleDebouncedDetection(boolean isDrowsy, long timestamp) {
+        DrowsinessStateMachine machine = drowsinessStateMachine;
+        if (machine != null) {
+            machine.submit(isDrowsy, effectiveEventTime(timestamp));
         }
     }
     
@@ -2047,92 +2481,20 @@ public class Dashboard extends AppCompatActivity implements SurfaceHolder.Callba
         });
     }
     
-    private void handleDrowsinessTimer(boolean isDrowsy) {
-        android.util.Log.d("Dashboard", "handleDrowsinessTimer called with isDrowsy: " + isDrowsy);
-        
-        if (isDrowsy) {
-            // Eyes are closed - start timer for 1.5 seconds
-            long currentTime = System.currentTimeMillis();
-            
-            if (!isDrowsinessTimerActive) {
-                // Start the 1.5-second timer
-                hasLoggedCurrentAlarm = false; // Reset flag for new drowsiness event
-                startDrowsinessTimer(currentTime);
-            } else {
-                // Timer is already active, check if 1.5 seconds have passed
-                long elapsed = currentTime - drowsinessStartTime;
-                if (elapsed >= DROWSINESS_THRESHOLD_MS) {
-                    // 1.5 seconds have passed, activate alarm
-                    activateDrowsinessAlarm();
-                }
-            }
-        } else {
-            // Eyes are open - immediately stop alarm and cancel timer
-            hasLoggedCurrentAlarm = false; // Reset flag when eyes open
-            cancelDrowsinessTimer();
-            deactivateDrowsinessAlarm();
-        }
-    }
-
-    private void startDrowsinessTimer(long startTime) {
-        android.util.Log.d("Dashboard", "Starting drowsiness timer");
-        isDrowsinessTimerActive = true;
-        drowsinessStartTime = startTime;
-
-        if (drowsinessTimerHandler == null) {
-            drowsinessTimerHandler = new Handler(Looper.getMainLooper());
-        }
-
-        if (drowsinessTimerRunnable != null) {
-            drowsinessTimerHandler.removeCallbacks(drowsinessTimerRunnable);
-        }
-
-        drowsinessTimerRunnable = () -> {
-            android.util.Log.d("Dashboard", "Drowsiness timer threshold reached via handler");
-            activateDrowsinessAlarm();
-        };
-
-        drowsinessTimerHandler.postDelayed(drowsinessTimerRunnable, DROWSINESS_THRESHOLD_MS);
-    }
-
-    private void cancelDrowsinessTimer() {
-        if (drowsinessTimerHandler != null && drowsinessTimerRunnable != null) {
-            drowsinessTimerHandler.removeCallbacks(drowsinessTimerRunnable);
-        }
-        drowsinessTimerRunnable = null;
-        isDrowsinessTimerActive = false;
-        drowsinessStartTime = 0;
-    }
-
+    /**
+     * Eyes closed for the threshold: the state machine calls this once per drowsy episode.
+     */
     private void activateDrowsinessAlarm() {
-        // Only activate if timer is active (eyes have been closed for 2+ seconds)
-        if (!isDrowsinessTimerActive) {
-            return;
-        }
-        
-        long elapsed = System.currentTimeMillis() - drowsinessStartTime;
-        if (elapsed < DROWSINESS_THRESHOLD_MS) {
-            return;
-        }
+        android.util.Log.w("Dashboard", "Eyes closed for 1.5 seconds - activating alarm");
+        alarmHandler.post(this::playAlertTone);
         
-        // Check if alarm should be playing but isn't
-        boolean shouldPlayAlarm = !isAlarmSounding || (alertMediaPlayer == null || !alertMediaPlayer.isPlaying());
-        
-        if (shouldPlayAlarm) {
-            android.util.Log.w("Dashboard", "Eyes closed for 1.5 seconds - activating alarm");
-            playAlertTone();
-            lastAlarmTime = System.currentTimeMillis();
-            
-            // Increment event count only once per alarm trigger (not multiple times)
-            if (!hasLoggedCurrentAlarm) {
-                hasLoggedCurrentAlarm = true;
-                incrementDrowsinessEventCount(System.currentTimeMillis());
-            }
+        // Counted once per alarm trigger
+        incrementDrowsinessEventCount(System.currentTimeMillis());
+        saveIncidentClip();
 
-            runOnUiThread(() ->
-                Toast.makeText(Dashboard.this, "🚨 Eyes closed for 1.5 seconds - alarm activated! 🚨", Toast.LENGTH_SHORT).show()
-            );
-        }
+        runOnUiThread(() ->
+            Toast.makeText(Dashboard.this, "🚨 Eyes closed for 1.5 seconds - alarm activated! 🚨", Toast.LENGTH_SHORT).show()
+        );
 
         runOnUiThread(() -> {
             drowsinessStatusIcon.setImageResource(android.R.drawable.presence_busy);
@@ -2146,7 +2508,14 @@ public class Dashboard extends AppCompatActivity implements SurfaceHolder.Callba
     }
 
     private void deactivateDrowsinessAlarm() {
-        boolean alarmWasPlaying = isAlarmSounding;
+        alarmHandler.post(this::stopAlarmForAwakeDriver);
+    }
+
+    /**
+     * Alarm thread: stop the tone (also one that is still preparing) and show the awake state.
+     */
+    private void stopAlarmForAwakeDriver() {
+        boolean alarmWasPlaying = isAlarmSounding || alertMediaPlayer != null;
 
         if (alarmWasPlaying) {
             android.util.Log.d("Dashboard", "Driver is awake - stopping alarm");
@@ -2168,9 +2537,12 @@ public class Dashboard extends AppCompatActivity implements SurfaceHolder.Callba
         });
     }
     
+    /**
+     * Alarm thread only.
+     */
     private void stopAlertTone() {
         try {
-            boolean wasSounding = isAlarmSounding || (alertMediaPlayer != null && alertMediaPlayer.isPlaying());
+            boolean wasSounding = isAlarmSounding;
 
             // Stop any currently playing alert
             if (alertMediaPlayer != null) {
@@ -2204,6 +2576,10 @@ public class Dashboard extends AppCompatActivity implements SurfaceHolder.Callba
         }
     }
     
+    /**
+     * Alarm thread only. The player is prepared asynchronously and started from its prepared
+     * callback, which also runs on the alarm thread.
+     */
     private void playAlertTone() {
         try {
             // Stop any currently playing alert first
@@ -2213,14 +2589,39 @@ public class Dashboard extends AppCompatActivity implements SurfaceHolder.Callba
             String selectedTone = sharedPreferences.getString("selected_alert_tone", "Default Beep");
             
             // Create and play the selected tone
-            alertMediaPlayer = new MediaPlayer();
+            MediaPlayer player = new MediaPlayer();
+            alertMediaPlayer = player;
             
             // Map to distinct system tones (aligned with AlertTonesActivity)
-            alertMediaPlayer.setDataSource(this, selectToneUriDistinct(this, selectedTone));
-            
-            alertMediaPlayer.prepare();
-            alertMediaPlayer.setLooping(true);
-            alertMediaPlayer.start();
+            player.setDataSource(this, selectToneUriDistinct(this, selectedTone));
+            player.setLooping(true);
+            player.setOnPreparedListener(mp -> {
+                if (mp != alertMediaPlayer) {
+                    // Stopped while preparing
+                    return;
+                }
+                mp.start();
+                onAlertToneStarted(selectedTone);
+            });
+            player.setOnErrorListener((mp, what, extra) -> {
+                android.util.Log.e("Dashboard", "Alert tone error " + what + "/" + extra);
+                if (mp == alertMediaPlayer) {
+                    stopAlertTone();
+                }
+                return true;
+            });
+            player.prepareAsync();
+        } catch (Exception e) {
+            android.util.Log.e("Dashboard", "Error playing alert tone: " + e.getMessage(), e);
+            stopAlertTone();
+        }
+    }
+    
+    /**
+     * Alarm thread: the tone is playing.
+     */
+    private void onAlertToneStarted(String selectedTone) {
+        try {
             isAlarmSounding = true;
 
             // Start vibration in sync with the tone
@@ -2294,135 +2695,6 @@ public class Dashboard extends AppCompatActivity implements SurfaceHolder.Callba
     // ESP32-related methods removed - using Raspberry Pi 5 with Pi Camera instead
 
 
-    private void processImageData(byte[] imageData) {
-        frameCount++;
-        
-        // Process every frame for maximum detection responsiveness (Pi-only mode)
-        boolean shouldRunML = usePiDetection && piDrowsinessDetector != null && isPiConnected;
-        
-        try {
-            Bitmap bitmap = BitmapFactory.decodeByteArray(imageData, 0, imageData.length);
-            if (bitmap != null) {
-                // Store bitmap dimensions for logging
-                int bitmapWidth = bitmap.getWidth();
-                int bitmapHeight = bitmap.getHeight();
-                
-                // Log every 10th frame for better debugging
-                if (frameCount % 10 == 0) {
-                android.util.Log.d("Dashboard", "Processing frame #" + frameCount + " with ML detection: " + 
-                                 (shouldRunML ? "YES" : "SKIP") + " - " + bitmapWidth + "x" + bitmapHeight);
-                }
-                
-                // Display the frame immediately on UI thread
-                runOnUiThread(() -> {
-                    try {
-                        if (surfaceHolder != null) {
-                            android.graphics.Canvas canvas = surfaceHolder.lockCanvas();
-                            if (canvas != null) {
-                                // Calculate scaling to fit the preview area
-                                float scale = Math.min(
-                                    (float)canvas.getWidth() / bitmap.getWidth(),
-                                    (float)canvas.getHeight() / bitmap.getHeight()
-                                );
-                                
-                                // Calculate centering offsets
-                                float dx = (canvas.getWidth() - bitmap.getWidth() * scale) / 2;
-                                float dy = (canvas.getHeight() - bitmap.getHeight() * scale) / 2;
-                                
-                                // Clear the canvas
-                                canvas.drawColor(android.graphics.Color.BLACK);
-                                
-                                // Save canvas state, scale and translate, then draw
-                                canvas.save();
-                                canvas.translate(dx, dy);
-                                canvas.scale(scale, scale);
-                                canvas.drawBitmap(bitmap, 0, 0, null);
-                                canvas.restore();
-                                
-                                surfaceHolder.unlockCanvasAndPost(canvas);
-                            }
-                        }
-                        
-                        // Use stored bitmap dimensions
-                        
-                        // Create bitmap copy for ML detection (only if needed)
-                        Bitmap mlBitmap = null;
-                        if (shouldRunML) {
-                            try {
-                                // Create smaller bitmap for ML processing to reduce memory usage
-                                int mlWidth = Math.min(320, bitmapWidth);
-                                int mlHeight = Math.min(240, bitmapHeight);
-                                mlBitmap = Bitmap.createScaledBitmap(bitmap, mlWidth, mlHeight, true);
-                                android.util.Log.d("Dashboard", "Created ML bitmap: " + mlWidth + "x" + mlHeight);
-                            } catch (Exception e) {
-                                android.util.Log.e("Dashboard", "Failed to create ML bitmap copy: " + e.getMessage());
-                            }
-                        }
-                        
-                        // Recycle the original bitmap immediately after creating ML copy
-                        if (bitmap != null && !bitmap.isRecycled()) {
-                            bitmap.recycle();
-                        }
-                        
-                        // Run ML detection with the isolated bitmap copy
-                            final Bitmap finalMlBitmap = mlBitmap;
-                        if (mlBitmap != null) {
-                            if (usePiDetection && piDrowsinessDetector != null) {
-                                // Use Raspberry Pi for detection
-                                piDrowsinessDetector.isDrowsyAsync(finalMlBitmap, new PiDrowsinessDetector.DetectionCallback() {
-                                    @Override
-                                    public void onDetectionComplete(List<PiDrowsinessDetector.Detection> detections, boolean isDrowsy, float confidence) {
-                                        // Log every ML result for debugging
-                                        android.util.Log.d("Dashboard", "Frame #" + frameCount + " Pi ML result: " + (isDrowsy ? "DROWSY" : "AWAKE"));
-                                        
-                                        // Always log drowsiness detection for debugging
-                                        if (isDrowsy) {
-                                            android.util.Log.w("Dashboard", "DROWSINESS DETECTED! Frame #" + frameCount + " - Updating UI status");
-                                        }
-                                        
-                                        // Update drowsiness detection logic (timer will handle UI updates)
-                                        updateDrowsinessEvent(isDrowsy, System.currentTimeMillis());
-                                        
-                                        // Recycle ML bitmap after processing
-                                        if (finalMlBitmap != null && !finalMlBitmap.isRecycled()) {
-                                            finalMlBitmap.recycle();
-                                        }
-                                    }
-                                    
-                                    @Override
-                                    public void onError(Exception error) {
-                                        android.util.Log.e("Dashboard", "Pi ML detection error: " + error.getMessage(), error);
-                                        // Recycle ML bitmap on error
-                                        if (finalMlBitmap != null && !finalMlBitmap.isRecycled()) {
-                                            finalMlBitmap.recycle();
-                                        }
-                                    }
-                                });
-                            } else {
-                                // Pi-only mode: no local detection fallback
-                                android.util.Log.w("Dashboard", "Pi detection not available - skipping ML processing");
-                                // Recycle ML bitmap
-                                if (finalMlBitmap != null && !finalMlBitmap.isRecycled()) {
-                                    finalMlBitmap.recycle();
-                                }
-                            }
-                        }
-                        
-                    } catch (Exception e) {
-                        android.util.Log.e("Dashboard", "Error in main UI thread: " + e.getMessage(), e);
-                        // Recycle bitmap on error (if not already recycled)
-                        if (bitmap != null && !bitmap.isRecycled()) {
-                            bitmap.recycle();
-                        }
-                    }
-                });
-            }
-        } catch (Exception e) {
-            android.util.Log.e("Dashboard", "Error processing image data: " + e.getMessage(), e);
-        }
-    }
-
-
     // ESP32 connection dialog and methods removed - using Raspberry Pi 5 instead
 
     @Override
@@ -2434,10 +2706,21 @@ public class Dashboard extends AppCompatActivity implements SurfaceHolder.Callba
         // Stop Pi query loop and stream
         stopPiQueryLoop();
         stopPiStream();
+        if (previewRenderer != null) {
+            previewRenderer.quit();
+        }
+        streamBitmapPool.clear();
+        unregisterThermalStatusListener();
+        if (incidentRecorder != null) {
+            incidentRecorder.close();
+            incidentRecorder = null;
+        }
         
         
         // Stop Bluetooth connection if active
         isConnected = false;
+        stopHelmetBle();
+        stopPhoneCameraDetection();
         
         // Interrupt and cleanup threads
         if (bluetoothThread != null) {
@@ -2463,6 +2746,11 @@ public class Dashboard extends AppCompatActivity implements SurfaceHolder.Callba
             android.util.Log.e("Dashboard", "Error closing Bluetooth connections: " + e.getMessage());
         }
         
+        if (piServerDiscovery != null) {
+            piServerDiscovery.close();
+            piServerDiscovery = null;
+        }
+
         // Shutdown executors properly
         if (networkExecutor != null) {
             networkExecutor.shutdown();
@@ -2476,6 +2764,18 @@ public class Dashboard extends AppCompatActivity implements SurfaceHolder.Callba
             networkExecutor = null;
         }
         
+        if (localCheckExecutor != null) {
+            // Close the on-device model on its own thread once pending checks finish
+            localCheckExecutor.execute(() -> {
+                if (localCheckDetector != null) {
+                    localCheckDetector.close();
+                    localCheckDetector = null;
+                }
+            });
+            localCheckExecutor.shutdown();
+            localCheckExecutor = null;
+        }
+        
         if (inferenceExecutor != null) {
             inferenceExecutor.shutdown();
             try {
@@ -2490,27 +2790,18 @@ public class Dashboard extends AppCompatActivity implements SurfaceHolder.Callba
         
         
         // Clean up alert system
-        cancelDrowsinessTimer();
-        isAlarmSounding = false;
-        
-        if (alertMediaPlayer != null) {
-            try {
-                if (alertMediaPlayer.isPlaying()) {
-                    alertMediaPlayer.stop();
-                }
-                alertMediaPlayer.release();
-            } catch (Exception e) {
-                android.util.Log.e("Dashboard", "Error releasing MediaPlayer: " + e.getMessage());
-            }
-            alertMediaPlayer = null;
+        if (drowsinessStateMachine != null) {
+            drowsinessStateMachine.stop();
         }
-        
-        // Clean up bitmap resources
-        if (frameBitmap != null && !frameBitmap.isRecycled()) {
-            frameBitmap.recycle();
-            frameBitmap = null;
+        if (alarmThread != null) {
+            // Released on the alarm thread after anything already posted; later posts are dropped
+            alarmHandler.post(this::stopAlertTone);
+            alarmThread.quitSafely();
+            alarmThread = null;
         }
         
+        // Helmet frame slots are left to the GC: the renderer or an upload may still hold one
+        
         // Clean up canvas and paint
         canvas = null;
         paint = null;
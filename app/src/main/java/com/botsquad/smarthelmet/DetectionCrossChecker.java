@@ -0,0 +1,169 @@
+package com.botsquad.smarthelmet;
+
+import java.util.Locale;
+
+/**
+ * Cross-checks the Pi's drowsy verdict against on-device detection run on a subsample
+ * of the decoded stream frames.
+ *
+ * Each local result is compared with the latest Pi result if the two are at most
+ * {@code maxPairGapMs} apart, and disagreements are counted. When a Pi result arrives,
+ * {@link #resolve(boolean, long)} combines it with a recent local result according to
+ * the {@link Policy}; without a recent local result the Pi verdict stands. Thread-safe.
+ */
+public class DetectionCrossChecker {
+    public static final int DEFAULT_SAMPLE_EVERY = 5;
+    public static final long DEFAULT_MAX_PAIR_GAP_MS = 1000;
+
+    public enum Policy {
+        /** Local results are only recorded */
+        TRUST_PI,
+        /** Local verdict wins when recent */
+        TRUST_LOCAL,
+        /** Drowsy if either side says so (fewest missed alarms) */
+        EITHER_DROWSY,
+        /** Drowsy only if both agree (fewest false alarms) */
+        BOTH_DROWSY
+    }
+
+    private Policy policy;
+    private int sampleEvery;
+    private final long maxPairGapMs;
+
+    private int framesSinceSample = 0;
+    private boolean hasPiResult = false;
+    private boolean piDrowsy;
+    private long piTimeMs;
+    private boolean hasLocalResult = false;
+    private boolean localDrowsy;
+    private long localTimeMs;
+
+    private long comparisons = 0;
+    private long disagreements = 0;
+    private long piOnlyDrowsy = 0;
+    private long localOnlyDrowsy = 0;
+    private long overrides = 0;
+
+    public DetectionCrossChecker(Policy policy, int sampleEvery) {
+        this(policy, sampleEvery, DEFAULT_MAX_PAIR_GAP_MS);
+    }
+
+    public DetectionCrossChecker(Policy policy, int sampleEvery, long maxPairGapMs) {
+        this.policy = policy;
+        this.sampleEvery = Math.max(1, sampleEvery);
+        this.maxPairGapMs = maxPairGapMs;
+    }
+
+    public synchronized void setPolicy(Policy policy) {
+        this.policy = policy;
+    }
+
+    public synchronized Policy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Run local detection on one of every {@code sampleEvery} decoded frames.
+     */
+    public synchronized void setSampleEvery(int sampleEvery) {
+        this.sampleEvery = Math.max(1, sampleEvery);
+        framesSinceSample = 0;
+    }
+
+    public synchronized int getSampleEvery() {
+        return sampleEvery;
+    }
+
+    /**
+     * Called for every decoded frame; true when this one should go to the local detector.
+     */
+    public synchronized boolean shouldSampleFrame() {
+        framesSinceSample++;
+        if (framesSinceSample >= sampleEvery) {
+            framesSinceSample = 0;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * A local verdict for a frame seen at timeMs.
+     */
+    public synchronized void onLocalResult(boolean drowsy, long timeMs) {
+        hasLocalResult = true;
+        localDrowsy = drowsy;
+        localTimeMs = timeMs;
+        if (hasPiResult && Math.abs(timeMs - piTimeMs) <= maxPairGapMs) {
+            comparisons++;
+            if (drowsy != piDrowsy) {
+                disagreements++;
+                if (drowsy) {
+                    localOnlyDrowsy++;
+                } else {
+                    piOnlyDrowsy++;
+                }
+            }
+        }
+    }
+
+    /**
+     * The verdict to act on for a Pi result captured at timeMs.
+     */
+    public synchronized boolean resolve(boolean piVerdict, long timeMs) {
+        hasPiResult = true;
+        piDrowsy = piVerdict;
+        piTimeMs = timeMs;
+        if (!hasLocalResult || Math.abs(timeMs - localTimeMs) > maxPairGapMs) {
+            return piVerdict;
+        }
+
+        boolean verdict;
+        switch (policy) {
+            case TRUST_LOCAL:
+                verdict = localDrowsy;
+                break;
+            case EITHER_DROWSY:
+                verdict = piVerdict || localDrowsy;
+                break;
+            case BOTH_DROWSY:
+                verdict = piVerdict && localDrowsy;
+                break;
+            case TRUST_PI:
+            default:
+                verdict = piVerdict;
+                break;
+        }
+        if (verdict != piVerdict) {
+            overrides++;
+        }
+        return verdict;
+    }
+
+    public synchronized long getComparisons() {
+        return comparisons;
+    }
+
+    public synchronized long getDisagreements() {
+        return disagreements;
+    }
+
+    /**
+     * Share of paired results where the two detectors disagreed (0 before any pair).
+     */
+    public synchronized double getDisagreementRate() {
+        return comparisons == 0 ? 0 : (double) disagreements / comparisons;
+    }
+
+    /**
+     * Pi results whose verdict the policy changed.
+     */
+    public synchronized long getOverrides() {
+        return overrides;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.US, "%s every %d: compared=%d disagree=%.1f%% (pi-only drowsy=%d, local-only drowsy=%d) overrides=%d",
+            policy, sampleEvery, comparisons, getDisagreementRate() * 100, piOnlyDrowsy, localOnlyDrowsy, overrides);
+    }
+}
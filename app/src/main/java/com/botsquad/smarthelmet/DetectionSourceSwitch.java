@@ -0,0 +1,53 @@
+package com.botsquad.smarthelmet;
+
+/**
+ * Which detection source drives the alarm: the Pi (result query loop and MJPEG stream) or
+ * the phone's front camera with the on-device model. Only one runs at a time; while
+ * phone-camera mode is on, every path that would start the Pi source checks
+ * {@link #isPhoneCameraMode()} first. Main thread only.
+ */
+public class DetectionSourceSwitch {
+
+    public interface Sources {
+        /** Start the Pi query loop and stream */
+        void startPi();
+
+        void stopPi();
+
+        void startPhoneCamera();
+
+        void stopPhoneCamera();
+    }
+
+    private final Sources sources;
+    private boolean phoneCameraMode;
+
+    public DetectionSourceSwitch(Sources sources, boolean phoneCameraMode) {
+        this.sources = sources;
+        this.phoneCameraMode = phoneCameraMode;
+    }
+
+    public boolean isPhoneCameraMode() {
+        return phoneCameraMode;
+    }
+
+    /**
+     * Turning phone-camera mode on stops the Pi source before the camera starts; turning it
+     * off stops the camera and restarts the Pi source if the Pi is connected.
+     */
+    public void setPhoneCameraMode(boolean enabled, boolean piConnected) {
+        if (enabled == phoneCameraMode) {
+            return;
+        }
+        phoneCameraMode = enabled;
+        if (enabled) {
+            sources.stopPi();
+            sources.startPhoneCamera();
+        } else {
+            sources.stopPhoneCamera();
+            if (piConnected) {
+                sources.startPi();
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.botsquad.smarthelmet;
+
+/**
+ * Chooses the preview display rate: the configured target (up to {@link #MAX_FPS}),
+ * lowered when decoding plus drawing a frame gets expensive or the device heats up.
+ *
+ * The rate only throttles preview frames before they are decoded (via
+ * {@link FrameAdmissionPolicy#setMinIntervalMs(long)}); Pi detection queries run on their
+ * own loop and are not affected. Drops take effect at once, recovery is one FPS per
+ * sample so the rate doesn't oscillate. Thread-safe.
+ */
+public class DisplayRateController {
+    public static final int MAX_FPS = 30;
+    public static final int MIN_FPS = 1;
+    public static final int DEFAULT_TARGET_FPS = 15;
+
+    // Share of each frame interval that preview decode + render may use
+    private static final double FRAME_BUDGET_FRACTION = 0.5;
+    private static final double COST_SMOOTHING = 0.2;
+
+    // PowerManager.THERMAL_STATUS_* values
+    static final int THERMAL_STATUS_NONE = 0;
+    static final int THERMAL_STATUS_MODERATE = 2;
+    static final int THERMAL_STATUS_SEVERE = 3;
+    static final int THERMAL_STATUS_CRITICAL = 4;
+
+    private int targetFps;
+    private int thermalStatus = THERMAL_STATUS_NONE;
+    private double frameCostMicros = -1;
+    private int currentFps;
+
+    public DisplayRateController(int targetFps) {
+        this.targetFps = clampFps(targetFps);
+        this.currentFps = this.targetFps;
+    }
+
+    public synchronized void setTargetFps(int targetFps) {
+        this.targetFps = clampFps(targetFps);
+        // A new target applies straight away, within the current limits
+        currentFps = Math.min(this.targetFps, ceilingFps());
+    }
+
+    /**
+     * Record what one displayed frame cost (decode on the stream thread plus draw on the render thread).
+     */
+    public synchronized void onFrameCost(long decodeMicros, long renderMicros) {
+        long cost = Math.max(0, decodeMicros) + Math.max(0, renderMicros);
+        frameCostMicros = frameCostMicros < 0 ? cost : frameCostMicros + COST_SMOOTHING * (cost - frameCostMicros);
+        adjust();
+    }
+
+    /**
+     * Current thermal status (PowerManager.THERMAL_STATUS_*).
+     */
+    public synchronized void setThermalStatus(int status) {
+        thermalStatus = status;
+        adjust();
+    }
+
+    public synchronized int getCurrentFps() {
+        return currentFps;
+    }
+
+    public synchronized int getTargetFps() {
+        return targetFps;
+    }
+
+    /**
+     * Minimum spacing between admitted preview frames for the current rate.
+     */
+    public synchronized long getMinIntervalMs() {
+        return 1000L / currentFps;
+    }
+
+    private void adjust() {
+        int ceiling = Math.min(targetFps, ceilingFps());
+        if (ceiling < currentFps) {
+            currentFps = ceiling;
+        } else if (ceiling > currentFps) {
+            currentFps++;
+        }
+    }
+
+    /**
+     * Highest rate that frame cost and thermal state allow, ignoring the target.
+     */
+    private int ceilingFps() {
+        int ceiling = MAX_FPS;
+        if (frameCostMicros > 0) {
+            double intervalMicros = frameCostMicros / FRAME_BUDGET_FRACTION;
+            ceiling = (int) Math.min(MAX_FPS, Math.floor(1_000_000.0 / intervalMicros));
+        }
+        return clampFps(Math.min(ceiling, thermalCeiling(thermalStatus)));
+    }
+
+    static int thermalCeiling(int status) {
+        if (status >= THERMAL_STATUS_CRITICAL) {
+            return MIN_FPS;
+        }
+        if (status >= THERMAL_STATUS_SEVERE) {
+            return 5;
+        }
+        if (status >= THERMAL_STATUS_MODERATE) {
+            return 10;
+        }
+        return MAX_FPS;
+    }
+
+    private static int clampFps(int fps) {
+        return Math.max(MIN_FPS, Math.min(MAX_FPS, fps));
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "fps=" + currentFps + "/" + targetFps + " cost=" + (long) frameCostMicros + "us thermal=" + thermalStatus;
+    }
+}
@@ -3,6 +3,7 @@ package com.botsquad.smarthelmet;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.RectF;
+import android.media.Image;
 import android.util.Log;
 
 import org.tensorflow.lite.Interpreter;
@@ -92,8 +93,6 @@ public class DrowsinessDetector {
     }
     
     public List<Detection> detect(Bitmap bitmap) {
-        List<Detection> detections = new ArrayList<>();
-        
         try {
             // Preprocess the image
             inputImageBuffer.load(bitmap);
@@ -103,7 +102,35 @@ public class DrowsinessDetector {
             ByteBuffer byteBuffer = inputImageBuffer.getBuffer();
             inputBuffer.rewind();
             inputBuffer.put(byteBuffer);
-            
+        } catch (Exception e) {
+            Log.e(TAG, "Error preparing input: " + e.getMessage(), e);
+            return new ArrayList<>();
+        }
+        return runInference(bitmap.getWidth(), bitmap.getHeight());
+    }
+    
+    /**
+     * Detect on a YUV_420_888 camera frame, converted straight into the input tensor
+     * (no Bitmap or JPEG round trip). Boxes are in image coordinates.
+     */
+    public List<Detection> detect(Image image, YuvConverter converter) {
+        try {
+            inputBuffer.rewind();
+            converter.toFloatTensor(image, INPUT_SIZE, INPUT_SIZE, inputBuffer);
+        } catch (Exception e) {
+            Log.e(TAG, "Error converting camera frame: " + e.getMessage(), e);
+            return new ArrayList<>();
+        }
+        return runInference(image.getWidth(), image.getHeight());
+    }
+    
+    /**
+     * Run the model on the prepared inputBuffer and keep the best box, scaled to the source size.
+     */
+    private List<Detection> runInference(int sourceWidth, int sourceHeight) {
+        List<Detection> detections = new ArrayList<>();
+        
+        try {
             // Run inference
             tflite.run(inputBuffer, yoloOutputArray);
             
@@ -127,10 +154,10 @@ public class DrowsinessDetector {
                     bestScore = confidence;
                     
                     // Extract bounding box coordinates
-                    float centerX = yoloOutput[0][i] * bitmap.getWidth();
-                    float centerY = yoloOutput[1][i] * bitmap.getHeight();
-                    float width = yoloOutput[2][i] * bitmap.getWidth();
-                    float height = yoloOutput[3][i] * bitmap.getHeight();
+                    float centerX = yoloOutput[0][i] * sourceWidth;
+                    float centerY = yoloOutput[1][i] * sourceHeight;
+                    float width = yoloOutput[2][i] * sourceWidth;
+                    float height = yoloOutput[3][i] * sourceHeight;
                     
                     // Convert from center format to corner format
                     float left = centerX - width / 2;
@@ -0,0 +1,233 @@
+package com.botsquad.smarthelmet;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Debounce and alarm timing for detection results from any source (Pi, helmet link, BLE,
+ * phone camera), as one event-driven state machine.
+ *
+ * Detections are {@link #submit}ted from any thread into a lock-free queue; all state is
+ * owned by the single thread that calls {@link #runOnce()} (the thread from {@link #start(String)}
+ * in the app, the test itself in unit tests). Time comes from an injectable {@link Clock}.
+ *
+ * AWAKE → (drowsy) → PENDING; still drowsy after the debounce delay → DROWSY, timed from
+ * the first drowsy capture; drowsy for the alarm threshold → ALARM. An awake detection
+ * returns to AWAKE immediately from any state.
+ */
+public class DrowsinessStateMachine {
+    private static final int LATENCY_WINDOW = 100;
+
+    public enum State {
+        AWAKE,
+        PENDING,
+        DROWSY,
+        ALARM
+    }
+
+    public interface Clock {
+        Clock SYSTEM = new Clock() {
+            @Override
+            public long currentTimeMillis() {
+                return System.currentTimeMillis();
+            }
+
+            @Override
+            public long nanoTime() {
+                return System.nanoTime();
+            }
+        };
+
+        /** Wall clock, the time base of detection timestamps */
+        long currentTimeMillis();
+
+        /** Monotonic clock for latency measurements */
+        long nanoTime();
+    }
+
+    /** Called on the state machine's thread */
+    public interface Listener {
+        /** The confirmed driver state changed: drowsy after the debounce, awake immediately */
+        void onDriverStateChanged(boolean drowsy, long eventTimeMs);
+
+        /** latencyMicros: how long after the threshold was reached the alarm went off */
+        void onAlarmStarted(long latencyMicros);
+
+        void onAlarmStopped();
+    }
+
+    private static final class Event {
+        final boolean drowsy;
+        final long eventTimeMs;
+        final long submittedNs;
+
+        Event(boolean drowsy, long eventTimeMs, long submittedNs) {
+            this.drowsy = drowsy;
+            this.eventTimeMs = eventTimeMs;
+            this.submittedNs = submittedNs;
+        }
+    }
+
+    private final long debounceMs;
+    private final long alarmThresholdMs;
+    private final Clock clock;
+    private final Listener listener;
+    private final ConcurrentLinkedQueue<Event> queue = new ConcurrentLinkedQueue<>();
+
+    // Owned by the state machine's thread
+    private volatile State state = State.AWAKE;
+    private long pendingSinceMs;
+    private long firstDrowsyEventMs;
+    private long alarmDueNs;
+
+    private final LatencyTracker eventLatencyMicros = new LatencyTracker(LATENCY_WINDOW);
+    private final LatencyTracker alarmLatencyMicros = new LatencyTracker(LATENCY_WINDOW);
+
+    private volatile Thread thread;
+    private volatile boolean running = false;
+
+    public DrowsinessStateMachine(long debounceMs, long alarmThresholdMs, Clock clock, Listener listener) {
+        this.debounceMs = debounceMs;
+        this.alarmThresholdMs = alarmThresholdMs;
+        this.clock = clock;
+        this.listener = listener;
+    }
+
+    /**
+     * A detection result, captured at eventTimeMs (wall clock). Any thread, never blocks.
+     */
+    public void submit(boolean drowsy, long eventTimeMs) {
+        queue.offer(new Event(drowsy, eventTimeMs, clock.nanoTime()));
+        Thread t = thread;
+        if (t != null) {
+            LockSupport.unpark(t);
+        }
+    }
+
+    /**
+     * Process every queued detection, then any timer that is due. State machine thread only.
+     *
+     * @return nanoseconds until the next timer is due, or -1 if none is pending
+     */
+    public long runOnce() {
+        Event event;
+        while ((event = queue.poll()) != null) {
+            eventLatencyMicros.record(Math.max(0, (clock.nanoTime() - event.submittedNs) / 1000));
+            handleEvent(event);
+        }
+        return checkTimers();
+    }
+
+    private void handleEvent(Event event) {
+        long nowMs = clock.currentTimeMillis();
+        if (!event.drowsy) {
+            State previous = state;
+            state = State.AWAKE;
+            if (previous == State.ALARM) {
+                listener.onAlarmStopped();
+            }
+            if (previous == State.DROWSY || previous == State.ALARM) {
+                listener.onDriverStateChanged(false, event.eventTimeMs);
+            }
+            return;
+        }
+        if (state == State.AWAKE) {
+            state = State.PENDING;
+            pendingSinceMs = nowMs;
+            firstDrowsyEventMs = event.eventTimeMs;
+        }
+    }
+
+    private long checkTimers() {
+        long nowMs = clock.currentTimeMillis();
+        if (state == State.PENDING) {
+            long remainingMs = pendingSinceMs + debounceMs - nowMs;
+            if (remainingMs > 0) {
+                return remainingMs * 1_000_000L;
+            }
+            // Confirmed: time the threshold from when the eyes were seen closed, not when we heard about it
+            state = State.DROWSY;
+            long drowsyStartMs = Math.min(firstDrowsyEventMs, nowMs);
+            alarmDueNs = clock.nanoTime() + (drowsyStartMs + alarmThresholdMs - nowMs) * 1_000_000L;
+            listener.onDriverStateChanged(true, firstDrowsyEventMs);
+        }
+        if (state == State.DROWSY) {
+            // On the monotonic clock, so the alarm is due to the microsecond
+            long remainingNs = alarmDueNs - clock.nanoTime();
+            if (remainingNs > 0) {
+                return remainingNs;
+            }
+            state = State.ALARM;
+            long latencyMicros = -remainingNs / 1000;
+            alarmLatencyMicros.record(latencyMicros);
+            listener.onAlarmStarted(latencyMicros);
+        }
+        return -1;
+    }
+
+    /**
+     * Run the state machine on its own thread, which sleeps until the next detection or timer.
+     */
+    public synchronized void start(String threadName) {
+        if (running) {
+            return;
+        }
+        running = true;
+        Thread t = new Thread(() -> {
+            while (running) {
+                long waitNs = runOnce();
+                if (!queue.isEmpty()) {
+                    continue;
+                }
+                if (waitNs < 0) {
+                    LockSupport.park(this);
+                } else {
+                    LockSupport.parkNanos(this, waitNs);
+                }
+            }
+        }, threadName);
+        t.setDaemon(true);
+        thread = t;
+        t.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        Thread t = thread;
+        thread = null;
+        if (t != null) {
+            LockSupport.unpark(t);
+            try {
+                t.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * State as of the last {@link #runOnce()}; exact only on the state machine's thread.
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Submit-to-processed time of each detection, in microseconds.
+     */
+    public LatencyTracker getEventLatencyMicros() {
+        return eventLatencyMicros;
+    }
+
+    /**
+     * Threshold-reached-to-alarm time, in microseconds.
+     */
+    public LatencyTracker getAlarmLatencyMicros() {
+        return alarmLatencyMicros;
+    }
+
+    @Override
+    public String toString() {
+        return state + " event latency us " + eventLatencyMicros + ", alarm latency us " + alarmLatencyMicros;
+    }
+}
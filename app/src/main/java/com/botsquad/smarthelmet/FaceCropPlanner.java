@@ -0,0 +1,166 @@
+package com.botsquad.smarthelmet;
+
+/**
+ * Decides whether the next upload to the Pi can be a face crop instead of the full frame.
+ *
+ * The crop is the last known face box (full-frame pixel coordinates, from a Pi /detect
+ * result) grown by a padding margin and clamped to the frame. A full frame is sent when
+ * there is no recent box, every {@code fullFrameInterval} uploads, and whenever confidence
+ * drops, so the crop can re-acquire a face that moved out of it.
+ */
+public class FaceCropPlanner {
+    public static final int DEFAULT_FULL_FRAME_INTERVAL = 15;
+    public static final float DEFAULT_MIN_CONFIDENCE = 0.45f;
+    public static final float DEFAULT_PADDING = 0.5f;
+    public static final long DEFAULT_MAX_BOX_AGE_MS = 2000;
+    private static final int MIN_CROP_SIZE = 96;
+
+    /** Region to upload; offsetX/offsetY map crop coordinates back to the full frame */
+    public static class Plan {
+        public final boolean fullFrame;
+        public final int offsetX;
+        public final int offsetY;
+        public final int width;
+        public final int height;
+
+        Plan(boolean fullFrame, int offsetX, int offsetY, int width, int height) {
+            this.fullFrame = fullFrame;
+            this.offsetX = offsetX;
+            this.offsetY = offsetY;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    private final int fullFrameInterval;
+    private final float minConfidence;
+    private final float padding;
+    private final long maxBoxAgeMs;
+
+    private boolean hasBox = false;
+    private float boxLeft;
+    private float boxTop;
+    private float boxRight;
+    private float boxBottom;
+    private long boxTimeMs;
+    private float lastConfidence = 0f;
+    private int uploadsSinceFullFrame = 0;
+    private long fullFrameUploads = 0;
+    private long cropUploads = 0;
+
+    public FaceCropPlanner() {
+        this(DEFAULT_FULL_FRAME_INTERVAL, DEFAULT_MIN_CONFIDENCE, DEFAULT_PADDING, DEFAULT_MAX_BOX_AGE_MS);
+    }
+
+    /**
+     * @param padding margin added on each side, as a fraction of the box width/height
+     */
+    public FaceCropPlanner(int fullFrameInterval, float minConfidence, float padding, long maxBoxAgeMs) {
+        this.fullFrameInterval = Math.max(1, fullFrameInterval);
+        this.minConfidence = minConfidence;
+        this.padding = Math.max(0f, padding);
+        this.maxBoxAgeMs = maxBoxAgeMs;
+    }
+
+    /**
+     * Plan the next upload for a frame of the given size and record it as sent.
+     */
+    public synchronized Plan nextUpload(int frameWidth, int frameHeight, long nowMs) {
+        boolean needFullFrame = !hasBox
+            || nowMs - boxTimeMs > maxBoxAgeMs
+            || lastConfidence < minConfidence
+            || uploadsSinceFullFrame + 1 >= fullFrameInterval;
+
+        if (!needFullFrame) {
+            Plan crop = cropFor(frameWidth, frameHeight);
+            // A crop that is most of the frame saves nothing
+            if (crop != null && (long) crop.width * crop.height < (long) frameWidth * frameHeight * 3 / 4) {
+                uploadsSinceFullFrame++;
+                cropUploads++;
+                return crop;
+            }
+        }
+
+        uploadsSinceFullFrame = 0;
+        fullFrameUploads++;
+        return new Plan(true, 0, 0, frameWidth, frameHeight);
+    }
+
+    private Plan cropFor(int frameWidth, int frameHeight) {
+        float boxWidth = boxRight - boxLeft;
+        float boxHeight = boxBottom - boxTop;
+        if (boxWidth <= 0 || boxHeight <= 0) {
+            return null;
+        }
+        float padX = boxWidth * padding;
+        float padY = boxHeight * padding;
+        int left = (int) Math.floor(boxLeft - padX);
+        int top = (int) Math.floor(boxTop - padY);
+        int right = (int) Math.ceil(boxRight + padX);
+        int bottom = (int) Math.ceil(boxBottom + padY);
+
+        // Grow tiny crops around their centre so the model still gets some context
+        if (right - left < MIN_CROP_SIZE) {
+            int grow = MIN_CROP_SIZE - (right - left);
+            left -= grow / 2;
+            right += grow - grow / 2;
+        }
+        if (bottom - top < MIN_CROP_SIZE) {
+            int grow = MIN_CROP_SIZE - (bottom - top);
+            top -= grow / 2;
+            bottom += grow - grow / 2;
+        }
+
+        left = Math.max(0, left);
+        top = Math.max(0, top);
+        right = Math.min(frameWidth, right);
+        bottom = Math.min(frameHeight, bottom);
+        // Even offsets keep chroma-subsampled JPEG blocks aligned
+        left &= ~1;
+        top &= ~1;
+        if (right <= left || bottom <= top) {
+            return null;
+        }
+        return new Plan(false, left, top, right - left, bottom - top);
+    }
+
+    /**
+     * Feed back a face box in full-frame coordinates (already shifted by the crop offset).
+     */
+    public synchronized void onFaceBox(float left, float top, float right, float bottom, float confidence, long nowMs) {
+        if (right <= left || bottom <= top) {
+            return;
+        }
+        boxLeft = left;
+        boxTop = top;
+        boxRight = right;
+        boxBottom = bottom;
+        boxTimeMs = nowMs;
+        hasBox = true;
+        lastConfidence = confidence;
+    }
+
+    /**
+     * Feed back a result without a box (e.g. from /detect_simple).
+     */
+    public synchronized void onConfidence(float confidence) {
+        lastConfidence = confidence;
+    }
+
+    /**
+     * The face was lost: the next upload is a full frame.
+     */
+    public synchronized void reset() {
+        hasBox = false;
+        lastConfidence = 0f;
+        uploadsSinceFullFrame = 0;
+    }
+
+    public synchronized long getFullFrameUploads() {
+        return fullFrameUploads;
+    }
+
+    public synchronized long getCropUploads() {
+        return cropUploads;
+    }
+}
@@ -0,0 +1,138 @@
+package com.botsquad.smarthelmet;
+
+/**
+ * Decides whether an incoming stream frame is worth decoding, before any decode work.
+ *
+ * A frame is admitted only if the renderer can take it (surface ready), fewer than
+ * {@code maxPendingFrames} admitted frames are still waiting to be drawn, and at least
+ * {@code minIntervalMs} has passed since the last admitted frame. Everything else is
+ * skipped while it is still compressed bytes. Thread-safe: the stream thread admits and
+ * decodes, the UI thread reports renders.
+ */
+public class FrameAdmissionPolicy {
+
+    public enum Decision {
+        ADMIT,
+        DROP_TOO_SOON,
+        DROP_RENDERER_NOT_READY,
+        DROP_QUEUE_FULL
+    }
+
+    private long minIntervalMs;
+    private final int maxPendingFrames;
+
+    private boolean rendererReady = true;
+    private int pendingFrames = 0;
+    private long lastAdmittedMs = Long.MIN_VALUE;
+
+    private long framesReceived = 0;
+    private long framesAdmitted = 0;
+    private long framesDecoded = 0;
+    private long decodeFailures = 0;
+    private long framesRendered = 0;
+    private long droppedTooSoon = 0;
+    private long droppedNotReady = 0;
+    private long droppedQueueFull = 0;
+
+    public FrameAdmissionPolicy(long minIntervalMs, int maxPendingFrames) {
+        this.minIntervalMs = Math.max(0, minIntervalMs);
+        this.maxPendingFrames = Math.max(1, maxPendingFrames);
+    }
+
+    /**
+     * Called for every frame the demuxer produces. An ADMIT reserves a render slot, which
+     * is released by {@link #onDecoded(boolean)} (on failure) or {@link #onFrameRendered()}.
+     */
+    public synchronized Decision onFrameReceived(long nowMs) {
+        framesReceived++;
+        if (!rendererReady) {
+            droppedNotReady++;
+            return Decision.DROP_RENDERER_NOT_READY;
+        }
+        if (pendingFrames >= maxPendingFrames) {
+            droppedQueueFull++;
+            return Decision.DROP_QUEUE_FULL;
+        }
+        if (lastAdmittedMs != Long.MIN_VALUE && nowMs - lastAdmittedMs < minIntervalMs) {
+            droppedTooSoon++;
+            return Decision.DROP_TOO_SOON;
+        }
+        lastAdmittedMs = nowMs;
+        pendingFrames++;
+        framesAdmitted++;
+        return Decision.ADMIT;
+    }
+
+    public synchronized void onDecoded(boolean success) {
+        if (success) {
+            framesDecoded++;
+        } else {
+            decodeFailures++;
+            releaseSlot();
+        }
+    }
+
+    /**
+     * The renderer finished with (or discarded) an admitted frame.
+     */
+    public synchronized void onFrameRendered() {
+        framesRendered++;
+        releaseSlot();
+    }
+
+    private void releaseSlot() {
+        if (pendingFrames > 0) {
+            pendingFrames--;
+        }
+    }
+
+    /**
+     * Surface availability; frames arriving while no surface exists are dropped undecoded.
+     */
+    public synchronized void setRendererReady(boolean ready) {
+        rendererReady = ready;
+        if (!ready) {
+            // Anything queued for a dead surface will never be reported as rendered
+            pendingFrames = 0;
+        }
+    }
+
+    public synchronized void setMinIntervalMs(long minIntervalMs) {
+        this.minIntervalMs = Math.max(0, minIntervalMs);
+    }
+
+    public synchronized long getMinIntervalMs() {
+        return minIntervalMs;
+    }
+
+    public synchronized long getFramesReceived() {
+        return framesReceived;
+    }
+
+    public synchronized long getFramesAdmitted() {
+        return framesAdmitted;
+    }
+
+    public synchronized long getFramesDecoded() {
+        return framesDecoded;
+    }
+
+    public synchronized long getDecodeFailures() {
+        return decodeFailures;
+    }
+
+    public synchronized long getFramesRendered() {
+        return framesRendered;
+    }
+
+    public synchronized int getPendingFrames() {
+        return pendingFrames;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "received=" + framesReceived + " admitted=" + framesAdmitted + " decoded=" + framesDecoded
+            + " rendered=" + framesRendered + " dropped(tooSoon=" + droppedTooSoon + ", notReady=" + droppedNotReady
+            + ", queueFull=" + droppedQueueFull + ") decodeFailures=" + decodeFailures;
+    }
+}
@@ -0,0 +1,106 @@
+package com.botsquad.smarthelmet;
+
+/**
+ * Ownership bookkeeping for a fixed set of reusable frame buffers (slots).
+ *
+ * The producer takes a free slot with {@link #acquireForWrite()}, fills it, then
+ * {@link #publish(int, int)}es it to a number of consumers (e.g. the Pi upload and the
+ * preview renderer). Each consumer calls {@link #release(int)} when it no longer reads the
+ * slot; once all have, the slot is free again. A slot is never handed to the producer while
+ * anyone still reads it, so frames can't tear. When no slot is free the producer drops the
+ * frame instead of allocating. Free slots are reused round-robin. Thread-safe.
+ */
+public class FrameSlotRotation {
+    private static final int FREE = 0;
+    private static final int WRITING = -1;
+
+    // Per slot: FREE, WRITING, or the number of consumers still holding it
+    private final int[] holders;
+    private int nextSlot = 0;
+    private long published = 0;
+    private long dropped = 0;
+
+    public FrameSlotRotation(int slots) {
+        if (slots < 1) {
+            throw new IllegalArgumentException("Need at least one slot");
+        }
+        holders = new int[slots];
+    }
+
+    /**
+     * A free slot for the producer to fill, or -1 if every slot is still in use (frame dropped).
+     */
+    public synchronized int acquireForWrite() {
+        for (int i = 0; i < holders.length; i++) {
+            int slot = (nextSlot + i) % holders.length;
+            if (holders[slot] == FREE) {
+                holders[slot] = WRITING;
+                nextSlot = (slot + 1) % holders.length;
+                return slot;
+            }
+        }
+        dropped++;
+        return -1;
+    }
+
+    /**
+     * Hand a filled slot to the given number of consumers (0 frees it straight away).
+     */
+    public synchronized void publish(int slot, int consumers) {
+        if (holders[slot] != WRITING) {
+            throw new IllegalStateException("Slot " + slot + " is not being written");
+        }
+        holders[slot] = Math.max(FREE, consumers);
+        published++;
+    }
+
+    /**
+     * Give back a slot without publishing it (e.g. the frame couldn't be filled).
+     */
+    public synchronized void cancel(int slot) {
+        if (holders[slot] != WRITING) {
+            throw new IllegalStateException("Slot " + slot + " is not being written");
+        }
+        holders[slot] = FREE;
+    }
+
+    /**
+     * One consumer is done with the slot.
+     */
+    public synchronized void release(int slot) {
+        if (holders[slot] <= FREE) {
+            throw new IllegalStateException("Slot " + slot + " is not held by a consumer");
+        }
+        holders[slot]--;
+    }
+
+    public synchronized int getFreeSlots() {
+        int free = 0;
+        for (int holder : holders) {
+            if (holder == FREE) {
+                free++;
+            }
+        }
+        return free;
+    }
+
+    public int getSlotCount() {
+        return holders.length;
+    }
+
+    public synchronized long getPublished() {
+        return published;
+    }
+
+    /**
+     * Frames dropped because no slot was free.
+     */
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "slots=" + holders.length + " free=" + getFreeSlots() + " published=" + published + " dropped=" + dropped;
+    }
+}
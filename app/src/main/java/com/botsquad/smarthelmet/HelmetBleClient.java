@@ -0,0 +1,210 @@
+package com.botsquad.smarthelmet;
+
+import android.util.Log;
+
+import java.util.UUID;
+
+/**
+ * Low-power, event-only link to the helmet: a BLE GATT client subscribed to the compact
+ * drowsiness-state characteristic ({@link HelmetStatePacket}) instead of the classic
+ * RFCOMM stream with camera frames.
+ *
+ * The GATT calls themselves go through a {@link Transport} (the Android stack in the app,
+ * a fake GATT server in tests), which reports results back through the {@code on...}
+ * methods from any thread. The client walks connect → discover → subscribe, re-arms the
+ * connection when it drops, drops repeated sequence numbers (e.g. the current value
+ * re-sent after a reconnect) and counts gaps. Thread-safe.
+ */
+public class HelmetBleClient {
+    private static final String TAG = "HelmetBleClient";
+
+    public static final UUID SERVICE_UUID = UUID.fromString("a7d20001-8c1e-4b5f-9e3a-5d1c2b7f4e60");
+    public static final UUID STATE_CHARACTERISTIC_UUID = UUID.fromString("a7d20002-8c1e-4b5f-9e3a-5d1c2b7f4e60");
+    public static final UUID CLIENT_CONFIG_DESCRIPTOR_UUID = UUID.fromString("00002902-0000-1000-8000-00805f9b34fb");
+
+    public enum State {
+        DISCONNECTED,
+        CONNECTING,
+        DISCOVERING,
+        SUBSCRIBING,
+        SUBSCRIBED
+    }
+
+    /** GATT operations; each completes asynchronously through the client's on... methods */
+    public interface Transport {
+        void connect(HelmetBleClient client);
+
+        void discoverServices();
+
+        /** Enable notifications on the characteristic (writes its client config descriptor) */
+        void subscribe(UUID service, UUID characteristic);
+
+        void disconnect();
+    }
+
+    public interface Listener {
+        void onHelmetState(HelmetStatePacket packet, long receivedTimeMs);
+
+        void onLinkStateChanged(State state);
+    }
+
+    private final Transport transport;
+    private final Listener listener;
+
+    private State state = State.DISCONNECTED;
+    private boolean started = false;
+    private int lastSequence = -1;
+    private boolean countGaps = false;  // not across a reconnect: the helmet may have restarted
+    private long notifications = 0;
+    private long duplicates = 0;
+    private long malformed = 0;
+    private long missed = 0;
+    private long reconnects = 0;
+
+    public HelmetBleClient(Transport transport, Listener listener) {
+        this.transport = transport;
+        this.listener = listener;
+    }
+
+    public void start() {
+        synchronized (this) {
+            if (started) {
+                return;
+            }
+            started = true;
+        }
+        setState(State.CONNECTING);
+        transport.connect(this);
+    }
+
+    public void stop() {
+        synchronized (this) {
+            if (!started) {
+                return;
+            }
+            started = false;
+        }
+        transport.disconnect();
+        setState(State.DISCONNECTED);
+    }
+
+    public void onConnected() {
+        if (!isStarted()) {
+            return;
+        }
+        setState(State.DISCOVERING);
+        transport.discoverServices();
+    }
+
+    public void onServicesDiscovered(boolean hasStateCharacteristic) {
+        if (!isStarted()) {
+            return;
+        }
+        if (!hasStateCharacteristic) {
+            Log.e(TAG, "Helmet has no drowsiness-state characteristic");
+            stop();
+            return;
+        }
+        setState(State.SUBSCRIBING);
+        transport.subscribe(SERVICE_UUID, STATE_CHARACTERISTIC_UUID);
+    }
+
+    public void onSubscribed(boolean success) {
+        if (!isStarted()) {
+            return;
+        }
+        if (!success) {
+            Log.e(TAG, "Enabling notifications failed");
+            stop();
+            return;
+        }
+        setState(State.SUBSCRIBED);
+    }
+
+    public void onDisconnected() {
+        synchronized (this) {
+            if (!started) {
+                return;
+            }
+            reconnects++;
+            countGaps = false;
+        }
+        // Keep the same connection object armed; BLE reconnects when the helmet is back in range
+        setState(State.CONNECTING);
+        transport.connect(this);
+    }
+
+    public void onNotification(UUID characteristic, byte[] value) {
+        if (!STATE_CHARACTERISTIC_UUID.equals(characteristic)) {
+            return;
+        }
+        HelmetStatePacket packet = HelmetStatePacket.parse(value);
+        synchronized (this) {
+            if (!started) {
+                return;
+            }
+            if (packet == null) {
+                malformed++;
+                return;
+            }
+            if (packet.sequence == lastSequence) {
+                duplicates++;
+                return;
+            }
+            if (countGaps) {
+                missed += (packet.sequence - lastSequence - 1) & 0xFFFF;
+            }
+            lastSequence = packet.sequence;
+            countGaps = true;
+            notifications++;
+        }
+        listener.onHelmetState(packet, System.currentTimeMillis());
+    }
+
+    private void setState(State newState) {
+        synchronized (this) {
+            if (state == newState) {
+                return;
+            }
+            state = newState;
+        }
+        listener.onLinkStateChanged(newState);
+    }
+
+    private synchronized boolean isStarted() {
+        return started;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized long getNotifications() {
+        return notifications;
+    }
+
+    public synchronized long getDuplicates() {
+        return duplicates;
+    }
+
+    public synchronized long getMalformed() {
+        return malformed;
+    }
+
+    /**
+     * States the helmet sent that never arrived, by sequence number.
+     */
+    public synchronized long getMissed() {
+        return missed;
+    }
+
+    public synchronized long getReconnects() {
+        return reconnects;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return state + " notifications=" + notifications + " duplicates=" + duplicates + " missed=" + missed
+            + " malformed=" + malformed + " reconnects=" + reconnects;
+    }
+}
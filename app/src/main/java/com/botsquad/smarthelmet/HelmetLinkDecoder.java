@@ -0,0 +1,254 @@
+package com.botsquad.smarthelmet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+
+/**
+ * Streaming decoder for the framed Bluetooth (RFCOMM) link from the helmet.
+ *
+ * Every message is sent as one frame (big-endian):
+ * <pre>
+ *   0xA5 0x5A | type (1) | sequence (2) | payload length (4) | payload | CRC32 (4)
+ * </pre>
+ * The CRC covers type through the end of the payload. Bytes are read in bulk into a
+ * power-of-two ring buffer and frames are parsed wherever the reads happen to split or
+ * merge them. A frame with a bad CRC or an impossible length is dropped by skipping one
+ * byte and searching for the next sync marker. Payloads are handed to the {@link Listener}
+ * in place, or through a reused scratch array when they wrap around the ring, so steady
+ * decoding allocates nothing. One thread at a time.
+ */
+public class HelmetLinkDecoder {
+    public static final int TYPE_STATUS_JSON = 1;
+    public static final int TYPE_CAMERA_FRAME = 2;
+
+    static final int SYNC_0 = 0xA5;
+    static final int SYNC_1 = 0x5A;
+    public static final int HEADER_BYTES = 9;
+    public static final int TRAILER_BYTES = 4;
+    public static final int DEFAULT_MAX_PAYLOAD = 256 * 1024;
+
+    public interface Listener {
+        /** payload[offset, offset + length) is valid only during the call */
+        void onMessage(int type, int sequence, byte[] payload, int offset, int length);
+    }
+
+    private final Listener listener;
+    private final int maxPayload;
+    private final byte[] ring;
+    private final int mask;
+    private final CRC32 crc = new CRC32();
+    private byte[] scratch = new byte[0];
+
+    // Absolute stream positions; ring index is position & mask
+    private long readPosition = 0;
+    private long writePosition = 0;
+
+    private int lastSequence = -1;
+    private long messagesDecoded = 0;
+    private long crcErrors = 0;
+    private long bytesSkipped = 0;
+    private long sequenceGaps = 0;
+    private long bytesReceived = 0;
+
+    public HelmetLinkDecoder(Listener listener) {
+        this(listener, DEFAULT_MAX_PAYLOAD);
+    }
+
+    public HelmetLinkDecoder(Listener listener, int maxPayload) {
+        this.listener = listener;
+        this.maxPayload = maxPayload;
+        // Room for two whole frames, so a bulk read always has space after parsing
+        int capacity = Integer.highestOneBit(2 * frameSize(maxPayload) - 1) << 1;
+        this.ring = new byte[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * One bulk read from in (as much as fits contiguously in the ring), then decode
+     * every complete frame. Returns the bytes read, or -1 at end of stream.
+     */
+    public int readFrom(InputStream in) throws IOException {
+        int index = (int) (writePosition & mask);
+        int free = ring.length - (int) (writePosition - readPosition);
+        int count = in.read(ring, index, Math.min(free, ring.length - index));
+        if (count < 0) {
+            return -1;
+        }
+        writePosition += count;
+        bytesReceived += count;
+        decode();
+        return count;
+    }
+
+    /**
+     * Decode bytes that were already read elsewhere.
+     */
+    public void feed(byte[] data, int offset, int length) {
+        while (length > 0) {
+            int index = (int) (writePosition & mask);
+            int free = ring.length - (int) (writePosition - readPosition);
+            int count = Math.min(length, Math.min(free, ring.length - index));
+            System.arraycopy(data, offset, ring, index, count);
+            writePosition += count;
+            bytesReceived += count;
+            offset += count;
+            length -= count;
+            decode();
+        }
+    }
+
+    private void decode() {
+        while (true) {
+            long available = writePosition - readPosition;
+            if (available < HEADER_BYTES) {
+                return;
+            }
+            if (byteAt(readPosition) != SYNC_0 || byteAt(readPosition + 1) != SYNC_1) {
+                skipByte();
+                continue;
+            }
+            long length = readUnsigned(readPosition + 5, 4);
+            if (length > maxPayload) {
+                skipByte();
+                continue;
+            }
+            int payloadLength = (int) length;
+            if (available < frameSize(payloadLength)) {
+                return;  // wait for the rest
+            }
+
+            crc.reset();
+            updateCrc(readPosition + 2, HEADER_BYTES - 2 + payloadLength);
+            long expected = readUnsigned(readPosition + HEADER_BYTES + payloadLength, 4);
+            if (crc.getValue() != expected) {
+                crcErrors++;
+                skipByte();
+                continue;
+            }
+
+            int type = byteAt(readPosition + 2);
+            int sequence = (int) readUnsigned(readPosition + 3, 2);
+            if (lastSequence >= 0) {
+                sequenceGaps += (sequence - lastSequence - 1) & 0xFFFF;
+            }
+            lastSequence = sequence;
+            deliver(type, sequence, readPosition + HEADER_BYTES, payloadLength);
+            readPosition += frameSize(payloadLength);
+            messagesDecoded++;
+        }
+    }
+
+    private void deliver(int type, int sequence, long position, int length) {
+        int index = (int) (position & mask);
+        if (index + length <= ring.length) {
+            listener.onMessage(type, sequence, ring, index, length);
+            return;
+        }
+        if (scratch.length < length) {
+            scratch = new byte[length];
+        }
+        int first = ring.length - index;
+        System.arraycopy(ring, index, scratch, 0, first);
+        System.arraycopy(ring, 0, scratch, first, length - first);
+        listener.onMessage(type, sequence, scratch, 0, length);
+    }
+
+    private void updateCrc(long position, int length) {
+        int index = (int) (position & mask);
+        int first = Math.min(length, ring.length - index);
+        crc.update(ring, index, first);
+        if (first < length) {
+            crc.update(ring, 0, length - first);
+        }
+    }
+
+    private void skipByte() {
+        readPosition++;
+        bytesSkipped++;
+    }
+
+    private int byteAt(long position) {
+        return ring[(int) (position & mask)] & 0xFF;
+    }
+
+    private long readUnsigned(long position, int bytes) {
+        long value = 0;
+        for (int i = 0; i < bytes; i++) {
+            value = (value << 8) | byteAt(position + i);
+        }
+        return value;
+    }
+
+    public long getMessagesDecoded() {
+        return messagesDecoded;
+    }
+
+    public long getCrcErrors() {
+        return crcErrors;
+    }
+
+    /**
+     * Bytes discarded while searching for a sync marker (noise, corrupt frames).
+     */
+    public long getBytesSkipped() {
+        return bytesSkipped;
+    }
+
+    /**
+     * Messages missing according to the sequence numbers.
+     */
+    public long getSequenceGaps() {
+        return sequenceGaps;
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    public static int frameSize(int payloadLength) {
+        return HEADER_BYTES + payloadLength + TRAILER_BYTES;
+    }
+
+    /**
+     * Write one frame into out at outOffset; returns the frame size.
+     */
+    public static int encode(int type, int sequence, byte[] payload, int offset, int length, byte[] out, int outOffset) {
+        int p = outOffset;
+        out[p++] = (byte) SYNC_0;
+        out[p++] = (byte) SYNC_1;
+        out[p++] = (byte) type;
+        out[p++] = (byte) (sequence >>> 8);
+        out[p++] = (byte) sequence;
+        out[p++] = (byte) (length >>> 24);
+        out[p++] = (byte) (length >>> 16);
+        out[p++] = (byte) (length >>> 8);
+        out[p++] = (byte) length;
+        System.arraycopy(payload, offset, out, p, length);
+        p += length;
+        CRC32 checksum = new CRC32();
+        checksum.update(out, outOffset + 2, p - outOffset - 2);
+        long value = checksum.getValue();
+        out[p++] = (byte) (value >>> 24);
+        out[p++] = (byte) (value >>> 16);
+        out[p++] = (byte) (value >>> 8);
+        out[p++] = (byte) value;
+        return p - outOffset;
+    }
+
+    public static byte[] encode(int type, int sequence, byte[] payload) {
+        byte[] frame = new byte[frameSize(payload.length)];
+        encode(type, sequence, payload, 0, payload.length, frame, 0);
+        return frame;
+    }
+
+    @Override
+    public String toString() {
+        return "messages=" + messagesDecoded + " crcErrors=" + crcErrors + " skipped=" + bytesSkipped
+            + "B gaps=" + sequenceGaps + " received=" + bytesReceived + "B";
+    }
+}
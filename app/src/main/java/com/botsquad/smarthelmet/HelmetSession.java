@@ -0,0 +1,204 @@
+package com.botsquad.smarthelmet;
+
+import android.util.Log;
+
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One monitored helmet in supervisor mode: its own Pi detector, query loop,
+ * health state and alarm state. Network work runs on the manager's shared pool;
+ * at most one query per session is in flight, so a slow Pi only delays itself.
+ */
+public class HelmetSession {
+    private static final String TAG = "HelmetSession";
+    static final long QUERY_INTERVAL_MS = 200;
+    static final long OFFLINE_RETRY_INTERVAL_MS = 3000;
+    static final long DROWSINESS_THRESHOLD_MS = 1500;
+    private static final int ERRORS_BEFORE_OFFLINE = 3;
+    private static final int QUERY_CONNECT_TIMEOUT_MS = 1500;
+    private static final int QUERY_READ_TIMEOUT_MS = 2000;
+
+    public enum Health { CONNECTING, ONLINE, OFFLINE }
+
+    interface Listener {
+        void onSessionUpdated(HelmetSession session);
+        void onAlarmChanged(HelmetSession session, boolean alarmActive);
+    }
+
+    private final String label;
+    private final String serverUrl;
+    private final PiDrowsinessDetector detector;
+    private final ScheduledExecutorService scheduler;
+    private final Listener listener;
+
+    private volatile boolean running = false;
+    private ScheduledFuture<?> pendingQuery;
+
+    // State below is only written from query callbacks, which never overlap for one session
+    private volatile Health health = Health.CONNECTING;
+    private volatile boolean drowsy = false;
+    private volatile float confidence = 0f;
+    private volatile boolean alarmActive = false;
+    private volatile long lastResultTimeMs = 0;
+    private volatile long lastResultAgeMs = -1;
+    private volatile long drowsySinceMs = 0;
+    private volatile long queryCount = 0;
+    private int consecutiveErrors = 0;
+
+    HelmetSession(String label, String serverUrl, PiDrowsinessDetector detector,
+                  ScheduledExecutorService scheduler, Listener listener) {
+        this.label = label;
+        this.serverUrl = serverUrl;
+        this.detector = detector;
+        this.scheduler = scheduler;
+        this.listener = listener;
+        detector.setQueryTimeouts(QUERY_CONNECT_TIMEOUT_MS, QUERY_READ_TIMEOUT_MS);
+    }
+
+    synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        scheduleNext(0);
+    }
+
+    synchronized void stop() {
+        running = false;
+        if (pendingQuery != null) {
+            pendingQuery.cancel(false);
+            pendingQuery = null;
+        }
+        detector.close();
+    }
+
+    private synchronized void scheduleNext(long delayMs) {
+        if (!running || scheduler.isShutdown()) {
+            return;
+        }
+        try {
+            // The scheduler only hands off; the HTTP call runs on the shared network pool
+            pendingQuery = scheduler.schedule(this::query, delayMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            Log.w(TAG, "Unable to schedule query for " + label + ": " + e.getMessage());
+        }
+    }
+
+    private void query() {
+        if (!running) {
+            return;
+        }
+        try {
+            detector.queryDetectionAsync(new PiDrowsinessDetector.DetectionCallback() {
+                @Override
+                public void onDetectionComplete(List<PiDrowsinessDetector.Detection> detections, boolean isDrowsy, float confidence) {
+                    long now = System.currentTimeMillis();
+                    onResult(isDrowsy, confidence, new PiDrowsinessDetector.ResultTiming(now, now, false));
+                }
+
+                @Override
+                public void onDetectionComplete(List<PiDrowsinessDetector.Detection> detections, boolean isDrowsy, float confidence,
+                                                PiDrowsinessDetector.ResultTiming timing) {
+                    onResult(isDrowsy, confidence, timing);
+                }
+
+                @Override
+                public void onError(Exception error) {
+                    onQueryError(error);
+                }
+            });
+        } catch (Exception e) {
+            // Pool saturated or shut down - try again on the next tick
+            onQueryError(e);
+        }
+    }
+
+    private void onResult(boolean isDrowsy, float resultConfidence, PiDrowsinessDetector.ResultTiming timing) {
+        queryCount++;
+        consecutiveErrors = 0;
+        health = Health.ONLINE;
+        confidence = resultConfidence;
+        lastResultTimeMs = timing.receivedTimeMs;
+        lastResultAgeMs = timing.ageMs;
+
+        boolean alarmChanged = false;
+        if (isDrowsy) {
+            if (!drowsy) {
+                drowsySinceMs = timing.captureTimeMs;
+            }
+            if (!alarmActive && timing.receivedTimeMs - drowsySinceMs >= DROWSINESS_THRESHOLD_MS) {
+                alarmActive = true;
+                alarmChanged = true;
+            }
+        } else if (alarmActive) {
+            alarmActive = false;
+            alarmChanged = true;
+        }
+        drowsy = isDrowsy;
+
+        listener.onSessionUpdated(this);
+        if (alarmChanged) {
+            listener.onAlarmChanged(this, alarmActive);
+        }
+        scheduleNext(QUERY_INTERVAL_MS);
+    }
+
+    private void onQueryError(Exception error) {
+        consecutiveErrors++;
+        boolean wasOffline = health == Health.OFFLINE;
+        if (consecutiveErrors >= ERRORS_BEFORE_OFFLINE) {
+            health = Health.OFFLINE;
+            if (alarmActive) {
+                // Can't tell any more - the tile shows OFFLINE instead of a stale alarm
+                alarmActive = false;
+                listener.onAlarmChanged(this, false);
+            }
+            drowsy = false;
+        }
+        if (!wasOffline) {
+            Log.w(TAG, label + " query failed (" + consecutiveErrors + "): " + error.getMessage());
+        }
+        listener.onSessionUpdated(this);
+        // Offline helmets are probed slowly so they don't tie up the shared pool
+        scheduleNext(health == Health.OFFLINE ? OFFLINE_RETRY_INTERVAL_MS : QUERY_INTERVAL_MS * 2);
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public String getServerUrl() {
+        return serverUrl;
+    }
+
+    public Health getHealth() {
+        return health;
+    }
+
+    public boolean isDrowsy() {
+        return drowsy;
+    }
+
+    public float getConfidence() {
+        return confidence;
+    }
+
+    public boolean isAlarmActive() {
+        return alarmActive;
+    }
+
+    public long getLastResultTimeMs() {
+        return lastResultTimeMs;
+    }
+
+    public long getLastResultAgeMs() {
+        return lastResultAgeMs;
+    }
+
+    public long getQueryCount() {
+        return queryCount;
+    }
+}
@@ -0,0 +1,108 @@
+package com.botsquad.smarthelmet;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps N independent Pi sessions (supervisor mode) on one bounded network pool.
+ * A single scheduler thread times every session's query loop; the HTTP work itself
+ * runs on a fixed pool whose size does not grow with the number of helmets.
+ */
+public class HelmetSessionManager {
+    private static final String TAG = "HelmetSessionManager";
+    public static final int MAX_SESSIONS = 12;
+    private static final int NETWORK_THREADS = 4;
+    private static final int NETWORK_QUEUE_CAPACITY = MAX_SESSIONS * 2;
+
+    public interface Listener {
+        void onSessionUpdated(HelmetSession session);
+        void onAlarmChanged(HelmetSession session, boolean alarmActive);
+    }
+
+    private final ThreadPoolExecutor networkPool;
+    private final ScheduledExecutorService scheduler;
+    private final List<HelmetSession> sessions = new CopyOnWriteArrayList<>();
+    private final Listener listener;
+
+    public HelmetSessionManager(Listener listener) {
+        this(listener, NETWORK_THREADS);
+    }
+
+    HelmetSessionManager(Listener listener, int networkThreads) {
+        this.listener = listener;
+        // Bounded queue: a session that can't be queued retries on its next tick instead of piling up
+        this.networkPool = new ThreadPoolExecutor(networkThreads, networkThreads,
+            30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(NETWORK_QUEUE_CAPACITY),
+            new ThreadPoolExecutor.AbortPolicy());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    /**
+     * Add and start a session. Returns null if the URL is already monitored or the limit is reached.
+     */
+    public synchronized HelmetSession addSession(String label, String serverUrl) {
+        if (sessions.size() >= MAX_SESSIONS) {
+            Log.w(TAG, "Session limit reached (" + MAX_SESSIONS + ")");
+            return null;
+        }
+        for (HelmetSession existing : sessions) {
+            if (existing.getServerUrl().equals(serverUrl)) {
+                return null;
+            }
+        }
+
+        PiDrowsinessDetector detector = new PiDrowsinessDetector(serverUrl, networkPool);
+        HelmetSession session = new HelmetSession(label, serverUrl, detector, scheduler,
+            new HelmetSession.Listener() {
+                @Override
+                public void onSessionUpdated(HelmetSession s) {
+                    listener.onSessionUpdated(s);
+                }
+
+                @Override
+                public void onAlarmChanged(HelmetSession s, boolean alarmActive) {
+                    listener.onAlarmChanged(s, alarmActive);
+                }
+            });
+        sessions.add(session);
+        session.start();
+        Log.d(TAG, "Started session " + label + " (" + serverUrl + "), total " + sessions.size());
+        return session;
+    }
+
+    public synchronized void removeSession(HelmetSession session) {
+        if (sessions.remove(session)) {
+            session.stop();
+        }
+    }
+
+    public List<HelmetSession> getSessions() {
+        return new ArrayList<>(sessions);
+    }
+
+    public boolean isAnyAlarmActive() {
+        for (HelmetSession session : sessions) {
+            if (session.isAlarmActive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized void shutdown() {
+        for (HelmetSession session : sessions) {
+            session.stop();
+        }
+        sessions.clear();
+        scheduler.shutdownNow();
+        networkPool.shutdownNow();
+    }
+}
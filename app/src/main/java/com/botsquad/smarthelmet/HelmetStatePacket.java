@@ -0,0 +1,53 @@
+package com.botsquad.smarthelmet;
+
+/**
+ * Value of the helmet's BLE drowsiness-state characteristic: four bytes,
+ * {@code state (uint8) | confidence (uint8, 0-255 = 0.0-1.0) | sequence (uint16, little-endian)}.
+ * Longer values are accepted so fields can be appended later.
+ */
+public final class HelmetStatePacket {
+    public static final int STATE_AWAKE = 0;
+    public static final int STATE_DROWSY = 1;
+    public static final int STATE_NO_FACE = 2;
+    public static final int LENGTH = 4;
+
+    public final int state;
+    public final float confidence;
+    public final int sequence;
+
+    public HelmetStatePacket(int state, float confidence, int sequence) {
+        this.state = state;
+        this.confidence = confidence;
+        this.sequence = sequence;
+    }
+
+    public boolean isDrowsy() {
+        return state == STATE_DROWSY;
+    }
+
+    /**
+     * Parse a characteristic value; null if it is too short or the state is unknown.
+     */
+    public static HelmetStatePacket parse(byte[] value) {
+        if (value == null || value.length < LENGTH) {
+            return null;
+        }
+        int state = value[0] & 0xFF;
+        if (state > STATE_NO_FACE) {
+            return null;
+        }
+        float confidence = (value[1] & 0xFF) / 255f;
+        int sequence = (value[2] & 0xFF) | ((value[3] & 0xFF) << 8);
+        return new HelmetStatePacket(state, confidence, sequence);
+    }
+
+    public static byte[] encode(int state, float confidence, int sequence) {
+        int scaled = Math.round(Math.max(0f, Math.min(1f, confidence)) * 255f);
+        return new byte[] {(byte) state, (byte) scaled, (byte) sequence, (byte) (sequence >>> 8)};
+    }
+
+    @Override
+    public String toString() {
+        return "state=" + state + " confidence=" + confidence + " seq=" + sequence;
+    }
+}
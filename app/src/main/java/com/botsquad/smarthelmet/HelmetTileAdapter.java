@@ -0,0 +1,125 @@
+package com.botsquad.smarthelmet;
+
+import android.graphics.Color;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Grid tiles for supervisor mode, one per monitored helmet.
+ */
+public class HelmetTileAdapter extends RecyclerView.Adapter<HelmetTileAdapter.TileViewHolder> {
+
+    private static final int COLOR_ALERT = Color.parseColor("#D32F2F");
+    private static final int COLOR_DROWSY = Color.parseColor("#F57C00");
+    private static final int COLOR_AWAKE = Color.parseColor("#388E3C");
+    private static final int COLOR_OFFLINE = Color.parseColor("#616161");
+    private static final int COLOR_CONNECTING = Color.parseColor("#1976D2");
+
+    private List<HelmetSession> sessions;
+    private OnTileLongClickListener longClickListener;
+
+    public interface OnTileLongClickListener {
+        void onTileLongClick(HelmetSession session);
+    }
+
+    public HelmetTileAdapter(List<HelmetSession> sessions) {
+        this.sessions = sessions;
+    }
+
+    public void setOnTileLongClickListener(OnTileLongClickListener listener) {
+        this.longClickListener = listener;
+    }
+
+    @NonNull
+    @Override
+    public TileViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.list_item_helmet_tile, parent, false);
+        return new TileViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull TileViewHolder holder, int position) {
+        HelmetSession session = sessions.get(position);
+        holder.label.setText(session.getLabel());
+
+        String state;
+        int color;
+        switch (session.getHealth()) {
+            case OFFLINE:
+                state = "OFFLINE";
+                color = COLOR_OFFLINE;
+                break;
+            case CONNECTING:
+                state = "CONNECTING";
+                color = COLOR_CONNECTING;
+                break;
+            default:
+                if (session.isAlarmActive()) {
+                    state = "ALERT";
+                    color = COLOR_ALERT;
+                } else if (session.isDrowsy()) {
+                    state = "DROWSY";
+                    color = COLOR_DROWSY;
+                } else {
+                    state = "AWAKE";
+                    color = COLOR_AWAKE;
+                }
+                break;
+        }
+        holder.state.setText(state);
+        holder.root.setBackgroundColor(color);
+
+        if (session.getHealth() == HelmetSession.Health.ONLINE) {
+            holder.details.setText(String.format(Locale.US, "%s\nconf %.2f, age %d ms",
+                session.getServerUrl(), session.getConfidence(), session.getLastResultAgeMs()));
+        } else {
+            holder.details.setText(session.getServerUrl());
+        }
+    }
+
+    @Override
+    public int getItemCount() {
+        return sessions.size();
+    }
+
+    public void setSessions(List<HelmetSession> sessions) {
+        this.sessions = sessions;
+        notifyDataSetChanged();
+    }
+
+    public int indexOf(HelmetSession session) {
+        return sessions.indexOf(session);
+    }
+
+    public class TileViewHolder extends RecyclerView.ViewHolder {
+        View root;
+        TextView label;
+        TextView state;
+        TextView details;
+
+        public TileViewHolder(@NonNull View itemView) {
+            super(itemView);
+            root = itemView.findViewById(R.id.helmetTileRoot);
+            label = itemView.findViewById(R.id.helmetTileLabel);
+            state = itemView.findViewById(R.id.helmetTileState);
+            details = itemView.findViewById(R.id.helmetTileDetails);
+
+            itemView.setOnLongClickListener(v -> {
+                int position = getAdapterPosition();
+                if (longClickListener != null && position != RecyclerView.NO_POSITION) {
+                    longClickListener.onTileLongClick(sessions.get(position));
+                    return true;
+                }
+                return false;
+            });
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package com.botsquad.smarthelmet;
+
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Keeps the most recent stream JPEGs in a fixed-size memory-mapped ring file so the seconds
+ * before an alarm can be saved as a clip.
+ *
+ * {@link #append} copies an already-received JPEG into the ring (no decoding) and records
+ * it in a small in-memory index of (offset, length, time). Frames are written back to back
+ * and never split: one that doesn't fit before the end of the ring starts again at offset 0,
+ * evicting the oldest frames it overwrites. {@link #freezeAsync} copies the frames of the
+ * last N seconds, one at a time, into a multipart MJPEG clip on the recorder's own thread
+ * (readable with {@link MjpegDemuxer}); frames overwritten meanwhile are left out. At most
+ * {@code maxClips} clips are kept, oldest deleted first.
+ */
+public class IncidentClipRecorder {
+    private static final String TAG = "IncidentClipRecorder";
+    public static final int DEFAULT_RING_BYTES = 16 * 1024 * 1024;
+    public static final int DEFAULT_INDEX_CAPACITY = 1024;
+    public static final int DEFAULT_MAX_CLIPS = 10;
+    public static final long DEFAULT_CLIP_WINDOW_MS = 10_000;
+    public static final String CLIP_BOUNDARY = "frame";
+    private static final String CLIP_PREFIX = "incident_";
+    private static final String CLIP_SUFFIX = ".mjpeg";
+    private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+
+    public interface ClipCallback {
+        /** clip is null if there were no frames in the window or writing failed */
+        void onClipSaved(File clip, int frames);
+    }
+
+    private final File clipDir;
+    private final int ringBytes;
+    private final int maxClips;
+    private final RandomAccessFile ringFile;
+    private final FileChannel channel;
+    private final MappedByteBuffer ring;
+    private final ByteBuffer readView;
+    private final ExecutorService exportExecutor;
+
+    // Index of frames in the ring, guarded by this. Frame seq lives in slot seq % capacity.
+    private final int[] offsets;
+    private final int[] lengths;
+    private final long[] times;
+    private long oldestSeq = 0;
+    private long nextSeq = 0;
+    private int writePosition = 0;
+    private boolean closed = false;
+
+    private long framesRecorded = 0;
+    private long framesSkipped = 0;
+    private long clipsSaved = 0;
+
+    // Export thread only
+    private byte[] copyBuffer = new byte[64 * 1024];
+
+    public IncidentClipRecorder(File ringPath, File clipDir) throws IOException {
+        this(ringPath, clipDir, DEFAULT_RING_BYTES, DEFAULT_INDEX_CAPACITY, DEFAULT_MAX_CLIPS);
+    }
+
+    public IncidentClipRecorder(File ringPath, File clipDir, int ringBytes, int indexCapacity, int maxClips) throws IOException {
+        this.clipDir = clipDir;
+        this.ringBytes = ringBytes;
+        this.maxClips = Math.max(1, maxClips);
+        this.offsets = new int[indexCapacity];
+        this.lengths = new int[indexCapacity];
+        this.times = new long[indexCapacity];
+
+        ringFile = new RandomAccessFile(ringPath, "rw");
+        try {
+            ringFile.setLength(ringBytes);
+            channel = ringFile.getChannel();
+            ring = channel.map(FileChannel.MapMode.READ_WRITE, 0, ringBytes);
+        } catch (IOException e) {
+            ringFile.close();
+            throw e;
+        }
+        readView = ring.duplicate();
+        exportExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "IncidentClip"));
+    }
+
+    /**
+     * Add a JPEG from data[offset, offset + length), received at timeMs. Frames larger than
+     * a quarter of the ring are skipped so one frame can't wipe the history.
+     */
+    public synchronized void append(byte[] data, int offset, int length, long timeMs) {
+        if (closed || length <= 0) {
+            return;
+        }
+        if (length > ringBytes / 4) {
+            framesSkipped++;
+            return;
+        }
+
+        int position = writePosition;
+        boolean wrapped = false;
+        int wrappedFrom = position;
+        if (position + length > ringBytes) {
+            position = 0;
+            wrapped = true;
+        }
+        // Oldest frames first: the unused tail after a wrap, then anything the new frame overlaps
+        while (oldestSeq < nextSeq) {
+            int slot = slot(oldestSeq);
+            boolean inTail = wrapped && offsets[slot] >= wrappedFrom;
+            boolean overlaps = offsets[slot] < position + length && offsets[slot] + lengths[slot] > position;
+            if (!inTail && !overlaps && nextSeq - oldestSeq < offsets.length) {
+                break;
+            }
+            oldestSeq++;
+        }
+
+        ring.position(position);
+        ring.put(data, offset, length);
+
+        int slot = slot(nextSeq);
+        offsets[slot] = position;
+        lengths[slot] = length;
+        times[slot] = timeMs;
+        nextSeq++;
+        writePosition = position + length;
+        framesRecorded++;
+    }
+
+    /**
+     * Save the frames of the last windowMs (up to now) as a clip on the recorder's thread.
+     */
+    public void freezeAsync(long windowMs, ClipCallback callback) {
+        final long untilMs = System.currentTimeMillis();
+        try {
+            exportExecutor.execute(() -> {
+                File clip = null;
+                int[] frames = new int[1];
+                try {
+                    clip = freeze(untilMs - windowMs, untilMs, frames);
+                } catch (IOException e) {
+                    Log.e(TAG, "Failed to save incident clip: " + e.getMessage(), e);
+                }
+                if (callback != null) {
+                    callback.onClipSaved(clip, frames[0]);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Recorder closed, clip not saved");
+        }
+    }
+
+    /**
+     * Write the frames received in [fromMs, untilMs] to a new clip file (calling thread).
+     * Returns null if there were none. frameCount[0] receives the number written.
+     */
+    File freeze(long fromMs, long untilMs, int[] frameCount) throws IOException {
+        long firstSeq;
+        long endSeq;
+        synchronized (this) {
+            endSeq = nextSeq;
+            firstSeq = endSeq;
+            while (firstSeq > oldestSeq && times[slot(firstSeq - 1)] >= fromMs) {
+                firstSeq--;
+            }
+        }
+        if (firstSeq == endSeq) {
+            return null;
+        }
+
+        if (!clipDir.isDirectory() && !clipDir.mkdirs()) {
+            throw new IOException("Cannot create " + clipDir);
+        }
+        File clip = new File(clipDir, CLIP_PREFIX + untilMs + CLIP_SUFFIX);
+        File partial = new File(clipDir, clip.getName() + ".tmp");
+        int written = 0;
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(partial), WRITE_BUFFER_BYTES)) {
+            for (long seq = firstSeq; seq < endSeq; seq++) {
+                int length;
+                long timeMs;
+                // Copy one frame at a time so the stream thread is never held up for long
+                synchronized (this) {
+                    if (seq < oldestSeq || closed) {
+                        continue;
+                    }
+                    int slot = slot(seq);
+                    timeMs = times[slot];
+                    if (timeMs > untilMs) {
+                        break;
+                    }
+                    length = lengths[slot];
+                    if (copyBuffer.length < length) {
+                        copyBuffer = new byte[Math.max(length, copyBuffer.length * 2)];
+                    }
+                    readView.position(offsets[slot]);
+                    readView.get(copyBuffer, 0, length);
+                }
+                writePart(out, copyBuffer, length, timeMs);
+                written++;
+            }
+            out.write(("--" + CLIP_BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        } catch (IOException e) {
+            partial.delete();
+            throw e;
+        }
+
+        if (written == 0) {
+            partial.delete();
+            return null;
+        }
+        if (!partial.renameTo(clip)) {
+            partial.delete();
+            throw new IOException("Cannot rename clip to " + clip);
+        }
+        synchronized (this) {
+            clipsSaved++;
+        }
+        pruneClips();
+        frameCount[0] = written;
+        Log.d(TAG, "Saved " + written + " frames to " + clip.getName());
+        return clip;
+    }
+
+    private static void writePart(OutputStream out, byte[] jpeg, int length, long timeMs) throws IOException {
+        String headers = String.format(Locale.US, "--%s\r\nContent-Type: image/jpeg\r\nContent-Length: %d\r\nX-Timestamp: %d\r\n\r\n",
+            CLIP_BOUNDARY, length, timeMs);
+        out.write(headers.getBytes(StandardCharsets.US_ASCII));
+        out.write(jpeg, 0, length);
+        out.write('\r');
+        out.write('\n');
+    }
+
+    /**
+     * Delete the oldest clips beyond maxClips (names sort by time).
+     */
+    private void pruneClips() {
+        File[] clips = clipDir.listFiles((dir, name) -> name.startsWith(CLIP_PREFIX) && name.endsWith(CLIP_SUFFIX));
+        if (clips == null || clips.length <= maxClips) {
+            return;
+        }
+        Arrays.sort(clips, (a, b) -> Long.compare(clipTime(a), clipTime(b)));
+        for (int i = 0; i < clips.length - maxClips; i++) {
+            if (!clips[i].delete()) {
+                Log.w(TAG, "Could not delete old clip " + clips[i].getName());
+            }
+        }
+    }
+
+    private static long clipTime(File clip) {
+        String name = clip.getName();
+        try {
+            return Long.parseLong(name.substring(CLIP_PREFIX.length(), name.length() - CLIP_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private int slot(long seq) {
+        return (int) (seq % offsets.length);
+    }
+
+    /**
+     * Frames currently held in the ring.
+     */
+    public synchronized int getBufferedFrames() {
+        return (int) (nextSeq - oldestSeq);
+    }
+
+    /**
+     * Time span covered by the buffered frames, in ms.
+     */
+    public synchronized long getBufferedSpanMs() {
+        if (nextSeq == oldestSeq) {
+            return 0;
+        }
+        return times[slot(nextSeq - 1)] - times[slot(oldestSeq)];
+    }
+
+    public synchronized long getFramesRecorded() {
+        return framesRecorded;
+    }
+
+    public synchronized long getFramesSkipped() {
+        return framesSkipped;
+    }
+
+    public synchronized long getClipsSaved() {
+        return clipsSaved;
+    }
+
+    /**
+     * Stop recording and unmap the ring once queued clips are saved. Doesn't block the caller.
+     */
+    public void close() {
+        try {
+            exportExecutor.execute(this::closeRing);
+        } catch (RejectedExecutionException e) {
+            return;  // already closed
+        }
+        exportExecutor.shutdown();
+    }
+
+    private synchronized void closeRing() {
+        closed = true;
+        try {
+            channel.close();
+            ringFile.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Error closing ring file: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "frames=" + getBufferedFrames() + " span=" + getBufferedSpanMs() + "ms recorded=" + framesRecorded
+            + " skipped=" + framesSkipped + " clips=" + clipsSaved;
+    }
+}
@@ -0,0 +1,80 @@
+package com.botsquad.smarthelmet;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size rolling window of latency samples (milliseconds or any other unit)
+ * with percentile queries. Recording never allocates; percentile queries copy
+ * into a reusable scratch array. Thread-safe.
+ */
+public class LatencyTracker {
+    private final long[] samples;
+    private final long[] scratch;
+    private int next = 0;
+    private int size = 0;
+    private long totalCount = 0;
+
+    public LatencyTracker(int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("windowSize must be positive");
+        }
+        this.samples = new long[windowSize];
+        this.scratch = new long[windowSize];
+    }
+
+    public synchronized void record(long value) {
+        samples[next] = value;
+        next = (next + 1) % samples.length;
+        if (size < samples.length) {
+            size++;
+        }
+        totalCount++;
+    }
+
+    /**
+     * Percentile over the current window (0-100), or -1 when empty.
+     */
+    public synchronized long percentile(double percentile) {
+        if (size == 0) {
+            return -1;
+        }
+        System.arraycopy(samples, 0, scratch, 0, size);
+        Arrays.sort(scratch, 0, size);
+        double clamped = Math.max(0, Math.min(100, percentile));
+        int index = (int) Math.ceil(clamped / 100.0 * size) - 1;
+        return scratch[Math.max(0, Math.min(size - 1, index))];
+    }
+
+    public synchronized long mean() {
+        if (size == 0) {
+            return -1;
+        }
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += samples[i];
+        }
+        return sum / size;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Number of samples recorded since creation (not limited to the window).
+     */
+    public synchronized long totalCount() {
+        return totalCount;
+    }
+
+    public synchronized void reset() {
+        next = 0;
+        size = 0;
+        totalCount = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "n=" + totalCount + " p50=" + percentile(50) + " p90=" + percentile(90) + " p99=" + percentile(99);
+    }
+}
@@ -0,0 +1,307 @@
+package com.botsquad.smarthelmet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Demultiplexes a multipart/x-mixed-replace MJPEG stream (the Pi's /stream) into JPEG frames.
+ *
+ * Parts are found by their multipart boundary, not by scanning for JPEG markers, so
+ * markers inside a frame (EXIF thumbnails, stuffed bytes) can't split it. When a part
+ * carries Content-Length the body is taken in bulk without scanning at all. Data is
+ * read in bulk into one growable buffer and each frame is exposed in place as
+ * (buffer, offset, length); the bytes stay valid until the next call to {@link #nextFrame()}.
+ */
+public class MjpegDemuxer {
+    public static final String DEFAULT_BOUNDARY = "frame";
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+    private static final int READ_CHUNK = 16 * 1024;
+    private static final int MAX_HEADER_BYTES = 8 * 1024;
+    public static final int MAX_FRAME_BYTES = 8 * 1024 * 1024;
+    private static final char[] CONTENT_LENGTH = "content-length:".toCharArray();
+
+    private InputStream in;
+    private byte[] boundaryLine;   // "--boundary"
+    private byte[] delimiter;      // "\r\n--boundary"
+    private byte[] buffer;
+    private int start = 0;         // first unconsumed byte
+    private int end = 0;           // one past the last buffered byte
+    private boolean eof = false;
+
+    private int frameOffset = 0;
+    private int frameLength = 0;
+    private long framesParsed = 0;
+    private long bytesRead = 0;
+
+    public MjpegDemuxer(InputStream in, String boundary) {
+        this(in, boundary, INITIAL_CAPACITY);
+    }
+
+    public MjpegDemuxer(InputStream in, String boundary, int initialCapacity) {
+        this.buffer = new byte[Math.max(READ_CHUNK, initialCapacity)];
+        reset(in, boundary);
+    }
+
+    /**
+     * Attach to a new stream (e.g. after a reconnect), keeping the already-grown buffer.
+     */
+    public void reset(InputStream in, String boundary) {
+        this.in = in;
+        String b = boundary != null && !boundary.isEmpty() ? boundary : DEFAULT_BOUNDARY;
+        this.boundaryLine = ("--" + b).getBytes(StandardCharsets.US_ASCII);
+        this.delimiter = ("\r\n--" + b).getBytes(StandardCharsets.US_ASCII);
+        this.start = 0;
+        this.end = 0;
+        this.eof = false;
+        this.frameOffset = 0;
+        this.frameLength = 0;
+    }
+
+    /**
+     * Extract the boundary parameter from a Content-Type header, or null if absent.
+     */
+    public static String boundaryFromContentType(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        int index = contentType.toLowerCase().indexOf("boundary=");
+        if (index < 0) {
+            return null;
+        }
+        String value = contentType.substring(index + "boundary=".length()).trim();
+        int semicolon = value.indexOf(';');
+        if (semicolon >= 0) {
+            value = value.substring(0, semicolon).trim();
+        }
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1);
+        }
+        // Some servers repeat the leading dashes in the parameter
+        if (value.startsWith("--")) {
+            value = value.substring(2);
+        }
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Advance to the next frame. Returns false at end of stream.
+     */
+    public boolean nextFrame() throws IOException {
+        while (true) {
+            // Drop everything before the next boundary line
+            int boundaryAt = find(boundaryLine, start);
+            if (boundaryAt < 0) {
+                return false;
+            }
+            start = boundaryAt + boundaryLine.length;
+
+            int headersEnd = findHeadersEnd();
+            if (headersEnd < 0) {
+                return false;
+            }
+            int contentLength = parseContentLength(start, headersEnd);
+            start = headersEnd;
+
+            int bodyStart = start;
+            int bodyEnd;
+            if (contentLength >= 0) {
+                if (contentLength > MAX_FRAME_BYTES) {
+                    throw new IOException("MJPEG part too large: " + contentLength);
+                }
+                if (!ensureBuffered(contentLength)) {
+                    return false;
+                }
+                bodyStart = start;
+                bodyEnd = bodyStart + contentLength;
+            } else {
+                int delimiterAt = find(delimiter, start);
+                if (delimiterAt < 0) {
+                    return false;
+                }
+                // find() may have compacted the buffer
+                bodyStart = start;
+                bodyEnd = delimiterAt;
+            }
+
+            start = bodyEnd;
+            if (bodyEnd > bodyStart) {
+                frameOffset = bodyStart;
+                frameLength = bodyEnd - bodyStart;
+                framesParsed++;
+                return true;
+            }
+            // Empty part - keep going
+        }
+    }
+
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    public int getFrameOffset() {
+        return frameOffset;
+    }
+
+    public int getFrameLength() {
+        return frameLength;
+    }
+
+    public long getFramesParsed() {
+        return framesParsed;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public int getCapacity() {
+        return buffer.length;
+    }
+
+    /**
+     * Index of the blank line ending the part headers (position after it), reading more as needed.
+     */
+    private int findHeadersEnd() throws IOException {
+        int scanFrom = start;
+        while (true) {
+            for (int i = scanFrom; i < end; i++) {
+                if (buffer[i] != '\n') {
+                    continue;
+                }
+                // "\n\n" or "\n\r\n" ends the headers; a header-less part starts right after the boundary line
+                if (i + 1 < end && buffer[i + 1] == '\n') {
+                    return i + 2;
+                }
+                if (i + 2 < end && buffer[i + 1] == '\r' && buffer[i + 2] == '\n') {
+                    return i + 3;
+                }
+            }
+            if (end - start > MAX_HEADER_BYTES) {
+                throw new IOException("MJPEG part headers too long");
+            }
+            scanFrom = Math.max(start, end - 2);
+            int shift = start;
+            if (!fill()) {
+                return -1;
+            }
+            scanFrom -= shift - start;
+        }
+    }
+
+    /**
+     * Content-Length from the part headers in buffer[from, to), or -1. Parsed in place (no Strings).
+     */
+    private int parseContentLength(int from, int to) {
+        int nameLength = CONTENT_LENGTH.length;
+        for (int i = from; i + nameLength <= to; i++) {
+            // Header names start a line
+            if (i != from && buffer[i - 1] != '\n') {
+                continue;
+            }
+            int k = 0;
+            while (k < nameLength && Character.toLowerCase((char) buffer[i + k]) == CONTENT_LENGTH[k]) {
+                k++;
+            }
+            if (k < nameLength) {
+                continue;
+            }
+            int pos = i + nameLength;
+            while (pos < to && (buffer[pos] == ' ' || buffer[pos] == '\t')) {
+                pos++;
+            }
+            long value = 0;
+            int digits = 0;
+            while (pos < to && buffer[pos] >= '0' && buffer[pos] <= '9' && digits < 10) {
+                value = value * 10 + (buffer[pos] - '0');
+                pos++;
+                digits++;
+            }
+            return digits > 0 && value <= Integer.MAX_VALUE ? (int) value : -1;
+        }
+        return -1;
+    }
+
+    /**
+     * Position of pattern at or after from, reading more data as needed; -1 at end of stream.
+     * Positions are relative to the buffer after any compaction done while reading.
+     */
+    private int find(byte[] pattern, int from) throws IOException {
+        int scanFrom = from;
+        byte first = pattern[0];
+        while (true) {
+            int last = end - pattern.length;
+            for (int i = scanFrom; i <= last; i++) {
+                if (buffer[i] != first) {
+                    continue;
+                }
+                int k = 1;
+                while (k < pattern.length && buffer[i + k] == pattern[k]) {
+                    k++;
+                }
+                if (k == pattern.length) {
+                    return i;
+                }
+            }
+            // Resume where a match could still start once more data arrives
+            scanFrom = Math.max(scanFrom, end - pattern.length + 1);
+            int shift = start;
+            if (!fill()) {
+                return -1;
+            }
+            scanFrom -= shift - start;
+        }
+    }
+
+    /**
+     * Make sure count bytes from start are buffered.
+     */
+    private boolean ensureBuffered(int count) throws IOException {
+        while (end - start < count) {
+            if (!fill(count)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean fill() throws IOException {
+        return fill(0);
+    }
+
+    /**
+     * Bulk read into the buffer, compacting (and growing if needed) first. Moves start to 0
+     * when compacting; returns false at end of stream.
+     */
+    private boolean fill(int needed) throws IOException {
+        if (eof) {
+            return false;
+        }
+        int pending = end - start;
+        int required = Math.max(needed, pending) + READ_CHUNK;
+        if (required > buffer.length) {
+            if (required > MAX_FRAME_BYTES + MAX_HEADER_BYTES + READ_CHUNK) {
+                throw new IOException("MJPEG part exceeds " + MAX_FRAME_BYTES + " bytes");
+            }
+            byte[] grown = new byte[Math.max(buffer.length * 2, required)];
+            System.arraycopy(buffer, start, grown, 0, pending);
+            buffer = grown;
+            start = 0;
+            end = pending;
+        } else if (buffer.length - end < READ_CHUNK) {
+            // Only the unconsumed tail moves - usually a partial header or frame start
+            System.arraycopy(buffer, start, buffer, 0, pending);
+            start = 0;
+            end = pending;
+        }
+
+        int read = in.read(buffer, end, buffer.length - end);
+        if (read < 0) {
+            eof = true;
+            return false;
+        }
+        end += read;
+        bytesRead += read;
+        return true;
+    }
+}
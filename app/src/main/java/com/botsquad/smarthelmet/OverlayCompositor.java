@@ -0,0 +1,368 @@
+package com.botsquad.smarthelmet;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+import android.os.SystemClock;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+
+import java.util.List;
+
+/**
+ * Draws the Pi's detection boxes, labels and confidence plus an FPS / connection HUD over
+ * the live video, and the full-surface status and error screens, in the renderer's single pass.
+ *
+ * Paints, typefaces and the hint {@link StaticLayout} are created once; labels are formatted
+ * into a reused char buffer, so drawing a frame allocates nothing. Detection state is copied
+ * into fixed arrays when a result arrives (any thread) and read under the same lock on the
+ * render thread. Boxes are in source-frame pixels and are mapped into the frame rect the
+ * renderer drew the video in.
+ */
+public class OverlayCompositor implements PreviewRenderer.Overlay {
+    public static final int MAX_BOXES = 8;
+    // Boxes from results older than this are no longer drawn
+    static final long RESULT_HIDE_MS = 2000;
+    private static final long FPS_WINDOW_NS = 1_000_000_000L;
+
+    public enum ConnectionState {
+        CONNECTING("CONNECTING"),
+        CONNECTED("LIVE"),
+        RECONNECTING("RECONNECTING");
+
+        final String label;
+
+        ConnectionState(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final String ERROR_HINTS = "Check:\n• Pi server is running\n• Same Wi-Fi network";
+
+    private final Paint boxPaint = new Paint();
+    private final Paint labelPaint = new Paint();
+    private final Paint labelBackgroundPaint = new Paint();
+    private final Paint hudPaint = new Paint();
+    private final Paint hudBackgroundPaint = new Paint();
+    private final Paint screenPaint = new Paint();
+    private final TextPaint hintPaint = new TextPaint();
+    private final Paint.FontMetrics labelMetrics = new Paint.FontMetrics();
+
+    // Detection state, guarded by this
+    private final float[] boxes = new float[MAX_BOXES * 4];
+    private final float[] scores = new float[MAX_BOXES];
+    private final String[] labels = new String[MAX_BOXES];
+    private int boxCount = 0;
+    private boolean drowsy = false;
+    private float confidence = 0f;
+    private long resultTimeMs = -1;
+    private int sourceWidth = 640;
+    private int sourceHeight = 480;
+    private ConnectionState connectionState = ConnectionState.CONNECTING;
+
+    // Render thread only
+    private final char[] text = new char[96];
+    private final float[] box = new float[4];
+    private StaticLayout hintLayout;
+    private int hintLayoutWidth = -1;
+    private long fpsWindowStartNs = -1;
+    private int fpsWindowFrames = 0;
+    private int drawnFps = 0;
+
+    public OverlayCompositor() {
+        Typeface bold = Typeface.create(Typeface.DEFAULT, Typeface.BOLD);
+
+        boxPaint.setStyle(Paint.Style.STROKE);
+        boxPaint.setStrokeWidth(4f);
+        boxPaint.setAntiAlias(true);
+
+        labelPaint.setAntiAlias(true);
+        labelPaint.setTextSize(26f);
+        labelPaint.setTypeface(bold);
+        labelPaint.setColor(Color.BLACK);
+        labelPaint.getFontMetrics(labelMetrics);
+
+        hudPaint.setAntiAlias(true);
+        hudPaint.setTextSize(26f);
+        hudPaint.setTypeface(Typeface.create(Typeface.MONOSPACE, Typeface.BOLD));
+        hudBackgroundPaint.setColor(Color.argb(150, 0, 0, 0));
+
+        screenPaint.setAntiAlias(true);
+        screenPaint.setTextAlign(Paint.Align.CENTER);
+        screenPaint.setTypeface(bold);
+
+        hintPaint.setAntiAlias(true);
+        hintPaint.setTextSize(24f);
+        hintPaint.setColor(Color.GRAY);
+    }
+
+    /**
+     * Latest Pi result; keeps at most {@link #MAX_BOXES} boxes.
+     */
+    public synchronized void setDetections(List<PiDrowsinessDetector.Detection> detections, boolean isDrowsy, float confidence) {
+        boxCount = 0;
+        if (detections != null) {
+            for (int i = 0; i < detections.size() && boxCount < MAX_BOXES; i++) {
+                PiDrowsinessDetector.Detection detection = detections.get(i);
+                if (detection.box == null) {
+                    continue;
+                }
+                int base = boxCount * 4;
+                boxes[base] = detection.box.left;
+                boxes[base + 1] = detection.box.top;
+                boxes[base + 2] = detection.box.right;
+                boxes[base + 3] = detection.box.bottom;
+                scores[boxCount] = detection.score;
+                labels[boxCount] = detection.label;
+                boxCount++;
+            }
+        }
+        drowsy = isDrowsy;
+        this.confidence = confidence;
+        resultTimeMs = SystemClock.uptimeMillis();
+    }
+
+    public synchronized void clearDetections() {
+        boxCount = 0;
+        resultTimeMs = -1;
+    }
+
+    /**
+     * Size of the frames the boxes refer to (the full-size stream frame).
+     */
+    public synchronized void setSourceSize(int width, int height) {
+        if (width > 0 && height > 0) {
+            sourceWidth = width;
+            sourceHeight = height;
+        }
+    }
+
+    public synchronized void setConnectionState(ConnectionState state) {
+        connectionState = state;
+    }
+
+    /**
+     * Frames per second the overlay has actually been drawn at.
+     */
+    public int getDrawnFps() {
+        return drawnFps;
+    }
+
+    @Override
+    public synchronized void draw(Canvas canvas, RectF frameRect) {
+        updateDrawnFps();
+        boolean fresh = resultTimeMs >= 0 && SystemClock.uptimeMillis() - resultTimeMs <= RESULT_HIDE_MS;
+
+        if (fresh) {
+            for (int i = 0; i < boxCount; i++) {
+                drawBox(canvas, frameRect, i);
+            }
+        }
+
+        // HUD: "15 FPS  LIVE" and the current verdict
+        float x = frameRect.left + 12f;
+        float y = frameRect.top + 12f - labelMetrics.ascent;
+        int len = appendInt(text, 0, drawnFps);
+        len = appendString(text, len, " FPS  ");
+        len = appendString(text, len, connectionState.label);
+        hudPaint.setColor(connectionState == ConnectionState.CONNECTED ? Color.WHITE : Color.YELLOW);
+        drawTextWithBackground(canvas, len, x, y, hudPaint, hudBackgroundPaint);
+
+        if (fresh) {
+            len = appendString(text, 0, drowsy ? "DROWSY " : "ALERT ");
+            len = appendPercent(text, len, confidence);
+            hudPaint.setColor(drowsy ? Color.RED : Color.GREEN);
+            drawTextWithBackground(canvas, len, x, y + hudPaint.getTextSize() + 16f, hudPaint, hudBackgroundPaint);
+        }
+    }
+
+    private void drawBox(Canvas canvas, RectF frameRect, int index) {
+        if (!mapBox(boxes, index, sourceWidth, sourceHeight,
+                frameRect.left, frameRect.top, frameRect.right, frameRect.bottom, box)) {
+            return;
+        }
+        float left = box[0];
+        float top = box[1];
+        boolean drowsyBox = labels[index] != null && labels[index].equalsIgnoreCase("drowsy");
+        int color = drowsyBox ? Color.RED : Color.GREEN;
+        boxPaint.setColor(color);
+        canvas.drawRect(left, top, box[2], box[3], boxPaint);
+
+        // Label and confidence on a filled tab above the box (inside it when at the top edge)
+        int len = appendString(text, 0, labels[index] != null ? labels[index] : "?");
+        len = appendString(text, len, " ");
+        len = appendPercent(text, len, scores[index]);
+        float textHeight = labelMetrics.descent - labelMetrics.ascent;
+        float tabTop = top - textHeight >= frameRect.top ? top - textHeight : top;
+        labelBackgroundPaint.setColor(color);
+        canvas.drawRect(left, tabTop, left + labelPaint.measureText(text, 0, len) + 12f, tabTop + textHeight, labelBackgroundPaint);
+        canvas.drawText(text, 0, len, left + 6f, tabTop - labelMetrics.ascent, labelPaint);
+    }
+
+    private void drawTextWithBackground(Canvas canvas, int len, float x, float baseline, Paint textPaint, Paint background) {
+        float width = textPaint.measureText(text, 0, len);
+        canvas.drawRect(x - 6f, baseline + labelMetrics.ascent - 4f, x + width + 6f, baseline + labelMetrics.descent + 4f, background);
+        canvas.drawText(text, 0, len, x, baseline, textPaint);
+    }
+
+    private void updateDrawnFps() {
+        long now = System.nanoTime();
+        if (fpsWindowStartNs < 0) {
+            fpsWindowStartNs = now;
+        }
+        fpsWindowFrames++;
+        long elapsed = now - fpsWindowStartNs;
+        if (elapsed >= FPS_WINDOW_NS) {
+            drawnFps = (int) Math.round(fpsWindowFrames * 1e9 / elapsed);
+            fpsWindowFrames = 0;
+            fpsWindowStartNs = now;
+        }
+    }
+
+    /**
+     * Full-surface status screen for a detection source, with two footer lines describing it.
+     */
+    public void drawStatusScreen(Canvas canvas, RectF bounds, String title, String footer, String footerDetail,
+                                 boolean isDrowsy, float confidence, int frameCount) {
+        float centerX = bounds.centerX();
+        float y = 100f;
+        drawScreenLine(canvas, title, 48f, Color.WHITE, centerX, y);
+        y += 80f;
+        drawScreenLine(canvas, "Status: Connected ✓", 36f, Color.WHITE, centerX, y);
+        y += 80f;
+        if (isDrowsy) {
+            drawScreenLine(canvas, "⚠️ DROWSY DETECTED ⚠️", 42f, Color.RED, centerX, y);
+        } else {
+            drawScreenLine(canvas, "✓ Driver Alert", 42f, Color.GREEN, centerX, y);
+        }
+        y += 70f;
+        int len = appendString(text, 0, "Confidence: ");
+        len = appendPercent(text, len, confidence);
+        drawScreenText(canvas, len, 32f, Color.WHITE, centerX, y);
+        y += 60f;
+        len = appendString(text, 0, "Frames Processed: ");
+        len = appendInt(text, len, frameCount);
+        drawScreenText(canvas, len, 28f, Color.GRAY, centerX, y);
+        y += 100f;
+        drawScreenLine(canvas, footer, 24f, Color.DKGRAY, centerX, y);
+        y += 40f;
+        drawScreenLine(canvas, footerDetail, 24f, Color.DKGRAY, centerX, y);
+    }
+
+    /**
+     * Full-surface connection error screen.
+     */
+    public void drawErrorScreen(Canvas canvas, RectF bounds, String errorMessage, String serverUrl) {
+        float centerX = bounds.centerX();
+        float y = 100f;
+        drawScreenLine(canvas, "❌ Connection Error", 48f, Color.RED, centerX, y);
+        y += 80f;
+        drawScreenLine(canvas, errorMessage != null ? errorMessage : "Failed to connect to Pi", 28f, Color.WHITE, centerX, y);
+        y += 70f;
+
+        // The hint block only changes with the surface width
+        int width = (int) bounds.width();
+        if (hintLayout == null || hintLayoutWidth != width) {
+            hintLayout = StaticLayout.Builder.obtain(ERROR_HINTS, 0, ERROR_HINTS.length(), hintPaint, Math.max(1, width))
+                .setAlignment(Layout.Alignment.ALIGN_CENTER)
+                .setLineSpacing(16f, 1f)
+                .build();
+            hintLayoutWidth = width;
+        }
+        canvas.save();
+        canvas.translate(bounds.left, y);
+        hintLayout.draw(canvas);
+        canvas.restore();
+        y += hintLayout.getHeight() + 40f;
+
+        int len = appendString(text, 0, "• Pi URL: ");
+        len = appendString(text, len, serverUrl);
+        drawScreenText(canvas, len, 24f, Color.GRAY, centerX, y);
+    }
+
+    private void drawScreenLine(Canvas canvas, String line, float textSize, int color, float centerX, float y) {
+        screenPaint.setTextSize(textSize);
+        screenPaint.setColor(color);
+        canvas.drawText(line, centerX, y, screenPaint);
+    }
+
+    private void drawScreenText(Canvas canvas, int len, float textSize, int color, float centerX, float y) {
+        screenPaint.setTextSize(textSize);
+        screenPaint.setColor(color);
+        canvas.drawText(text, 0, len, centerX, y, screenPaint);
+    }
+
+    /**
+     * Map box index (source-frame pixels, left/top/right/bottom) into the frame rect, clipped
+     * to it, as {left, top, right, bottom} in out. Returns false if nothing of the box is visible.
+     */
+    static boolean mapBox(float[] boxes, int index, int sourceWidth, int sourceHeight,
+                          float frameLeft, float frameTop, float frameRight, float frameBottom, float[] out) {
+        float scaleX = (frameRight - frameLeft) / sourceWidth;
+        float scaleY = (frameBottom - frameTop) / sourceHeight;
+        int base = index * 4;
+        out[0] = Math.max(frameLeft, frameLeft + boxes[base] * scaleX);
+        out[1] = Math.max(frameTop, frameTop + boxes[base + 1] * scaleY);
+        out[2] = Math.min(frameRight, frameLeft + boxes[base + 2] * scaleX);
+        out[3] = Math.min(frameBottom, frameTop + boxes[base + 3] * scaleY);
+        return out[2] > out[0] && out[3] > out[1];
+    }
+
+    /**
+     * Append s (null as "null") at pos, truncated to the buffer; returns the new length.
+     */
+    static int appendString(char[] buf, int pos, String s) {
+        if (s == null) {
+            s = "null";
+        }
+        int count = Math.min(s.length(), buf.length - pos);
+        if (count <= 0) {
+            return pos;
+        }
+        s.getChars(0, count, buf, pos);
+        return pos + count;
+    }
+
+    /**
+     * Append a decimal integer at pos; returns the new length (unchanged if it doesn't fit).
+     */
+    static int appendInt(char[] buf, int pos, long value) {
+        boolean negative = value < 0;
+        long rest = negative ? -value : value;
+        int digits = 1;
+        for (long v = rest; v >= 10; v /= 10) {
+            digits++;
+        }
+        int end = pos + digits + (negative ? 1 : 0);
+        if (end > buf.length || rest < 0) {
+            return pos;
+        }
+        int i = end;
+        do {
+            buf[--i] = (char) ('0' + rest % 10);
+            rest /= 10;
+        } while (rest > 0);
+        if (negative) {
+            buf[pos] = '-';
+        }
+        return end;
+    }
+
+    /**
+     * Append a 0..1 fraction as a percentage with one decimal ("87.5%"); returns the new length.
+     */
+    static int appendPercent(char[] buf, int pos, float fraction) {
+        long tenths = Math.round(Math.max(0f, fraction) * 1000.0);
+        int len = appendInt(buf, pos, tenths / 10);
+        if (len == pos || len + 3 > buf.length) {
+            return pos;
+        }
+        buf[len++] = '.';
+        buf[len++] = (char) ('0' + tenths % 10);
+        buf[len++] = '%';
+        return len;
+    }
+}
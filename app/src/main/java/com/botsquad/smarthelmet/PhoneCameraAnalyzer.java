@@ -0,0 +1,104 @@
+package com.botsquad.smarthelmet;
+
+import android.media.Image;
+
+import java.io.IOException;
+
+/**
+ * Phone-camera detection path: runs the on-device model on each analysed camera frame and
+ * reports the verdict. The model is loaded on the first frame, off the UI thread. A failed
+ * load is reported once and latched: later frames are skipped rather than retrying the
+ * load while the mode is being switched off. Camera thread only, apart from the getters.
+ */
+public class PhoneCameraAnalyzer {
+
+    /** Verdict for one frame, reused across frames */
+    public static final class Verdict {
+        public boolean drowsy;
+        public float confidence;
+    }
+
+    public interface Model {
+        /** Run on one frame and fill verdict (awake, confidence 0 when there is no face) */
+        void detect(Image image, Verdict verdict);
+
+        void close();
+    }
+
+    public interface ModelLoader {
+        Model load() throws IOException;
+    }
+
+    public interface Listener {
+        /** captureTimeMs: when the frame was exposed (wall clock) */
+        void onFrameAnalyzed(boolean drowsy, float confidence, long captureTimeMs, long framesAnalyzed);
+
+        /** The model could not be loaded; called once */
+        void onModelUnavailable(IOException error);
+    }
+
+    private final ModelLoader loader;
+    private final Listener listener;
+    private final Verdict verdict = new Verdict();
+    private final LatencyTracker detectTimeMs = new LatencyTracker(60);
+
+    private Model model;
+    private volatile boolean modelFailed = false;
+    private volatile long framesAnalyzed = 0;
+
+    public PhoneCameraAnalyzer(ModelLoader loader, Listener listener) {
+        this.loader = loader;
+        this.listener = listener;
+    }
+
+    /**
+     * Analyse one frame (camera thread).
+     */
+    public void analyze(Image image, long captureTimeMs) {
+        if (modelFailed) {
+            return;
+        }
+        if (model == null) {
+            try {
+                model = loader.load();
+            } catch (IOException e) {
+                modelFailed = true;
+                listener.onModelUnavailable(e);
+                return;
+            }
+        }
+
+        long startNs = System.nanoTime();
+        verdict.drowsy = false;
+        verdict.confidence = 0f;
+        model.detect(image, verdict);
+        detectTimeMs.record((System.nanoTime() - startNs) / 1_000_000L);
+        framesAnalyzed++;
+        listener.onFrameAnalyzed(verdict.drowsy, verdict.confidence, captureTimeMs, framesAnalyzed);
+    }
+
+    /**
+     * Release the model. Call once frames have stopped, e.g. on the camera thread after its last frame.
+     */
+    public void close() {
+        if (model != null) {
+            model.close();
+            model = null;
+        }
+    }
+
+    public boolean isModelFailed() {
+        return modelFailed;
+    }
+
+    public long getFramesAnalyzed() {
+        return framesAnalyzed;
+    }
+
+    /**
+     * Model run time per frame, in ms.
+     */
+    public LatencyTracker getDetectTimeMs() {
+        return detectTimeMs;
+    }
+}
@@ -0,0 +1,89 @@
+package com.botsquad.smarthelmet;
+
+/**
+ * NTP-style clock offset estimation between the phone and the Raspberry Pi.
+ *
+ * Each exchange records four timestamps: t0 (phone send), t1 (Pi receive),
+ * t2 (Pi send) and t3 (phone receive). Offset is ((t1 - t0) + (t2 - t3)) / 2
+ * and round-trip delay is (t3 - t0) - (t2 - t1). Only the lowest-delay sample of
+ * the recent window is trusted, since queuing delay is what skews the estimate.
+ */
+public class PiClockSync {
+    private static final int WINDOW = 8;
+    /** Estimates older than this are considered expired and should be refreshed */
+    public static final long RESYNC_INTERVAL_MS = 30_000;
+
+    private final long[] offsets = new long[WINDOW];
+    private final long[] delays = new long[WINDOW];
+    private int next = 0;
+    private int count = 0;
+    private long bestOffsetMs = 0;
+    private long bestDelayMs = -1;
+    private long lastSyncTimeMs = 0;
+
+    /**
+     * Add one exchange. t0/t3 are phone wall-clock times, t1/t2 Pi wall-clock times (all ms).
+     */
+    public synchronized void addSample(long t0, long t1, long t2, long t3) {
+        long delay = (t3 - t0) - (t2 - t1);
+        if (delay < 0) {
+            // Pi processing time longer than the round trip - clocks or stamps are broken
+            return;
+        }
+        long offset = ((t1 - t0) + (t2 - t3)) / 2;
+
+        offsets[next] = offset;
+        delays[next] = delay;
+        next = (next + 1) % WINDOW;
+        if (count < WINDOW) {
+            count++;
+        }
+
+        int best = 0;
+        for (int i = 1; i < count; i++) {
+            if (delays[i] < delays[best]) {
+                best = i;
+            }
+        }
+        bestOffsetMs = offsets[best];
+        bestDelayMs = delays[best];
+        lastSyncTimeMs = t3;
+    }
+
+    public synchronized boolean hasEstimate() {
+        return count > 0;
+    }
+
+    /**
+     * Pi clock minus phone clock, in ms.
+     */
+    public synchronized long getOffsetMs() {
+        return bestOffsetMs;
+    }
+
+    /**
+     * Round-trip delay of the sample the offset came from; the offset is accurate to half of this.
+     */
+    public synchronized long getRoundTripMs() {
+        return bestDelayMs;
+    }
+
+    public synchronized boolean needsResync(long nowMs) {
+        return count == 0 || nowMs - lastSyncTimeMs > RESYNC_INTERVAL_MS;
+    }
+
+    /**
+     * Convert a Pi timestamp to the phone's clock.
+     */
+    public synchronized long toLocalTime(long piTimeMs) {
+        return piTimeMs - bestOffsetMs;
+    }
+
+    public synchronized void reset() {
+        next = 0;
+        count = 0;
+        bestOffsetMs = 0;
+        bestDelayMs = -1;
+        lastSyncTimeMs = 0;
+    }
+}
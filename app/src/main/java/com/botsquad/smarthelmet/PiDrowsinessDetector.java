@@ -14,12 +14,38 @@ import java.util.List;
 import java.util.Scanner;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class PiDrowsinessDetector {
     private static final String TAG = "PiDrowsinessDetector";
     private static final String DEFAULT_PI_URL = "http://192.168.43.151:5000";
     private String piServerUrl;
     private ExecutorService executorService;
+    private final boolean ownsExecutor;
+    private int queryConnectTimeoutMs = 5000;
+    private int queryReadTimeoutMs = 10000;
+    private final PiClockSync clockSync = new PiClockSync();
+    private final LatencyTracker resultAgeTracker = new LatencyTracker(256);
+    private volatile FaceCropPlanner faceCropPlanner;  // null = always upload full frames
+    
+    // Hedged queries across a redundant Pi
+    private static final int HEDGE_MIN_SAMPLES = 10;
+    private static final long HEDGE_DEFAULT_DELAY_MS = 300;
+    private static final long HEDGE_MIN_DELAY_MS = 30;
+    private static final double HEDGE_BUDGET_RATIO = 0.1;
+    private static final double HEDGE_BURST = 5.0;
+    private volatile String secondaryServerUrl;
+    private ScheduledExecutorService hedgeScheduler;
+    private volatile long hedgeDelayMs = 0;  // 0 = follow the primary's p90
+    private final LatencyTracker queryLatencyTracker = new LatencyTracker(128);
+    private double hedgeTokens = 1.0;
+    private final AtomicLong hedgedQueries = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
     
     // Detection result class (compatible with DrowsinessDetector.Detection)
     public static class Detection {
@@ -36,24 +62,218 @@ public class PiDrowsinessDetector {
         }
     }
     
+    /**
+     * When the frame behind a result was captured, on the phone's clock.
+     * If the Pi clock offset is unknown, captureTimeMs falls back to the request time.
+     */
+    public static class ResultTiming {
+        public final long captureTimeMs;
+        public final long receivedTimeMs;
+        public final long ageMs;
+        public final boolean clockSynced;
+
+        public ResultTiming(long captureTimeMs, long receivedTimeMs, boolean clockSynced) {
+            this.captureTimeMs = captureTimeMs;
+            this.receivedTimeMs = receivedTimeMs;
+            this.ageMs = Math.max(0, receivedTimeMs - captureTimeMs);
+            this.clockSynced = clockSynced;
+        }
+    }
+
     // Result callback interface
     public interface DetectionCallback {
         void onDetectionComplete(List<Detection> detections, boolean isDrowsy, float confidence);
         void onError(Exception error);
+
+        /**
+         * Same as above with capture timing; override to know how stale the result is.
+         */
+        default void onDetectionComplete(List<Detection> detections, boolean isDrowsy, float confidence, ResultTiming timing) {
+            onDetectionComplete(detections, isDrowsy, confidence);
+        }
     }
     
     public PiDrowsinessDetector(String piServerUrl) {
+        this(piServerUrl, null);
+    }
+    
+    /**
+     * Use a shared executor (e.g. one network pool for several helmets).
+     * A shared executor is not shut down by {@link #close()}.
+     */
+    public PiDrowsinessDetector(String piServerUrl, ExecutorService sharedExecutor) {
         this.piServerUrl = piServerUrl != null && !piServerUrl.isEmpty() 
             ? piServerUrl 
             : DEFAULT_PI_URL;
-        this.executorService = Executors.newSingleThreadExecutor();
+        this.ownsExecutor = sharedExecutor == null;
+        this.executorService = sharedExecutor != null ? sharedExecutor : Executors.newSingleThreadExecutor();
         Log.d(TAG, "PiDrowsinessDetector initialized with URL: " + this.piServerUrl);
     }
     
+    public String getServerUrl() {
+        return piServerUrl;
+    }
+    
+    /**
+     * Timeouts for queryDetectionAsync. Callers sharing a pool should keep these short
+     * so an unreachable Pi cannot hold a worker thread for long.
+     */
+    public void setQueryTimeouts(int connectTimeoutMs, int readTimeoutMs) {
+        this.queryConnectTimeoutMs = connectTimeoutMs;
+        this.queryReadTimeoutMs = readTimeoutMs;
+    }
+    
     public PiDrowsinessDetector() {
         this(DEFAULT_PI_URL);
     }
     
+    /**
+     * Clock offset estimate against the Pi (Pi clock minus phone clock)
+     */
+    public PiClockSync getClockSync() {
+        return clockSync;
+    }
+
+    /**
+     * Capture-to-arrival age of recent results, in ms
+     */
+    public LatencyTracker getResultAgeTracker() {
+        return resultAgeTracker;
+    }
+
+    /**
+     * One NTP-style exchange with the Pi's /time endpoint. Runs on the caller's thread.
+     */
+    private void syncClock() {
+        HttpURLConnection connection = null;
+        try {
+            URL url = new URL(piServerUrl + "/time");
+            connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod("GET");
+            connection.setRequestProperty("Accept", "application/json");
+            connection.setConnectTimeout(Math.min(2000, queryConnectTimeoutMs));
+            connection.setReadTimeout(Math.min(2000, queryReadTimeoutMs));
+
+            // Wall clock for the anchor, monotonic clock for the round trip itself
+            long t0 = System.currentTimeMillis();
+            long startNanos = System.nanoTime();
+            int responseCode = connection.getResponseCode();
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                Log.w(TAG, "Clock sync not supported by Pi (HTTP " + responseCode + ")");
+                return;
+            }
+            Scanner scanner = new Scanner(connection.getInputStream(), "UTF-8");
+            String responseBody = scanner.useDelimiter("\\A").hasNext() ? scanner.next() : "";
+            scanner.close();
+            long t3 = t0 + (System.nanoTime() - startNanos) / 1_000_000L;
+
+            JSONObject responseJson = new JSONObject(responseBody);
+            long t1 = responseJson.getLong("recv_ms");
+            long t2 = responseJson.getLong("send_ms");
+            clockSync.addSample(t0, t1, t2, t3);
+            Log.d(TAG, "Clock sync: offset=" + clockSync.getOffsetMs() + "ms rtt=" + clockSync.getRoundTripMs() + "ms");
+        } catch (Exception e) {
+            Log.w(TAG, "Clock sync failed: " + e.getMessage());
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    private void maybeSyncClock() {
+        if (clockSync.needsResync(System.currentTimeMillis())) {
+            syncClock();
+        }
+    }
+
+    /**
+     * Build timing for a Pi result. captureTsPiMs is the Pi-clock capture time (or 0 if absent),
+     * requestTimeMs the phone time the query was sent, used when the offset is unknown.
+     */
+    private ResultTiming buildTiming(long captureTsPiMs, long requestTimeMs) {
+        long received = System.currentTimeMillis();
+        ResultTiming timing;
+        if (captureTsPiMs > 0 && clockSync.hasEstimate()) {
+            timing = new ResultTiming(clockSync.toLocalTime(captureTsPiMs), received, true);
+        } else {
+            timing = new ResultTiming(requestTimeMs, received, false);
+        }
+        resultAgeTracker.record(timing.ageMs);
+        return timing;
+    }
+
+    /**
+     * Upload only a padded face crop (plus its offset) when a recent face box is known.
+     * Full frames still go up periodically and when confidence drops.
+     */
+    public synchronized void setFaceCropUploadsEnabled(boolean enabled) {
+        if (enabled && faceCropPlanner == null) {
+            faceCropPlanner = new FaceCropPlanner();
+        } else if (!enabled) {
+            faceCropPlanner = null;
+        }
+    }
+    
+    public FaceCropPlanner getFaceCropPlanner() {
+        return faceCropPlanner;
+    }
+    
+    private FaceCropPlanner.Plan planUpload(Bitmap bitmap, long nowMs) {
+        FaceCropPlanner planner = faceCropPlanner;
+        return planner != null ? planner.nextUpload(bitmap.getWidth(), bitmap.getHeight(), nowMs) : null;
+    }
+    
+    private String encodeUpload(Bitmap bitmap, FaceCropPlanner.Plan plan) {
+        if (plan == null || plan.fullFrame) {
+            return bitmapToBase64(bitmap);
+        }
+        Bitmap crop = null;
+        try {
+            crop = Bitmap.createBitmap(bitmap, plan.offsetX, plan.offsetY, plan.width, plan.height);
+            return bitmapToBase64(crop);
+        } catch (Exception e) {
+            Log.w(TAG, "Face crop failed, sending full frame: " + e.getMessage());
+            return bitmapToBase64(bitmap);
+        } finally {
+            if (crop != null && crop != bitmap) {
+                crop.recycle();
+            }
+        }
+    }
+    
+    private static void putCropOffset(JSONObject requestJson, FaceCropPlanner.Plan plan, Bitmap bitmap) throws org.json.JSONException {
+        if (plan == null || plan.fullFrame) {
+            return;
+        }
+        requestJson.put("crop_x", plan.offsetX);
+        requestJson.put("crop_y", plan.offsetY);
+        requestJson.put("frame_width", bitmap.getWidth());
+        requestJson.put("frame_height", bitmap.getHeight());
+    }
+    
+    /**
+     * Track the best face box (full-frame coordinates) for the next crop; no face means full frame next.
+     */
+    private void onFaceCropFeedback(List<Detection> detections, float confidence) {
+        FaceCropPlanner planner = faceCropPlanner;
+        if (planner == null) {
+            return;
+        }
+        Detection best = null;
+        for (Detection detection : detections) {
+            if (detection.box != null && (best == null || detection.score > best.score)) {
+                best = detection;
+            }
+        }
+        if (best == null) {
+            planner.reset();
+        } else {
+            planner.onFaceBox(best.box.left, best.box.top, best.box.right, best.box.bottom,
+                confidence, System.currentTimeMillis());
+        }
+    }
+    
     /**
      * Convert bitmap to base64 string
      */
@@ -84,10 +304,12 @@ public class PiDrowsinessDetector {
             return;
         }
         
+        final long captureTimeMs = System.currentTimeMillis();
         executorService.execute(() -> {
             try {
-                // Convert bitmap to base64
-                String base64Image = bitmapToBase64(bitmap);
+                // Convert bitmap (or just the face region) to base64
+                FaceCropPlanner.Plan plan = planUpload(bitmap, captureTimeMs);
+                String base64Image = encodeUpload(bitmap, plan);
                 if (base64Image == null) {
                     callback.onError(new Exception("Failed to encode image"));
                     return;
@@ -96,6 +318,7 @@ public class PiDrowsinessDetector {
                 // Create JSON request
                 JSONObject requestJson = new JSONObject();
                 requestJson.put("image", base64Image);
+                putCropOffset(requestJson, plan, bitmap);
                 
                 // Send HTTP POST request
                 URL url = new URL(piServerUrl + "/detect");
@@ -153,6 +376,10 @@ public class PiDrowsinessDetector {
                                     float x2 = (float) bboxArray.getDouble(2);
                                     float y2 = (float) bboxArray.getDouble(3);
                                     box = new android.graphics.RectF(x1, y1, x2, y2);
+                                    // Older Pi servers return crop-relative boxes
+                                    if (plan != null && !plan.fullFrame && !responseJson.optBoolean("boxes_full_frame", false)) {
+                                        box.offset(plan.offsetX, plan.offsetY);
+                                    }
                                 }
                             }
                             
@@ -169,8 +396,10 @@ public class PiDrowsinessDetector {
                         detections.add(new Detection(defaultBox, confidence, 1, "Drowsy"));
                     }
                     
+                    onFaceCropFeedback(detections, confidence);
+                    
                     // Call callback on main thread
-                    callback.onDetectionComplete(detections, isDrowsy, confidence);
+                    callback.onDetectionComplete(detections, isDrowsy, confidence, buildTiming(0, captureTimeMs));
                     
                 } else {
                     // Read error response
@@ -201,10 +430,12 @@ public class PiDrowsinessDetector {
             return;
         }
         
+        final long captureTimeMs = System.currentTimeMillis();
         executorService.execute(() -> {
             try {
-                // Convert bitmap to base64
-                String base64Image = bitmapToBase64(bitmap);
+                // Convert bitmap (or just the face region) to base64
+                FaceCropPlanner.Plan plan = planUpload(bitmap, captureTimeMs);
+                String base64Image = encodeUpload(bitmap, plan);
                 if (base64Image == null) {
                     callback.onError(new Exception("Failed to encode image"));
                     return;
@@ -213,6 +444,7 @@ public class PiDrowsinessDetector {
                 // Create JSON request
                 JSONObject requestJson = new JSONObject();
                 requestJson.put("image", base64Image);
+                putCropOffset(requestJson, plan, bitmap);
                 
                 // Send HTTP POST request to simpler endpoint
                 URL url = new URL(piServerUrl + "/detect_simple");
@@ -256,8 +488,19 @@ public class PiDrowsinessDetector {
                         detections.add(new Detection(defaultBox, confidence, 1, "Drowsy"));
                     }
                     
+                    // The Pi includes its best face box (full-frame coordinates) when it has one
+                    FaceCropPlanner planner = faceCropPlanner;
+                    org.json.JSONArray faceBox = responseJson.optJSONArray("bbox");
+                    if (planner != null && faceBox != null && faceBox.length() >= 4) {
+                        planner.onFaceBox((float) faceBox.getDouble(0), (float) faceBox.getDouble(1),
+                            (float) faceBox.getDouble(2), (float) faceBox.getDouble(3),
+                            confidence, System.currentTimeMillis());
+                    } else if (planner != null) {
+                        planner.onConfidence(confidence);
+                    }
+                    
                     // Call callback on main thread
-                    callback.onDetectionComplete(detections, isDrowsy, confidence);
+                    callback.onDetectionComplete(detections, isDrowsy, confidence, buildTiming(0, captureTimeMs));
                     
                 } else {
                     Scanner scanner = new Scanner(connection.getErrorStream(), "UTF-8");
@@ -284,50 +527,23 @@ public class PiDrowsinessDetector {
             return;
         }
         
+        final String secondaryUrl = secondaryServerUrl;
+        if (secondaryUrl != null) {
+            queryHedged(secondaryUrl, callback);
+            return;
+        }
+        
         executorService.execute(() -> {
             try {
-                // GET request to Pi (no image needed - Pi uses its own camera)
-                URL url = new URL(piServerUrl + "/detect_simple");
-                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                connection.setRequestMethod("GET");
-                connection.setRequestProperty("Accept", "application/json");
-                connection.setConnectTimeout(5000);  // Increased to 5 seconds
-                connection.setReadTimeout(10000);  // Increased to 10 seconds for slow Pi
-                
-                int responseCode = connection.getResponseCode();
-                Log.d(TAG, "Query response code: " + responseCode);
+                // Keep the clock offset fresh so capture timestamps can be trusted
+                maybeSyncClock();
+                long requestTimeMs = System.currentTimeMillis();
+                long startNanos = System.nanoTime();
                 
-                if (responseCode == HttpURLConnection.HTTP_OK) {
-                    // Read response
-                    Scanner scanner = new Scanner(connection.getInputStream(), "UTF-8");
-                    String responseBody = scanner.useDelimiter("\\A").hasNext() ? scanner.next() : "";
-                    scanner.close();
-                    
-                    // Parse JSON response
-                    JSONObject responseJson = new JSONObject(responseBody);
-                    boolean isDrowsy = responseJson.optBoolean("is_drowsy", false);
-                    double confidenceValue = responseJson.optDouble("confidence", 0.0);
-                    float confidence = (float) confidenceValue;
-                    
-                    // Create minimal detection list
-                    List<Detection> detections = new ArrayList<>();
-                    if (isDrowsy) {
-                        // Create a default detection (no bounding box since Pi processes it)
-                        android.graphics.RectF defaultBox = new android.graphics.RectF(0, 0, 640, 480);
-                        detections.add(new Detection(defaultBox, confidence, 1, "Drowsy"));
-                    }
-                    
-                    // Call callback
-                    callback.onDetectionComplete(detections, isDrowsy, confidence);
-                    
-                } else {
-                    Scanner scanner = new Scanner(connection.getErrorStream(), "UTF-8");
-                    String errorBody = scanner.useDelimiter("\\A").hasNext() ? scanner.next() : "";
-                    scanner.close();
-                    callback.onError(new Exception("Server error: " + responseCode + " - " + errorBody));
-                }
-                
-                connection.disconnect();
+                // GET request to Pi (no image needed - Pi uses its own camera)
+                QueryResult result = fetchSimpleResult(piServerUrl, null);
+                queryLatencyTracker.record((System.nanoTime() - startNanos) / 1_000_000L);
+                deliverQueryResult(result, requestTimeMs, callback);
                 
             } catch (Exception e) {
                 Log.e(TAG, "Error querying Pi detection: " + e.getMessage(), e);
@@ -336,6 +552,270 @@ public class PiDrowsinessDetector {
         });
     }
     
+    /** Parsed /detect_simple response */
+    private static class QueryResult {
+        final boolean isDrowsy;
+        final float confidence;
+        final long captureTsPiMs;
+        
+        QueryResult(boolean isDrowsy, float confidence, long captureTsPiMs) {
+            this.isDrowsy = isDrowsy;
+            this.confidence = confidence;
+            this.captureTsPiMs = captureTsPiMs;
+        }
+    }
+    
+    /**
+     * GET /detect_simple from one endpoint on the calling thread. The live connection is
+     * published to connectionHolder (if given) so a hedging peer can disconnect it.
+     */
+    private QueryResult fetchSimpleResult(String baseUrl, AtomicReference<HttpURLConnection> connectionHolder) throws Exception {
+        URL url = new URL(baseUrl + "/detect_simple");
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        if (connectionHolder != null) {
+            connectionHolder.set(connection);
+        }
+        try {
+            connection.setRequestMethod("GET");
+            connection.setRequestProperty("Accept", "application/json");
+            connection.setConnectTimeout(queryConnectTimeoutMs);  // 5 seconds by default
+            connection.setReadTimeout(queryReadTimeoutMs);  // 10 seconds by default for slow Pi
+            
+            int responseCode = connection.getResponseCode();
+            Log.d(TAG, "Query response code: " + responseCode);
+            
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                Scanner scanner = new Scanner(connection.getErrorStream(), "UTF-8");
+                String errorBody = scanner.useDelimiter("\\A").hasNext() ? scanner.next() : "";
+                scanner.close();
+                throw new Exception("Server error: " + responseCode + " - " + errorBody);
+            }
+            
+            // Read response
+            Scanner scanner = new Scanner(connection.getInputStream(), "UTF-8");
+            String responseBody = scanner.useDelimiter("\\A").hasNext() ? scanner.next() : "";
+            scanner.close();
+            
+            // Parse JSON response
+            JSONObject responseJson = new JSONObject(responseBody);
+            boolean isDrowsy = responseJson.optBoolean("is_drowsy", false);
+            float confidence = (float) responseJson.optDouble("confidence", 0.0);
+            long captureTsPiMs = responseJson.optLong("capture_ts_ms", 0);
+            return new QueryResult(isDrowsy, confidence, captureTsPiMs);
+        } finally {
+            connection.disconnect();
+        }
+    }
+    
+    private void deliverQueryResult(QueryResult result, long requestTimeMs, DetectionCallback callback) {
+        // Create minimal detection list
+        List<Detection> detections = new ArrayList<>();
+        if (result.isDrowsy) {
+            // Create a default detection (no bounding box since Pi processes it)
+            android.graphics.RectF defaultBox = new android.graphics.RectF(0, 0, 640, 480);
+            detections.add(new Detection(defaultBox, result.confidence, 1, "Drowsy"));
+        }
+        
+        // Call callback
+        callback.onDetectionComplete(detections, result.isDrowsy, result.confidence,
+            buildTiming(result.captureTsPiMs, requestTimeMs));
+    }
+    
+    /**
+     * Optional redundant Pi. When set, queries that outlast the primary's p90 latency are
+     * re-sent to this endpoint; the first answer wins and the other request is disconnected.
+     * Pass null to turn hedging off.
+     */
+    public synchronized void setSecondaryServerUrl(String secondaryUrl) {
+        this.secondaryServerUrl = secondaryUrl != null && !secondaryUrl.trim().isEmpty()
+            && !secondaryUrl.equals(piServerUrl) ? secondaryUrl : null;
+        if (this.secondaryServerUrl != null && hedgeScheduler == null) {
+            hedgeScheduler = Executors.newScheduledThreadPool(2);
+        }
+        Log.d(TAG, "Secondary Pi URL: " + this.secondaryServerUrl);
+    }
+    
+    public String getSecondaryServerUrl() {
+        return secondaryServerUrl;
+    }
+    
+    /**
+     * Fixed wait for the primary before hedging, in ms; 0 (the default) follows the
+     * primary's recent p90 latency.
+     */
+    public void setHedgeDelayMs(long hedgeDelayMs) {
+        this.hedgeDelayMs = Math.max(0, hedgeDelayMs);
+    }
+    
+    /**
+     * Round-trip latency of primary /detect_simple queries, in ms
+     */
+    public LatencyTracker getQueryLatencyTracker() {
+        return queryLatencyTracker;
+    }
+    
+    public long getHedgedQueryCount() {
+        return hedgedQueries.get();
+    }
+    
+    public long getHedgeWinCount() {
+        return hedgeWins.get();
+    }
+    
+    /**
+     * How long to wait for the primary before hedging: the fixed delay if one is set,
+     * else its recent p90, floored so a fast primary doesn't hedge on ordinary jitter.
+     */
+    long currentHedgeDelayMs() {
+        long fixedMs = hedgeDelayMs;
+        if (fixedMs > 0) {
+            return fixedMs;
+        }
+        if (queryLatencyTracker.size() < HEDGE_MIN_SAMPLES) {
+            return HEDGE_DEFAULT_DELAY_MS;
+        }
+        return Math.max(HEDGE_MIN_DELAY_MS, queryLatencyTracker.percentile(90));
+    }
+    
+    /**
+     * Token bucket: every query earns HEDGE_BUDGET_RATIO of a hedge, so hedges stay
+     * near 10% of queries even when the primary is slow for a long time.
+     */
+    private synchronized boolean tryAcquireHedgeToken() {
+        if (hedgeTokens >= 1.0) {
+            hedgeTokens -= 1.0;
+            return true;
+        }
+        return false;
+    }
+    
+    private synchronized void earnHedgeToken() {
+        hedgeTokens = Math.min(HEDGE_BURST, hedgeTokens + HEDGE_BUDGET_RATIO);
+    }
+    
+    /** State shared by the primary and (optional) hedge attempt of one query */
+    private static class HedgedQuery {
+        final AtomicBoolean done = new AtomicBoolean(false);
+        // Guarded by the HedgedQuery's own lock
+        int failures = 0;
+        boolean hedgeStarted = false;
+        final AtomicReference<HttpURLConnection> primaryConnection = new AtomicReference<>();
+        final AtomicReference<HttpURLConnection> hedgeConnection = new AtomicReference<>();
+        volatile ScheduledFuture<?> hedgeTimer;
+        final long requestTimeMs = System.currentTimeMillis();
+        final long startNanos = System.nanoTime();
+    }
+    
+    private void queryHedged(String secondaryUrl, DetectionCallback callback) {
+        earnHedgeToken();
+        HedgedQuery query = new HedgedQuery();
+        
+        executorService.execute(() -> {
+            maybeSyncClock();
+            long primaryStartNanos = System.nanoTime();
+            try {
+                QueryResult result = fetchSimpleResult(piServerUrl, query.primaryConnection);
+                queryLatencyTracker.record((System.nanoTime() - primaryStartNanos) / 1_000_000L);
+                if (query.done.compareAndSet(false, true)) {
+                    cancelHedge(query);
+                    deliverQueryResult(result, query.requestTimeMs, callback);
+                }
+            } catch (Exception e) {
+                if (query.done.get()) {
+                    return;  // Lost to the hedge and was disconnected
+                }
+                // Primary failed outright - hedge now rather than waiting for the timer
+                startHedge(query, secondaryUrl, callback, true);
+                onAttemptFailed(query, e, callback);
+            }
+        });
+        
+        ScheduledExecutorService scheduler = hedgeScheduler;
+        if (scheduler != null && !scheduler.isShutdown()) {
+            try {
+                query.hedgeTimer = scheduler.schedule(
+                    () -> startHedge(query, secondaryUrl, callback, false),
+                    currentHedgeDelayMs(), TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                Log.w(TAG, "Unable to schedule hedge: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Send the hedge request if this query still needs one and the budget allows.
+     * Returns false if no hedge was started.
+     */
+    private boolean startHedge(HedgedQuery query, String secondaryUrl, DetectionCallback callback, boolean primaryFailed) {
+        Runnable attempt = () -> {
+            try {
+                QueryResult result = fetchSimpleResult(secondaryUrl, query.hedgeConnection);
+                if (query.done.compareAndSet(false, true)) {
+                    hedgeWins.incrementAndGet();
+                    // The primary took at least this long; record it so p90 doesn't drift low
+                    queryLatencyTracker.record((System.nanoTime() - query.startNanos) / 1_000_000L);
+                    disconnectQuietly(query.primaryConnection.get());
+                    // The secondary Pi has its own clock, so time the result from the request
+                    deliverQueryResult(new QueryResult(result.isDrowsy, result.confidence, 0),
+                        query.requestTimeMs, callback);
+                }
+            } catch (Exception e) {
+                if (!query.done.get()) {
+                    onAttemptFailed(query, e, callback);
+                }
+            }
+        };
+        
+        // Decided under the query's lock so onAttemptFailed always sees a settled attempt count
+        synchronized (query) {
+            if (query.done.get() || query.hedgeStarted) {
+                return false;
+            }
+            ScheduledExecutorService scheduler = hedgeScheduler;
+            if (scheduler == null || scheduler.isShutdown() || (!primaryFailed && !tryAcquireHedgeToken())) {
+                return false;
+            }
+            try {
+                scheduler.execute(attempt);
+            } catch (Exception e) {
+                return false;
+            }
+            query.hedgeStarted = true;
+            hedgedQueries.incrementAndGet();
+            return true;
+        }
+    }
+    
+    private void onAttemptFailed(HedgedQuery query, Exception error, DetectionCallback callback) {
+        synchronized (query) {
+            query.failures++;
+            int attempts = query.hedgeStarted ? 2 : 1;
+            if (query.failures < attempts || !query.done.compareAndSet(false, true)) {
+                return;
+            }
+        }
+        cancelHedge(query);
+        Log.e(TAG, "Error querying Pi detection: " + error.getMessage(), error);
+        callback.onError(error);
+    }
+    
+    private void cancelHedge(HedgedQuery query) {
+        ScheduledFuture<?> timer = query.hedgeTimer;
+        if (timer != null) {
+            timer.cancel(false);
+        }
+        disconnectQuietly(query.hedgeConnection.get());
+    }
+    
+    private static void disconnectQuietly(HttpURLConnection connection) {
+        if (connection != null) {
+            try {
+                connection.disconnect();
+            } catch (Exception ignored) {
+            }
+        }
+    }
+    
     /**
      * Check if Pi server is reachable
      */
@@ -374,9 +854,14 @@ public class PiDrowsinessDetector {
     }
     
     public void close() {
-        if (executorService != null && !executorService.isShutdown()) {
+        if (ownsExecutor && executorService != null && !executorService.isShutdown()) {
             executorService.shutdown();
         }
+        synchronized (this) {
+            if (hedgeScheduler != null) {
+                hedgeScheduler.shutdownNow();
+            }
+        }
     }
 }
 
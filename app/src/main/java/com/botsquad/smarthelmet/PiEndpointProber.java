@@ -0,0 +1,226 @@
+package com.botsquad.smarthelmet;
+
+import android.util.Log;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InterfaceAddress;
+import java.net.NetworkInterface;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Probes a list of candidate Pi base URLs in parallel and returns the first one
+ * whose /health endpoint answers like a drowsiness server.
+ * Concurrency is sized so that every candidate of a /24 gets its turn before the
+ * deadline even when most hosts are dead, but bounded so a sweep never opens 254
+ * sockets at once.
+ */
+public class PiEndpointProber {
+    private static final String TAG = "PiEndpointProber";
+    public static final int DEFAULT_PORT = 5000;
+    // A dead host uses up the whole connect timeout: 96 workers get through a /24 of dead
+    // hosts in 3 rounds of 300 ms, inside PiServerDiscovery's 1200 ms deadline
+    static final int DEFAULT_MAX_CONCURRENCY = 96;
+    static final int PROBE_CONNECT_TIMEOUT_MS = 300;
+    private static final int PROBE_READ_TIMEOUT_MS = 500;
+    private static final int MAX_HEALTH_BODY_BYTES = 2048;
+
+    private final int maxConcurrency;
+
+    public PiEndpointProber() {
+        this(DEFAULT_MAX_CONCURRENCY);
+    }
+
+    public PiEndpointProber(int maxConcurrency) {
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+    }
+
+    /**
+     * Probe the candidates (in priority order) and return the first healthy URL,
+     * or null if none answered before the deadline. Blocks the calling thread.
+     */
+    public String findFirstHealthy(List<String> candidates, long deadlineMs) {
+        if (candidates == null || candidates.isEmpty()) {
+            return null;
+        }
+
+        int workers = Math.min(maxConcurrency, candidates.size());
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        AtomicReference<String> winner = new AtomicReference<>();
+        AtomicInteger nextIndex = new AtomicInteger(0);
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicInteger activeWorkers = new AtomicInteger(workers);
+        long start = System.currentTimeMillis();
+
+        // Each worker pulls the next candidate, so earlier (more likely) entries go first
+        for (int w = 0; w < workers; w++) {
+            pool.execute(() -> {
+                try {
+                    while (winner.get() == null && !Thread.currentThread().isInterrupted()) {
+                        int index = nextIndex.getAndIncrement();
+                        if (index >= candidates.size()) {
+                            break;
+                        }
+                        String candidate = candidates.get(index);
+                        if (isHealthy(candidate) && winner.compareAndSet(null, candidate)) {
+                            done.countDown();
+                            break;
+                        }
+                    }
+                } finally {
+                    if (activeWorkers.decrementAndGet() == 0) {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+
+        try {
+            done.await(Math.max(0, deadlineMs), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdownNow();
+        }
+
+        String result = winner.get();
+        int probed = Math.min(nextIndex.get(), candidates.size());
+        Log.d(TAG, "Probed " + probed + "/" + candidates.size() + " candidates with " + workers + " workers in "
+            + (System.currentTimeMillis() - start) + "ms, found: " + result);
+        if (result == null && probed < candidates.size()) {
+            Log.w(TAG, "Deadline reached before " + (candidates.size() - probed) + " candidates were probed, starting with "
+                + candidates.get(probed));
+        }
+        return result;
+    }
+
+    /**
+     * Check a single base URL. Only a 200 response that looks like our /health
+     * payload counts, so unrelated services on port 5000 are ignored.
+     */
+    public boolean isHealthy(String baseUrl) {
+        HttpURLConnection connection = null;
+        try {
+            URL url = new URL(baseUrl + "/health");
+            connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod("GET");
+            connection.setConnectTimeout(PROBE_CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(PROBE_READ_TIMEOUT_MS);
+            connection.setUseCaches(false);
+
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                return false;
+            }
+
+            byte[] body = new byte[MAX_HEALTH_BODY_BYTES];
+            int total = 0;
+            try (InputStream in = connection.getInputStream()) {
+                int read;
+                while (total < body.length && (read = in.read(body, total, body.length - total)) > 0) {
+                    total += read;
+                }
+            }
+            String response = new String(body, 0, total, StandardCharsets.UTF_8);
+            return response.contains("\"status\"") && response.contains("ok");
+        } catch (Exception e) {
+            return false;
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    /**
+     * Build probe URLs for every host on the /24 around the given address,
+     * nearest neighbours first, excluding the address itself.
+     */
+    public static List<String> subnetCandidates(InetAddress localAddress, int port) {
+        List<String> candidates = new ArrayList<>();
+        if (!(localAddress instanceof Inet4Address)) {
+            return candidates;
+        }
+
+        byte[] octets = localAddress.getAddress();
+        int own = octets[3] & 0xFF;
+        String prefix = (octets[0] & 0xFF) + "." + (octets[1] & 0xFF) + "." + (octets[2] & 0xFF) + ".";
+
+        // Walk outwards from our own address; DHCP pools hand out nearby addresses
+        for (int distance = 1; distance < 255; distance++) {
+            int below = own - distance;
+            int above = own + distance;
+            if (below >= 1) {
+                candidates.add("http://" + prefix + below + ":" + port);
+            }
+            if (above <= 254) {
+                candidates.add("http://" + prefix + above + ":" + port);
+            }
+            if (below < 1 && above > 254) {
+                break;
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Site-local IPv4 addresses of all interfaces that are up (Wi-Fi client and hotspot).
+     */
+    public static List<InetAddress> localSiteAddresses() {
+        List<InetAddress> addresses = new ArrayList<>();
+        try {
+            Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
+            if (interfaces == null) {
+                return addresses;
+            }
+            for (NetworkInterface networkInterface : Collections.list(interfaces)) {
+                if (!networkInterface.isUp() || networkInterface.isLoopback()) {
+                    continue;
+                }
+                for (InterfaceAddress interfaceAddress : networkInterface.getInterfaceAddresses()) {
+                    InetAddress address = interfaceAddress.getAddress();
+                    if (address instanceof Inet4Address && address.isSiteLocalAddress()) {
+                        addresses.add(address);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Unable to enumerate network interfaces: " + e.getMessage());
+        }
+        return addresses;
+    }
+
+    /**
+     * Merge priority URLs with subnet sweeps of every local interface, without duplicates.
+     */
+    public static List<String> buildCandidates(List<String> priorityUrls, List<InetAddress> localAddresses, int port) {
+        Set<String> ordered = new LinkedHashSet<>();
+        if (priorityUrls != null) {
+            for (String url : priorityUrls) {
+                if (url != null && !url.trim().isEmpty()) {
+                    ordered.add(url);
+                }
+            }
+        }
+        if (localAddresses != null) {
+            for (InetAddress address : localAddresses) {
+                ordered.addAll(subnetCandidates(address, port));
+            }
+        }
+        return new ArrayList<>(ordered);
+    }
+}
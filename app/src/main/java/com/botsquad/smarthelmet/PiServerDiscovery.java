@@ -0,0 +1,208 @@
+package com.botsquad.smarthelmet;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.nsd.NsdManager;
+import android.net.nsd.NsdServiceInfo;
+import android.util.Log;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Zero-config discovery of Raspberry Pi drowsiness servers on the local network.
+ * Runs an mDNS/NSD browse for the Pi's advertised service and, in parallel,
+ * a bounded /health sweep of the Wi-Fi or hotspot subnet. The first responder wins
+ * and is cached as the last known good endpoint for the next cold start.
+ */
+public class PiServerDiscovery {
+    private static final String TAG = "PiServerDiscovery";
+    public static final String SERVICE_TYPE = "_smarthelmet._tcp.";
+    public static final String PREF_LAST_GOOD_PI_URL = "pi_last_good_url";
+    private static final long DEFAULT_DEADLINE_MS = 1200;
+
+    private final Context context;
+    private final SharedPreferences preferences;
+    private final PiEndpointProber prober;
+    private final ExecutorService executor;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    public interface DiscoveryCallback {
+        void onPiFound(String url, String source);
+        void onDiscoveryFailed();
+    }
+
+    public PiServerDiscovery(Context context, SharedPreferences preferences) {
+        this.context = context.getApplicationContext();
+        this.preferences = preferences;
+        this.prober = new PiEndpointProber();
+        this.executor = Executors.newFixedThreadPool(3);
+    }
+
+    /**
+     * Last endpoint that answered a health check, or null if none was recorded yet.
+     */
+    public String getLastKnownGoodUrl() {
+        return preferences != null ? preferences.getString(PREF_LAST_GOOD_PI_URL, null) : null;
+    }
+
+    public void rememberGoodUrl(String url) {
+        if (preferences != null && url != null && !url.equals(getLastKnownGoodUrl())) {
+            preferences.edit().putString(PREF_LAST_GOOD_PI_URL, url).apply();
+        }
+    }
+
+    /**
+     * Discover a Pi, trying the given URLs first (configured and cached ones).
+     * The callback is invoked once, from a background thread.
+     */
+    public void discoverAsync(List<String> preferredUrls, DiscoveryCallback callback) {
+        if (!running.compareAndSet(false, true)) {
+            Log.d(TAG, "Discovery already running");
+            return;
+        }
+
+        executor.execute(() -> {
+            long start = System.currentTimeMillis();
+            AtomicReference<String> found = new AtomicReference<>();
+            AtomicReference<String> foundSource = new AtomicReference<>();
+            CountDownLatch finished = new CountDownLatch(1);
+
+            NsdManager.DiscoveryListener nsdListener = startNsdBrowse(found, foundSource, finished);
+
+            executor.execute(() -> {
+                List<String> priority = new ArrayList<>();
+                String lastGood = getLastKnownGoodUrl();
+                if (lastGood != null) {
+                    priority.add(lastGood);
+                }
+                if (preferredUrls != null) {
+                    priority.addAll(preferredUrls);
+                }
+                List<InetAddress> localAddresses = PiEndpointProber.localSiteAddresses();
+                List<String> candidates = PiEndpointProber.buildCandidates(priority, localAddresses, PiEndpointProber.DEFAULT_PORT);
+                String url = prober.findFirstHealthy(candidates, DEFAULT_DEADLINE_MS);
+                if (url != null && found.compareAndSet(null, url)) {
+                    foundSource.set("subnet scan");
+                    finished.countDown();
+                }
+            });
+
+            try {
+                finished.await(DEFAULT_DEADLINE_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            stopNsdBrowse(nsdListener);
+            running.set(false);
+
+            String url = found.get();
+            long elapsed = System.currentTimeMillis() - start;
+            if (url != null) {
+                Log.i(TAG, "Discovered Pi at " + url + " via " + foundSource.get() + " in " + elapsed + "ms");
+                rememberGoodUrl(url);
+                callback.onPiFound(url, foundSource.get());
+            } else {
+                Log.w(TAG, "No Pi found after " + elapsed + "ms");
+                callback.onDiscoveryFailed();
+            }
+        });
+    }
+
+    private NsdManager.DiscoveryListener startNsdBrowse(AtomicReference<String> found,
+                                                       AtomicReference<String> foundSource,
+                                                       CountDownLatch finished) {
+        NsdManager nsdManager = (NsdManager) context.getSystemService(Context.NSD_SERVICE);
+        if (nsdManager == null) {
+            return null;
+        }
+
+        NsdManager.DiscoveryListener listener = new NsdManager.DiscoveryListener() {
+            @Override
+            public void onDiscoveryStarted(String serviceType) {
+                Log.d(TAG, "NSD discovery started for " + serviceType);
+            }
+
+            @Override
+            public void onServiceFound(NsdServiceInfo serviceInfo) {
+                if (found.get() != null) {
+                    return;
+                }
+                nsdManager.resolveService(serviceInfo, new NsdManager.ResolveListener() {
+                    @Override
+                    public void onResolveFailed(NsdServiceInfo info, int errorCode) {
+                        Log.w(TAG, "NSD resolve failed for " + info.getServiceName() + ": " + errorCode);
+                    }
+
+                    @Override
+                    public void onServiceResolved(NsdServiceInfo info) {
+                        if (info.getHost() == null) {
+                            return;
+                        }
+                        String url = "http://" + info.getHost().getHostAddress() + ":" + info.getPort();
+                        // Resolve callbacks run on the NSD thread; verify off it
+                        executor.execute(() -> {
+                            if (prober.isHealthy(url) && found.compareAndSet(null, url)) {
+                                foundSource.set("mDNS");
+                                finished.countDown();
+                            }
+                        });
+                    }
+                });
+            }
+
+            @Override
+            public void onServiceLost(NsdServiceInfo serviceInfo) {
+            }
+
+            @Override
+            public void onDiscoveryStopped(String serviceType) {
+                Log.d(TAG, "NSD discovery stopped");
+            }
+
+            @Override
+            public void onStartDiscoveryFailed(String serviceType, int errorCode) {
+                Log.w(TAG, "NSD discovery failed to start: " + errorCode);
+            }
+
+            @Override
+            public void onStopDiscoveryFailed(String serviceType, int errorCode) {
+                Log.w(TAG, "NSD discovery failed to stop: " + errorCode);
+            }
+        };
+
+        try {
+            nsdManager.discoverServices(SERVICE_TYPE, NsdManager.PROTOCOL_DNS_SD, listener);
+            return listener;
+        } catch (Exception e) {
+            Log.w(TAG, "Unable to start NSD discovery: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void stopNsdBrowse(NsdManager.DiscoveryListener listener) {
+        if (listener == null) {
+            return;
+        }
+        NsdManager nsdManager = (NsdManager) context.getSystemService(Context.NSD_SERVICE);
+        try {
+            if (nsdManager != null) {
+                nsdManager.stopServiceDiscovery(listener);
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Error stopping NSD discovery: " + e.getMessage());
+        }
+    }
+
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,310 @@
+package com.botsquad.smarthelmet;
+
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Long-lived reader for the Pi's MJPEG /stream. One thread connects, hands every frame to
+ * the {@link Listener} and, when the stream drops, reconnects after an exponential backoff
+ * with jitter ({@link ReconnectBackoff}). {@link #retryNow()} cuts a pending wait short;
+ * {@link #onNetworkChanged()} also drops a connection left on the old network. The
+ * demuxer and its grown buffer are kept across reconnects. Time spent without a
+ * connection delivering frames is counted as stall time.
+ *
+ * There is never more than one stream thread: {@link #stop()} does not wait for it, and a
+ * {@link #start(String)} while it is still winding down (e.g. blocked in a connect, which
+ * disconnect() can't cancel) hands the stream back to that thread.
+ */
+public class PiStreamWorker {
+    private static final String TAG = "PiStreamWorker";
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    private static final int READ_TIMEOUT_MS = 10000;
+    public static final long INITIAL_RETRY_DELAY_MS = 250;
+    public static final long MAX_RETRY_DELAY_MS = 10000;
+    // A connection must deliver frames this long before the backoff starts over
+    private static final long STABLE_CONNECTION_MS = 2000;
+
+    public interface Listener {
+        void onConnected(String url);
+
+        /**
+         * A frame in buffer[offset, offset + length), valid only during the call (stream thread).
+         * Return false to drop the connection and reconnect, e.g. when frames keep failing to decode.
+         */
+        boolean onFrame(byte[] buffer, int offset, int length);
+
+        void onDisconnected(String reason, long retryDelayMs);
+    }
+
+    private final Listener listener;
+    private final ReconnectBackoff backoff;
+    private final Object lock = new Object();
+
+    private Thread thread;  // guarded by this; set until the stream thread exits
+    private volatile boolean running = false;
+    private volatile String url;
+    private volatile HttpURLConnection activeConnection;
+    private boolean retryRequested = false;  // guarded by lock
+
+    private volatile int bufferCapacity = 0;
+
+    private final Object statsLock = new Object();
+    private long connections = 0;
+    private long framesReceived = 0;
+    private long totalStallNs = 0;
+    private long stallStartNs = -1;
+
+    public PiStreamWorker(Listener listener) {
+        this(listener, new ReconnectBackoff(INITIAL_RETRY_DELAY_MS, MAX_RETRY_DELAY_MS));
+    }
+
+    public PiStreamWorker(Listener listener, ReconnectBackoff backoff) {
+        this.listener = listener;
+        this.backoff = backoff;
+    }
+
+    /**
+     * Start streaming from baseUrl. If already running, switches to the new URL.
+     */
+    public synchronized void start(String baseUrl) {
+        if (running && baseUrl.equals(url)) {
+            return;
+        }
+        if (!running) {
+            synchronized (statsLock) {
+                stallStartNs = System.nanoTime();
+            }
+        }
+        boolean urlChanged = !baseUrl.equals(url);
+        url = baseUrl;
+        running = true;
+        if (thread != null) {
+            // Still running, or stopped but not yet out of a blocking call: keep that thread
+            backoff.reset();
+            if (urlChanged) {
+                disconnectActive();
+            }
+            retryNow();
+            return;
+        }
+        thread = new Thread(this::run, "PiStream");
+        thread.start();
+    }
+
+    /**
+     * Stop streaming. Doesn't wait for the stream thread, which exits once its current
+     * blocking call returns; no frames are delivered after that call.
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        retryNow();
+        disconnectActive();
+        if (thread != null) {
+            thread.interrupt();
+        }
+        synchronized (statsLock) {
+            endStall();
+        }
+    }
+
+    /**
+     * Skip the remaining backoff and reconnect now (no effect while connected).
+     */
+    public void retryNow() {
+        synchronized (lock) {
+            retryRequested = true;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * The network changed: drop the current connection, which could otherwise sit in a read
+     * on the old network until the read timeout, and reconnect without waiting out the backoff.
+     */
+    public void onNetworkChanged() {
+        disconnectActive();
+        retryNow();
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Capacity of the reused demuxer buffer, 0 before the first connection.
+     */
+    public int getBufferCapacity() {
+        return bufferCapacity;
+    }
+
+    public long getConnections() {
+        synchronized (statsLock) {
+            return connections;
+        }
+    }
+
+    public long getFramesReceived() {
+        synchronized (statsLock) {
+            return framesReceived;
+        }
+    }
+
+    /**
+     * Total time without a stream delivering frames, including an ongoing outage.
+     */
+    public long getTotalStallMs() {
+        synchronized (statsLock) {
+            long stall = totalStallNs;
+            if (stallStartNs >= 0) {
+                stall += System.nanoTime() - stallStartNs;
+            }
+            return stall / 1_000_000;
+        }
+    }
+
+    private void run() {
+        Log.d(TAG, "Stream worker started for " + url);
+        // Stream thread only, reused across connections
+        MjpegDemuxer demuxer = new MjpegDemuxer(new ByteArrayInputStream(new byte[0]), null);
+        while (keepRunning()) {
+            String reason = streamOnce(url, demuxer);
+            if (!running) {
+                continue;
+            }
+            long delayMs = backoff.nextDelayMs();
+            Log.w(TAG, "Stream lost (" + reason + "), retrying in " + delayMs + " ms");
+            listener.onDisconnected(reason, delayMs);
+            waitForRetry(delayMs);
+        }
+        Log.d(TAG, "Stream worker stopped");
+    }
+
+    /**
+     * Whether the stream thread should go on; once it says no, a later start() creates a new
+     * thread.
+     */
+    private synchronized boolean keepRunning() {
+        if (!running) {
+            thread = null;
+            return false;
+        }
+        // A stop() that was undone by start() may have left the interrupt flag set
+        Thread.interrupted();
+        return true;
+    }
+
+    /**
+     * One connection's lifetime; returns why it ended.
+     */
+    private String streamOnce(String baseUrl, MjpegDemuxer demuxer) {
+        HttpURLConnection connection = null;
+        synchronized (lock) {
+            retryRequested = false;
+        }
+        try {
+            connection = (HttpURLConnection) new URL(baseUrl + "/stream").openConnection();
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            activeConnection = connection;
+            int responseCode = connection.getResponseCode();
+            // The connect may have outlasted a stop() or a URL change
+            if (!running) {
+                return "stopped";
+            }
+            if (!baseUrl.equals(url)) {
+                return "URL changed";
+            }
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                return "HTTP " + responseCode;
+            }
+
+            InputStream in = connection.getInputStream();
+            String boundary = MjpegDemuxer.boundaryFromContentType(connection.getContentType());
+            demuxer.reset(in, boundary);
+            synchronized (statsLock) {
+                connections++;
+            }
+            listener.onConnected(baseUrl);
+
+            long connectedNs = System.nanoTime();
+            boolean receiving = false;
+            boolean stable = false;
+            while (running && demuxer.nextFrame()) {
+                if (!running) {
+                    // stop() came while waiting for this frame
+                    break;
+                }
+                bufferCapacity = demuxer.getCapacity();
+                synchronized (statsLock) {
+                    framesReceived++;
+                    if (!receiving) {
+                        endStall();
+                    }
+                }
+                receiving = true;
+                if (!stable && System.nanoTime() - connectedNs >= STABLE_CONNECTION_MS * 1_000_000L) {
+                    stable = true;
+                    backoff.reset();
+                }
+                if (!listener.onFrame(demuxer.getBuffer(), demuxer.getFrameOffset(), demuxer.getFrameLength())) {
+                    return "dropped by listener";
+                }
+            }
+            return "stream ended";
+        } catch (IOException e) {
+            return e.getClass().getSimpleName() + ": " + e.getMessage();
+        } finally {
+            activeConnection = null;
+            if (connection != null) {
+                connection.disconnect();
+            }
+            synchronized (statsLock) {
+                if (running && stallStartNs < 0) {
+                    stallStartNs = System.nanoTime();
+                }
+            }
+        }
+    }
+
+    private void waitForRetry(long delayMs) {
+        long deadline = System.currentTimeMillis() + delayMs;
+        synchronized (lock) {
+            long remaining = delayMs;
+            while (running && !retryRequested && remaining > 0) {
+                try {
+                    lock.wait(remaining);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                remaining = deadline - System.currentTimeMillis();
+            }
+            retryRequested = false;
+        }
+    }
+
+    private void endStall() {
+        if (stallStartNs >= 0) {
+            totalStallNs += System.nanoTime() - stallStartNs;
+            stallStartNs = -1;
+        }
+    }
+
+    private void disconnectActive() {
+        HttpURLConnection connection = activeConnection;
+        if (connection != null) {
+            connection.disconnect();
+        }
+    }
+}
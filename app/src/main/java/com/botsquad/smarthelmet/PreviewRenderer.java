@@ -0,0 +1,338 @@
+package com.botsquad.smarthelmet;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.RectF;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.SurfaceHolder;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Draws the preview SurfaceView on its own thread, paced by that thread's Choreographer.
+ *
+ * Producers never touch the SurfaceHolder: they drop the newest frame into an atomic
+ * slot ({@link #submitFrame}) or replace the overlay / full-surface screen, and the render
+ * thread draws frame and overlay together in one lockCanvas pass on the next vsync. A frame
+ * replaced before it was drawn is skipped. Frames are handed back through {@link FrameListener}
+ * so their bitmaps can be reused.
+ *
+ * Two canvas backends can be switched at runtime: {@code lockCanvas()} (software) and
+ * {@code lockHardwareCanvas()} (API 26+, scaling done by the GPU). If the hardware canvas
+ * fails once, the renderer falls back to software for the rest of its life. Lock-to-post
+ * time of every pass is recorded per backend in microseconds.
+ */
+public class PreviewRenderer {
+    private static final String TAG = "PreviewRenderer";
+
+    /** Draws on top of the frame (or the whole surface for screens) inside the render pass */
+    public interface Overlay {
+        void draw(Canvas canvas, RectF frameRect);
+    }
+
+    public enum Backend {
+        SOFTWARE,
+        HARDWARE
+    }
+
+    private static final int RENDER_TIME_WINDOW = 120;
+
+    public interface FrameListener {
+        /** The frame was drawn or skipped; called once per submitted frame */
+        void onFrameConsumed(Bitmap frame);
+
+        /** The renderer keeps no reference to the frame any more */
+        void onFrameReleased(Bitmap frame);
+    }
+
+    private final SurfaceHolder holder;
+    private final FrameListener frameListener;
+    private final AtomicReference<Bitmap> pendingFrame = new AtomicReference<>();
+    private final AtomicReference<Overlay> overlay = new AtomicReference<>();
+    private final AtomicReference<Overlay> screen = new AtomicReference<>();
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+    private final Object surfaceLock = new Object();
+    private boolean surfaceReady = false;  // guarded by surfaceLock
+    private volatile Backend requestedBackend = Backend.SOFTWARE;
+    private volatile boolean hardwareFailed = false;
+    private final LatencyTracker softwareRenderMicros = new LatencyTracker(RENDER_TIME_WINDOW);
+    private final LatencyTracker hardwareRenderMicros = new LatencyTracker(RENDER_TIME_WINDOW);
+
+    private HandlerThread thread;
+    private Handler handler;
+    private Choreographer choreographer;
+
+    // Render thread only
+    private Bitmap currentFrame;
+    private final RectF frameRect = new RectF();
+    private final float[] frameBounds = new float[4];
+    private volatile long framesDrawn = 0;
+
+    private final Choreographer.FrameCallback frameCallback = this::renderFrame;
+    private final Runnable scheduleRunnable = () -> {
+        if (choreographer != null) {
+            choreographer.postFrameCallback(frameCallback);
+        }
+    };
+
+    public PreviewRenderer(SurfaceHolder holder, FrameListener frameListener) {
+        this.holder = holder;
+        this.frameListener = frameListener;
+    }
+
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        thread = new HandlerThread("PreviewRender", android.os.Process.THREAD_PRIORITY_DISPLAY);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        // Choreographer.getInstance() is per-thread and must be fetched on the render looper
+        handler.post(() -> {
+            choreographer = Choreographer.getInstance();
+            if (dirty.get()) {
+                choreographer.postFrameCallback(frameCallback);
+            }
+        });
+    }
+
+    /**
+     * Stop the render thread and release any frames it still holds.
+     */
+    public synchronized void quit() {
+        if (thread == null) {
+            return;
+        }
+        setSurfaceReady(false);
+        Handler h = handler;
+        h.post(() -> {
+            if (choreographer != null) {
+                choreographer.removeFrameCallback(frameCallback);
+            }
+            releaseFrames();
+        });
+        thread.quitSafely();
+        thread = null;
+        handler = null;
+    }
+
+    /**
+     * Surface availability. Clearing it waits for an in-progress draw to finish, so no
+     * canvas is locked once surfaceDestroyed returns.
+     */
+    public void setSurfaceReady(boolean ready) {
+        synchronized (surfaceLock) {
+            surfaceReady = ready;
+        }
+        if (ready) {
+            invalidate();
+        }
+    }
+
+    /**
+     * Show a video frame, replacing any screen. A frame still waiting from an earlier call is skipped.
+     */
+    public void submitFrame(Bitmap frame) {
+        screen.set(null);
+        Bitmap skipped = pendingFrame.getAndSet(frame);
+        if (skipped != null) {
+            frameListener.onFrameConsumed(skipped);
+            frameListener.onFrameReleased(skipped);
+        }
+        invalidate();
+    }
+
+    /**
+     * Overlay drawn over every frame (null to remove).
+     */
+    public void setOverlay(Overlay newOverlay) {
+        overlay.set(newOverlay);
+        invalidate();
+    }
+
+    /**
+     * Replace the video with a full-surface screen (status, errors) until the next frame.
+     */
+    public void showScreen(Overlay newScreen) {
+        screen.set(newScreen);
+        Bitmap skipped = pendingFrame.getAndSet(null);
+        if (skipped != null) {
+            frameListener.onFrameConsumed(skipped);
+            frameListener.onFrameReleased(skipped);
+        }
+        invalidate();
+    }
+
+    /**
+     * Redraw on the next vsync (e.g. after a surface size change).
+     */
+    public void invalidate() {
+        Handler h = handler;
+        if (dirty.compareAndSet(false, true) && h != null) {
+            h.post(scheduleRunnable);
+        }
+    }
+
+    /**
+     * Backend to use from the next pass on; HARDWARE falls back to SOFTWARE where unavailable.
+     */
+    public void setBackend(Backend backend) {
+        requestedBackend = backend != null ? backend : Backend.SOFTWARE;
+        invalidate();
+    }
+
+    public Backend getActiveBackend() {
+        return resolveBackend(requestedBackend, hardwareFailed, Build.VERSION.SDK_INT);
+    }
+
+    /**
+     * Lock-to-post time of recent passes on the given backend, in microseconds.
+     */
+    public LatencyTracker getRenderTimeMicros(Backend backend) {
+        return backend == Backend.HARDWARE ? hardwareRenderMicros : softwareRenderMicros;
+    }
+
+    public long getFramesDrawn() {
+        return framesDrawn;
+    }
+
+    static Backend resolveBackend(Backend requested, boolean hardwareFailed, int sdkInt) {
+        if (requested == Backend.HARDWARE && !hardwareFailed && sdkInt >= Build.VERSION_CODES.O) {
+            return Backend.HARDWARE;
+        }
+        return Backend.SOFTWARE;
+    }
+
+    private void renderFrame(long frameTimeNanos) {
+        dirty.set(false);
+
+        Bitmap newFrame = pendingFrame.getAndSet(null);
+        if (newFrame != null) {
+            if (currentFrame != null) {
+                frameListener.onFrameReleased(currentFrame);
+            }
+            currentFrame = newFrame;
+        }
+        Overlay activeScreen = screen.get();
+        if (activeScreen != null && currentFrame != null && newFrame == null) {
+            frameListener.onFrameReleased(currentFrame);
+            currentFrame = null;
+        }
+
+        synchronized (surfaceLock) {
+            if (surfaceReady) {
+                drawPass(activeScreen);
+            }
+        }
+
+        if (newFrame != null) {
+            frameListener.onFrameConsumed(newFrame);
+        }
+    }
+
+    private void drawPass(Overlay activeScreen) {
+        Backend backend = getActiveBackend();
+        long startNs = System.nanoTime();
+        Canvas canvas = null;
+        boolean drawn = false;
+        try {
+            canvas = lockCanvas(backend);
+            if (canvas != null) {
+                // The hardware lock may have fallen back to software
+                backend = canvas.isHardwareAccelerated() ? Backend.HARDWARE : Backend.SOFTWARE;
+                draw(canvas, activeScreen);
+                drawn = true;
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Render failed on " + backend + ": " + e.getMessage());
+            if (backend == Backend.HARDWARE) {
+                disableHardware(e);
+            }
+        } finally {
+            if (canvas != null) {
+                holder.unlockCanvasAndPost(canvas);
+            }
+        }
+        if (drawn) {
+            framesDrawn++;
+            getRenderTimeMicros(backend).record((System.nanoTime() - startNs) / 1000);
+        } else if (backend == Backend.HARDWARE && hardwareFailed) {
+            // Redraw this pass in software
+            invalidate();
+        }
+    }
+
+    private Canvas lockCanvas(Backend backend) {
+        if (backend == Backend.HARDWARE && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            try {
+                return holder.lockHardwareCanvas();
+            } catch (IllegalStateException | IllegalArgumentException | UnsupportedOperationException e) {
+                disableHardware(e);
+            }
+        }
+        return holder.lockCanvas();
+    }
+
+    private void disableHardware(Exception cause) {
+        if (!hardwareFailed) {
+            hardwareFailed = true;
+            Log.w(TAG, "Hardware canvas unavailable, falling back to software: " + cause.getMessage());
+        }
+    }
+
+    private void draw(Canvas canvas, Overlay activeScreen) {
+        int width = canvas.getWidth();
+        int height = canvas.getHeight();
+        if (activeScreen != null || currentFrame == null) {
+            canvas.drawColor(Color.rgb(20, 20, 20));
+            frameRect.set(0, 0, width, height);
+            if (activeScreen != null) {
+                activeScreen.draw(canvas, frameRect);
+            }
+            return;
+        }
+
+        canvas.drawColor(Color.BLACK);
+        fitCenter(currentFrame.getWidth(), currentFrame.getHeight(), width, height, frameBounds);
+        frameRect.set(frameBounds[0], frameBounds[1], frameBounds[2], frameBounds[3]);
+        canvas.drawBitmap(currentFrame, null, frameRect, null);
+        Overlay activeOverlay = overlay.get();
+        if (activeOverlay != null) {
+            activeOverlay.draw(canvas, frameRect);
+        }
+    }
+
+    private void releaseFrames() {
+        Bitmap pending = pendingFrame.getAndSet(null);
+        if (pending != null) {
+            frameListener.onFrameConsumed(pending);
+            frameListener.onFrameReleased(pending);
+        }
+        if (currentFrame != null) {
+            frameListener.onFrameReleased(currentFrame);
+            currentFrame = null;
+        }
+    }
+
+    /**
+     * Largest rect with the frame's aspect ratio centred in the canvas, as
+     * {left, top, right, bottom} in out.
+     */
+    static void fitCenter(int frameWidth, int frameHeight, int canvasWidth, int canvasHeight, float[] out) {
+        float scale = Math.min((float) canvasWidth / frameWidth, (float) canvasHeight / frameHeight);
+        float drawWidth = frameWidth * scale;
+        float drawHeight = frameHeight * scale;
+        float left = (canvasWidth - drawWidth) / 2f;
+        float top = (canvasHeight - drawHeight) / 2f;
+        out[0] = left;
+        out[1] = top;
+        out[2] = left + drawWidth;
+        out[3] = top + drawHeight;
+    }
+}
@@ -0,0 +1,59 @@
+package com.botsquad.smarthelmet;
+
+import java.util.Random;
+
+/**
+ * Exponential reconnect delays with jitter: attempt n waits between half and all of
+ * min(maxMs, initialMs * 2^n), so several clients that lost the Pi together don't
+ * reconnect in lockstep. Thread-safe.
+ */
+public class ReconnectBackoff {
+    private final long initialMs;
+    private final long maxMs;
+    private final Random random;
+    private int attempt = 0;
+
+    public ReconnectBackoff(long initialMs, long maxMs) {
+        this(initialMs, maxMs, new Random());
+    }
+
+    public ReconnectBackoff(long initialMs, long maxMs, Random random) {
+        this.initialMs = Math.max(1, initialMs);
+        this.maxMs = Math.max(this.initialMs, maxMs);
+        this.random = random;
+    }
+
+    /**
+     * Delay before the next attempt; each call counts as one failed attempt.
+     */
+    public synchronized long nextDelayMs() {
+        long base = ceilingMs(attempt);
+        if (attempt < 30) {
+            attempt++;
+        }
+        long half = base / 2;
+        return base - half + (long) (random.nextDouble() * (half + 1));
+    }
+
+    /**
+     * Upper bound of the delay for a given attempt number.
+     */
+    public long ceilingMs(int attemptNumber) {
+        long base = initialMs;
+        for (int i = 0; i < attemptNumber && base < maxMs; i++) {
+            base *= 2;
+        }
+        return Math.min(maxMs, base);
+    }
+
+    /**
+     * The connection is healthy again: start over from the initial delay.
+     */
+    public synchronized void reset() {
+        attempt = 0;
+    }
+
+    public synchronized int getAttempt() {
+        return attempt;
+    }
+}
@@ -0,0 +1,82 @@
+package com.botsquad.smarthelmet;
+
+/**
+ * Drops camera frames that are already too old to analyse, before any conversion work,
+ * judged by their SENSOR_TIMESTAMP (start of exposure) rather than when they reached us.
+ *
+ * A frame is stale when it is more than maxAge older than the newest exposure the camera
+ * has reported starting ({@link #onExposureStarted}), or, when the sensor timestamps share
+ * the elapsedRealtime clock, more than maxAge older than now. Frames not newer than the
+ * last admitted one (duplicates, reordering) are dropped too. Thread-safe.
+ */
+public class SensorFrameGate {
+    /** Pass as nowNs when sensor timestamps are not on a clock we can read */
+    public static final long NO_CLOCK = Long.MIN_VALUE;
+
+    public enum Decision {
+        ADMIT,
+        DROP_STALE,
+        DROP_OUT_OF_ORDER
+    }
+
+    private final long maxAgeNs;
+    private long newestExposureNs = Long.MIN_VALUE;
+    private long lastAdmittedNs = Long.MIN_VALUE;
+
+    private long admitted = 0;
+    private long droppedStale = 0;
+    private long droppedOutOfOrder = 0;
+
+    public SensorFrameGate(long maxAgeNs) {
+        this.maxAgeNs = Math.max(0, maxAgeNs);
+    }
+
+    /**
+     * The camera started exposing a frame (CaptureCallback.onCaptureStarted).
+     */
+    public synchronized void onExposureStarted(long sensorTimestampNs) {
+        if (sensorTimestampNs > newestExposureNs) {
+            newestExposureNs = sensorTimestampNs;
+        }
+    }
+
+    /**
+     * Whether to analyse a frame with this sensor timestamp. nowNs is the current time on the
+     * sensor's clock, or {@link #NO_CLOCK}.
+     */
+    public synchronized Decision onFrame(long sensorTimestampNs, long nowNs) {
+        if (lastAdmittedNs != Long.MIN_VALUE && sensorTimestampNs <= lastAdmittedNs) {
+            droppedOutOfOrder++;
+            return Decision.DROP_OUT_OF_ORDER;
+        }
+        onExposureStarted(sensorTimestampNs);
+        long reference = newestExposureNs;
+        if (nowNs != NO_CLOCK && nowNs > reference) {
+            reference = nowNs;
+        }
+        if (reference - sensorTimestampNs > maxAgeNs) {
+            droppedStale++;
+            return Decision.DROP_STALE;
+        }
+        lastAdmittedNs = sensorTimestampNs;
+        admitted++;
+        return Decision.ADMIT;
+    }
+
+    public synchronized long getAdmitted() {
+        return admitted;
+    }
+
+    public synchronized long getDroppedStale() {
+        return droppedStale;
+    }
+
+    public synchronized long getDroppedOutOfOrder() {
+        return droppedOutOfOrder;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "admitted=" + admitted + " stale=" + droppedStale + " outOfOrder=" + droppedOutOfOrder;
+    }
+}
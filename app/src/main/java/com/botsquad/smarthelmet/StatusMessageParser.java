@@ -0,0 +1,341 @@
+package com.botsquad.smarthelmet;
+
+/**
+ * Incremental parser for the helmet's newline-delimited JSON status messages, e.g.
+ * {@code {"is_eyes_closed": true, "timestamp": 1718000000000}}.
+ *
+ * Bytes can be fed in any split: a partial message is carried over to the next
+ * {@link #feed} and several messages in one chunk are all reported. Objects are delimited
+ * by brace depth (outside strings), so a missing trailing newline is fine; a newline
+ * inside an unfinished object marks it as truncated and it is dropped. Only the top-level
+ * {@code is_eyes_closed}, {@code is_drowsy} and {@code timestamp} fields are extracted,
+ * in place, without building a JSONObject or Strings. One thread at a time.
+ */
+public class StatusMessageParser {
+    public static final int MAX_MESSAGE_BYTES = 4096;
+    /** Timestamp reported when the message has none */
+    public static final long NO_TIMESTAMP = -1;
+
+    public interface Listener {
+        /** is_eyes_closed if present, else is_drowsy (false if neither) */
+        void onStatus(boolean drowsy, long timestampMs);
+    }
+
+    private static final byte[] KEY_EYES_CLOSED = {'i', 's', '_', 'e', 'y', 'e', 's', '_', 'c', 'l', 'o', 's', 'e', 'd'};
+    private static final byte[] KEY_DROWSY = {'i', 's', '_', 'd', 'r', 'o', 'w', 's', 'y'};
+    private static final byte[] KEY_TIMESTAMP = {'t', 'i', 'm', 'e', 's', 't', 'a', 'm', 'p'};
+
+    private final Listener listener;
+    private final byte[] message = new byte[MAX_MESSAGE_BYTES];
+    private int length = 0;
+    private int depth = 0;
+    private boolean inString = false;
+    private boolean escaped = false;
+    private boolean overflow = false;
+
+    private long messagesParsed = 0;
+    private long messagesDropped = 0;
+
+    // Fields of the message being extracted
+    private int eyesClosed;
+    private int drowsy;
+    private long timestamp;
+    private int position;
+
+    public StatusMessageParser(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void feed(byte[] data, int offset, int count) {
+        int end = offset + count;
+        for (int i = offset; i < end; i++) {
+            byte b = data[i];
+            if (depth == 0) {
+                // Between messages: skip whitespace, newlines and stray bytes until an object starts
+                if (b == '{') {
+                    depth = 1;
+                    length = 0;
+                    overflow = false;
+                    append(b);
+                }
+                continue;
+            }
+
+            if (b == '\n' && !inString) {
+                // NDJSON messages are single lines - this one was cut off
+                messagesDropped++;
+                resetMessage();
+                continue;
+            }
+            append(b);
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (b == '\\') {
+                    escaped = true;
+                } else if (b == '"') {
+                    inString = false;
+                }
+            } else if (b == '"') {
+                inString = true;
+            } else if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                depth--;
+                if (depth == 0) {
+                    completeMessage();
+                }
+            }
+        }
+    }
+
+    private void append(byte b) {
+        if (length < message.length) {
+            message[length++] = b;
+        } else {
+            overflow = true;
+        }
+    }
+
+    private void resetMessage() {
+        depth = 0;
+        length = 0;
+        inString = false;
+        escaped = false;
+        overflow = false;
+    }
+
+    private void completeMessage() {
+        boolean parsed = !overflow && extractFields();
+        int eyes = eyesClosed;
+        int drowsyValue = drowsy;
+        long time = timestamp;
+        resetMessage();
+        if (!parsed) {
+            messagesDropped++;
+            return;
+        }
+        messagesParsed++;
+        boolean isDrowsy = eyes >= 0 ? eyes == 1 : drowsyValue == 1;
+        listener.onStatus(isDrowsy, time);
+    }
+
+    /**
+     * Scan the top-level members of message[0, length). False if it is malformed.
+     */
+    private boolean extractFields() {
+        eyesClosed = -1;
+        drowsy = -1;
+        timestamp = NO_TIMESTAMP;
+        position = 1;  // after '{'
+        while (true) {
+            skipWhitespace();
+            if (position >= length) {
+                return false;
+            }
+            if (message[position] == '}') {
+                return true;
+            }
+            if (message[position] != '"') {
+                return false;
+            }
+            int keyStart = position + 1;
+            if (!skipString()) {
+                return false;
+            }
+            int keyEnd = position - 1;
+            skipWhitespace();
+            if (position >= length || message[position] != ':') {
+                return false;
+            }
+            position++;
+            skipWhitespace();
+            if (position >= length) {
+                return false;
+            }
+
+            if (keyEquals(keyStart, keyEnd, KEY_EYES_CLOSED)) {
+                eyesClosed = parseBoolean();
+                if (eyesClosed < 0) {
+                    return false;
+                }
+            } else if (keyEquals(keyStart, keyEnd, KEY_DROWSY)) {
+                drowsy = parseBoolean();
+                if (drowsy < 0) {
+                    return false;
+                }
+            } else if (keyEquals(keyStart, keyEnd, KEY_TIMESTAMP)) {
+                if (!parseTimestamp()) {
+                    return false;
+                }
+            } else if (!skipValue()) {
+                return false;
+            }
+
+            skipWhitespace();
+            if (position >= length) {
+                return false;
+            }
+            if (message[position] == ',') {
+                position++;
+            } else if (message[position] != '}') {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * true/false, also as a string; 1 for true, 0 for false, -1 if it is neither.
+     */
+    private int parseBoolean() {
+        boolean quoted = message[position] == '"';
+        int start = quoted ? position + 1 : position;
+        int result;
+        if (matches(start, "true")) {
+            result = 1;
+            position = start + 4;
+        } else if (matches(start, "false")) {
+            result = 0;
+            position = start + 5;
+        } else {
+            return -1;
+        }
+        if (quoted) {
+            if (position >= length || message[position] != '"') {
+                return -1;
+            }
+            position++;
+        }
+        return result;
+    }
+
+    /**
+     * Integer milliseconds; a fractional part is truncated, null means no timestamp.
+     */
+    private boolean parseTimestamp() {
+        if (matches(position, "null")) {
+            position += 4;
+            return true;
+        }
+        boolean negative = message[position] == '-';
+        if (negative) {
+            position++;
+        }
+        int digitsStart = position;
+        long value = 0;
+        while (position < length && message[position] >= '0' && message[position] <= '9') {
+            value = value * 10 + (message[position] - '0');
+            position++;
+        }
+        if (position == digitsStart) {
+            return false;
+        }
+        // Fraction and exponent are not expected for millisecond timestamps
+        while (position < length && (message[position] == '.' || message[position] == 'e' || message[position] == 'E'
+                || message[position] == '+' || message[position] == '-' || (message[position] >= '0' && message[position] <= '9'))) {
+            position++;
+        }
+        timestamp = negative ? -value : value;
+        return true;
+    }
+
+    private boolean skipValue() {
+        byte b = message[position];
+        if (b == '"') {
+            return skipString();
+        }
+        if (b == '{' || b == '[') {
+            // Nested values were already checked for balance by the tokenizer
+            int nested = 0;
+            while (position < length) {
+                byte c = message[position];
+                if (c == '"') {
+                    if (!skipString()) {
+                        return false;
+                    }
+                    continue;
+                }
+                if (c == '{' || c == '[') {
+                    nested++;
+                } else if (c == '}' || c == ']') {
+                    nested--;
+                    if (nested == 0) {
+                        position++;
+                        return true;
+                    }
+                }
+                position++;
+            }
+            return false;
+        }
+        // Number or literal
+        int start = position;
+        while (position < length && message[position] != ',' && message[position] != '}'
+                && message[position] != ' ' && message[position] != '\t' && message[position] != '\r') {
+            position++;
+        }
+        return position > start;
+    }
+
+    /**
+     * Skip a string starting at the opening quote; position ends after the closing quote.
+     */
+    private boolean skipString() {
+        position++;
+        while (position < length) {
+            byte b = message[position++];
+            if (b == '\\') {
+                position++;
+            } else if (b == '"') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void skipWhitespace() {
+        while (position < length && (message[position] == ' ' || message[position] == '\t' || message[position] == '\r')) {
+            position++;
+        }
+    }
+
+    private boolean keyEquals(int start, int end, byte[] key) {
+        if (end - start != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (message[start + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean matches(int start, String literal) {
+        if (start + literal.length() > length) {
+            return false;
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (message[start + i] != literal.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getMessagesParsed() {
+        return messagesParsed;
+    }
+
+    /**
+     * Truncated, oversized or malformed messages that were skipped.
+     */
+    public long getMessagesDropped() {
+        return messagesDropped;
+    }
+
+    @Override
+    public String toString() {
+        return "parsed=" + messagesParsed + " dropped=" + messagesDropped;
+    }
+}
@@ -0,0 +1,277 @@
+package com.botsquad.smarthelmet;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.media.AudioManager;
+import android.media.ToneGenerator;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+import android.widget.Button;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AlertDialog;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.android.material.textfield.TextInputEditText;
+import com.google.android.material.textfield.TextInputLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Supervisor mode: one device watching several helmets at once, each tile backed
+ * by its own {@link HelmetSession}. Session callbacks only mark tiles dirty; the
+ * grid is refreshed on a fixed UI tick so N helmets never flood the main thread.
+ */
+public class SupervisorActivity extends AppCompatActivity {
+    private static final String TAG = "SupervisorActivity";
+    static final String PREF_SUPERVISOR_HELMET_URLS = "supervisor_helmet_urls";
+    private static final long UI_REFRESH_INTERVAL_MS = 250;
+
+    private HelmetSessionManager sessionManager;
+    private HelmetTileAdapter tileAdapter;
+    private TextView summaryText;
+    private SharedPreferences sharedPreferences;
+    private ToneGenerator alarmTone;
+    private final Handler uiHandler = new Handler(Looper.getMainLooper());
+    private final Set<HelmetSession> dirtySessions = ConcurrentHashMap.newKeySet();
+    private boolean alarmSounding = false;
+
+    private final Runnable refreshRunnable = new Runnable() {
+        @Override
+        public void run() {
+            refreshTiles();
+            uiHandler.postDelayed(this, UI_REFRESH_INTERVAL_MS);
+        }
+    };
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_supervisor);
+
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setTitle("Supervisor Mode");
+            getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+        }
+
+        sharedPreferences = getSharedPreferences("SmartHelmetPrefs", Context.MODE_PRIVATE);
+        summaryText = findViewById(R.id.supervisorSummaryText);
+        Button addHelmetButton = findViewById(R.id.addHelmetButton);
+        RecyclerView tileGrid = findViewById(R.id.helmetTileGrid);
+
+        int columns = getResources().getConfiguration().screenWidthDp >= 600 ? 3 : 2;
+        tileGrid.setLayoutManager(new GridLayoutManager(this, columns));
+        tileAdapter = new HelmetTileAdapter(new ArrayList<>());
+        tileAdapter.setOnTileLongClickListener(this::confirmRemoveHelmet);
+        tileGrid.setAdapter(tileAdapter);
+
+        try {
+            alarmTone = new ToneGenerator(AudioManager.STREAM_ALARM, ToneGenerator.MAX_VOLUME);
+        } catch (RuntimeException e) {
+            android.util.Log.w(TAG, "Alarm tone unavailable: " + e.getMessage());
+        }
+
+        sessionManager = new HelmetSessionManager(new HelmetSessionManager.Listener() {
+            @Override
+            public void onSessionUpdated(HelmetSession session) {
+                dirtySessions.add(session);
+            }
+
+            @Override
+            public void onAlarmChanged(HelmetSession session, boolean alarmActive) {
+                dirtySessions.add(session);
+                uiHandler.post(() -> onHelmetAlarmChanged(session, alarmActive));
+            }
+        });
+
+        addHelmetButton.setOnClickListener(v -> showAddHelmetDialog());
+
+        for (String url : loadHelmetUrls()) {
+            addHelmet(url, false);
+        }
+        updateSummary();
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        uiHandler.post(refreshRunnable);
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        uiHandler.removeCallbacks(refreshRunnable);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        uiHandler.removeCallbacksAndMessages(null);
+        if (sessionManager != null) {
+            sessionManager.shutdown();
+        }
+        if (alarmTone != null) {
+            alarmTone.release();
+            alarmTone = null;
+        }
+    }
+
+    @Override
+    public boolean onSupportNavigateUp() {
+        finish();
+        return true;
+    }
+
+    private void refreshTiles() {
+        if (dirtySessions.isEmpty()) {
+            return;
+        }
+        for (HelmetSession session : new ArrayList<>(dirtySessions)) {
+            dirtySessions.remove(session);
+            int index = tileAdapter.indexOf(session);
+            if (index >= 0) {
+                tileAdapter.notifyItemChanged(index);
+            }
+        }
+        updateSummary();
+    }
+
+    private void updateSummary() {
+        List<HelmetSession> sessions = sessionManager.getSessions();
+        if (sessions.isEmpty()) {
+            summaryText.setText("No helmets monitored");
+            return;
+        }
+        int online = 0;
+        int alerts = 0;
+        for (HelmetSession session : sessions) {
+            if (session.getHealth() == HelmetSession.Health.ONLINE) {
+                online++;
+            }
+            if (session.isAlarmActive()) {
+                alerts++;
+            }
+        }
+        summaryText.setText(sessions.size() + " helmets, " + online + " online, " + alerts + " alerting");
+    }
+
+    private void onHelmetAlarmChanged(HelmetSession session, boolean alarmActive) {
+        if (alarmActive) {
+            Toast.makeText(this, session.getLabel() + ": drowsiness detected!", Toast.LENGTH_LONG).show();
+        }
+        boolean anyAlarm = sessionManager.isAnyAlarmActive();
+        if (anyAlarm && !alarmSounding && alarmTone != null) {
+            alarmTone.startTone(ToneGenerator.TONE_CDMA_EMERGENCY_RINGBACK);
+            alarmSounding = true;
+        } else if (!anyAlarm && alarmSounding && alarmTone != null) {
+            alarmTone.stopTone();
+            alarmSounding = false;
+        }
+    }
+
+    private void addHelmet(String url, boolean persist) {
+        String label = "Helmet " + (sessionManager.getSessions().size() + 1);
+        HelmetSession session = sessionManager.addSession(label, url);
+        if (session == null) {
+            Toast.makeText(this, "Helmet already added or limit reached", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        tileAdapter.setSessions(sessionManager.getSessions());
+        if (persist) {
+            saveHelmetUrls();
+        }
+        updateSummary();
+    }
+
+    private void confirmRemoveHelmet(HelmetSession session) {
+        new AlertDialog.Builder(this)
+            .setTitle("Remove " + session.getLabel() + "?")
+            .setMessage(session.getServerUrl())
+            .setPositiveButton("Remove", (d, which) -> {
+                sessionManager.removeSession(session);
+                dirtySessions.remove(session);
+                tileAdapter.setSessions(sessionManager.getSessions());
+                saveHelmetUrls();
+                onHelmetAlarmChanged(session, false);
+                updateSummary();
+            })
+            .setNegativeButton("Cancel", null)
+            .show();
+    }
+
+    private void showAddHelmetDialog() {
+        View dialogView = getLayoutInflater().inflate(R.layout.dialog_pi_server_url, null);
+        TextInputLayout urlLayout = dialogView.findViewById(R.id.piServerUrlLayout);
+        TextInputEditText urlInput = dialogView.findViewById(R.id.piServerUrlInput);
+        View backupUrlLayout = dialogView.findViewById(R.id.piServerBackupUrlLayout);
+        if (backupUrlLayout != null) {
+            backupUrlLayout.setVisibility(View.GONE);
+        }
+
+        AlertDialog dialog = new AlertDialog.Builder(this)
+            .setTitle("Add Helmet")
+            .setView(dialogView)
+            .setPositiveButton("Add", null)
+            .setNegativeButton("Cancel", null)
+            .create();
+
+        dialog.setOnShowListener(d -> {
+            Button positiveButton = dialog.getButton(AlertDialog.BUTTON_POSITIVE);
+            positiveButton.setOnClickListener(v -> {
+                String inputValue = urlInput != null && urlInput.getText() != null ? urlInput.getText().toString().trim() : "";
+                if (inputValue.isEmpty()) {
+                    if (urlLayout != null) {
+                        urlLayout.setError("Please enter a server address");
+                    }
+                    return;
+                }
+                addHelmet(normalizeUrl(inputValue), true);
+                dialog.dismiss();
+            });
+        });
+
+        dialog.show();
+    }
+
+    private static String normalizeUrl(String rawUrl) {
+        String trimmed = rawUrl.trim();
+        if (!trimmed.startsWith("http://") && !trimmed.startsWith("https://")) {
+            trimmed = "http://" + trimmed;
+        }
+        if (trimmed.endsWith("/")) {
+            trimmed = trimmed.substring(0, trimmed.length() - 1);
+        }
+        return trimmed;
+    }
+
+    private List<String> loadHelmetUrls() {
+        List<String> urls = new ArrayList<>();
+        String stored = sharedPreferences.getString(PREF_SUPERVISOR_HELMET_URLS, "");
+        for (String url : stored.split("\n")) {
+            if (!url.trim().isEmpty()) {
+                urls.add(url.trim());
+            }
+        }
+        return urls;
+    }
+
+    private void saveHelmetUrls() {
+        StringBuilder builder = new StringBuilder();
+        for (HelmetSession session : sessionManager.getSessions()) {
+            if (builder.length() > 0) {
+                builder.append('\n');
+            }
+            builder.append(session.getServerUrl());
+        }
+        sharedPreferences.edit().putString(PREF_SUPERVISOR_HELMET_URLS, builder.toString()).apply();
+    }
+}
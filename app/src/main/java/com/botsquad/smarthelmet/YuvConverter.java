@@ -0,0 +1,202 @@
+package com.botsquad.smarthelmet;
+
+import android.media.Image;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts YUV_420_888 camera frames straight from the {@link Image.Plane} buffers into ARGB
+ * pixels or a float RGB model input tensor, with an optional nearest-neighbour resize.
+ * Row and pixel strides are honoured, so planar (I420), semi-planar (NV12/NV21) and padded
+ * layouts all work without first repacking the frame.
+ *
+ * Colours use the full-range BT.601 (JFIF) matrix in 16.16 fixed point:
+ * {@code R = Y + 1.402 V', G = Y - 0.344136 U' - 0.714136 V', B = Y + 1.772 U'} with
+ * {@code U' = U - 128, V' = V - 128}, rounded and clamped to 0-255.
+ *
+ * Only the source rows a destination row samples are copied, into row buffers that are
+ * kept across frames. One thread at a time per instance.
+ */
+public class YuvConverter {
+    private static final int R_V = 91881;   // 1.402
+    private static final int G_U = 22554;   // 0.344136
+    private static final int G_V = 46802;   // 0.714136
+    private static final int B_U = 116130;  // 1.772
+    private static final int ROUND = 1 << 15;
+
+    /**
+     * Plane buffers and layout of one frame. Filled from an {@link Image} or directly (tests,
+     * other sources); reuse one instance across frames.
+     */
+    public static final class Planes {
+        ByteBuffer y;
+        ByteBuffer u;
+        ByteBuffer v;
+        int yRowStride;
+        int yPixelStride;
+        int uvRowStride;
+        int uvPixelStride;
+        int width;
+        int height;
+
+        public Planes set(Image image) {
+            Image.Plane[] planes = image.getPlanes();
+            return set(image.getWidth(), image.getHeight(),
+                planes[0].getBuffer(), planes[0].getRowStride(), planes[0].getPixelStride(),
+                planes[1].getBuffer(), planes[2].getBuffer(), planes[1].getRowStride(), planes[1].getPixelStride());
+        }
+
+        public Planes set(int width, int height, ByteBuffer y, int yRowStride, int yPixelStride,
+                          ByteBuffer u, ByteBuffer v, int uvRowStride, int uvPixelStride) {
+            this.width = width;
+            this.height = height;
+            this.y = y;
+            this.u = u;
+            this.v = v;
+            this.yRowStride = yRowStride;
+            this.yPixelStride = yPixelStride;
+            this.uvRowStride = uvRowStride;
+            this.uvPixelStride = uvPixelStride;
+            return this;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+    }
+
+    private final Planes imagePlanes = new Planes();
+
+    // Reused across frames, grown as needed
+    private byte[] yRow = new byte[0];
+    private byte[] uRow = new byte[0];
+    private byte[] vRow = new byte[0];
+    private int[] argbRow = new int[0];
+    private int[] columnMap = new int[0];
+    private int mappedSourceWidth = -1;
+    private int mappedWidth = -1;
+
+    /**
+     * Full-size ARGB pixels of the image into out (at least width * height).
+     */
+    public void toArgb(Image image, int[] out) {
+        Planes planes = imagePlanes.set(image);
+        toArgb(planes, planes.width, planes.height, out);
+    }
+
+    /**
+     * ARGB pixels of the image resized to dstWidth x dstHeight, into out (row-major, no padding).
+     */
+    public void toArgb(Image image, int dstWidth, int dstHeight, int[] out) {
+        toArgb(imagePlanes.set(image), dstWidth, dstHeight, out);
+    }
+
+    /**
+     * Resized float RGB input (NHWC, 0.0-1.0) written into tensor from its current position;
+     * the position is left unchanged.
+     */
+    public void toFloatTensor(Image image, int dstWidth, int dstHeight, ByteBuffer tensor) {
+        toFloatTensor(imagePlanes.set(image), dstWidth, dstHeight, tensor);
+    }
+
+    public void toArgb(Planes planes, int dstWidth, int dstHeight, int[] out) {
+        checkSize(planes, dstWidth, dstHeight);
+        if (out.length < dstWidth * dstHeight) {
+            throw new IllegalArgumentException("Output holds " + out.length + " pixels, need " + dstWidth * dstHeight);
+        }
+        for (int dy = 0; dy < dstHeight; dy++) {
+            convertRow(planes, dy, dstWidth, dstHeight, out, dy * dstWidth);
+        }
+    }
+
+    public void toFloatTensor(Planes planes, int dstWidth, int dstHeight, ByteBuffer tensor) {
+        checkSize(planes, dstWidth, dstHeight);
+        int base = tensor.position();
+        if (tensor.limit() - base < dstWidth * dstHeight * 3 * 4) {
+            throw new IllegalArgumentException("Tensor has " + (tensor.limit() - base) + " bytes, need " + dstWidth * dstHeight * 12);
+        }
+        if (argbRow.length < dstWidth) {
+            argbRow = new int[dstWidth];
+        }
+        int index = base;
+        for (int dy = 0; dy < dstHeight; dy++) {
+            convertRow(planes, dy, dstWidth, dstHeight, argbRow, 0);
+            for (int dx = 0; dx < dstWidth; dx++) {
+                int argb = argbRow[dx];
+                tensor.putFloat(index, ((argb >> 16) & 0xFF) / 255f);
+                tensor.putFloat(index + 4, ((argb >> 8) & 0xFF) / 255f);
+                tensor.putFloat(index + 8, (argb & 0xFF) / 255f);
+                index += 12;
+            }
+        }
+    }
+
+    private static void checkSize(Planes planes, int dstWidth, int dstHeight) {
+        if (dstWidth <= 0 || dstHeight <= 0 || planes.width <= 0 || planes.height <= 0) {
+            throw new IllegalArgumentException("Bad size " + planes.width + "x" + planes.height + " -> " + dstWidth + "x" + dstHeight);
+        }
+    }
+
+    /**
+     * Destination row dy into out[offset, offset + dstWidth).
+     */
+    private void convertRow(Planes planes, int dy, int dstWidth, int dstHeight, int[] out, int offset) {
+        int sy = (int) ((long) dy * planes.height / dstHeight);
+        int chromaWidth = (planes.width + 1) / 2;
+        yRow = copyRow(planes.y, sy * planes.yRowStride, planes.width, planes.yPixelStride, yRow);
+        uRow = copyRow(planes.u, (sy >> 1) * planes.uvRowStride, chromaWidth, planes.uvPixelStride, uRow);
+        vRow = copyRow(planes.v, (sy >> 1) * planes.uvRowStride, chromaWidth, planes.uvPixelStride, vRow);
+        int[] columns = columnMap(planes.width, dstWidth);
+
+        int yStride = planes.yPixelStride;
+        int uvStride = planes.uvPixelStride;
+        for (int dx = 0; dx < dstWidth; dx++) {
+            int sx = columns[dx];
+            int luma = ((yRow[sx * yStride] & 0xFF) << 16) + ROUND;
+            int cu = (uRow[(sx >> 1) * uvStride] & 0xFF) - 128;
+            int cv = (vRow[(sx >> 1) * uvStride] & 0xFF) - 128;
+            int r = (luma + R_V * cv) >> 16;
+            int g = (luma - G_U * cu - G_V * cv) >> 16;
+            int b = (luma + B_U * cu) >> 16;
+            out[offset + dx] = 0xFF000000 | (clamp(r) << 16) | (clamp(g) << 8) | clamp(b);
+        }
+    }
+
+    /**
+     * Copy one plane row starting at the buffer's current position + rowStart. The last row
+     * of a plane may end right after its last pixel, so only the bytes up to it are read.
+     */
+    private static byte[] copyRow(ByteBuffer plane, int rowStart, int pixels, int pixelStride, byte[] row) {
+        int length = (pixels - 1) * pixelStride + 1;
+        if (row.length < length) {
+            row = new byte[length];
+        }
+        int position = plane.position();
+        plane.position(position + rowStart);
+        plane.get(row, 0, length);
+        plane.position(position);
+        return row;
+    }
+
+    private int[] columnMap(int sourceWidth, int dstWidth) {
+        if (sourceWidth != mappedSourceWidth || dstWidth != mappedWidth) {
+            if (columnMap.length < dstWidth) {
+                columnMap = new int[dstWidth];
+            }
+            for (int dx = 0; dx < dstWidth; dx++) {
+                columnMap[dx] = (int) ((long) dx * sourceWidth / dstWidth);
+            }
+            mappedSourceWidth = sourceWidth;
+            mappedWidth = dstWidth;
+        }
+        return columnMap;
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : (value > 255 ? 255 : value);
+    }
+}
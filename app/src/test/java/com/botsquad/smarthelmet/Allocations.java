@@ -0,0 +1,24 @@
+package com.botsquad.smarthelmet;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Per-thread allocation counter for the zero-allocation checks in the parser tests.
+ */
+final class Allocations {
+
+    private Allocations() {
+    }
+
+    /**
+     * Bytes allocated so far by the calling thread, or 0 if the JVM doesn't report it.
+     */
+    static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
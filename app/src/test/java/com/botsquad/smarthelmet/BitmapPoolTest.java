@@ -0,0 +1,71 @@
+package com.botsquad.smarthelmet;
+
+import android.graphics.Bitmap;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the stream bitmap pool's sample size and config selection
+ */
+public class BitmapPoolTest {
+
+    @Test
+    public void testSampleSizeIsOneWithoutTarget() {
+        assertEquals(1, BitmapPool.calculateInSampleSize(1280, 720, 0, 0));
+        assertEquals(1, BitmapPool.calculateInSampleSize(1280, 720, -1, 300));
+    }
+
+    @Test
+    public void testSampleSizeIsOneWhenFrameIsSmallerThanTarget() {
+        assertEquals(1, BitmapPool.calculateInSampleSize(640, 480, 1080, 810));
+        assertEquals(1, BitmapPool.calculateInSampleSize(640, 480, 640, 480));
+    }
+
+    @Test
+    public void testSampleSizeKeepsEnoughPixelsForPreview() {
+        // 1280x720 into a 320x240 card: fit scale is 0.25 (width-limited)
+        assertEquals(4, BitmapPool.calculateInSampleSize(1280, 720, 320, 240));
+        // 1280x720 into 400x300: 1/3.2, so 2 is the largest power of two that still covers it
+        assertEquals(2, BitmapPool.calculateInSampleSize(1280, 720, 400, 300));
+        // Fit is limited by height here: width may drop below the card width
+        assertEquals(4, BitmapPool.calculateInSampleSize(1920, 1080, 1000, 270));
+    }
+
+    @Test
+    public void testSampledFrameStillCoversFitRect() {
+        int[][] cases = {{1280, 720, 320, 240}, {1920, 1080, 1000, 270}, {640, 480, 200, 500}, {4056, 3040, 360, 640}};
+        for (int[] c : cases) {
+            int sample = BitmapPool.calculateInSampleSize(c[0], c[1], c[2], c[3]);
+            float fit = Math.min((float) c[2] / c[0], (float) c[3] / c[1]);
+            float displayedWidth = c[0] * fit;
+            assertTrue("sample " + sample + " too coarse", BitmapPool.scaledSize(c[0], sample) >= Math.floor(displayedWidth));
+            assertTrue("sample " + sample + " too fine", BitmapPool.scaledSize(c[0], sample * 2) < Math.ceil(displayedWidth));
+        }
+    }
+
+    @Test
+    public void testScaledSizeRoundsUp() {
+        assertEquals(320, BitmapPool.scaledSize(1280, 4));
+        assertEquals(241, BitmapPool.scaledSize(481, 2));
+        assertEquals(7, BitmapPool.scaledSize(7, 1));
+    }
+
+    @Test
+    public void testConfigFollowsPreviewScale() {
+        // Shown at or below decoded size - 565 is enough
+        assertEquals(Bitmap.Config.RGB_565, BitmapPool.chooseConfig(320, 180, 320, 240));
+        assertEquals(Bitmap.Config.RGB_565, BitmapPool.chooseConfig(640, 360, 320, 240));
+        // Enlarged by the preview - keep full colour depth
+        assertEquals(Bitmap.Config.ARGB_8888, BitmapPool.chooseConfig(640, 480, 1080, 810));
+        // Unknown surface size
+        assertEquals(Bitmap.Config.RGB_565, BitmapPool.chooseConfig(640, 480, 0, 0));
+    }
+
+    @Test
+    public void testBytesPerPixel() {
+        assertEquals(2, BitmapPool.bytesPerPixel(Bitmap.Config.RGB_565));
+        assertEquals(4, BitmapPool.bytesPerPixel(Bitmap.Config.ARGB_8888));
+    }
+}
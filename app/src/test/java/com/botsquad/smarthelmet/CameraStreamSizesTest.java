@@ -0,0 +1,43 @@
+package com.botsquad.smarthelmet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for choosing separate preview and analysis camera sizes
+ */
+public class CameraStreamSizesTest {
+
+    private static final int[] YUV_SIZES = {
+        1920, 1080, 1280, 720, 640, 480,
+        352, 288, 320, 240, 176, 144
+    };
+
+    @Test
+    public void testAnalysisSize() {
+        assertEquals("320x240", size(CameraStreamSizes.chooseAnalysisSize(YUV_SIZES, 320, 240, 4f / 3f)));
+        // 4:3 preferred over a smaller size of another aspect
+        assertEquals("640x480", size(CameraStreamSizes.chooseAnalysisSize(YUV_SIZES, 330, 250, 4f / 3f)));
+        // Nothing large enough: the largest
+        assertEquals("1920x1080", size(CameraStreamSizes.chooseAnalysisSize(YUV_SIZES, 4000, 3000, 4f / 3f)));
+    }
+
+    @Test
+    public void testPreviewSize() {
+        assertEquals("640x480", size(CameraStreamSizes.choosePreviewSize(YUV_SIZES, 1920, 1080, 4f / 3f)));
+        assertEquals("1920x1080", size(CameraStreamSizes.choosePreviewSize(YUV_SIZES, 1920, 1080, 16f / 9f)));
+        // Nothing fits: the smallest
+        assertEquals("176x144", size(CameraStreamSizes.choosePreviewSize(YUV_SIZES, 100, 100, 4f / 3f)));
+    }
+
+    @Test
+    public void testNoSizes() {
+        assertEquals(-1, CameraStreamSizes.chooseAnalysisSize(new int[0], 320, 240, 4f / 3f));
+        assertEquals(-1, CameraStreamSizes.choosePreviewSize(new int[0], 1920, 1080, 4f / 3f));
+    }
+
+    private static String size(int index) {
+        return YUV_SIZES[index * 2] + "x" + YUV_SIZES[index * 2 + 1];
+    }
+}
@@ -0,0 +1,81 @@
+package com.botsquad.smarthelmet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for cross-checking Pi verdicts against on-device detection
+ */
+public class DetectionCrossCheckerTest {
+
+    @Test
+    public void testSamplesEveryNthFrame() {
+        DetectionCrossChecker checker = new DetectionCrossChecker(DetectionCrossChecker.Policy.TRUST_PI, 3);
+        int sampled = 0;
+        for (int i = 0; i < 30; i++) {
+            if (checker.shouldSampleFrame()) {
+                sampled++;
+            }
+        }
+        assertEquals(10, sampled);
+
+        checker.setSampleEvery(1);
+        assertTrue(checker.shouldSampleFrame());
+        assertTrue(checker.shouldSampleFrame());
+    }
+
+    @Test
+    public void testPiVerdictStandsWithoutRecentLocalResult() {
+        DetectionCrossChecker checker = new DetectionCrossChecker(DetectionCrossChecker.Policy.TRUST_LOCAL, 1, 1000);
+        assertTrue(checker.resolve(true, 10_000));
+        checker.onLocalResult(false, 5_000);  // too old to pair
+        assertTrue(checker.resolve(true, 10_000));
+        assertEquals(0, checker.getOverrides());
+    }
+
+    @Test
+    public void testPolicies() {
+        assertResolved(DetectionCrossChecker.Policy.TRUST_PI, true, false, true);
+        assertResolved(DetectionCrossChecker.Policy.TRUST_PI, false, true, false);
+        assertResolved(DetectionCrossChecker.Policy.TRUST_LOCAL, true, false, false);
+        assertResolved(DetectionCrossChecker.Policy.TRUST_LOCAL, false, true, true);
+        assertResolved(DetectionCrossChecker.Policy.EITHER_DROWSY, false, true, true);
+        assertResolved(DetectionCrossChecker.Policy.EITHER_DROWSY, false, false, false);
+        assertResolved(DetectionCrossChecker.Policy.BOTH_DROWSY, true, false, false);
+        assertResolved(DetectionCrossChecker.Policy.BOTH_DROWSY, true, true, true);
+    }
+
+    @Test
+    public void testDisagreementRate() {
+        DetectionCrossChecker checker = new DetectionCrossChecker(DetectionCrossChecker.Policy.TRUST_PI, 1, 1000);
+        checker.onLocalResult(true, 0);  // no Pi result yet, not compared
+        assertEquals(0, checker.getComparisons());
+
+        checker.resolve(false, 1000);
+        checker.onLocalResult(false, 1200);
+        checker.onLocalResult(true, 1400);
+        checker.resolve(true, 2000);
+        checker.onLocalResult(true, 2100);
+        checker.onLocalResult(false, 2200);
+        assertEquals(4, checker.getComparisons());
+        assertEquals(2, checker.getDisagreements());
+        assertEquals(0.5, checker.getDisagreementRate(), 1e-9);
+        assertTrue(checker.toString().contains("disagree=50.0%"));
+    }
+
+    @Test
+    public void testOverridesCounted() {
+        DetectionCrossChecker checker = new DetectionCrossChecker(DetectionCrossChecker.Policy.EITHER_DROWSY, 1);
+        checker.onLocalResult(true, 1000);
+        assertTrue(checker.resolve(false, 1100));
+        assertTrue(checker.resolve(true, 1200));
+        assertEquals(1, checker.getOverrides());
+    }
+
+    private static void assertResolved(DetectionCrossChecker.Policy policy, boolean pi, boolean local, boolean expected) {
+        DetectionCrossChecker checker = new DetectionCrossChecker(policy, 1, 1000);
+        checker.onLocalResult(local, 500);
+        assertEquals(policy + " pi=" + pi + " local=" + local, expected, checker.resolve(pi, 1000));
+    }
+}
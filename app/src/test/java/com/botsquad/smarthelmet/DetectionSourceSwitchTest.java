@@ -0,0 +1,82 @@
+package com.botsquad.smarthelmet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for switching detection between the Pi and the phone camera
+ */
+public class DetectionSourceSwitchTest {
+
+    private final List<String> calls = new ArrayList<>();
+    private final DetectionSourceSwitch.Sources sources = new DetectionSourceSwitch.Sources() {
+        @Override
+        public void startPi() {
+            calls.add("startPi");
+        }
+
+        @Override
+        public void stopPi() {
+            calls.add("stopPi");
+        }
+
+        @Override
+        public void startPhoneCamera() {
+            calls.add("startPhoneCamera");
+        }
+
+        @Override
+        public void stopPhoneCamera() {
+            calls.add("stopPhoneCamera");
+        }
+    };
+
+    @Before
+    public void setUp() {
+        calls.clear();
+    }
+
+    @Test
+    public void testEnablingStopsPiBeforeStartingCamera() {
+        DetectionSourceSwitch detectionSources = new DetectionSourceSwitch(sources, false);
+        detectionSources.setPhoneCameraMode(true, true);
+        assertTrue(detectionSources.isPhoneCameraMode());
+        assertEquals(Arrays.asList("stopPi", "startPhoneCamera"), calls);
+    }
+
+    @Test
+    public void testDisablingRestartsConnectedPi() {
+        DetectionSourceSwitch detectionSources = new DetectionSourceSwitch(sources, true);
+        detectionSources.setPhoneCameraMode(false, true);
+        assertFalse(detectionSources.isPhoneCameraMode());
+        assertEquals(Arrays.asList("stopPhoneCamera", "startPi"), calls);
+    }
+
+    @Test
+    public void testDisablingWithoutPiOnlyStopsCamera() {
+        DetectionSourceSwitch detectionSources = new DetectionSourceSwitch(sources, true);
+        detectionSources.setPhoneCameraMode(false, false);
+        assertEquals(Arrays.asList("stopPhoneCamera"), calls);
+    }
+
+    @Test
+    public void testSameModeIsNoOp() {
+        DetectionSourceSwitch detectionSources = new DetectionSourceSwitch(sources, true);
+        detectionSources.setPhoneCameraMode(true, true);
+        new DetectionSourceSwitch(sources, false).setPhoneCameraMode(false, true);
+        assertTrue(calls.isEmpty());
+    }
+
+    @Test
+    public void testStartsInPersistedMode() {
+        assertTrue(new DetectionSourceSwitch(sources, true).isPhoneCameraMode());
+        assertFalse(new DetectionSourceSwitch(sources, false).isPhoneCameraMode());
+        assertTrue(calls.isEmpty());
+    }
+}
@@ -0,0 +1,85 @@
+package com.botsquad.smarthelmet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the adaptive preview display rate
+ */
+public class DisplayRateControllerTest {
+
+    @Test
+    public void testTargetIsClampedTo30Fps() {
+        assertEquals(30, new DisplayRateController(60).getTargetFps());
+        assertEquals(DisplayRateController.MIN_FPS, new DisplayRateController(0).getTargetFps());
+        DisplayRateController controller = new DisplayRateController(30);
+        assertEquals(30, controller.getCurrentFps());
+        assertEquals(33, controller.getMinIntervalMs());
+    }
+
+    @Test
+    public void testCheapFramesKeepTarget() {
+        DisplayRateController controller = new DisplayRateController(30);
+        for (int i = 0; i < 20; i++) {
+            controller.onFrameCost(3_000, 2_000);  // 5 ms per frame, well inside half of 33 ms
+        }
+        assertEquals(30, controller.getCurrentFps());
+    }
+
+    @Test
+    public void testExpensiveFramesLowerRateImmediately() {
+        DisplayRateController controller = new DisplayRateController(30);
+        controller.onFrameCost(30_000, 20_000);  // 50 ms per frame -> 100 ms interval at a 50% budget
+        assertEquals(10, controller.getCurrentFps());
+        assertEquals(100, controller.getMinIntervalMs());
+    }
+
+    @Test
+    public void testRecoveryIsGradual() {
+        DisplayRateController controller = new DisplayRateController(20);
+        controller.onFrameCost(80_000, 20_000);
+        assertEquals(5, controller.getCurrentFps());
+        for (int i = 0; i < 40; i++) {
+            controller.onFrameCost(1_000, 1_000);
+        }
+        int afterFew = controller.getCurrentFps();
+        assertTrue(afterFew > 5);
+        for (int i = 0; i < 100; i++) {
+            controller.onFrameCost(1_000, 1_000);
+        }
+        assertEquals(20, controller.getCurrentFps());
+    }
+
+    @Test
+    public void testRecoveryStepsOneFpsPerSample() {
+        DisplayRateController controller = new DisplayRateController(30);
+        controller.setThermalStatus(DisplayRateController.THERMAL_STATUS_SEVERE);
+        assertEquals(5, controller.getCurrentFps());
+        controller.setThermalStatus(DisplayRateController.THERMAL_STATUS_NONE);
+        assertEquals(6, controller.getCurrentFps());
+        controller.onFrameCost(1_000, 1_000);
+        assertEquals(7, controller.getCurrentFps());
+    }
+
+    @Test
+    public void testThermalCeilings() {
+        assertEquals(30, DisplayRateController.thermalCeiling(DisplayRateController.THERMAL_STATUS_NONE));
+        assertEquals(30, DisplayRateController.thermalCeiling(1));
+        assertEquals(10, DisplayRateController.thermalCeiling(DisplayRateController.THERMAL_STATUS_MODERATE));
+        assertEquals(5, DisplayRateController.thermalCeiling(DisplayRateController.THERMAL_STATUS_SEVERE));
+        assertEquals(DisplayRateController.MIN_FPS, DisplayRateController.thermalCeiling(6));
+    }
+
+    @Test
+    public void testNewTargetAppliesWithinLimits() {
+        DisplayRateController controller = new DisplayRateController(10);
+        controller.setTargetFps(30);
+        assertEquals(30, controller.getCurrentFps());
+        controller.setThermalStatus(DisplayRateController.THERMAL_STATUS_MODERATE);
+        controller.setTargetFps(20);
+        assertEquals(10, controller.getCurrentFps());
+        controller.setTargetFps(5);
+        assertEquals(5, controller.getCurrentFps());
+    }
+}
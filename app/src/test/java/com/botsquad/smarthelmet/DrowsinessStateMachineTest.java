@@ -0,0 +1,211 @@
+package com.botsquad.smarthelmet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the debounce/alarm state machine, on a fake clock
+ */
+public class DrowsinessStateMachineTest {
+    private static final long DEBOUNCE_MS = 300;
+    private static final long THRESHOLD_MS = 1500;
+    private static final long START_MS = 1_700_000_000_000L;
+
+    /** Manually advanced clock; wall and monotonic time move together */
+    private static class FakeClock implements DrowsinessStateMachine.Clock {
+        long nanos = 0;
+
+        void advanceMs(long ms) {
+            nanos += ms * 1_000_000L;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return START_MS + nanos / 1_000_000L;
+        }
+
+        @Override
+        public long nanoTime() {
+            return nanos;
+        }
+    }
+
+    private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+    private FakeClock clock;
+    private DrowsinessStateMachine machine;
+
+    private final DrowsinessStateMachine.Listener recorder = new DrowsinessStateMachine.Listener() {
+        @Override
+        public void onDriverStateChanged(boolean drowsy, long eventTimeMs) {
+            events.add((drowsy ? "drowsy@" : "awake@") + (eventTimeMs - START_MS));
+        }
+
+        @Override
+        public void onAlarmStarted(long latencyMicros) {
+            events.add("alarm+" + latencyMicros + "us");
+        }
+
+        @Override
+        public void onAlarmStopped() {
+            events.add("alarm-off");
+        }
+    };
+
+    @Before
+    public void setUp() {
+        clock = new FakeClock();
+        machine = new DrowsinessStateMachine(DEBOUNCE_MS, THRESHOLD_MS, clock, recorder);
+    }
+
+    private void detect(boolean drowsy) {
+        machine.submit(drowsy, clock.currentTimeMillis());
+        machine.runOnce();
+    }
+
+    /** Advance in 10ms steps, running timers like the driver thread would */
+    private void advance(long ms) {
+        for (long t = 0; t < ms; t += 10) {
+            clock.advanceMs(Math.min(10, ms - t));
+            machine.runOnce();
+        }
+    }
+
+    @Test
+    public void testBriefBlinkIsDebounced() {
+        detect(true);
+        assertEquals(DrowsinessStateMachine.State.PENDING, machine.getState());
+        advance(200);
+        detect(false);
+        advance(2000);
+        assertTrue(events.isEmpty());
+        assertEquals(DrowsinessStateMachine.State.AWAKE, machine.getState());
+    }
+
+    @Test
+    public void testAlarmAtThresholdFromFirstClosedFrame() {
+        detect(true);
+        long pendingWait = machine.runOnce();
+        assertEquals(DEBOUNCE_MS * 1_000_000L, pendingWait);
+
+        advance(DEBOUNCE_MS);
+        assertEquals(Arrays.asList("drowsy@0"), events);
+        assertEquals(DrowsinessStateMachine.State.DROWSY, machine.getState());
+        // The threshold counts from the capture that started the episode, debounce included
+        assertEquals((THRESHOLD_MS - DEBOUNCE_MS) * 1_000_000L, machine.runOnce());
+
+        advance(THRESHOLD_MS - DEBOUNCE_MS - 10);
+        assertEquals(1, events.size());
+        advance(10);
+        assertEquals(Arrays.asList("drowsy@0", "alarm+0us"), events);
+        assertEquals(DrowsinessStateMachine.State.ALARM, machine.getState());
+    }
+
+    @Test
+    public void testLateCaptureShortensTheWait() {
+        // Detection arrives 1s after the capture: 500ms left once confirmed at 300ms
+        machine.submit(true, clock.currentTimeMillis() - 1000);
+        machine.runOnce();
+        advance(DEBOUNCE_MS);
+        assertEquals(Arrays.asList("drowsy@-1000"), events);
+        advance(THRESHOLD_MS - 1000 - DEBOUNCE_MS);
+        assertEquals(Arrays.asList("drowsy@-1000", "alarm+0us"), events);
+    }
+
+    @Test
+    public void testCaptureOlderThanThresholdAlarmsOnConfirmation() {
+        machine.submit(true, clock.currentTimeMillis() - 2000);
+        machine.runOnce();
+        advance(DEBOUNCE_MS);
+        // Overdue by 2000 + 300 - 1500 ms
+        assertEquals(Arrays.asList("drowsy@-2000", "alarm+800000us"), events);
+    }
+
+    @Test
+    public void testAwakeStopsAlarmImmediately() {
+        detect(true);
+        advance(THRESHOLD_MS);
+        detect(false);
+        assertEquals(Arrays.asList("drowsy@0", "alarm+0us", "alarm-off", "awake@1500"), events);
+        assertEquals(DrowsinessStateMachine.State.AWAKE, machine.getState());
+        assertEquals(-1, machine.runOnce());
+    }
+
+    @Test
+    public void testRepeatedDrowsyDoesNotRestartTimerOrRealarm() {
+        detect(true);
+        for (int i = 0; i < 40; i++) {
+            advance(50);
+            detect(true);
+        }
+        assertEquals(Arrays.asList("drowsy@0", "alarm+0us"), events);
+    }
+
+    @Test
+    public void testAlarmLatencyMeasuredWhenDriverRunsLate() {
+        detect(true);
+        advance(DEBOUNCE_MS);
+        // Thread woke 1.25 ms late
+        clock.nanos += (THRESHOLD_MS - DEBOUNCE_MS) * 1_000_000L + 1_250_000L;
+        machine.runOnce();
+        assertEquals("alarm+1250us", events.get(1));
+        assertEquals(1250, machine.getAlarmLatencyMicros().percentile(50));
+    }
+
+    @Test
+    public void testEventsFromManyThreadsOnOwnThread() throws InterruptedException {
+        CountDownLatch alarm = new CountDownLatch(1);
+        List<String> threads = Collections.synchronizedList(new ArrayList<>());
+        DrowsinessStateMachine live = new DrowsinessStateMachine(20, 60, DrowsinessStateMachine.Clock.SYSTEM,
+            new DrowsinessStateMachine.Listener() {
+                @Override
+                public void onDriverStateChanged(boolean drowsy, long eventTimeMs) {
+                    threads.add(Thread.currentThread().getName());
+                }
+
+                @Override
+                public void onAlarmStarted(long latencyMicros) {
+                    threads.add(Thread.currentThread().getName());
+                    alarm.countDown();
+                }
+
+                @Override
+                public void onAlarmStopped() {
+                }
+            });
+        live.start("DrowsinessState");
+        try {
+            Thread[] producers = new Thread[4];
+            for (int i = 0; i < producers.length; i++) {
+                producers[i] = new Thread(() -> {
+                    for (int n = 0; n < 50; n++) {
+                        live.submit(true, System.currentTimeMillis());
+                    }
+                });
+                producers[i].start();
+            }
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            assertTrue(alarm.await(2, TimeUnit.SECONDS));
+            // The alarm can go off before every queued event has been processed
+            long deadline = System.currentTimeMillis() + 2000;
+            while (live.getEventLatencyMicros().totalCount() < 200 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(Arrays.asList("DrowsinessState", "DrowsinessState"), threads);
+            assertEquals(200, live.getEventLatencyMicros().totalCount());
+            assertEquals(1, live.getAlarmLatencyMicros().totalCount());
+        } finally {
+            live.stop();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.botsquad.smarthelmet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for face-crop upload planning
+ */
+public class FaceCropPlannerTest {
+
+    private static final int W = 640;
+    private static final int H = 480;
+
+    @Test
+    public void testFullFrameUntilFaceKnown() {
+        FaceCropPlanner planner = new FaceCropPlanner();
+        FaceCropPlanner.Plan plan = planner.nextUpload(W, H, 0);
+        assertTrue(plan.fullFrame);
+        assertEquals(W, plan.width);
+        assertEquals(H, plan.height);
+    }
+
+    @Test
+    public void testCropContainsPaddedFaceBox() {
+        FaceCropPlanner planner = new FaceCropPlanner(15, 0.4f, 0.5f, 2000);
+        planner.onFaceBox(280, 180, 360, 280, 0.9f, 0);
+
+        FaceCropPlanner.Plan plan = planner.nextUpload(W, H, 100);
+        assertFalse(plan.fullFrame);
+        // 80x100 box with 50% padding on each side -> 160x200, starting at (240, 130)
+        assertEquals(240, plan.offsetX);
+        assertEquals(130, plan.offsetY);
+        assertEquals(160, plan.width);
+        assertEquals(200, plan.height);
+        assertTrue("Crop should be much smaller than the frame", plan.width * plan.height < W * H / 4);
+    }
+
+    @Test
+    public void testCropClampedToFrame() {
+        FaceCropPlanner planner = new FaceCropPlanner(15, 0.4f, 0.5f, 2000);
+        planner.onFaceBox(0, 0, 60, 60, 0.9f, 0);
+
+        FaceCropPlanner.Plan plan = planner.nextUpload(W, H, 10);
+        assertFalse(plan.fullFrame);
+        assertEquals(0, plan.offsetX);
+        assertEquals(0, plan.offsetY);
+        assertTrue(plan.offsetX + plan.width <= W);
+        assertTrue(plan.offsetY + plan.height <= H);
+        assertTrue("Small faces still get a minimum crop", plan.width >= 90);
+    }
+
+    @Test
+    public void testPeriodicFullFrame() {
+        FaceCropPlanner planner = new FaceCropPlanner(5, 0.4f, 0.5f, 10_000);
+        planner.onFaceBox(280, 180, 360, 280, 0.9f, 0);
+
+        int fullFrames = 0;
+        for (int i = 0; i < 20; i++) {
+            if (planner.nextUpload(W, H, i).fullFrame) {
+                fullFrames++;
+            }
+        }
+        assertEquals(4, fullFrames);
+        assertEquals(4, planner.getFullFrameUploads());
+        assertEquals(16, planner.getCropUploads());
+    }
+
+    @Test
+    public void testLowConfidenceForcesFullFrame() {
+        FaceCropPlanner planner = new FaceCropPlanner(15, 0.5f, 0.5f, 2000);
+        planner.onFaceBox(280, 180, 360, 280, 0.9f, 0);
+        assertFalse(planner.nextUpload(W, H, 10).fullFrame);
+
+        planner.onConfidence(0.2f);
+        assertTrue(planner.nextUpload(W, H, 20).fullFrame);
+
+        planner.onFaceBox(300, 180, 380, 280, 0.8f, 30);
+        assertFalse(planner.nextUpload(W, H, 40).fullFrame);
+    }
+
+    @Test
+    public void testStaleBoxAndResetForceFullFrame() {
+        FaceCropPlanner planner = new FaceCropPlanner(15, 0.4f, 0.5f, 1000);
+        planner.onFaceBox(280, 180, 360, 280, 0.9f, 0);
+        assertTrue("Box older than the max age is not trusted", planner.nextUpload(W, H, 1500).fullFrame);
+
+        planner.onFaceBox(280, 180, 360, 280, 0.9f, 2000);
+        planner.reset();
+        assertTrue(planner.nextUpload(W, H, 2100).fullFrame);
+    }
+
+    @Test
+    public void testHugeFaceSendsFullFrame() {
+        FaceCropPlanner planner = new FaceCropPlanner(15, 0.4f, 0.5f, 2000);
+        planner.onFaceBox(100, 50, 540, 430, 0.9f, 0);
+        assertTrue("Crop covering most of the frame saves nothing", planner.nextUpload(W, H, 10).fullFrame);
+    }
+}
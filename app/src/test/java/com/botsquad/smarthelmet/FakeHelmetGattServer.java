@@ -0,0 +1,137 @@
+package com.botsquad.smarthelmet;
+
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stand-in for the helmet's GATT server, for JVM tests. Implements the client's
+ * {@link HelmetBleClient.Transport} and answers every operation asynchronously on its own
+ * thread, like the Android BLE stack's binder callbacks. Notifications are only delivered
+ * while the client is subscribed; the link can be dropped and the service hidden.
+ */
+public class FakeHelmetGattServer implements HelmetBleClient.Transport {
+    private final ExecutorService callbacks = Executors.newSingleThreadExecutor();
+    private volatile HelmetBleClient client;
+    private volatile boolean connected = false;
+    private volatile boolean subscribed = false;
+    private volatile boolean inRange = true;
+    private volatile boolean hasStateService = true;
+    private volatile int connects = 0;
+    private volatile int subscribes = 0;
+
+    public void setHasStateService(boolean hasStateService) {
+        this.hasStateService = hasStateService;
+    }
+
+    @Override
+    public void connect(HelmetBleClient client) {
+        this.client = client;
+        connects++;
+        callbacks.execute(() -> {
+            if (inRange) {
+                connected = true;
+                client.onConnected();
+            }
+        });
+    }
+
+    @Override
+    public void discoverServices() {
+        callbacks.execute(() -> client.onServicesDiscovered(hasStateService));
+    }
+
+    @Override
+    public void subscribe(UUID service, UUID characteristic) {
+        callbacks.execute(() -> {
+            subscribed = HelmetBleClient.SERVICE_UUID.equals(service)
+                && HelmetBleClient.STATE_CHARACTERISTIC_UUID.equals(characteristic);
+            subscribes++;
+            client.onSubscribed(subscribed);
+        });
+    }
+
+    @Override
+    public void disconnect() {
+        callbacks.execute(() -> {
+            connected = false;
+            subscribed = false;
+        });
+    }
+
+    /**
+     * Notify a state change; dropped like on air if nobody is subscribed.
+     */
+    public void notifyState(int state, float confidence, int sequence) {
+        notifyValue(HelmetStatePacket.encode(state, confidence, sequence));
+    }
+
+    public void notifyValue(byte[] value) {
+        callbacks.execute(() -> {
+            if (connected && subscribed) {
+                client.onNotification(HelmetBleClient.STATE_CHARACTERISTIC_UUID, value);
+            }
+        });
+    }
+
+    /**
+     * Lose the link (helmet out of range). The client's re-armed connect completes once
+     * {@link #comeBackInRange()} is called.
+     */
+    public void dropConnection() {
+        callbacks.execute(() -> {
+            inRange = false;
+            connected = false;
+            subscribed = false;
+            client.onDisconnected();
+        });
+    }
+
+    public void comeBackInRange() {
+        callbacks.execute(() -> {
+            inRange = true;
+            if (!connected) {
+                connected = true;
+                client.onConnected();
+            }
+        });
+    }
+
+    /**
+     * Wait until every queued callback has been delivered.
+     */
+    public void drain() throws InterruptedException {
+        final Object done = new Object();
+        final boolean[] flag = {false};
+        callbacks.execute(() -> {
+            synchronized (done) {
+                flag[0] = true;
+                done.notifyAll();
+            }
+        });
+        synchronized (done) {
+            long deadline = System.currentTimeMillis() + 2000;
+            while (!flag[0] && System.currentTimeMillis() < deadline) {
+                done.wait(100);
+            }
+        }
+    }
+
+    public boolean isSubscribed() {
+        return subscribed;
+    }
+
+    public int getConnects() {
+        return connects;
+    }
+
+    public int getSubscribes() {
+        return subscribes;
+    }
+
+    public void shutdown() throws InterruptedException {
+        callbacks.shutdown();
+        callbacks.awaitTermination(2, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,309 @@
+package com.botsquad.smarthelmet;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Embeddable stand-in for the Raspberry Pi drowsiness server, for JVM tests.
+ * Serves /health, /time, /detect and /detect_simple (GET and POST, like the
+ * client expects) and a multipart/x-mixed-replace /stream that loops over a set
+ * of recorded JPEG frames. Response latency and stream FPS are configurable.
+ */
+public class FakePiServer {
+    public static final String BOUNDARY = "frame";
+
+    private final List<byte[]> frames = new ArrayList<>();
+    private volatile long latencyMs = 0;
+    private volatile int streamFps = 5;
+    private volatile boolean drowsy = false;
+    private volatile float confidence = 0.9f;
+    private volatile boolean sendContentLength = true;
+    private volatile int framesPerConnection = 0;
+    private volatile int streamStatus = 200;
+
+    private final AtomicLong healthRequests = new AtomicLong();
+    private final AtomicLong detectRequests = new AtomicLong();
+    private final AtomicLong detectSimpleRequests = new AtomicLong();
+    private final AtomicLong framesSent = new AtomicLong();
+    private final AtomicLong streamConnections = new AtomicLong();
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private volatile boolean running = false;
+
+    /**
+     * Delay added before every response except /stream frames.
+     */
+    public FakePiServer setLatencyMs(long latencyMs) {
+        this.latencyMs = latencyMs;
+        return this;
+    }
+
+    /**
+     * Target stream rate; 0 streams as fast as the socket accepts.
+     */
+    public FakePiServer setStreamFps(int streamFps) {
+        this.streamFps = streamFps;
+        return this;
+    }
+
+    public FakePiServer setDrowsy(boolean drowsy) {
+        this.drowsy = drowsy;
+        return this;
+    }
+
+    public FakePiServer setConfidence(float confidence) {
+        this.confidence = confidence;
+        return this;
+    }
+
+    /**
+     * Add a Content-Length header to each stream part (on by default; older Pi servers omit it).
+     */
+    public FakePiServer setSendContentLength(boolean sendContentLength) {
+        this.sendContentLength = sendContentLength;
+        return this;
+    }
+
+    /**
+     * Close each /stream connection after this many frames, like a flaky link; 0 never closes.
+     */
+    public FakePiServer setFramesPerConnection(int framesPerConnection) {
+        this.framesPerConnection = framesPerConnection;
+        return this;
+    }
+
+    /**
+     * HTTP status for /stream requests; anything but 200 is answered without a body.
+     */
+    public FakePiServer setStreamStatus(int streamStatus) {
+        this.streamStatus = streamStatus;
+        return this;
+    }
+
+    public FakePiServer setFrames(List<byte[]> jpegFrames) {
+        synchronized (frames) {
+            frames.clear();
+            frames.addAll(jpegFrames);
+        }
+        return this;
+    }
+
+    /**
+     * Load recorded frames (*.jpg, *.jpeg) from a directory, in name order.
+     */
+    public FakePiServer loadFrames(File directory) throws IOException {
+        File[] files = directory.listFiles((dir, name) -> {
+            String lower = name.toLowerCase();
+            return lower.endsWith(".jpg") || lower.endsWith(".jpeg");
+        });
+        if (files == null || files.length == 0) {
+            throw new IOException("No JPEG frames in " + directory);
+        }
+        Arrays.sort(files);
+        List<byte[]> loaded = new ArrayList<>();
+        for (File file : files) {
+            loaded.add(Files.readAllBytes(file.toPath()));
+        }
+        return setFrames(loaded);
+    }
+
+    /**
+     * Start on an ephemeral loopback port and return the base URL.
+     */
+    public String start() throws IOException {
+        if (frames.isEmpty()) {
+            setFrames(syntheticFrames(10, 640, 480));
+        }
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 64);
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/health", this::handleHealth);
+        server.createContext("/time", this::handleTime);
+        server.createContext("/detect_simple", this::handleDetectSimple);
+        server.createContext("/detect", this::handleDetect);
+        server.createContext("/stream", this::handleStream);
+        running = true;
+        server.start();
+        return getUrl();
+    }
+
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public void stop() {
+        running = false;
+        if (server != null) {
+            server.stop(0);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public long getHealthRequests() {
+        return healthRequests.get();
+    }
+
+    public long getDetectRequests() {
+        return detectRequests.get();
+    }
+
+    public long getDetectSimpleRequests() {
+        return detectSimpleRequests.get();
+    }
+
+    public long getFramesSent() {
+        return framesSent.get();
+    }
+
+    public long getStreamConnections() {
+        return streamConnections.get();
+    }
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        healthRequests.incrementAndGet();
+        delay();
+        sendJson(exchange, "{\"status\": \"ok\", \"detector_loaded\": true, \"camera_active\": true}");
+    }
+
+    private void handleTime(HttpExchange exchange) throws IOException {
+        long recvMs = System.currentTimeMillis();
+        delay();
+        sendJson(exchange, "{\"recv_ms\": " + recvMs + ", \"send_ms\": " + System.currentTimeMillis() + "}");
+    }
+
+    private void handleDetectSimple(HttpExchange exchange) throws IOException {
+        detectSimpleRequests.incrementAndGet();
+        drainRequestBody(exchange);
+        delay();
+        sendJson(exchange, "{\"is_drowsy\": " + drowsy + ", \"confidence\": " + confidence
+            + ", \"capture_ts_ms\": " + System.currentTimeMillis() + "}");
+    }
+
+    private void handleDetect(HttpExchange exchange) throws IOException {
+        detectRequests.incrementAndGet();
+        drainRequestBody(exchange);
+        delay();
+        sendJson(exchange, "{\"success\": true, \"is_drowsy\": " + drowsy + ", \"confidence\": " + confidence
+            + ", \"capture_ts_ms\": " + System.currentTimeMillis()
+            + ", \"detections\": [{\"bbox\": [200, 120, 440, 360], \"confidence\": " + confidence
+            + ", \"class_id\": " + (drowsy ? 1 : 0) + ", \"label\": \"" + (drowsy ? "Drowsy" : "Alert") + "\"}]}");
+    }
+
+    private void handleStream(HttpExchange exchange) throws IOException {
+        streamConnections.incrementAndGet();
+        int status = streamStatus;
+        if (status != 200) {
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "multipart/x-mixed-replace; boundary=" + BOUNDARY);
+        exchange.sendResponseHeaders(200, 0);
+        byte[] partEnd = "\r\n".getBytes(StandardCharsets.US_ASCII);
+        try (OutputStream out = exchange.getResponseBody()) {
+            int index = 0;
+            long nextFrameNs = System.nanoTime();
+            while (running && (framesPerConnection <= 0 || index < framesPerConnection)) {
+                byte[] jpeg;
+                synchronized (frames) {
+                    jpeg = frames.get(index % frames.size());
+                }
+                index++;
+
+                String header = "--" + BOUNDARY + "\r\nContent-Type: image/jpeg\r\n"
+                    + (sendContentLength ? "Content-Length: " + jpeg.length + "\r\n" : "") + "\r\n";
+                out.write(header.getBytes(StandardCharsets.US_ASCII));
+                out.write(jpeg);
+                out.write(partEnd);
+                out.flush();
+                framesSent.incrementAndGet();
+
+                int fps = streamFps;
+                if (fps > 0) {
+                    nextFrameNs += 1_000_000_000L / fps;
+                    long sleepNs = nextFrameNs - System.nanoTime();
+                    if (sleepNs > 0) {
+                        Thread.sleep(sleepNs / 1_000_000, (int) (sleepNs % 1_000_000));
+                    }
+                }
+            }
+        } catch (IOException | InterruptedException e) {
+            // Client went away or server stopped
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void delay() {
+        long ms = latencyMs;
+        if (ms > 0) {
+            try {
+                Thread.sleep(ms);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void drainRequestBody(HttpExchange exchange) throws IOException {
+        byte[] scratch = new byte[8192];
+        try (InputStream in = exchange.getRequestBody()) {
+            while (in.read(scratch) != -1) {
+                // discard - the fake result doesn't depend on the image
+            }
+        }
+    }
+
+    private static void sendJson(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Distinct JPEG frames (moving block on a gradient) for tests without recordings.
+     */
+    public static List<byte[]> syntheticFrames(int count, int width, int height) throws IOException {
+        List<byte[]> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = image.createGraphics();
+            g.setPaint(new java.awt.GradientPaint(0, 0, Color.DARK_GRAY, width, height, Color.LIGHT_GRAY));
+            g.fillRect(0, 0, width, height);
+            g.setColor(Color.ORANGE);
+            g.fillOval((i * 37) % Math.max(1, width - 80), height / 3, 80, 80);
+            g.dispose();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(image, "jpg", out);
+            result.add(out.toByteArray());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,64 @@
+package com.botsquad.smarthelmet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for deciding which stream frames get decoded
+ */
+public class FrameAdmissionPolicyTest {
+
+    @Test
+    public void testRateLimitBeforeDecode() {
+        FrameAdmissionPolicy policy = new FrameAdmissionPolicy(500, 4);
+        int admitted = 0;
+        // 5 FPS stream for 3 seconds against a 2 FPS display limit
+        for (long t = 0; t < 3000; t += 200) {
+            if (policy.onFrameReceived(t) == FrameAdmissionPolicy.Decision.ADMIT) {
+                admitted++;
+                policy.onDecoded(true);
+                policy.onFrameRendered();
+            }
+        }
+        assertEquals(15, policy.getFramesReceived());
+        assertEquals(admitted, policy.getFramesAdmitted());
+        assertEquals(admitted, policy.getFramesDecoded());
+        assertTrue("About 2 FPS should be admitted, got " + admitted, admitted >= 5 && admitted <= 6);
+    }
+
+    @Test
+    public void testBusyRendererDropsFrames() {
+        FrameAdmissionPolicy policy = new FrameAdmissionPolicy(0, 1);
+        assertEquals(FrameAdmissionPolicy.Decision.ADMIT, policy.onFrameReceived(0));
+        policy.onDecoded(true);
+        // Renderer hasn't drawn the first frame yet
+        assertEquals(FrameAdmissionPolicy.Decision.DROP_QUEUE_FULL, policy.onFrameReceived(10));
+        policy.onFrameRendered();
+        assertEquals(FrameAdmissionPolicy.Decision.ADMIT, policy.onFrameReceived(20));
+        assertEquals(3, policy.getFramesReceived());
+        assertEquals(2, policy.getFramesAdmitted());
+    }
+
+    @Test
+    public void testDecodeFailureReleasesSlot() {
+        FrameAdmissionPolicy policy = new FrameAdmissionPolicy(0, 1);
+        assertEquals(FrameAdmissionPolicy.Decision.ADMIT, policy.onFrameReceived(0));
+        policy.onDecoded(false);
+        assertEquals(0, policy.getPendingFrames());
+        assertEquals(1, policy.getDecodeFailures());
+        assertEquals(0, policy.getFramesDecoded());
+        assertEquals(FrameAdmissionPolicy.Decision.ADMIT, policy.onFrameReceived(1));
+    }
+
+    @Test
+    public void testNoSurfaceDropsEverything() {
+        FrameAdmissionPolicy policy = new FrameAdmissionPolicy(0, 2);
+        policy.onFrameReceived(0);
+        policy.setRendererReady(false);
+        assertEquals(0, policy.getPendingFrames());
+        assertEquals(FrameAdmissionPolicy.Decision.DROP_RENDERER_NOT_READY, policy.onFrameReceived(10));
+        policy.setRendererReady(true);
+        assertEquals(FrameAdmissionPolicy.Decision.ADMIT, policy.onFrameReceived(20));
+    }
+}
@@ -0,0 +1,120 @@
+package com.botsquad.smarthelmet;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the frame slot rotation used for helmet camera frames
+ */
+public class FrameSlotRotationTest {
+
+    @Test
+    public void testSlotFreedOnlyAfterAllConsumersRelease() {
+        FrameSlotRotation slots = new FrameSlotRotation(1);
+        int slot = slots.acquireForWrite();
+        assertEquals(0, slot);
+        slots.publish(slot, 2);  // upload + renderer
+
+        assertEquals(-1, slots.acquireForWrite());
+        slots.release(slot);
+        assertEquals(-1, slots.acquireForWrite());
+        slots.release(slot);
+        assertEquals(0, slots.acquireForWrite());
+        assertEquals(2, slots.getDropped());
+    }
+
+    @Test
+    public void testRoundRobinReuse() {
+        FrameSlotRotation slots = new FrameSlotRotation(3);
+        for (int expected = 0; expected < 6; expected++) {
+            int slot = slots.acquireForWrite();
+            assertEquals(expected % 3, slot);
+            slots.publish(slot, 0);
+        }
+        assertEquals(3, slots.getFreeSlots());
+        assertEquals(6, slots.getPublished());
+    }
+
+    @Test
+    public void testBusySlotsAreSkipped() {
+        FrameSlotRotation slots = new FrameSlotRotation(3);
+        int held = slots.acquireForWrite();
+        slots.publish(held, 1);
+        int next = slots.acquireForWrite();
+        assertNotEquals(held, next);
+        slots.cancel(next);
+        // Slot 0 is still held, so the rotation moves on past it
+        assertEquals(2, slots.acquireForWrite());
+        assertEquals(1, slots.acquireForWrite());
+        assertEquals(-1, slots.acquireForWrite());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReleaseOfFreeSlotRejected() {
+        new FrameSlotRotation(2).release(0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testPublishWithoutAcquireRejected() {
+        new FrameSlotRotation(2).publish(1, 1);
+    }
+
+    @Test
+    public void testProducerNeverWritesSlotBeingRead() throws Exception {
+        int slotCount = 3;
+        FrameSlotRotation slots = new FrameSlotRotation(slotCount);
+        int[][] buffers = new int[slotCount][64];
+        BlockingQueue<Integer> handoff = new ArrayBlockingQueue<>(slotCount);
+        int frames = 20000;
+        boolean[] torn = new boolean[1];
+
+        Thread consumer = new Thread(() -> {
+            try {
+                for (int received = 0; received < frames; ) {
+                    Integer slot = handoff.poll(5, TimeUnit.SECONDS);
+                    if (slot == null) {
+                        return;
+                    }
+                    if (slot < 0) {
+                        break;
+                    }
+                    int[] buffer = buffers[slot];
+                    for (int value : buffer) {
+                        if (value != buffer[0]) {
+                            torn[0] = true;
+                        }
+                    }
+                    slots.release(slot);
+                    received++;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        consumer.start();
+
+        int sent = 0;
+        for (int frame = 1; frame <= frames; frame++) {
+            int slot = slots.acquireForWrite();
+            if (slot < 0) {
+                continue;
+            }
+            Arrays.fill(buffers[slot], frame);
+            slots.publish(slot, 1);
+            handoff.put(slot);
+            sent++;
+        }
+        handoff.put(-1);
+        consumer.join(10000);
+
+        assertFalse("A slot was overwritten while being read", torn[0]);
+        assertEquals(frames, sent + slots.getDropped());
+        assertEquals(slotCount, slots.getFreeSlots());
+    }
+}
@@ -0,0 +1,166 @@
+package com.botsquad.smarthelmet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the BLE helmet-state client against a fake GATT server
+ */
+public class HelmetBleClientTest {
+    private FakeHelmetGattServer server;
+    private HelmetBleClient client;
+    private final BlockingQueue<HelmetStatePacket> states = new LinkedBlockingQueue<>();
+    private final BlockingQueue<HelmetBleClient.State> linkStates = new LinkedBlockingQueue<>();
+
+    @Before
+    public void setUp() {
+        server = new FakeHelmetGattServer();
+        client = new HelmetBleClient(server, new HelmetBleClient.Listener() {
+            @Override
+            public void onHelmetState(HelmetStatePacket packet, long receivedTimeMs) {
+                states.add(packet);
+            }
+
+            @Override
+            public void onLinkStateChanged(HelmetBleClient.State state) {
+                linkStates.add(state);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        client.stop();
+        server.shutdown();
+    }
+
+    private void awaitLinkState(HelmetBleClient.State expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (System.currentTimeMillis() < deadline) {
+            HelmetBleClient.State state = linkStates.poll(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+            if (state == expected) {
+                return;
+            }
+        }
+        fail("Link never reached " + expected + " (" + client + ")");
+    }
+
+    private HelmetStatePacket nextState() throws InterruptedException {
+        HelmetStatePacket packet = states.poll(2, TimeUnit.SECONDS);
+        assertNotNull("No state delivered", packet);
+        return packet;
+    }
+
+    @Test
+    public void testPacketRoundTrip() {
+        HelmetStatePacket packet = HelmetStatePacket.parse(HelmetStatePacket.encode(HelmetStatePacket.STATE_DROWSY, 0.8f, 0xBEEF));
+        assertNotNull(packet);
+        assertTrue(packet.isDrowsy());
+        assertEquals(0.8f, packet.confidence, 1f / 255);
+        assertEquals(0xBEEF, packet.sequence);
+
+        assertNull(HelmetStatePacket.parse(new byte[] {1, 2, 3}));
+        assertNull(HelmetStatePacket.parse(new byte[] {9, 0, 0, 0}));
+        // Appended fields are ignored
+        assertNotNull(HelmetStatePacket.parse(new byte[] {0, 0, 1, 0, 42}));
+    }
+
+    @Test
+    public void testSubscribesAndDeliversNotifications() throws InterruptedException {
+        client.start();
+        awaitLinkState(HelmetBleClient.State.SUBSCRIBED);
+        assertTrue(server.isSubscribed());
+
+        server.notifyState(HelmetStatePacket.STATE_AWAKE, 0.95f, 1);
+        server.notifyState(HelmetStatePacket.STATE_DROWSY, 0.7f, 2);
+
+        assertFalse(nextState().isDrowsy());
+        HelmetStatePacket drowsy = nextState();
+        assertTrue(drowsy.isDrowsy());
+        assertEquals(2, drowsy.sequence);
+        assertEquals(2, client.getNotifications());
+    }
+
+    @Test
+    public void testDuplicatesDroppedAndGapsCounted() throws InterruptedException {
+        client.start();
+        awaitLinkState(HelmetBleClient.State.SUBSCRIBED);
+
+        server.notifyState(HelmetStatePacket.STATE_AWAKE, 1f, 10);
+        server.notifyState(HelmetStatePacket.STATE_AWAKE, 1f, 10);
+        server.notifyState(HelmetStatePacket.STATE_DROWSY, 1f, 13);
+        server.notifyValue(new byte[] {1});
+        server.drain();
+
+        assertEquals(10, nextState().sequence);
+        assertEquals(13, nextState().sequence);
+        assertTrue(states.isEmpty());
+        assertEquals(1, client.getDuplicates());
+        assertEquals(2, client.getMissed());
+        assertEquals(1, client.getMalformed());
+    }
+
+    @Test
+    public void testSequenceWrapIsNotAGap() throws InterruptedException {
+        client.start();
+        awaitLinkState(HelmetBleClient.State.SUBSCRIBED);
+
+        server.notifyState(HelmetStatePacket.STATE_AWAKE, 1f, 0xFFFF);
+        server.notifyState(HelmetStatePacket.STATE_AWAKE, 1f, 0);
+        server.drain();
+
+        assertEquals(2, client.getNotifications());
+        assertEquals(0, client.getMissed());
+    }
+
+    @Test
+    public void testResubscribesAfterReconnect() throws InterruptedException {
+        client.start();
+        awaitLinkState(HelmetBleClient.State.SUBSCRIBED);
+        server.notifyState(HelmetStatePacket.STATE_AWAKE, 1f, 5);
+        nextState();
+
+        server.dropConnection();
+        awaitLinkState(HelmetBleClient.State.CONNECTING);
+        // Lost while out of range
+        server.notifyState(HelmetStatePacket.STATE_DROWSY, 1f, 6);
+        server.comeBackInRange();
+        awaitLinkState(HelmetBleClient.State.SUBSCRIBED);
+
+        // The helmet restarted its sequence; that is not counted as missed states
+        server.notifyState(HelmetStatePacket.STATE_DROWSY, 1f, 100);
+        assertEquals(100, nextState().sequence);
+        assertEquals(1, client.getReconnects());
+        assertEquals(0, client.getMissed());
+        assertEquals(2, server.getSubscribes());
+    }
+
+    @Test
+    public void testMissingServiceStopsClient() throws InterruptedException {
+        server.setHasStateService(false);
+        client.start();
+        awaitLinkState(HelmetBleClient.State.DISCONNECTED);
+        assertFalse(server.isSubscribed());
+        assertEquals(0, server.getSubscribes());
+    }
+
+    @Test
+    public void testNoDeliveryAfterStop() throws InterruptedException {
+        client.start();
+        awaitLinkState(HelmetBleClient.State.SUBSCRIBED);
+        client.stop();
+        assertEquals(HelmetBleClient.State.DISCONNECTED, client.getState());
+
+        server.notifyState(HelmetStatePacket.STATE_DROWSY, 1f, 1);
+        server.drain();
+        assertTrue(states.isEmpty());
+        assertEquals(0, client.getNotifications());
+    }
+}
@@ -0,0 +1,243 @@
+package com.botsquad.smarthelmet;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Unit tests for the framed Bluetooth link decoder, plus an opt-in throughput benchmark
+ * (-Pbenchmark) over a stream split and merged at random boundaries
+ */
+public class HelmetLinkDecoderTest {
+
+    /** Collects decoded messages */
+    private static class Collector implements HelmetLinkDecoder.Listener {
+        final List<Integer> types = new ArrayList<>();
+        final List<Integer> sequences = new ArrayList<>();
+        final List<byte[]> payloads = new ArrayList<>();
+
+        @Override
+        public void onMessage(int type, int sequence, byte[] payload, int offset, int length) {
+            types.add(type);
+            sequences.add(sequence);
+            payloads.add(Arrays.copyOfRange(payload, offset, offset + length));
+        }
+    }
+
+    /** Returns a random number of bytes (1..maxChunk) per read, splitting and merging frames */
+    private static class RandomChunkInputStream extends ByteArrayInputStream {
+        private final Random random;
+        private final int maxChunk;
+
+        RandomChunkInputStream(byte[] data, int maxChunk, long seed) {
+            super(data);
+            this.random = new Random(seed);
+            this.maxChunk = maxChunk;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, Math.min(len, 1 + random.nextInt(maxChunk)));
+        }
+    }
+
+    private static byte[] json(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] randomPayload(Random random, int length) {
+        byte[] payload = new byte[length];
+        random.nextBytes(payload);
+        return payload;
+    }
+
+    @Test
+    public void testRoundTripMixedMessages() {
+        Collector collector = new Collector();
+        HelmetLinkDecoder decoder = new HelmetLinkDecoder(collector, 4096);
+        byte[] status = json("{\"is_eyes_closed\":true,\"timestamp\":1}");
+        // A camera frame starting with '{' no longer looks like JSON
+        byte[] frame = randomPayload(new Random(1), 3000);
+        frame[0] = '{';
+
+        byte[] a = HelmetLinkDecoder.encode(HelmetLinkDecoder.TYPE_STATUS_JSON, 7, status);
+        byte[] b = HelmetLinkDecoder.encode(HelmetLinkDecoder.TYPE_CAMERA_FRAME, 8, frame);
+        byte[] both = new byte[a.length + b.length];
+        System.arraycopy(a, 0, both, 0, a.length);
+        System.arraycopy(b, 0, both, a.length, b.length);
+        decoder.feed(both, 0, both.length);
+
+        assertEquals(Arrays.asList(HelmetLinkDecoder.TYPE_STATUS_JSON, HelmetLinkDecoder.TYPE_CAMERA_FRAME), collector.types);
+        assertEquals(Arrays.asList(7, 8), collector.sequences);
+        assertArrayEquals(status, collector.payloads.get(0));
+        assertArrayEquals(frame, collector.payloads.get(1));
+        assertEquals(0, decoder.getBytesSkipped());
+    }
+
+    @Test
+    public void testByteAtATimeDelivery() {
+        Collector collector = new Collector();
+        HelmetLinkDecoder decoder = new HelmetLinkDecoder(collector, 1024);
+        byte[] encoded = HelmetLinkDecoder.encode(HelmetLinkDecoder.TYPE_STATUS_JSON, 1, json("{\"is_drowsy\":false}"));
+        for (int i = 0; i < encoded.length; i++) {
+            decoder.feed(encoded, i, 1);
+        }
+        assertEquals(1, collector.payloads.size());
+        assertEquals("{\"is_drowsy\":false}", new String(collector.payloads.get(0), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testCorruptFrameDroppedAndNextRecovered() {
+        Collector collector = new Collector();
+        HelmetLinkDecoder decoder = new HelmetLinkDecoder(collector, 1024);
+        byte[] bad = HelmetLinkDecoder.encode(HelmetLinkDecoder.TYPE_STATUS_JSON, 1, json("{\"a\":1}"));
+        bad[HelmetLinkDecoder.HEADER_BYTES + 2] ^= 0x40;  // flip a payload bit
+        byte[] good = HelmetLinkDecoder.encode(HelmetLinkDecoder.TYPE_STATUS_JSON, 2, json("{\"b\":2}"));
+        byte[] noise = {0x01, (byte) 0xA5, 0x13};
+
+        decoder.feed(noise, 0, noise.length);
+        decoder.feed(bad, 0, bad.length);
+        decoder.feed(good, 0, good.length);
+
+        assertEquals(1, collector.payloads.size());
+        assertEquals("{\"b\":2}", new String(collector.payloads.get(0), StandardCharsets.UTF_8));
+        assertEquals(1, decoder.getCrcErrors());
+        assertEquals(noise.length + bad.length, decoder.getBytesSkipped());
+    }
+
+    @Test
+    public void testOversizedLengthTriggersResync() {
+        Collector collector = new Collector();
+        HelmetLinkDecoder decoder = new HelmetLinkDecoder(collector, 1024);
+        byte[] header = {(byte) 0xA5, 0x5A, 1, 0, 0, 0x7F, 0, 0, 0};  // claims ~2 GB
+        byte[] good = HelmetLinkDecoder.encode(HelmetLinkDecoder.TYPE_STATUS_JSON, 3, json("{}"));
+        decoder.feed(header, 0, header.length);
+        decoder.feed(good, 0, good.length);
+        assertEquals(1, collector.payloads.size());
+        assertEquals(Integer.valueOf(3), collector.sequences.get(0));
+    }
+
+    @Test
+    public void testSequenceGapsCounted() {
+        HelmetLinkDecoder decoder = new HelmetLinkDecoder(new Collector(), 1024);
+        int[] sequences = {65534, 65535, 0, 3};
+        for (int sequence : sequences) {
+            byte[] frame = HelmetLinkDecoder.encode(HelmetLinkDecoder.TYPE_STATUS_JSON, sequence, json("{}"));
+            decoder.feed(frame, 0, frame.length);
+        }
+        assertEquals(4, decoder.getMessagesDecoded());
+        assertEquals(2, decoder.getSequenceGaps());
+    }
+
+    @Test
+    public void testRingIsPowerOfTwoHoldingTwoFrames() {
+        HelmetLinkDecoder decoder = new HelmetLinkDecoder(new Collector(), HelmetLinkDecoder.DEFAULT_MAX_PAYLOAD);
+        int capacity = decoder.getCapacity();
+        assertEquals(1, Integer.bitCount(capacity));
+        assertTrue(capacity >= 2 * HelmetLinkDecoder.frameSize(HelmetLinkDecoder.DEFAULT_MAX_PAYLOAD));
+    }
+
+    /** Status messages with a QVGA camera frame every fourth message, as the helmet sends them */
+    private static byte[] mixedStream(List<byte[]> expected) {
+        Random random = new Random(42);
+        int cameraFrameSize = 320 * 240 * 2;
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (int i = 0; i < 60; i++) {
+            boolean camera = i % 4 == 3;
+            byte[] payload = camera ? randomPayload(random, cameraFrameSize)
+                : json("{\"is_eyes_closed\":" + (i % 2 == 0) + ",\"timestamp\":" + i + "}");
+            expected.add(payload);
+            byte[] frame = HelmetLinkDecoder.encode(camera ? HelmetLinkDecoder.TYPE_CAMERA_FRAME : HelmetLinkDecoder.TYPE_STATUS_JSON, i, payload);
+            stream.write(frame, 0, frame.length);
+        }
+        return stream.toByteArray();
+    }
+
+    @Test
+    public void testRandomSplitStreamWithoutAllocation() throws IOException {
+        List<byte[]> expected = new ArrayList<>();
+        byte[] data = mixedStream(expected);
+
+        // Correctness over random boundaries
+        Collector collector = new Collector();
+        HelmetLinkDecoder checked = new HelmetLinkDecoder(collector);
+        RandomChunkInputStream in = new RandomChunkInputStream(data, 8192, 7);
+        while (checked.readFrom(in) >= 0) {
+            // keep reading
+        }
+        assertEquals(expected.size(), collector.payloads.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), collector.payloads.get(i));
+        }
+        assertEquals(0, checked.getCrcErrors());
+        assertEquals(0, checked.getSequenceGaps());
+
+        // Throughput with bulk reads of up to 64 KB
+        long[] messages = new long[1];
+        HelmetLinkDecoder decoder = new HelmetLinkDecoder((type, sequence, payload, offset, length) -> messages[0]++);
+        int rounds = 20;
+        for (int warmup = 0; warmup < 3; warmup++) {
+            RandomChunkInputStream warm = new RandomChunkInputStream(data, 65536, warmup);
+            while (decoder.readFrom(warm) >= 0) {
+                // keep reading
+            }
+        }
+        messages[0] = 0;
+        RandomChunkInputStream[] inputs = new RandomChunkInputStream[rounds];
+        for (int r = 0; r < rounds; r++) {
+            inputs[r] = new RandomChunkInputStream(data, 65536, 100 + r);
+        }
+        long alloc = Allocations.allocatedBytes();
+        for (int r = 0; r < rounds; r++) {
+            while (decoder.readFrom(inputs[r]) >= 0) {
+                // keep reading
+            }
+        }
+        alloc = Allocations.allocatedBytes() - alloc;
+
+        assertEquals(expected.size() * rounds, messages[0]);
+        assertTrue("Decoder should not allocate per message (" + alloc + " B)", alloc < 64 * 1024);
+    }
+
+    @Test
+    public void benchmarkRandomSplitStream() throws IOException {
+        // Reports throughput only; skipped unless run with -Pbenchmark
+        assumeTrue(Boolean.getBoolean("benchmark"));
+        byte[] data = mixedStream(new ArrayList<>());
+
+        long[] messages = new long[1];
+        HelmetLinkDecoder decoder = new HelmetLinkDecoder((type, sequence, payload, offset, length) -> messages[0]++);
+        int rounds = 200;
+        RandomChunkInputStream[] inputs = new RandomChunkInputStream[rounds];
+        for (int r = 0; r < rounds; r++) {
+            inputs[r] = new RandomChunkInputStream(data, 65536, r);
+        }
+        for (int warmup = 0; warmup < 20; warmup++) {
+            RandomChunkInputStream warm = new RandomChunkInputStream(data, 65536, 1000 + warmup);
+            while (decoder.readFrom(warm) >= 0) {
+                // keep reading
+            }
+        }
+
+        messages[0] = 0;
+        long start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            while (decoder.readFrom(inputs[r]) >= 0) {
+                // keep reading
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("HelmetLinkDecoder: %.0f messages/s, %.1f MB/s over random 1..65536-byte reads%n",
+            messages[0] / seconds, (double) data.length * rounds / seconds / (1024 * 1024));
+    }
+}
@@ -0,0 +1,153 @@
+package com.botsquad.smarthelmet;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for supervisor mode: many helmet sessions sharing one bounded pool
+ */
+public class HelmetSessionManagerTest {
+
+    private final List<HttpServer> servers = new ArrayList<>();
+    private ServerSocket blackHole;
+    private HelmetSessionManager manager;
+
+    @Before
+    public void setUp() throws Exception {
+        // Accepts connections into the backlog but never answers - the worst kind of dead Pi
+        blackHole = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (manager != null) {
+            manager.shutdown();
+        }
+        for (HttpServer server : servers) {
+            server.stop(0);
+        }
+        blackHole.close();
+    }
+
+    @Test
+    public void testHealthySessionsKeepUpdatingWhileOthersAreDead() throws Exception {
+        manager = new HelmetSessionManager(new HelmetSessionManager.Listener() {
+            @Override
+            public void onSessionUpdated(HelmetSession session) {
+            }
+
+            @Override
+            public void onAlarmChanged(HelmetSession session, boolean alarmActive) {
+            }
+        });
+
+        List<HelmetSession> healthy = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            healthy.add(manager.addSession("Helmet " + i, startPi(false)));
+        }
+        String blackHoleUrl = "http://127.0.0.1:" + blackHole.getLocalPort();
+        manager.addSession("Silent A", blackHoleUrl);
+        manager.addSession("Silent B", blackHoleUrl + "/b");
+        HelmetSession refused = manager.addSession("Unplugged", "http://127.0.0.1:1");
+        assertEquals(8, manager.getSessions().size());
+
+        Thread.sleep(2500);
+
+        for (HelmetSession session : healthy) {
+            assertEquals(session.getLabel() + " should be online", HelmetSession.Health.ONLINE, session.getHealth());
+            assertTrue(session.getLabel() + " should keep polling (got " + session.getQueryCount() + ")",
+                session.getQueryCount() >= 4);
+        }
+        assertEquals(HelmetSession.Health.OFFLINE, refused.getHealth());
+    }
+
+    @Test
+    public void testAlarmRaisedOnlyForDrowsyHelmet() throws Exception {
+        CountDownLatch alarmLatch = new CountDownLatch(1);
+        List<String> alarmed = new ArrayList<>();
+        manager = new HelmetSessionManager(new HelmetSessionManager.Listener() {
+            @Override
+            public void onSessionUpdated(HelmetSession session) {
+            }
+
+            @Override
+            public void onAlarmChanged(HelmetSession session, boolean alarmActive) {
+                if (alarmActive) {
+                    synchronized (alarmed) {
+                        alarmed.add(session.getLabel());
+                    }
+                    alarmLatch.countDown();
+                }
+            }
+        });
+
+        HelmetSession awake = manager.addSession("Awake", startPi(false));
+        HelmetSession drowsy = manager.addSession("Drowsy", startPi(true));
+
+        assertTrue("Drowsy helmet should alarm after the threshold",
+            alarmLatch.await(HelmetSession.DROWSINESS_THRESHOLD_MS + 2000, TimeUnit.MILLISECONDS));
+        assertTrue(drowsy.isAlarmActive());
+        assertFalse(awake.isAlarmActive());
+        assertTrue(manager.isAnyAlarmActive());
+        synchronized (alarmed) {
+            assertEquals(1, alarmed.size());
+            assertEquals("Drowsy", alarmed.get(0));
+        }
+    }
+
+    @Test
+    public void testDuplicateUrlRejectedAndRemoveStopsSession() throws Exception {
+        manager = new HelmetSessionManager(new HelmetSessionManager.Listener() {
+            @Override
+            public void onSessionUpdated(HelmetSession session) {
+            }
+
+            @Override
+            public void onAlarmChanged(HelmetSession session, boolean alarmActive) {
+            }
+        });
+
+        String url = startPi(false);
+        HelmetSession session = manager.addSession("One", url);
+        assertNotNull(session);
+        assertNull(manager.addSession("Again", url));
+
+        Thread.sleep(600);
+        manager.removeSession(session);
+        long countAfterRemove = session.getQueryCount();
+        Thread.sleep(600);
+        assertTrue(manager.getSessions().isEmpty());
+        assertTrue("Removed session should stop polling", session.getQueryCount() <= countAfterRemove + 1);
+    }
+
+    private String startPi(boolean drowsy) throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        String body = "{\"success\": true, \"detections\": [], \"is_drowsy\": " + drowsy
+            + ", \"confidence\": 0.9}";
+        server.createContext("/", exchange -> {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        servers.add(server);
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+}
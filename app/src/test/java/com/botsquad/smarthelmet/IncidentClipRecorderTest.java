@@ -0,0 +1,156 @@
+package com.botsquad.smarthelmet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the incident clip recorder's ring file, eviction and clip export
+ */
+public class IncidentClipRecorderTest {
+    private File dir;
+    private File clipDir;
+    private IncidentClipRecorder recorder;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("incident").toFile();
+        clipDir = new File(dir, "clips");
+    }
+
+    @After
+    public void tearDown() {
+        if (recorder != null) {
+            recorder.close();
+        }
+        deleteRecursively(dir);
+    }
+
+    private static byte[] frame(int id, int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (id * 31 + i);
+        }
+        return data;
+    }
+
+    private static List<byte[]> readClip(File clip) throws IOException {
+        List<byte[]> frames = new ArrayList<>();
+        try (InputStream in = new FileInputStream(clip)) {
+            MjpegDemuxer demuxer = new MjpegDemuxer(in, IncidentClipRecorder.CLIP_BOUNDARY);
+            while (demuxer.nextFrame()) {
+                byte[] copy = new byte[demuxer.getFrameLength()];
+                System.arraycopy(demuxer.getBuffer(), demuxer.getFrameOffset(), copy, 0, copy.length);
+                frames.add(copy);
+            }
+        }
+        return frames;
+    }
+
+    @Test
+    public void testClipContainsOnlyFramesInWindow() throws IOException {
+        recorder = new IncidentClipRecorder(new File(dir, "ring.bin"), clipDir, 64 * 1024, 64, 5);
+        for (int i = 0; i < 10; i++) {
+            byte[] data = frame(i, 1000);
+            recorder.append(data, 0, data.length, 1000L + i * 100);
+        }
+        int[] count = new int[1];
+        File clip = recorder.freeze(1500, 1800, count);
+        assertNotNull(clip);
+        assertEquals(4, count[0]);
+
+        List<byte[]> frames = readClip(clip);
+        assertEquals(4, frames.size());
+        for (int i = 0; i < 4; i++) {
+            assertArrayEquals(frame(5 + i, 1000), frames.get(i));
+        }
+    }
+
+    @Test
+    public void testWrapEvictsOverwrittenFramesAndKeepsNewest() throws IOException {
+        recorder = new IncidentClipRecorder(new File(dir, "ring.bin"), clipDir, 10_000, 64, 5);
+        // 2400-byte frames: four fit, the fifth wraps to offset 0 over the first
+        for (int i = 0; i < 7; i++) {
+            byte[] data = frame(i, 2400);
+            recorder.append(data, 0, data.length, i * 100L);
+        }
+        assertEquals(4, recorder.getBufferedFrames());
+        assertEquals(300, recorder.getBufferedSpanMs());
+
+        int[] count = new int[1];
+        File clip = recorder.freeze(0, 1000, count);
+        List<byte[]> frames = readClip(clip);
+        assertEquals(4, frames.size());
+        for (int i = 0; i < 4; i++) {
+            assertArrayEquals(frame(3 + i, 2400), frames.get(i));
+        }
+    }
+
+    @Test
+    public void testIndexCapacityBoundsBufferedFrames() {
+        try {
+            recorder = new IncidentClipRecorder(new File(dir, "ring.bin"), clipDir, 64 * 1024, 8, 5);
+        } catch (IOException e) {
+            fail(e.getMessage());
+        }
+        byte[] data = frame(1, 100);
+        for (int i = 0; i < 20; i++) {
+            recorder.append(data, 0, data.length, i);
+        }
+        assertEquals(8, recorder.getBufferedFrames());
+        assertEquals(20, recorder.getFramesRecorded());
+    }
+
+    @Test
+    public void testOversizedFrameSkipped() throws IOException {
+        recorder = new IncidentClipRecorder(new File(dir, "ring.bin"), clipDir, 8000, 16, 5);
+        byte[] big = frame(1, 3000);
+        recorder.append(big, 0, big.length, 0);
+        assertEquals(0, recorder.getBufferedFrames());
+        assertEquals(1, recorder.getFramesSkipped());
+    }
+
+    @Test
+    public void testEmptyWindowWritesNoClip() throws IOException {
+        recorder = new IncidentClipRecorder(new File(dir, "ring.bin"), clipDir, 64 * 1024, 16, 5);
+        byte[] data = frame(1, 100);
+        recorder.append(data, 0, data.length, 100);
+        assertNull(recorder.freeze(5000, 6000, new int[1]));
+        assertFalse(clipDir.exists() && clipDir.list().length > 0);
+    }
+
+    @Test
+    public void testOldClipsPruned() throws IOException {
+        recorder = new IncidentClipRecorder(new File(dir, "ring.bin"), clipDir, 64 * 1024, 16, 2);
+        byte[] data = frame(1, 100);
+        recorder.append(data, 0, data.length, 100);
+        recorder.freeze(0, 1000, new int[1]);
+        recorder.freeze(0, 2000, new int[1]);
+        recorder.freeze(0, 3000, new int[1]);
+        String[] names = clipDir.list();
+        assertEquals(2, names.length);
+        assertFalse(new File(clipDir, "incident_1000.mjpeg").exists());
+        assertTrue(new File(clipDir, "incident_3000.mjpeg").exists());
+        assertEquals(3, recorder.getClipsSaved());
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
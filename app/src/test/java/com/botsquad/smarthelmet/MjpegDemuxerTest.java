@@ -0,0 +1,257 @@
+package com.botsquad.smarthelmet;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests and a benchmark for the boundary-aware MJPEG demuxer
+ */
+public class MjpegDemuxerTest {
+
+    @Test
+    public void testBoundaryFromContentType() {
+        assertEquals("frame", MjpegDemuxer.boundaryFromContentType("multipart/x-mixed-replace; boundary=frame"));
+        assertEquals("abc", MjpegDemuxer.boundaryFromContentType("multipart/x-mixed-replace;boundary=\"abc\""));
+        assertEquals("xyz", MjpegDemuxer.boundaryFromContentType("multipart/x-mixed-replace; boundary=--xyz; charset=x"));
+        assertNull(MjpegDemuxer.boundaryFromContentType("image/jpeg"));
+        assertNull(MjpegDemuxer.boundaryFromContentType(null));
+    }
+
+    @Test
+    public void testSplitsPartsWithoutContentLength() throws Exception {
+        List<byte[]> frames = randomFrames(20, 3000, 1);
+        byte[] stream = buildStream(frames, "frame", false);
+        assertFramesEqual(frames, readAll(new MjpegDemuxer(new ByteArrayInputStream(stream), "frame", 1024)));
+    }
+
+    @Test
+    public void testSplitsPartsWithContentLength() throws Exception {
+        List<byte[]> frames = randomFrames(20, 3000, 2);
+        byte[] stream = buildStream(frames, "frame", true);
+        assertFramesEqual(frames, readAll(new MjpegDemuxer(new ByteArrayInputStream(stream), "frame", 1024)));
+    }
+
+    @Test
+    public void testJpegMarkersInsideFrameDoNotSplitIt() throws Exception {
+        // An embedded thumbnail puts a second FFD8...FFD9 pair inside the frame
+        byte[] frame = jpegLike(new byte[]{1, 2, (byte) 0xFF, (byte) 0xD8, 3, (byte) 0xFF, (byte) 0xD9, 4, 5});
+        List<byte[]> frames = Arrays.asList(frame, frame);
+        for (boolean withLength : new boolean[]{false, true}) {
+            byte[] stream = buildStream(frames, "frame", withLength);
+            List<byte[]> parsed = readAll(new MjpegDemuxer(new ByteArrayInputStream(stream), "frame"));
+            assertEquals(2, parsed.size());
+            assertArrayEquals(frame, parsed.get(0));
+        }
+        // The byte-scanning loop only returns the thumbnail
+        List<byte[]> legacy = new ArrayList<>();
+        legacyCountFrames(new ByteArrayInputStream(buildStream(frames, "frame", false)), legacy);
+        assertFalse(Arrays.equals(frame, legacy.get(0)));
+    }
+
+    @Test
+    public void testHandlesTinyReadsAndLeadingGarbage() throws Exception {
+        List<byte[]> frames = randomFrames(10, 5000, 3);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write("junk before the first part\r\n".getBytes(StandardCharsets.US_ASCII));
+        out.write(buildStream(frames, "myboundary", false));
+        InputStream trickle = new TrickleInputStream(out.toByteArray(), 7);
+        assertFramesEqual(frames, readAll(new MjpegDemuxer(trickle, "myboundary", 1024)));
+    }
+
+    @Test
+    public void testBufferGrowsForLargeFramesAndSurvivesReset() throws Exception {
+        List<byte[]> frames = randomFrames(3, 300_000, 4);
+        MjpegDemuxer demuxer = new MjpegDemuxer(new ByteArrayInputStream(buildStream(frames, "frame", true)), "frame", 1024);
+        assertFramesEqual(frames, readAll(demuxer));
+        int grownCapacity = demuxer.getCapacity();
+        assertTrue(grownCapacity >= 300_000);
+
+        demuxer.reset(new ByteArrayInputStream(buildStream(frames, "frame", false)), "frame");
+        assertFramesEqual(frames, readAll(demuxer));
+        assertEquals("Buffer should be reused after reset", grownCapacity, demuxer.getCapacity());
+    }
+
+    @Test
+    public void testReadsFakePiStream() throws Exception {
+        FakePiServer fakePi = new FakePiServer();
+        List<byte[]> frames = FakePiServer.syntheticFrames(4, 320, 240);
+        String url = fakePi.setFrames(frames).setStreamFps(0).start();
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(url + "/stream").openConnection();
+            MjpegDemuxer demuxer = new MjpegDemuxer(connection.getInputStream(),
+                MjpegDemuxer.boundaryFromContentType(connection.getContentType()));
+            for (int i = 0; i < 12; i++) {
+                assertTrue(demuxer.nextFrame());
+                byte[] expected = frames.get(i % frames.size());
+                assertArrayEquals(expected, Arrays.copyOfRange(demuxer.getBuffer(),
+                    demuxer.getFrameOffset(), demuxer.getFrameOffset() + demuxer.getFrameLength()));
+            }
+            connection.disconnect();
+        } finally {
+            fakePi.stop();
+        }
+    }
+
+    @Test
+    public void testMatchesLegacyLoopWithoutAllocation() throws Exception {
+        List<byte[]> frames = randomFrames(50, 40_000, 5);
+        byte[] stream = buildStream(frames, "frame", true);
+        int rounds = 20;
+        int totalFrames = frames.size() * rounds;
+
+        // Warm up, so class loading doesn't count as allocation
+        demuxCount(new MjpegDemuxer(new ByteArrayInputStream(stream), "frame"), stream);
+
+        int legacyFrames = 0;
+        for (int i = 0; i < rounds; i++) {
+            legacyFrames += legacyCountFrames(new ByteArrayInputStream(stream), null);
+        }
+
+        MjpegDemuxer demuxer = new MjpegDemuxer(new ByteArrayInputStream(stream), "frame");
+        long demuxAlloc = Allocations.allocatedBytes();
+        int demuxFrames = 0;
+        for (int i = 0; i < rounds; i++) {
+            demuxFrames += demuxCount(demuxer, stream);
+        }
+        demuxAlloc = Allocations.allocatedBytes() - demuxAlloc;
+
+        assertEquals(totalFrames, legacyFrames);
+        assertEquals(totalFrames, demuxFrames);
+        assertTrue("Demuxer should not allocate per frame (" + demuxAlloc / totalFrames + " B/frame)",
+            demuxAlloc / totalFrames < 1024);
+    }
+
+    private static int demuxCount(MjpegDemuxer demuxer, byte[] stream) throws IOException {
+        demuxer.reset(new ByteArrayInputStream(stream), "frame");
+        int count = 0;
+        while (demuxer.nextFrame()) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * The frame splitting from the original Dashboard.startPiStream loop (without decoding).
+     */
+    private static int legacyCountFrames(InputStream in, List<byte[]> sink) throws IOException {
+        byte[] buffer = new byte[8192];
+        ByteArrayOutputStream frameBuffer = new ByteArrayOutputStream();
+        boolean inJpeg = false;
+        int lastByte = -1;
+        int frames = 0;
+        int bytesRead;
+        while ((bytesRead = in.read(buffer)) > 0) {
+            for (int i = 0; i < bytesRead; i++) {
+                byte b = buffer[i];
+                if (lastByte == (byte) 0xFF && b == (byte) 0xD8) {
+                    frameBuffer.reset();
+                    frameBuffer.write((byte) 0xFF);
+                    frameBuffer.write((byte) 0xD8);
+                    inJpeg = true;
+                    lastByte = b;
+                    continue;
+                }
+                if (inJpeg) {
+                    frameBuffer.write(b);
+                    if (lastByte == (byte) 0xFF && b == (byte) 0xD9) {
+                        byte[] frameData = frameBuffer.toByteArray();
+                        if (frameData.length > 0) {
+                            frames++;
+                            if (sink != null) {
+                                sink.add(frameData);
+                            }
+                        }
+                        frameBuffer.reset();
+                        inJpeg = false;
+                    }
+                }
+                lastByte = b;
+            }
+        }
+        return frames;
+    }
+
+    private static List<byte[]> readAll(MjpegDemuxer demuxer) throws IOException {
+        List<byte[]> frames = new ArrayList<>();
+        while (demuxer.nextFrame()) {
+            frames.add(Arrays.copyOfRange(demuxer.getBuffer(), demuxer.getFrameOffset(),
+                demuxer.getFrameOffset() + demuxer.getFrameLength()));
+        }
+        return frames;
+    }
+
+    private static void assertFramesEqual(List<byte[]> expected, List<byte[]> actual) {
+        assertEquals("frame count", expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals("frame " + i, expected.get(i), actual.get(i));
+        }
+    }
+
+    private static byte[] buildStream(List<byte[]> frames, String boundary, boolean withContentLength) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] frame : frames) {
+            String header = "--" + boundary + "\r\nContent-Type: image/jpeg\r\n"
+                + (withContentLength ? "Content-Length: " + frame.length + "\r\n" : "") + "\r\n";
+            out.write(header.getBytes(StandardCharsets.US_ASCII));
+            out.write(frame);
+            out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        // Closing delimiter ends the last part
+        out.write(("--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        return out.toByteArray();
+    }
+
+    /**
+     * Random payload wrapped in SOI/EOI, with no marker bytes inside so the legacy loop can parse it too.
+     */
+    private static List<byte[]> randomFrames(int count, int size, long seed) {
+        Random random = new Random(seed);
+        List<byte[]> frames = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            byte[] body = new byte[size + random.nextInt(size / 4 + 1)];
+            for (int j = 0; j < body.length; j++) {
+                body[j] = (byte) random.nextInt(0xFF);  // never 0xFF
+            }
+            frames.add(jpegLike(body));
+        }
+        return frames;
+    }
+
+    private static byte[] jpegLike(byte[] body) {
+        byte[] frame = new byte[body.length + 4];
+        frame[0] = (byte) 0xFF;
+        frame[1] = (byte) 0xD8;
+        System.arraycopy(body, 0, frame, 2, body.length);
+        frame[frame.length - 2] = (byte) 0xFF;
+        frame[frame.length - 1] = (byte) 0xD9;
+        return frame;
+    }
+
+    /** Returns at most maxChunk bytes per read, like a slow socket */
+    private static class TrickleInputStream extends ByteArrayInputStream {
+        private final int maxChunk;
+
+        TrickleInputStream(byte[] data, int maxChunk) {
+            super(data);
+            this.maxChunk = maxChunk;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, Math.min(len, maxChunk));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.botsquad.smarthelmet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the overlay compositor's box mapping and allocation-free text formatting
+ */
+public class OverlayCompositorTest {
+    private static final float DELTA = 0.01f;
+
+    @Test
+    public void testMapBoxScalesIntoFrameRect() {
+        float[] boxes = {0, 0, 0, 0, 160, 120, 320, 240};
+        float[] out = new float[4];
+        // 640x480 shown at half size at (100, 50)
+        assertTrue(OverlayCompositor.mapBox(boxes, 1, 640, 480, 100, 50, 420, 290, out));
+        assertEquals(180f, out[0], DELTA);
+        assertEquals(110f, out[1], DELTA);
+        assertEquals(260f, out[2], DELTA);
+        assertEquals(170f, out[3], DELTA);
+    }
+
+    @Test
+    public void testMapBoxClipsToFrameRect() {
+        float[] boxes = {-50, -50, 700, 100};
+        float[] out = new float[4];
+        assertTrue(OverlayCompositor.mapBox(boxes, 0, 640, 480, 0, 0, 640, 480, out));
+        assertEquals(0f, out[0], DELTA);
+        assertEquals(0f, out[1], DELTA);
+        assertEquals(640f, out[2], DELTA);
+        assertEquals(100f, out[3], DELTA);
+    }
+
+    @Test
+    public void testMapBoxOutsideFrameIsEmpty() {
+        float[] boxes = {700, 500, 800, 600};
+        assertFalse(OverlayCompositor.mapBox(boxes, 0, 640, 480, 0, 0, 640, 480, new float[4]));
+    }
+
+    @Test
+    public void testAppendIntAndString() {
+        char[] buf = new char[32];
+        int len = OverlayCompositor.appendInt(buf, 0, 15);
+        len = OverlayCompositor.appendString(buf, len, " FPS");
+        assertEquals("15 FPS", new String(buf, 0, len));
+
+        assertEquals("0", new String(buf, 0, OverlayCompositor.appendInt(buf, 0, 0)));
+        assertEquals("-42", new String(buf, 0, OverlayCompositor.appendInt(buf, 0, -42)));
+        assertEquals("9876543210", new String(buf, 0, OverlayCompositor.appendInt(buf, 0, 9876543210L)));
+    }
+
+    @Test
+    public void testAppendPercentRoundsToOneDecimal() {
+        char[] buf = new char[16];
+        assertEquals("87.5%", new String(buf, 0, OverlayCompositor.appendPercent(buf, 0, 0.875f)));
+        assertEquals("100.0%", new String(buf, 0, OverlayCompositor.appendPercent(buf, 0, 1f)));
+        assertEquals("0.0%", new String(buf, 0, OverlayCompositor.appendPercent(buf, 0, 0f)));
+        assertEquals("33.3%", new String(buf, 0, OverlayCompositor.appendPercent(buf, 0, 1f / 3)));
+    }
+
+    @Test
+    public void testAppendTruncatesAtBufferEnd() {
+        char[] buf = new char[8];
+        int len = OverlayCompositor.appendString(buf, 0, "Drowsy driver");
+        assertEquals(8, len);
+        assertEquals("Drowsy d", new String(buf, 0, len));
+        // Numbers that don't fit are left out rather than cut
+        assertEquals(8, OverlayCompositor.appendInt(buf, len, 5));
+        assertEquals(6, OverlayCompositor.appendPercent(buf, 6, 0.5f));
+    }
+}
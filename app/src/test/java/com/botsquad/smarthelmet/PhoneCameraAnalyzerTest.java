@@ -0,0 +1,137 @@
+package com.botsquad.smarthelmet;
+
+import android.media.Image;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the phone-camera analyzer's model loading and per-frame verdicts
+ */
+public class PhoneCameraAnalyzerTest {
+
+    private static class FakeModel implements PhoneCameraAnalyzer.Model {
+        boolean drowsy;
+        float confidence;
+        boolean face = true;
+        int frames;
+        boolean closed;
+
+        @Override
+        public void detect(Image image, PhoneCameraAnalyzer.Verdict verdict) {
+            frames++;
+            if (face) {
+                verdict.drowsy = drowsy;
+                verdict.confidence = confidence;
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static class RecordingListener implements PhoneCameraAnalyzer.Listener {
+        final List<String> results = new ArrayList<>();
+        int unavailable;
+
+        @Override
+        public void onFrameAnalyzed(boolean drowsy, float confidence, long captureTimeMs, long framesAnalyzed) {
+            results.add(drowsy + " " + confidence + " @" + captureTimeMs + " #" + framesAnalyzed);
+        }
+
+        @Override
+        public void onModelUnavailable(IOException error) {
+            unavailable++;
+        }
+    }
+
+    @Test
+    public void testModelLoadedOnceOnFirstFrame() {
+        FakeModel model = new FakeModel();
+        int[] loads = new int[1];
+        PhoneCameraAnalyzer analyzer = new PhoneCameraAnalyzer(() -> {
+            loads[0]++;
+            return model;
+        }, new RecordingListener());
+
+        assertEquals(0, loads[0]);
+        analyzer.analyze(null, 1000);
+        analyzer.analyze(null, 1033);
+        analyzer.analyze(null, 1066);
+        assertEquals(1, loads[0]);
+        assertEquals(3, model.frames);
+        assertEquals(3, analyzer.getFramesAnalyzed());
+        assertEquals(3, analyzer.getDetectTimeMs().totalCount());
+    }
+
+    @Test
+    public void testVerdictCarriesCaptureTime() {
+        FakeModel model = new FakeModel();
+        RecordingListener listener = new RecordingListener();
+        PhoneCameraAnalyzer analyzer = new PhoneCameraAnalyzer(() -> model, listener);
+
+        model.drowsy = true;
+        model.confidence = 0.75f;
+        analyzer.analyze(null, 5000);
+        model.drowsy = false;
+        model.confidence = 0.5f;
+        analyzer.analyze(null, 5033);
+
+        assertEquals("true 0.75 @5000 #1", listener.results.get(0));
+        assertEquals("false 0.5 @5033 #2", listener.results.get(1));
+    }
+
+    @Test
+    public void testNoFaceIsAwake() {
+        FakeModel model = new FakeModel();
+        RecordingListener listener = new RecordingListener();
+        PhoneCameraAnalyzer analyzer = new PhoneCameraAnalyzer(() -> model, listener);
+
+        model.drowsy = true;
+        model.confidence = 0.9f;
+        analyzer.analyze(null, 100);
+        // The verdict is reset per frame, so a frame without a face doesn't repeat the last one
+        model.face = false;
+        analyzer.analyze(null, 133);
+
+        assertEquals("false 0.0 @133 #2", listener.results.get(1));
+    }
+
+    @Test
+    public void testLoadFailureIsLatched() {
+        int[] loads = new int[1];
+        RecordingListener listener = new RecordingListener();
+        PhoneCameraAnalyzer analyzer = new PhoneCameraAnalyzer(() -> {
+            loads[0]++;
+            throw new IOException("model.tflite missing");
+        }, listener);
+
+        for (int i = 0; i < 10; i++) {
+            analyzer.analyze(null, i);
+        }
+        assertEquals("load should not be retried on every frame", 1, loads[0]);
+        assertEquals(1, listener.unavailable);
+        assertTrue(analyzer.isModelFailed());
+        assertTrue(listener.results.isEmpty());
+        assertEquals(0, analyzer.getFramesAnalyzed());
+    }
+
+    @Test
+    public void testCloseReleasesModel() {
+        FakeModel model = new FakeModel();
+        PhoneCameraAnalyzer analyzer = new PhoneCameraAnalyzer(() -> model, new RecordingListener());
+        analyzer.close();
+        assertFalse("nothing loaded yet", model.closed);
+
+        analyzer.analyze(null, 0);
+        analyzer.close();
+        assertTrue(model.closed);
+    }
+}
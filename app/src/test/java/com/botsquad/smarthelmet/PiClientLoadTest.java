@@ -0,0 +1,139 @@
+package com.botsquad.smarthelmet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Concurrency tests for the Pi client code against {@link FakePiServer}: every query
+ * completes under load, server latency shows up in the client's numbers, and the stream
+ * demuxer gets the served frames back intact. Checks behaviour, not machine-dependent speed.
+ */
+public class PiClientLoadTest {
+
+    private FakePiServer fakePi;
+
+    @Before
+    public void setUp() throws Exception {
+        fakePi = new FakePiServer();
+    }
+
+    @After
+    public void tearDown() {
+        fakePi.stop();
+    }
+
+    @Test
+    public void testConcurrentQueriesAllComplete() throws Exception {
+        String url = fakePi.start();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        PiDrowsinessDetector detector = new PiDrowsinessDetector(url, pool);
+        LatencyTracker latency = new LatencyTracker(1000);
+
+        int requests = 400;
+        runQueries(detector, requests, 8, latency);
+        pool.shutdownNow();
+
+        assertEquals(requests, fakePi.getDetectSimpleRequests());
+        assertEquals(requests, latency.totalCount());
+    }
+
+    @Test
+    public void testInjectedLatencyIsObserved() throws Exception {
+        String url = fakePi.setLatencyMs(40).start();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        PiDrowsinessDetector detector = new PiDrowsinessDetector(url, pool);
+        LatencyTracker latency = new LatencyTracker(100);
+
+        runQueries(detector, 40, 4, latency);
+        pool.shutdownNow();
+
+        // The server sleeps before answering, so no query can come back sooner
+        assertTrue("p50 should include server latency: " + latency, latency.percentile(50) >= 40);
+    }
+
+    @Test
+    public void testHealthEndpoint() throws Exception {
+        String url = fakePi.start();
+        assertTrue(new PiEndpointProber().isHealthy(url));
+        assertEquals(1, fakePi.getHealthRequests());
+    }
+
+    @Test
+    public void testStreamFramesArriveIntact() throws Exception {
+        List<byte[]> frames = FakePiServer.syntheticFrames(5, 320, 240);
+        String url = fakePi.setFrames(frames).setStreamFps(0).setFramesPerConnection(12).start();
+
+        HttpURLConnection connection = (HttpURLConnection) new URL(url + "/stream").openConnection();
+        connection.setReadTimeout(2000);
+        assertEquals(200, connection.getResponseCode());
+        String boundary = MjpegDemuxer.boundaryFromContentType(connection.getContentType());
+        assertEquals(FakePiServer.BOUNDARY, boundary);
+
+        int received = 0;
+        try (InputStream in = connection.getInputStream()) {
+            MjpegDemuxer demuxer = new MjpegDemuxer(in, boundary);
+            while (demuxer.nextFrame()) {
+                byte[] expected = frames.get(received % frames.size());
+                byte[] actual = Arrays.copyOfRange(demuxer.getBuffer(), demuxer.getFrameOffset(),
+                    demuxer.getFrameOffset() + demuxer.getFrameLength());
+                assertArrayEquals("Frame " + received, expected, actual);
+                received++;
+            }
+        } finally {
+            connection.disconnect();
+        }
+        assertEquals(12, received);
+    }
+
+    /**
+     * Closed loop: keep {@code concurrency} queries in flight so latency excludes client-side queuing.
+     */
+    private static void runQueries(PiDrowsinessDetector detector, int count, int concurrency,
+                                   LatencyTracker latency) throws Exception {
+        CountDownLatch done = new CountDownLatch(count);
+        AtomicInteger remaining = new AtomicInteger(count);
+        AtomicInteger errors = new AtomicInteger();
+        for (int i = 0; i < concurrency; i++) {
+            issueQuery(detector, remaining, done, errors, latency);
+        }
+        assertTrue("Queries did not finish", done.await(30, TimeUnit.SECONDS));
+        assertEquals("Query errors", 0, errors.get());
+    }
+
+    private static void issueQuery(PiDrowsinessDetector detector, AtomicInteger remaining, CountDownLatch done,
+                                   AtomicInteger errors, LatencyTracker latency) {
+        if (remaining.getAndDecrement() <= 0) {
+            return;
+        }
+        final long sentNs = System.nanoTime();
+        detector.queryDetectionAsync(new PiDrowsinessDetector.DetectionCallback() {
+            @Override
+            public void onDetectionComplete(List<PiDrowsinessDetector.Detection> detections, boolean isDrowsy, float confidence) {
+                latency.record((System.nanoTime() - sentNs) / 1_000_000);
+                done.countDown();
+                issueQuery(detector, remaining, done, errors, latency);
+            }
+
+            @Override
+            public void onError(Exception error) {
+                errors.incrementAndGet();
+                done.countDown();
+                issueQuery(detector, remaining, done, errors, latency);
+            }
+        });
+    }
+}
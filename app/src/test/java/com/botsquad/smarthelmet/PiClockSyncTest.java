@@ -0,0 +1,76 @@
+package com.botsquad.smarthelmet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for Pi clock offset estimation and result age accounting
+ */
+public class PiClockSyncTest {
+
+    @Test
+    public void testOffsetFromSymmetricExchange() {
+        PiClockSync sync = new PiClockSync();
+        // Pi clock runs 5000ms ahead, 20ms each way, 2ms processing on the Pi
+        long t0 = 1_000_000;
+        long t1 = t0 + 20 + 5000;
+        long t2 = t1 + 2;
+        long t3 = t0 + 42;
+        sync.addSample(t0, t1, t2, t3);
+
+        assertTrue(sync.hasEstimate());
+        assertEquals(5000, sync.getOffsetMs());
+        assertEquals(40, sync.getRoundTripMs());
+        assertEquals("Pi capture time should map back to phone time", t0 + 20, sync.toLocalTime(t1));
+    }
+
+    @Test
+    public void testLowestDelaySampleWins() {
+        PiClockSync sync = new PiClockSync();
+        // Queued exchange: 300ms stuck on the way out skews the estimate
+        sync.addSample(0, 300 - 1000, 301 - 1000, 320);
+        // Clean exchange: 10ms each way, Pi is 1000ms behind
+        sync.addSample(10_000, 10_010 - 1000, 10_011 - 1000, 10_021);
+
+        assertEquals(-1000, sync.getOffsetMs());
+        assertEquals(20, sync.getRoundTripMs());
+    }
+
+    @Test
+    public void testRejectsImpossibleSample() {
+        PiClockSync sync = new PiClockSync();
+        // Pi claims it spent longer than the whole round trip
+        sync.addSample(0, 0, 500, 100);
+        assertFalse(sync.hasEstimate());
+        assertTrue(sync.needsResync(0));
+    }
+
+    @Test
+    public void testResyncAfterInterval() {
+        PiClockSync sync = new PiClockSync();
+        sync.addSample(0, 5, 6, 11);
+        assertFalse(sync.needsResync(11 + 1000));
+        assertTrue(sync.needsResync(11 + PiClockSync.RESYNC_INTERVAL_MS + 1));
+    }
+
+    @Test
+    public void testLatencyTrackerPercentiles() {
+        LatencyTracker tracker = new LatencyTracker(100);
+        assertEquals(-1, tracker.percentile(50));
+        for (int i = 1; i <= 100; i++) {
+            tracker.record(i);
+        }
+        assertEquals(50, tracker.percentile(50));
+        assertEquals(90, tracker.percentile(90));
+        assertEquals(100, tracker.percentile(100));
+        assertEquals(50, tracker.mean());
+
+        // Window rolls over: only the newest 100 samples count
+        for (int i = 0; i < 100; i++) {
+            tracker.record(1000);
+        }
+        assertEquals(1000, tracker.percentile(10));
+        assertEquals(200, tracker.totalCount());
+    }
+}
@@ -0,0 +1,129 @@
+package com.botsquad.smarthelmet;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for Pi server discovery probing (first healthy responder wins)
+ */
+public class PiEndpointProberTest {
+
+    private HttpServer healthyServer;
+    private HttpServer wrongServer;
+
+    @Before
+    public void setUp() throws Exception {
+        healthyServer = startServer(200, "{\"status\": \"ok\", \"detector_loaded\": true}");
+        wrongServer = startServer(404, "not here");
+    }
+
+    @After
+    public void tearDown() {
+        healthyServer.stop(0);
+        wrongServer.stop(0);
+    }
+
+    @Test
+    public void testFindsFirstHealthyServer() {
+        String healthyUrl = urlOf(healthyServer);
+        List<String> candidates = Arrays.asList(
+            "http://127.0.0.1:1",          // nothing listening
+            urlOf(wrongServer),            // answers, but not a Pi
+            healthyUrl);
+
+        String found = new PiEndpointProber(4).findFirstHealthy(candidates, 2000);
+
+        assertEquals("Healthy Pi should be found", healthyUrl, found);
+    }
+
+    @Test
+    public void testProbesInPriorityOrderAndStopsAtFirstHealthy() {
+        String healthyUrl = urlOf(healthyServer);
+        List<String> candidates = Arrays.asList(
+            "http://127.0.0.1:1",
+            urlOf(wrongServer),
+            healthyUrl,
+            "http://127.0.0.1:2");
+        List<String> probed = Collections.synchronizedList(new ArrayList<>());
+        PiEndpointProber prober = new PiEndpointProber(1) {
+            @Override
+            public boolean isHealthy(String baseUrl) {
+                probed.add(baseUrl);
+                return super.isHealthy(baseUrl);
+            }
+        };
+
+        assertEquals(healthyUrl, prober.findFirstHealthy(candidates, 5000));
+        assertEquals(candidates.subList(0, 3), probed);
+    }
+
+    @Test
+    public void testWholeSubnetFitsInDeadline() throws Exception {
+        int candidates = PiEndpointProber.subnetCandidates(InetAddress.getByName("192.168.43.1"), 5000).size();
+        int workers = PiEndpointProber.DEFAULT_MAX_CONCURRENCY;
+        long rounds = (candidates + workers - 1) / workers;
+
+        // Every host dead: each probe takes the full connect timeout
+        assertTrue(rounds + " rounds of dead hosts", rounds * PiEndpointProber.PROBE_CONNECT_TIMEOUT_MS <= 1200 * 3 / 4);
+        assertTrue("bounded, not one socket per host", workers < candidates / 2);
+    }
+
+    @Test
+    public void testReturnsNullWhenNothingAnswers() {
+        List<String> candidates = Arrays.asList(urlOf(wrongServer), "http://127.0.0.1:1");
+        assertNull(new PiEndpointProber(2).findFirstHealthy(candidates, 1000));
+    }
+
+    @Test
+    public void testSubnetCandidatesStartNearOwnAddress() throws Exception {
+        InetAddress local = InetAddress.getByName("192.168.43.1");
+        List<String> candidates = PiEndpointProber.subnetCandidates(local, 5000);
+
+        assertEquals("Every other host on the /24 should be probed", 253, candidates.size());
+        assertEquals("http://192.168.43.2:5000", candidates.get(0));
+        assertFalse("Own address should be skipped", candidates.contains("http://192.168.43.1:5000"));
+        assertTrue(candidates.contains("http://192.168.43.151:5000"));
+    }
+
+    @Test
+    public void testPriorityUrlsAreProbedFirstWithoutDuplicates() throws Exception {
+        InetAddress local = InetAddress.getByName("10.0.0.5");
+        List<String> candidates = PiEndpointProber.buildCandidates(
+            Arrays.asList("http://10.0.0.9:5000", "http://10.0.0.9:5000"),
+            Arrays.asList(local), 5000);
+
+        assertEquals("http://10.0.0.9:5000", candidates.get(0));
+        assertEquals(candidates.size(), candidates.stream().distinct().count());
+    }
+
+    private static HttpServer startServer(int status, String body) throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/health", exchange -> {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(bytes);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private static String urlOf(HttpServer server) {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+}
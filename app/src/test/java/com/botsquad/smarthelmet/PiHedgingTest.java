@@ -0,0 +1,167 @@
+package com.botsquad.smarthelmet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for hedged queries across a primary and a backup Pi
+ */
+public class PiHedgingTest {
+
+    private FakePiServer primary;
+    private FakePiServer secondary;
+    private ExecutorService pool;
+
+    @Before
+    public void setUp() {
+        primary = new FakePiServer();
+        secondary = new FakePiServer();
+        pool = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        primary.stop();
+        secondary.stop();
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void testNoHedgingWithoutSecondary() throws Exception {
+        PiDrowsinessDetector detector = new PiDrowsinessDetector(primary.start(), pool);
+        assertEquals(0, runSequential(detector, 20).errors);
+        assertEquals(0, detector.getHedgedQueryCount());
+        assertEquals(20, detector.getQueryLatencyTracker().totalCount());
+    }
+
+    @Test
+    public void testSlowPrimaryIsHedgedWithinBudget() throws Exception {
+        PiDrowsinessDetector detector = new PiDrowsinessDetector(primary.start(), pool);
+        detector.setSecondaryServerUrl(secondary.setDrowsy(true).start());
+        // A fixed threshold well clear of loopback latency, so the result doesn't depend on machine speed
+        detector.setHedgeDelayMs(150);
+
+        assertEquals(0, runSequential(detector, 20).errors);
+        assertEquals("Fast primary should not be hedged", 0, detector.getHedgeWinCount());
+        primary.setLatencyMs(400);
+
+        int queries = 20;
+        Outcome outcome = runSequential(detector, queries);
+        assertEquals(0, outcome.errors);
+        assertTrue("Some queries should be answered by the backup", detector.getHedgeWinCount() > 0);
+        assertTrue("Hedged queries should be answered as drowsy by the backup", outcome.drowsy > 0);
+        // One starting token plus a tenth of a token per query
+        long budget = 1 + (20 + queries) / 10;
+        assertTrue("Hedges over budget: " + detector.getHedgedQueryCount(), detector.getHedgedQueryCount() <= budget);
+        assertTrue("Secondary load should stay bounded: " + secondary.getDetectSimpleRequests(),
+            secondary.getDetectSimpleRequests() <= detector.getHedgedQueryCount());
+    }
+
+    @Test
+    public void testHedgeDelayFollowsPrimaryLatency() {
+        PiDrowsinessDetector detector = new PiDrowsinessDetector("http://127.0.0.1:1", pool);
+        LatencyTracker latency = detector.getQueryLatencyTracker();
+        assertEquals("Default until enough samples", 300, detector.currentHedgeDelayMs());
+
+        for (int i = 0; i < 20; i++) {
+            latency.record(i < 18 ? 80 : 500);
+        }
+        assertEquals(80, detector.currentHedgeDelayMs());
+
+        latency.reset();
+        for (int i = 0; i < 20; i++) {
+            latency.record(2);
+        }
+        assertEquals("Floored for a very fast primary", 30, detector.currentHedgeDelayMs());
+
+        detector.setHedgeDelayMs(150);
+        assertEquals(150, detector.currentHedgeDelayMs());
+        detector.setHedgeDelayMs(0);
+        assertEquals(30, detector.currentHedgeDelayMs());
+    }
+
+    @Test
+    public void testHedgeAnswersFasterThanSlowPrimary() throws Exception {
+        PiDrowsinessDetector detector = new PiDrowsinessDetector(primary.setLatencyMs(1000).start(), pool);
+        detector.setSecondaryServerUrl(secondary.start());
+
+        long start = System.currentTimeMillis();
+        Outcome outcome = runSequential(detector, 1);
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertEquals(0, outcome.errors);
+        assertEquals(1, detector.getHedgeWinCount());
+        assertTrue("Hedge should answer well before the slow primary (took " + elapsed + "ms)", elapsed < 900);
+    }
+
+    @Test
+    public void testDeadPrimaryFailsOverImmediately() throws Exception {
+        PiDrowsinessDetector detector = new PiDrowsinessDetector("http://127.0.0.1:1", pool);
+        detector.setSecondaryServerUrl(secondary.start());
+
+        Outcome outcome = runSequential(detector, 5);
+        assertEquals(0, outcome.errors);
+        assertEquals(5, detector.getHedgeWinCount());
+    }
+
+    @Test
+    public void testBothDeadReportsOneErrorPerQuery() throws Exception {
+        PiDrowsinessDetector detector = new PiDrowsinessDetector("http://127.0.0.1:1", pool);
+        detector.setSecondaryServerUrl("http://127.0.0.1:2");
+
+        Outcome outcome = runSequential(detector, 3);
+        assertEquals(3, outcome.errors);
+        assertEquals(0, outcome.results);
+    }
+
+    private static class Outcome {
+        int results;
+        int drowsy;
+        int errors;
+    }
+
+    private static Outcome runSequential(PiDrowsinessDetector detector, int count) throws Exception {
+        Outcome outcome = new Outcome();
+        for (int i = 0; i < count; i++) {
+            CountDownLatch done = new CountDownLatch(1);
+            AtomicInteger callbacks = new AtomicInteger();
+            detector.queryDetectionAsync(new PiDrowsinessDetector.DetectionCallback() {
+                @Override
+                public void onDetectionComplete(List<PiDrowsinessDetector.Detection> detections, boolean isDrowsy, float confidence) {
+                    synchronized (outcome) {
+                        outcome.results++;
+                        if (isDrowsy) {
+                            outcome.drowsy++;
+                        }
+                    }
+                    callbacks.incrementAndGet();
+                    done.countDown();
+                }
+
+                @Override
+                public void onError(Exception error) {
+                    synchronized (outcome) {
+                        outcome.errors++;
+                    }
+                    callbacks.incrementAndGet();
+                    done.countDown();
+                }
+            });
+            assertTrue("Query " + i + " did not complete", done.await(5, TimeUnit.SECONDS));
+            // A hedged query must never answer twice
+            Thread.sleep(5);
+            assertEquals(1, callbacks.get());
+        }
+        return outcome;
+    }
+}
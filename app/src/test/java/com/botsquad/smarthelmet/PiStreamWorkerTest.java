@@ -0,0 +1,259 @@
+package com.botsquad.smarthelmet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the reconnecting Pi stream worker against the fake Pi server
+ */
+public class PiStreamWorkerTest {
+
+    private FakePiServer fakePi;
+    private PiStreamWorker worker;
+    private ServerSocket stalledServer;
+    private final List<Socket> backlogFillers = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        fakePi = new FakePiServer().setStreamFps(0);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (worker != null) {
+            worker.stop();
+        }
+        fakePi.stop();
+        for (Socket socket : backlogFillers) {
+            socket.close();
+        }
+        if (stalledServer != null) {
+            stalledServer.close();
+        }
+    }
+
+    /**
+     * A server whose accept backlog is full, so connecting to it hangs until the connect timeout.
+     */
+    private String stalledConnectUrl() throws IOException {
+        stalledServer = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), stalledServer.getLocalPort());
+        for (int i = 0; i < 8; i++) {
+            Socket socket = new Socket();
+            try {
+                socket.connect(address, 200);
+                backlogFillers.add(socket);
+            } catch (SocketTimeoutException e) {
+                socket.close();
+                return "http://127.0.0.1:" + stalledServer.getLocalPort();
+            }
+        }
+        fail("could not fill the accept backlog");
+        return null;
+    }
+
+    @Test
+    public void testReconnectsAndReusesBuffer() throws Exception {
+        String url = fakePi.setFramesPerConnection(5).start();
+        RecordingListener listener = new RecordingListener(20);
+        worker = new PiStreamWorker(listener, new ReconnectBackoff(10, 50, new Random(1)));
+        worker.start(url);
+
+        assertTrue("frames should keep arriving across reconnects", listener.framesLatch.await(10, TimeUnit.SECONDS));
+        assertTrue(worker.getConnections() >= 4);
+        assertTrue(listener.disconnects.size() >= 3);
+        assertTrue(listener.disconnects.get(0).startsWith("stream ended"));
+        int capacity = worker.getBufferCapacity();
+        assertTrue(capacity > 0);
+
+        long framesBefore = worker.getFramesReceived();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (worker.getFramesReceived() < framesBefore + 10 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue("frames stopped arriving", worker.getFramesReceived() >= framesBefore + 10);
+        assertEquals("demuxer buffer should survive reconnects", capacity, worker.getBufferCapacity());
+    }
+
+    @Test
+    public void testBackoffGrowsWhileStreamUnavailable() throws Exception {
+        String url = fakePi.setStreamStatus(503).start();
+        RecordingListener listener = new RecordingListener(Integer.MAX_VALUE);
+        ReconnectBackoff backoff = new ReconnectBackoff(20, 160, new Random(7));
+        worker = new PiStreamWorker(listener, backoff);
+        worker.start(url);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (listener.delays.size() < 6 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        worker.stop();
+        assertTrue(listener.delays.size() >= 6);
+        assertEquals("HTTP 503", listener.disconnects.get(0));
+        for (int i = 0; i < 6; i++) {
+            long ceiling = backoff.ceilingMs(i);
+            long delay = listener.delays.get(i);
+            assertTrue("attempt " + i + " delay " + delay, delay >= ceiling / 2 && delay <= ceiling);
+        }
+        assertEquals(0, listener.connected.get());
+        assertTrue(worker.getTotalStallMs() > 0);
+    }
+
+    @Test
+    public void testRetryNowSkipsBackoff() throws Exception {
+        String url = fakePi.setStreamStatus(503).start();
+        RecordingListener listener = new RecordingListener(1);
+        worker = new PiStreamWorker(listener, new ReconnectBackoff(30_000, 60_000));
+        worker.start(url);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (listener.delays.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertFalse(listener.delays.isEmpty());
+
+        // The Pi is back and the network changed: don't sit out a 15-30 s backoff
+        fakePi.setStreamStatus(200);
+        worker.retryNow();
+        assertTrue(listener.framesLatch.await(3, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testNetworkChangeDropsStuckConnection() throws Exception {
+        // One frame a second: between frames the connection sits in a read
+        String url = fakePi.setStreamFps(1).start();
+        RecordingListener listener = new RecordingListener(1);
+        worker = new PiStreamWorker(listener, new ReconnectBackoff(30_000, 60_000));
+        worker.start(url);
+        assertTrue(listener.framesLatch.await(3, TimeUnit.SECONDS));
+
+        worker.onNetworkChanged();
+        long deadline = System.currentTimeMillis() + 3000;
+        while (worker.getConnections() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("should reconnect without waiting for the read timeout or backoff", 2, worker.getConnections());
+        assertEquals(1, listener.disconnects.size());
+    }
+
+    @Test
+    public void testRestartDuringStalledConnectKeepsOneThread() throws Exception {
+        String goodUrl = fakePi.setStreamFps(20).start();
+        RecordingListener listener = new RecordingListener(10);
+        worker = new PiStreamWorker(listener, new ReconnectBackoff(10, 20));
+        worker.start(stalledConnectUrl());
+        Thread.sleep(200);
+
+        // The connect can't be cancelled and outlasts stop(); the restart must not add a thread
+        worker.stop();
+        worker.start(goodUrl);
+
+        assertTrue(listener.framesLatch.await(10, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (listener.disconnects.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse("the stalled connect should have timed out", listener.disconnects.isEmpty());
+        Thread.sleep(200);
+        assertEquals("callbacks should come from a single stream thread", 1, listener.threads.size());
+        assertEquals(1, listener.maxConcurrentFrames.get());
+    }
+
+    @Test
+    public void testStallTimeCoversOutage() throws Exception {
+        String url = fakePi.setStreamStatus(503).start();
+        RecordingListener listener = new RecordingListener(1);
+        worker = new PiStreamWorker(listener, new ReconnectBackoff(10, 20));
+        worker.start(url);
+
+        Thread.sleep(300);
+        fakePi.setStreamStatus(200);
+        assertTrue(listener.framesLatch.await(3, TimeUnit.SECONDS));
+        long stall = worker.getTotalStallMs();
+        assertTrue("stall " + stall, stall >= 250);
+
+        // Frames are flowing, so stall time stops growing
+        Thread.sleep(200);
+        assertTrue(worker.getTotalStallMs() - stall < 100);
+    }
+
+    @Test
+    public void testListenerCanDropConnection() throws Exception {
+        String url = fakePi.start();
+        AtomicInteger frames = new AtomicInteger();
+        RecordingListener listener = new RecordingListener(Integer.MAX_VALUE) {
+            @Override
+            public boolean onFrame(byte[] buffer, int offset, int length) {
+                super.onFrame(buffer, offset, length);
+                return frames.incrementAndGet() % 3 != 0;
+            }
+        };
+        worker = new PiStreamWorker(listener, new ReconnectBackoff(10, 20));
+        worker.start(url);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (worker.getConnections() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(worker.getConnections() >= 3);
+        assertEquals("dropped by listener", listener.disconnects.get(0));
+    }
+
+    private static class RecordingListener implements PiStreamWorker.Listener {
+        final CountDownLatch framesLatch;
+        final AtomicInteger connected = new AtomicInteger();
+        final List<String> disconnects = Collections.synchronizedList(new ArrayList<>());
+        final List<Long> delays = Collections.synchronizedList(new ArrayList<>());
+        final Set<Thread> threads = Collections.synchronizedSet(new HashSet<>());
+        final AtomicInteger framesInFlight = new AtomicInteger();
+        final AtomicInteger maxConcurrentFrames = new AtomicInteger();
+
+        RecordingListener(int expectedFrames) {
+            framesLatch = new CountDownLatch(expectedFrames);
+        }
+
+        @Override
+        public void onConnected(String url) {
+            threads.add(Thread.currentThread());
+            connected.incrementAndGet();
+        }
+
+        @Override
+        public boolean onFrame(byte[] buffer, int offset, int length) {
+            threads.add(Thread.currentThread());
+            int inFlight = framesInFlight.incrementAndGet();
+            maxConcurrentFrames.accumulateAndGet(inFlight, Math::max);
+            assertEquals((byte) 0xFF, buffer[offset]);
+            assertEquals((byte) 0xD8, buffer[offset + 1]);
+            framesLatch.countDown();
+            framesInFlight.decrementAndGet();
+            return true;
+        }
+
+        @Override
+        public void onDisconnected(String reason, long retryDelayMs) {
+            threads.add(Thread.currentThread());
+            disconnects.add(reason);
+            delays.add(retryDelayMs);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.botsquad.smarthelmet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the preview renderer's frame placement and backend selection
+ */
+public class PreviewRendererTest {
+    private static final float DELTA = 0.01f;
+
+    @Test
+    public void testFitCenterLetterboxesWideSurface() {
+        float[] rect = new float[4];
+        PreviewRenderer.fitCenter(640, 480, 1000, 480, rect);
+        assertEquals(180f, rect[0], DELTA);
+        assertEquals(0f, rect[1], DELTA);
+        assertEquals(820f, rect[2], DELTA);
+        assertEquals(480f, rect[3], DELTA);
+    }
+
+    @Test
+    public void testFitCenterPillarboxesTallSurface() {
+        float[] rect = new float[4];
+        PreviewRenderer.fitCenter(640, 480, 320, 600, rect);
+        assertEquals(0f, rect[0], DELTA);
+        assertEquals(320f, rect[2], DELTA);
+        assertEquals(240f, rect[3] - rect[1], DELTA);
+        assertEquals(300f, (rect[1] + rect[3]) / 2f, DELTA);
+    }
+
+    @Test
+    public void testFitCenterScalesUpSmallFrames() {
+        float[] rect = new float[4];
+        PreviewRenderer.fitCenter(160, 120, 640, 480, rect);
+        assertEquals(0f, rect[0], DELTA);
+        assertEquals(0f, rect[1], DELTA);
+        assertEquals(640f, rect[2], DELTA);
+        assertEquals(480f, rect[3], DELTA);
+    }
+
+    @Test
+    public void testHardwareBackendNeedsApi26() {
+        assertEquals(PreviewRenderer.Backend.HARDWARE,
+            PreviewRenderer.resolveBackend(PreviewRenderer.Backend.HARDWARE, false, 26));
+        assertEquals(PreviewRenderer.Backend.SOFTWARE,
+            PreviewRenderer.resolveBackend(PreviewRenderer.Backend.HARDWARE, false, 25));
+    }
+
+    @Test
+    public void testHardwareFailureFallsBackToSoftware() {
+        assertEquals(PreviewRenderer.Backend.SOFTWARE,
+            PreviewRenderer.resolveBackend(PreviewRenderer.Backend.HARDWARE, true, 34));
+        assertEquals(PreviewRenderer.Backend.SOFTWARE,
+            PreviewRenderer.resolveBackend(PreviewRenderer.Backend.SOFTWARE, false, 34));
+    }
+}
@@ -0,0 +1,56 @@
+package com.botsquad.smarthelmet;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for exponential reconnect backoff with jitter
+ */
+public class ReconnectBackoffTest {
+
+    @Test
+    public void testCeilingDoublesUpToMax() {
+        ReconnectBackoff backoff = new ReconnectBackoff(250, 10_000);
+        assertEquals(250, backoff.ceilingMs(0));
+        assertEquals(500, backoff.ceilingMs(1));
+        assertEquals(4000, backoff.ceilingMs(4));
+        assertEquals(10_000, backoff.ceilingMs(6));
+        assertEquals(10_000, backoff.ceilingMs(100));
+    }
+
+    @Test
+    public void testDelaysStayWithinJitterRange() {
+        ReconnectBackoff backoff = new ReconnectBackoff(100, 5_000, new Random(42));
+        for (int attempt = 0; attempt < 12; attempt++) {
+            long ceiling = backoff.ceilingMs(attempt);
+            long delay = backoff.nextDelayMs();
+            assertTrue("attempt " + attempt + ": " + delay, delay >= ceiling / 2 && delay <= ceiling);
+        }
+    }
+
+    @Test
+    public void testJitterSpreadsClients() {
+        ReconnectBackoff a = new ReconnectBackoff(1000, 10_000, new Random(1));
+        ReconnectBackoff b = new ReconnectBackoff(1000, 10_000, new Random(2));
+        boolean differed = false;
+        for (int i = 0; i < 5; i++) {
+            differed |= a.nextDelayMs() != b.nextDelayMs();
+        }
+        assertTrue(differed);
+    }
+
+    @Test
+    public void testResetStartsOver() {
+        ReconnectBackoff backoff = new ReconnectBackoff(200, 10_000, new Random(3));
+        for (int i = 0; i < 5; i++) {
+            backoff.nextDelayMs();
+        }
+        assertEquals(5, backoff.getAttempt());
+        backoff.reset();
+        assertEquals(0, backoff.getAttempt());
+        assertTrue(backoff.nextDelayMs() <= 200);
+    }
+}
@@ -0,0 +1,59 @@
+package com.botsquad.smarthelmet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for dropping stale camera frames by sensor timestamp
+ */
+public class SensorFrameGateTest {
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void testAdmitsFreshFrames() {
+        SensorFrameGate gate = new SensorFrameGate(100 * MS);
+        for (int i = 0; i < 10; i++) {
+            long timestamp = 1_000 * MS + i * 33 * MS;
+            gate.onExposureStarted(timestamp);
+            assertEquals(SensorFrameGate.Decision.ADMIT, gate.onFrame(timestamp, SensorFrameGate.NO_CLOCK));
+        }
+        assertEquals(10, gate.getAdmitted());
+    }
+
+    @Test
+    public void testDropsFrameOlderThanNewestExposure() {
+        SensorFrameGate gate = new SensorFrameGate(100 * MS);
+        // A frame delivered late: the sensor is already 5 frames further
+        gate.onExposureStarted(1_000 * MS);
+        gate.onExposureStarted(1_165 * MS);
+        assertEquals(SensorFrameGate.Decision.DROP_STALE, gate.onFrame(1_000 * MS, SensorFrameGate.NO_CLOCK));
+        assertEquals(SensorFrameGate.Decision.ADMIT, gate.onFrame(1_165 * MS, SensorFrameGate.NO_CLOCK));
+        assertEquals(1, gate.getDroppedStale());
+    }
+
+    @Test
+    public void testDropsByClockWhenSensorTimeIsRealtime() {
+        SensorFrameGate gate = new SensorFrameGate(100 * MS);
+        // Arrival order alone looks fine, but the frame was exposed 250ms ago
+        assertEquals(SensorFrameGate.Decision.DROP_STALE, gate.onFrame(1_000 * MS, 1_250 * MS));
+        assertEquals(SensorFrameGate.Decision.ADMIT, gate.onFrame(1_200 * MS, 1_250 * MS));
+    }
+
+    @Test
+    public void testArrivalTimeDoesNotMatter() {
+        SensorFrameGate gate = new SensorFrameGate(100 * MS);
+        // Without a shared clock only sensor times count, however long delivery took
+        gate.onExposureStarted(5_000 * MS);
+        assertEquals(SensorFrameGate.Decision.ADMIT, gate.onFrame(5_000 * MS, SensorFrameGate.NO_CLOCK));
+    }
+
+    @Test
+    public void testDropsDuplicateAndOutOfOrderFrames() {
+        SensorFrameGate gate = new SensorFrameGate(100 * MS);
+        assertEquals(SensorFrameGate.Decision.ADMIT, gate.onFrame(2_000 * MS, SensorFrameGate.NO_CLOCK));
+        assertEquals(SensorFrameGate.Decision.DROP_OUT_OF_ORDER, gate.onFrame(2_000 * MS, SensorFrameGate.NO_CLOCK));
+        assertEquals(SensorFrameGate.Decision.DROP_OUT_OF_ORDER, gate.onFrame(1_990 * MS, SensorFrameGate.NO_CLOCK));
+        assertEquals(2, gate.getDroppedOutOfOrder());
+    }
+}
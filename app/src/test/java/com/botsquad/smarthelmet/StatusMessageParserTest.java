@@ -0,0 +1,159 @@
+package com.botsquad.smarthelmet;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the incremental NDJSON status parser used on the Bluetooth link
+ */
+public class StatusMessageParserTest {
+
+    /** Collects parsed statuses as "drowsy@timestamp" */
+    private static class Collector implements StatusMessageParser.Listener {
+        final List<String> statuses = new ArrayList<>();
+
+        @Override
+        public void onStatus(boolean drowsy, long timestampMs) {
+            statuses.add(drowsy + "@" + timestampMs);
+        }
+    }
+
+    private static void feed(StatusMessageParser parser, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        parser.feed(bytes, 0, bytes.length);
+    }
+
+    @Test
+    public void testSingleMessage() {
+        Collector collector = new Collector();
+        StatusMessageParser parser = new StatusMessageParser(collector);
+        feed(parser, "{\"is_eyes_closed\": true, \"timestamp\": 1718000000123}\n");
+        assertEquals(1, collector.statuses.size());
+        assertEquals("true@1718000000123", collector.statuses.get(0));
+    }
+
+    @Test
+    public void testSplitAndConcatenatedMessages() {
+        Collector collector = new Collector();
+        StatusMessageParser parser = new StatusMessageParser(collector);
+        feed(parser, "{\"is_drowsy\":true,\"time");
+        feed(parser, "stamp\":5}\n{\"is_drowsy\":false,\"timestamp\":6}\n{\"is_dro");
+        assertEquals(2, collector.statuses.size());
+        feed(parser, "wsy\":true}");  // no trailing newline
+        assertEquals(3, collector.statuses.size());
+        assertEquals("true@5", collector.statuses.get(0));
+        assertEquals("false@6", collector.statuses.get(1));
+        assertEquals("true@" + StatusMessageParser.NO_TIMESTAMP, collector.statuses.get(2));
+    }
+
+    @Test
+    public void testEyesClosedTakesPrecedenceOverDrowsy() {
+        Collector collector = new Collector();
+        StatusMessageParser parser = new StatusMessageParser(collector);
+        feed(parser, "{\"is_drowsy\":true,\"is_eyes_closed\":false,\"timestamp\":1}\n");
+        feed(parser, "{\"confidence\":0.9}\n");
+        assertEquals("false@1", collector.statuses.get(0));
+        assertEquals("false@-1", collector.statuses.get(1));
+    }
+
+    @Test
+    public void testNestedAndStringValuesSkipped() {
+        Collector collector = new Collector();
+        StatusMessageParser parser = new StatusMessageParser(collector);
+        feed(parser, "{\"meta\":{\"is_drowsy\":true,\"note\":\"} {\"},\"label\":\"a \\\"quoted\\\" }\","
+            + "\"boxes\":[[1,2,3,4]],\"is_drowsy\":\"false\",\"timestamp\":12.75,\"ok\":null}\n");
+        assertEquals(1, collector.statuses.size());
+        assertEquals("false@12", collector.statuses.get(0));
+    }
+
+    @Test
+    public void testTruncatedAndMalformedMessagesDropped() {
+        Collector collector = new Collector();
+        StatusMessageParser parser = new StatusMessageParser(collector);
+        feed(parser, "{\"is_drowsy\":tr\n");                 // cut off by the helmet restarting
+        feed(parser, "garbage }\n");
+        feed(parser, "{\"is_drowsy\":maybe}\n");              // not a boolean
+        feed(parser, "{\"is_drowsy\":true}\n");
+        assertEquals(1, collector.statuses.size());
+        assertEquals(2, parser.getMessagesDropped());
+        assertEquals(1, parser.getMessagesParsed());
+    }
+
+    @Test
+    public void testOversizedMessageDropped() {
+        Collector collector = new Collector();
+        StatusMessageParser parser = new StatusMessageParser(collector);
+        StringBuilder big = new StringBuilder("{\"padding\":\"");
+        for (int i = 0; i < StatusMessageParser.MAX_MESSAGE_BYTES; i++) {
+            big.append('x');
+        }
+        big.append("\",\"is_drowsy\":true}\n{\"is_drowsy\":true,\"timestamp\":9}\n");
+        feed(parser, big.toString());
+        assertEquals(1, collector.statuses.size());
+        assertEquals("true@9", collector.statuses.get(0));
+        assertEquals(1, parser.getMessagesDropped());
+    }
+
+    @Test
+    public void testRandomSplitsMatchJsonObject() throws Exception {
+        Random random = new Random(3);
+        StringBuilder stream = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            String line = "{\"is_eyes_closed\":" + random.nextBoolean() + ",\"confidence\":" + random.nextFloat()
+                + ",\"timestamp\":" + (1_700_000_000_000L + i * 33) + "}";
+            JSONObject reference = new JSONObject(line);
+            expected.add(reference.getBoolean("is_eyes_closed") + "@" + reference.getLong("timestamp"));
+            stream.append(line).append('\n');
+        }
+        byte[] bytes = stream.toString().getBytes(StandardCharsets.UTF_8);
+
+        Collector collector = new Collector();
+        StatusMessageParser parser = new StatusMessageParser(collector);
+        for (int offset = 0; offset < bytes.length; ) {
+            int count = Math.min(bytes.length - offset, 1 + random.nextInt(200));
+            parser.feed(bytes, offset, count);
+            offset += count;
+        }
+        assertEquals(expected, collector.statuses);
+    }
+
+    @Test
+    public void testLongStreamWithoutAllocation() throws Exception {
+        StringBuilder stream = new StringBuilder();
+        int messages = 5000;
+        for (int i = 0; i < messages; i++) {
+            stream.append("{\"is_eyes_closed\":").append(i % 3 == 0).append(",\"confidence\":0.87,\"timestamp\":")
+                .append(1_700_000_000_000L + i).append("}\n");
+        }
+        byte[] bytes = stream.toString().getBytes(StandardCharsets.UTF_8);
+
+        long[] count = new long[1];
+        StatusMessageParser parser = new StatusMessageParser((drowsy, timestampMs) -> count[0]++);
+        int rounds = 20;
+        for (int warmup = 0; warmup < 3; warmup++) {
+            parser.feed(bytes, 0, bytes.length);
+        }
+
+        count[0] = 0;
+        long alloc = Allocations.allocatedBytes();
+        for (int r = 0; r < rounds; r++) {
+            // Bluetooth-sized reads
+            for (int offset = 0; offset < bytes.length; offset += 990) {
+                parser.feed(bytes, offset, Math.min(990, bytes.length - offset));
+            }
+        }
+        alloc = Allocations.allocatedBytes() - alloc;
+
+        int total = messages * rounds;
+        assertEquals(total, count[0]);
+        assertTrue("Parser should not allocate per message (" + alloc + " B)", alloc < 16 * 1024);
+    }
+}
@@ -0,0 +1,226 @@
+package com.botsquad.smarthelmet;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the stride-aware YUV_420_888 converter
+ */
+public class YuvConverterTest {
+
+    /** Packed I420 test frame: Y (w*h), then U and V (each ceil(w/2)*ceil(h/2)) */
+    private static class Frame {
+        final int width;
+        final int height;
+        final int chromaWidth;
+        final int chromaHeight;
+        final byte[] y;
+        final byte[] u;
+        final byte[] v;
+
+        Frame(int width, int height, long seed) {
+            this.width = width;
+            this.height = height;
+            chromaWidth = (width + 1) / 2;
+            chromaHeight = (height + 1) / 2;
+            y = new byte[width * height];
+            u = new byte[chromaWidth * chromaHeight];
+            v = new byte[chromaWidth * chromaHeight];
+            Random random = new Random(seed);
+            random.nextBytes(y);
+            random.nextBytes(u);
+            random.nextBytes(v);
+            // Saturated corners to exercise clamping
+            y[0] = (byte) 255;
+            u[0] = (byte) 255;
+            v[0] = (byte) 255;
+            y[width * height - 1] = 0;
+            u[u.length - 1] = 0;
+            v[v.length - 1] = 0;
+        }
+
+        /** Reference conversion of source pixel (x, y), straight from the documented formula */
+        int argb(int x, int row) {
+            int luma = y[row * width + x] & 0xFF;
+            int chroma = (row / 2) * chromaWidth + x / 2;
+            int cu = (u[chroma] & 0xFF) - 128;
+            int cv = (v[chroma] & 0xFF) - 128;
+            int base = (luma << 16) + (1 << 15);
+            int r = clamp((base + 91881 * cv) >> 16);
+            int g = clamp((base - 22554 * cu - 46802 * cv) >> 16);
+            int b = clamp((base + 116130 * cu) >> 16);
+            return 0xFF000000 | (r << 16) | (g << 8) | b;
+        }
+
+        /** Planar layout with padded rows; the last row of each plane stops after its last pixel */
+        YuvConverter.Planes planar(int yPadding, int uvPadding) {
+            int yRowStride = width + yPadding;
+            int uvRowStride = chromaWidth + uvPadding;
+            ByteBuffer yBuffer = ByteBuffer.allocateDirect(yRowStride * (height - 1) + width);
+            for (int row = 0; row < height; row++) {
+                yBuffer.position(row * yRowStride);
+                yBuffer.put(y, row * width, width);
+            }
+            ByteBuffer uBuffer = ByteBuffer.allocateDirect(uvRowStride * (chromaHeight - 1) + chromaWidth);
+            ByteBuffer vBuffer = ByteBuffer.allocateDirect(uvRowStride * (chromaHeight - 1) + chromaWidth);
+            for (int row = 0; row < chromaHeight; row++) {
+                uBuffer.position(row * uvRowStride);
+                uBuffer.put(u, row * chromaWidth, chromaWidth);
+                vBuffer.position(row * uvRowStride);
+                vBuffer.put(v, row * chromaWidth, chromaWidth);
+            }
+            yBuffer.rewind();
+            uBuffer.rewind();
+            vBuffer.rewind();
+            return new YuvConverter.Planes().set(width, height, yBuffer, yRowStride, 1, uBuffer, vBuffer, uvRowStride, 1);
+        }
+
+        /** Semi-planar layout (NV21 when vFirst, else NV12) with interleaved chroma, like most camera HALs */
+        YuvConverter.Planes semiPlanar(int padding, boolean vFirst) {
+            int rowStride = width + padding;
+            ByteBuffer yBuffer = ByteBuffer.allocateDirect(rowStride * (height - 1) + width);
+            for (int row = 0; row < height; row++) {
+                yBuffer.position(row * rowStride);
+                yBuffer.put(y, row * width, width);
+            }
+            yBuffer.rewind();
+            int chromaLength = rowStride * (chromaHeight - 1) + chromaWidth * 2;
+            ByteBuffer chroma = ByteBuffer.allocateDirect(chromaLength);
+            for (int row = 0; row < chromaHeight; row++) {
+                for (int col = 0; col < chromaWidth; col++) {
+                    int at = row * rowStride + col * 2;
+                    chroma.put(at, vFirst ? v[row * chromaWidth + col] : u[row * chromaWidth + col]);
+                    chroma.put(at + 1, vFirst ? u[row * chromaWidth + col] : v[row * chromaWidth + col]);
+                }
+            }
+            // The second plane's buffer starts one byte in and is one byte shorter
+            chroma.position(1);
+            ByteBuffer second = chroma.slice();
+            ByteBuffer first = chroma.duplicate();
+            first.position(0).limit(chromaLength - 1);
+            first = first.slice();
+            ByteBuffer uBuffer = vFirst ? second : first;
+            ByteBuffer vBuffer = vFirst ? first : second;
+            return new YuvConverter.Planes().set(width, height, yBuffer, rowStride, 1, uBuffer, vBuffer, rowStride, 2);
+        }
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+
+    private static void assertMatchesReference(Frame frame, YuvConverter.Planes planes, int dstWidth, int dstHeight) {
+        int[] out = new int[dstWidth * dstHeight];
+        new YuvConverter().toArgb(planes, dstWidth, dstHeight, out);
+        for (int dy = 0; dy < dstHeight; dy++) {
+            for (int dx = 0; dx < dstWidth; dx++) {
+                int sx = dx * frame.width / dstWidth;
+                int sy = dy * frame.height / dstHeight;
+                int expected = frame.argb(sx, sy);
+                int actual = out[dy * dstWidth + dx];
+                if (expected != actual) {
+                    fail(String.format("Pixel (%d, %d): expected %08x, got %08x", dx, dy, expected, actual));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPlanarPaddedRowsMatchReference() {
+        Frame frame = new Frame(64, 48, 1);
+        assertMatchesReference(frame, frame.planar(16, 8), 64, 48);
+    }
+
+    @Test
+    public void testSemiPlanarLayoutsMatchReference() {
+        Frame frame = new Frame(64, 48, 2);
+        assertMatchesReference(frame, frame.semiPlanar(0, true), 64, 48);
+        assertMatchesReference(frame, frame.semiPlanar(32, true), 64, 48);
+        assertMatchesReference(frame, frame.semiPlanar(32, false), 64, 48);
+    }
+
+    @Test
+    public void testOddSizeMatchesReference() {
+        Frame frame = new Frame(37, 23, 3);
+        assertMatchesReference(frame, frame.planar(3, 5), 37, 23);
+        assertMatchesReference(frame, frame.semiPlanar(11, true), 37, 23);
+    }
+
+    @Test
+    public void testResizeSamplesNearestSourcePixel() {
+        Frame frame = new Frame(640, 480, 4);
+        YuvConverter.Planes planes = frame.semiPlanar(64, true);
+        assertMatchesReference(frame, planes, 320, 240);
+        assertMatchesReference(frame, planes, 100, 77);
+        // Upscaling too
+        Frame small = new Frame(20, 10, 5);
+        assertMatchesReference(small, small.planar(0, 0), 64, 33);
+    }
+
+    @Test
+    public void testCloseToFloatingPointBt601() {
+        Frame frame = new Frame(64, 48, 6);
+        int[] out = new int[64 * 48];
+        new YuvConverter().toArgb(frame.planar(0, 0), 64, 48, out);
+        for (int row = 0; row < 48; row++) {
+            for (int x = 0; x < 64; x++) {
+                double luma = frame.y[row * 64 + x] & 0xFF;
+                double cu = (frame.u[(row / 2) * 32 + x / 2] & 0xFF) - 128;
+                double cv = (frame.v[(row / 2) * 32 + x / 2] & 0xFF) - 128;
+                int argb = out[row * 64 + x];
+                assertEquals(clamp((int) Math.round(luma + 1.402 * cv)), (argb >> 16) & 0xFF, 1);
+                assertEquals(clamp((int) Math.round(luma - 0.344136 * cu - 0.714136 * cv)), (argb >> 8) & 0xFF, 1);
+                assertEquals(clamp((int) Math.round(luma + 1.772 * cu)), argb & 0xFF, 1);
+            }
+        }
+    }
+
+    @Test
+    public void testFloatTensorMatchesArgb() {
+        Frame frame = new Frame(64, 48, 7);
+        YuvConverter.Planes planes = frame.semiPlanar(16, true);
+        int size = 40;
+        ByteBuffer tensor = ByteBuffer.allocateDirect(16 + size * size * 12).order(ByteOrder.nativeOrder());
+        tensor.position(16);
+        YuvConverter converter = new YuvConverter();
+        converter.toFloatTensor(planes, size, size, tensor);
+        assertEquals(16, tensor.position());
+
+        int[] argb = new int[size * size];
+        converter.toArgb(planes, size, size, argb);
+        for (int i = 0; i < size * size; i++) {
+            int index = 16 + i * 12;
+            assertEquals(((argb[i] >> 16) & 0xFF) / 255f, tensor.getFloat(index), 0f);
+            assertEquals(((argb[i] >> 8) & 0xFF) / 255f, tensor.getFloat(index + 4), 0f);
+            assertEquals((argb[i] & 0xFF) / 255f, tensor.getFloat(index + 8), 0f);
+        }
+    }
+
+    @Test
+    public void testPlanePositionsUnchangedAndBuffersReused() {
+        Frame frame = new Frame(64, 48, 8);
+        YuvConverter.Planes planes = frame.semiPlanar(16, false);
+        YuvConverter converter = new YuvConverter();
+        int[] out = new int[64 * 48];
+        converter.toArgb(planes, 64, 48, out);
+        assertEquals(0, planes.y.position());
+        assertEquals(0, planes.u.position());
+        assertEquals(0, planes.v.position());
+
+        // Same frame again through the kept row buffers gives the same pixels
+        int[] again = new int[64 * 48];
+        converter.toArgb(planes, 64, 48, again);
+        assertArrayEquals(out, again);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsSmallOutput() {
+        Frame frame = new Frame(16, 16, 9);
+        new YuvConverter().toArgb(frame.planar(0, 0), 16, 16, new int[16 * 15]);
+    }
+}
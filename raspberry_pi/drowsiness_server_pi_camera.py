@@ -5,7 +5,7 @@ Uses ONNX Runtime for optimized inference
 NOW WITH PI CAMERA SUPPORT - Captures frames directly from Pi Camera
 """
 
-from flask import Flask, jsonify, Response
+from flask import Flask, jsonify, Response, request
 from flask_cors import CORS
 import cv2
 import numpy as np
@@ -14,6 +14,7 @@ import os
 import threading
 import time
 import io
+import base64
 
 # GPIO for vibration motor control
 try:
@@ -56,9 +57,16 @@ current_result = None
 current_frame = None  # Latest frame for streaming
 frame_lock = threading.Lock()  # Lock for frame access
 result_lock = threading.Lock()
+detector_lock = threading.Lock()  # Camera loop and uploaded images share one model
 capture_thread = None
 is_capturing = False
 
+# mDNS advertisement so the Android app can find the Pi without a hardcoded IP
+SERVICE_TYPE = "_smarthelmet._tcp.local."
+SERVER_PORT = 5000
+zeroconf_instance = None
+zeroconf_info = None
+
 # Vibration motor control
 VIBRATION_GPIO_PIN = 18
 vibration_motor = None
@@ -297,6 +305,9 @@ def capture_and_detect():
             if frame is None:
                 continue
             
+            # Wall-clock capture time so the app can tell how stale a result is
+            capture_ts_ms = int(time.time() * 1000)
+            
             # Store latest frame for streaming (thread-safe)
             with frame_lock:
                 current_frame = frame.copy()
@@ -305,7 +316,9 @@ def capture_and_detect():
             # This ensures accurate detection even with lower frame rates
             if detector is not None:
                 try:
-                    result = detector.get_detection_result(frame)
+                    with detector_lock:
+                        result = detector.get_detection_result(frame)
+                    result['capture_ts_ms'] = capture_ts_ms
                     
                     # Update current result (thread-safe)
                     with result_lock:
@@ -332,7 +345,8 @@ def capture_and_detect():
                     current_result = {
                         'is_drowsy': False,
                         'confidence': 0.0,
-                        'detections': []
+                        'detections': [],
+                        'capture_ts_ms': capture_ts_ms
                     }
                 # Stop vibration if no detector
                 handle_vibration_control(False)
@@ -348,6 +362,55 @@ def capture_and_detect():
     
     logger.info("Camera capture thread stopped")
 
+def get_local_ip():
+    """Best-effort LAN address of this Pi (no packets are actually sent)"""
+    import socket
+    sock = socket.socket(socket.AF_INET, socket.SOCK_DGRAM)
+    try:
+        sock.connect(("8.8.8.8", 80))
+        return sock.getsockname()[0]
+    except Exception:
+        return "127.0.0.1"
+    finally:
+        sock.close()
+
+def start_mdns_advertisement():
+    """Advertise the server over mDNS (optional - requires the zeroconf package)"""
+    global zeroconf_instance, zeroconf_info
+    try:
+        import socket
+        from zeroconf import ServiceInfo, Zeroconf
+    except ImportError:
+        logger.warning("zeroconf not installed - mDNS discovery disabled. Install with: pip install zeroconf")
+        return False
+
+    try:
+        hostname = socket.gethostname()
+        zeroconf_info = ServiceInfo(
+            SERVICE_TYPE,
+            f"Smart Helmet {hostname}.{SERVICE_TYPE}",
+            addresses=[socket.inet_aton(get_local_ip())],
+            port=SERVER_PORT,
+            properties={'path': '/health'},
+            server=f"{hostname}.local.",
+        )
+        zeroconf_instance = Zeroconf()
+        zeroconf_instance.register_service(zeroconf_info)
+        logger.info(f"mDNS service registered: {SERVICE_TYPE} on port {SERVER_PORT}")
+        return True
+    except Exception as e:
+        logger.error(f"Failed to register mDNS service: {e}")
+        return False
+
+def stop_mdns_advertisement():
+    if zeroconf_instance is not None:
+        try:
+            if zeroconf_info is not None:
+                zeroconf_instance.unregister_service(zeroconf_info)
+            zeroconf_instance.close()
+        except Exception as e:
+            logger.error(f"Error stopping mDNS advertisement: {e}")
+
 @app.route('/stream', methods=['GET'])
 def stream():
     """MJPEG video stream endpoint"""
@@ -368,10 +431,12 @@ def stream():
                 result, jpeg_frame = cv2.imencode('.jpg', frame, encode_param)
                 
                 if result:
-                    # MJPEG stream format
+                    # MJPEG stream format; Content-Length lets the app read each part in one go
+                    jpeg_bytes = jpeg_frame.tobytes()
                     yield (b'--frame\r\n'
-                           b'Content-Type: image/jpeg\r\n\r\n' + 
-                           jpeg_frame.tobytes() + b'\r\n')
+                           b'Content-Type: image/jpeg\r\n'
+                           b'Content-Length: ' + str(len(jpeg_bytes)).encode() + b'\r\n\r\n' +
+                           jpeg_bytes + b'\r\n')
                 else:
                     logger.warning("Failed to encode frame as JPEG")
                     time.sleep(0.2)
@@ -396,7 +461,59 @@ def health_check():
         'model_path': MODEL_PATH
     })
 
-@app.route('/detect', methods=['GET'])
+@app.route('/time', methods=['GET'])
+def get_time():
+    """
+    NTP-style clock exchange: the app combines these with its own send/receive
+    times to estimate the Pi-to-phone clock offset.
+    """
+    recv_ms = int(time.time() * 1000)
+    return jsonify({
+        'recv_ms': recv_ms,
+        'send_ms': int(time.time() * 1000)
+    })
+
+def detect_uploaded_image():
+    """
+    Run detection on an image POSTed by the app (phone camera mode).
+
+    Request JSON: {"image": base64 JPEG, optional "crop_x", "crop_y"}.
+    When the app sends only a face crop, crop_x/crop_y give its offset in the
+    full frame; boxes are shifted back so the app always sees full-frame coordinates.
+    Returns (result dict, None) or (None, (error response, status)).
+    """
+    if detector is None:
+        return None, (jsonify({'error': 'Detector not initialized'}), 500)
+
+    payload = request.get_json(silent=True) or {}
+    image_b64 = payload.get('image')
+    if not image_b64:
+        return None, (jsonify({'error': 'Missing image'}), 400)
+
+    try:
+        image_bytes = base64.b64decode(image_b64)
+        frame = cv2.imdecode(np.frombuffer(image_bytes, dtype=np.uint8), cv2.IMREAD_COLOR)
+    except Exception as e:
+        return None, (jsonify({'error': f'Invalid image: {e}'}), 400)
+    if frame is None:
+        return None, (jsonify({'error': 'Could not decode image'}), 400)
+
+    capture_ts_ms = int(time.time() * 1000)
+    with detector_lock:
+        result = detector.get_detection_result(frame)
+
+    offset_x = float(payload.get('crop_x', 0) or 0)
+    offset_y = float(payload.get('crop_y', 0) or 0)
+    for det in result.get('detections', []):
+        bbox = det.get('bbox')
+        if bbox and len(bbox) >= 4:
+            det['bbox'] = [bbox[0] + offset_x, bbox[1] + offset_y,
+                           bbox[2] + offset_x, bbox[3] + offset_y]
+    result['boxes_full_frame'] = True
+    result['capture_ts_ms'] = capture_ts_ms
+    return result, None
+
+@app.route('/detect', methods=['GET', 'POST'])
 def get_detection():
     """
     Get current drowsiness detection result from Pi Camera
@@ -408,6 +525,10 @@ def get_detection():
         "detections": [...]
     }
     """
+    if request.method == 'POST':
+        result, error = detect_uploaded_image()
+        return error if error else jsonify(result)
+
     if detector is None:
         return jsonify({
             'error': 'Detector not initialized'
@@ -429,7 +550,7 @@ def get_detection():
         
         return jsonify(current_result)
 
-@app.route('/detect_simple', methods=['GET'])
+@app.route('/detect_simple', methods=['GET', 'POST'])
 def get_detection_simple():
     """
     Simplified endpoint that returns only is_drowsy boolean
@@ -440,6 +561,21 @@ def get_detection_simple():
         "confidence": float
     }
     """
+    if request.method == 'POST':
+        result, error = detect_uploaded_image()
+        if error:
+            return error
+        response = {
+            'is_drowsy': result.get('is_drowsy', False),
+            'confidence': result.get('confidence', 0.0),
+            'capture_ts_ms': result['capture_ts_ms']
+        }
+        # Best face box in full-frame coordinates, so the app can plan its next crop
+        boxed = [d for d in result.get('detections', []) if d.get('bbox')]
+        if boxed:
+            response['bbox'] = max(boxed, key=lambda d: d.get('confidence', 0.0))['bbox']
+        return jsonify(response)
+
     if detector is None:
         return jsonify({
             'error': 'Detector not initialized'
@@ -460,7 +596,8 @@ def get_detection_simple():
         
         return jsonify({
             'is_drowsy': current_result.get('is_drowsy', False),
-            'confidence': current_result.get('confidence', 0.0)
+            'confidence': current_result.get('confidence', 0.0),
+            'capture_ts_ms': current_result.get('capture_ts_ms', 0)
         })
 
 @app.route('/test_vibration', methods=['GET'])
@@ -536,12 +673,16 @@ if __name__ == '__main__':
         capture_thread.start()
         logger.info("Camera capture thread started")
     
+    # Let the Android app discover this server
+    start_mdns_advertisement()
+    
     # Run server
     # Use 0.0.0.0 to allow connections from other devices on the network
     try:
-        app.run(host='0.0.0.0', port=5000, debug=False, threaded=True)
+        app.run(host='0.0.0.0', port=SERVER_PORT, debug=False, threaded=True)
     finally:
         # Cleanup
+        stop_mdns_advertisement()
         is_capturing = False
         if capture_thread is not None:
             capture_thread.join(timeout=2)